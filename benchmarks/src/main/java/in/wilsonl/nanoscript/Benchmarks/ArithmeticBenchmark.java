@@ -0,0 +1,79 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Evaluation of arithmetic and comparisons in tight loops, on already
+ *  compiled scripts, so only the evaluator is measured.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+  @Param({"10000"})
+  public int iterations;
+
+  private ChunkNode integerLoop;
+  private ChunkNode floatLoop;
+  private ChunkNode whileLoop;
+
+  @Setup
+  public void setUp () {
+    integerLoop = Scripts.compile("" +
+      "create total as 0\n" +
+      "for i in range(" + iterations + ") do\n" +
+      "    set total to total + i * 3 - i % 7\n" +
+      "endfor\n" +
+      "export total as result\n");
+    floatLoop = Scripts.compile("" +
+      "create x as 0.5\n" +
+      "for i in range(" + iterations + ") do\n" +
+      "    set x to x * 1.000001 + 0.25 / (i + 1)\n" +
+      "endfor\n" +
+      "export x as result\n");
+    whileLoop = Scripts.compile("" +
+      "create i as 0\n" +
+      "create evens as 0\n" +
+      "while i < " + iterations + " before\n" +
+      "    if i % 2 == 0 and i >= 0 then\n" +
+      "        set evens to evens + 1\n" +
+      "    endif\n" +
+      "    set i to i + 1\n" +
+      "endwhile\n" +
+      "export evens as result\n");
+  }
+
+  @Benchmark
+  public NSData integerForLoop () {
+    return Scripts.run(integerLoop);
+  }
+
+  @Benchmark
+  public NSData floatForLoop () {
+    return Scripts.run(floatLoop);
+  }
+
+  @Benchmark
+  public NSData whileLoopWithComparisons () {
+    return Scripts.run(whileLoop);
+  }
+}
@@ -0,0 +1,151 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Hashing, checksums and bit sets written with bitwise operators, each next
+ *  to the same work emulated with arithmetic, as scripts had to before there
+ *  were bitwise operators (and as the Richards macro benchmark still does).
+ *  Both versions of each produce the same result.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitwiseBenchmark {
+  @Param({"2000"})
+  public int iterations;
+
+  private ChunkNode hashOperators;
+  private ChunkNode hashArithmetic;
+  private ChunkNode checksumOperators;
+  private ChunkNode checksumArithmetic;
+  private ChunkNode bitSetOperators;
+  private ChunkNode bitSetArithmetic;
+
+  private static String hashScript (String iterations, String step) {
+    return "" +
+           "create total as 0\n" +
+           "for i in range(" + iterations + ") do\n" +
+           "    create h as 5381\n" +
+           "    for c in [i, 104, 97, 115, 104] do\n" +
+           "        set h to " + step + "\n" +
+           "    endfor\n" +
+           "    set total to total + h\n" +
+           "endfor\n" +
+           "export total as result\n";
+  }
+
+  @Setup
+  public void setUp () {
+    String n = Integer.toString(iterations);
+    hashOperators = Scripts.compile(hashScript(n, "((h << 5) + h + c) & 4294967295"));
+    hashArithmetic = Scripts.compile(hashScript(n, "(h * 32 + h + c) % 4294967296"));
+    checksumOperators = Scripts.compile("" +
+      "create sum as 0\n" +
+      "for i in range(" + n + ") do\n" +
+      "    set sum to sum \\ (i * 40503 & 65535)\n" +
+      "endfor\n" +
+      "export sum as result\n");
+    checksumArithmetic = Scripts.compile("" +
+      "create xor16 as fn (a, b)\n" +
+      "    create result as 0\n" +
+      "    create bit as 1\n" +
+      "    for j in range(16) do\n" +
+      "        if a % 2 ~= b % 2 then\n" +
+      "            set result to result + bit\n" +
+      "        endif\n" +
+      "        set a to (a - a % 2) / 2\n" +
+      "        set b to (b - b % 2) / 2\n" +
+      "        set bit to bit * 2\n" +
+      "    endfor\n" +
+      "    return result\n" +
+      "endfn\n" +
+      "create sum as 0\n" +
+      "for i in range(" + n + ") do\n" +
+      "    set sum to xor16(sum, i * 40503 % 65536)\n" +
+      "endfor\n" +
+      "export sum as result\n");
+    bitSetOperators = Scripts.compile("" +
+      "create count as 0\n" +
+      "for i in range(" + n + ") do\n" +
+      "    create bits as 0\n" +
+      "    for j in range(0, 48, 3) do\n" +
+      "        set bits to bits | (1 << (i + j) % 48)\n" +
+      "    endfor\n" +
+      "    for j in range(48) do\n" +
+      "        if (bits >> j & 1) == 1 then\n" +
+      "            set count to count + 1\n" +
+      "        endif\n" +
+      "    endfor\n" +
+      "endfor\n" +
+      "export count as result\n");
+    bitSetArithmetic = Scripts.compile("" +
+      "create count as 0\n" +
+      "for i in range(" + n + ") do\n" +
+      "    create bits as 0\n" +
+      "    for j in range(0, 48, 3) do\n" +
+      "        create bit as 2 ^ ((i + j) % 48)\n" +
+      "        if bits % (bit * 2) < bit then\n" +
+      "            set bits to bits + bit\n" +
+      "        endif\n" +
+      "    endfor\n" +
+      "    create bit as 1\n" +
+      "    for j in range(48) do\n" +
+      "        if bits % (bit * 2) >= bit then\n" +
+      "            set count to count + 1\n" +
+      "        endif\n" +
+      "        set bit to bit * 2\n" +
+      "    endfor\n" +
+      "endfor\n" +
+      "export count as result\n");
+  }
+
+  @Benchmark
+  public NSData hashWithOperators () {
+    return Scripts.run(hashOperators);
+  }
+
+  @Benchmark
+  public NSData hashWithArithmetic () {
+    return Scripts.run(hashArithmetic);
+  }
+
+  @Benchmark
+  public NSData checksumWithOperators () {
+    return Scripts.run(checksumOperators);
+  }
+
+  @Benchmark
+  public NSData checksumWithArithmetic () {
+    return Scripts.run(checksumArithmetic);
+  }
+
+  @Benchmark
+  public NSData bitSetWithOperators () {
+    return Scripts.run(bitSetOperators);
+  }
+
+  @Benchmark
+  public NSData bitSetWithArithmetic () {
+    return Scripts.run(bitSetArithmetic);
+  }
+}
@@ -0,0 +1,70 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Call-heavy recursion, which is dominated by argument binding, frame
+ *  setup and returning through nested code blocks.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FibBenchmark {
+  @Param({"20"})
+  public int n;
+
+  private ChunkNode fib;
+  private ChunkNode fibWithLocals;
+
+  @Setup
+  public void setUp () {
+    fib = Scripts.compile("" +
+      "create fib as fn (n)\n" +
+      "    if n < 2 then\n" +
+      "        return n\n" +
+      "    endif\n" +
+      "    return fib(n - 1) + fib(n - 2)\n" +
+      "endfn\n" +
+      "export fib(" + n + ") as result\n");
+    // Declares a lambda, so every call needs a frame of its own
+    fibWithLocals = Scripts.compile("" +
+      "create fib as fn (n)\n" +
+      "    if n < 2 then\n" +
+      "        return n\n" +
+      "    endif\n" +
+      "    create a as fib(n - 1)\n" +
+      "    create add as fn (b) return a + b endfn\n" +
+      "    return add(fib(n - 2))\n" +
+      "endfn\n" +
+      "export fib(" + n + ") as result\n");
+  }
+
+  @Benchmark
+  public NSData recursive () {
+    return Scripts.run(fib);
+  }
+
+  @Benchmark
+  public NSData recursiveWithCapturedFrames () {
+    return Scripts.run(fibWithLocals);
+  }
+}
@@ -0,0 +1,136 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Exception.CyclicImportException;
+import in.wilsonl.nanoscript.Exception.NoSuchModuleException;
+import in.wilsonl.nanoscript.Interpreting.Exports;
+import in.wilsonl.nanoscript.ModuleCache;
+import in.wilsonl.nanoscript.Parsing.ChunkCache;
+import in.wilsonl.nanoscript.ScriptEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Time to run a script that imports a tree of <modules> modules, each of
+ *  which imports up to two others and declares a class and a handful of
+ *  functions. The modules are written to a temporary directory once.
+ *
+ *  cold: nothing is cached, so every module is read, parsed and compiled.
+ *  diskCached: parsed chunks come from a warm on-disk ChunkCache.
+ *  warm: an engine that has already run the script is reused, so only
+ *  evaluation remains.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportStartupBenchmark {
+  private static final String MAIN = "main.nanoscript";
+
+  @Param({"64"})
+  public int modules;
+
+  private File directory;
+  private File astCacheDirectory;
+  private ScriptEngine warmEngine;
+
+  private String module (int i) {
+    StringBuilder source = new StringBuilder();
+    for (int dep : new int[]{i * 2 + 1, i * 2 + 2}) {
+      if (dep < modules) {
+        source.append("from `module").append(dep).append(".nanoscript` import value as v").append(dep).append('\n');
+      }
+    }
+    source.append("class Thing").append(i).append(" begin\n")
+      .append("    variable count as 0\n")
+      .append("    method bump: (n)\n")
+      .append("        set self.count to self.count + n\n")
+      .append("        return self.count\n")
+      .append("    endmethod\n")
+      .append("endclass\n");
+    for (int f = 0; f < 8; f++) {
+      source.append("create helper").append(f).append(" as fn (a, b)\n")
+        .append("    if a > b then\n")
+        .append("        return a * ").append(f).append(" - b\n")
+        .append("    endif\n")
+        .append("    return [a, b, `").append(f).append("`]\n")
+        .append("endfn\n");
+    }
+    source.append("export ").append(i).append(" as value\n");
+    return source.toString();
+  }
+
+  private static void write (File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void deleteRecursively (File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    //noinspection ResultOfMethodCallIgnored
+    file.delete();
+  }
+
+  private static ScriptEngine newEngine (File astCacheDirectory) {
+    return new ScriptEngine(new ModuleCache(ModuleCache.DEFAULT_CAPACITY, new ChunkCache(astCacheDirectory)), ScriptEngine.ModulePolicy.PER_RUN);
+  }
+
+  @Setup
+  public void setUp () throws IOException, CyclicImportException, NoSuchModuleException {
+    directory = Files.createTempDirectory("nanoscript-bench").toFile().getCanonicalFile();
+    astCacheDirectory = new File(directory, "ast-cache");
+    for (int i = 0; i < modules; i++) {
+      write(new File(directory, "module" + i + ".nanoscript"), module(i));
+    }
+    write(new File(directory, MAIN), "from `module0.nanoscript` import value\nexport value as result\n");
+
+    warmEngine = newEngine(null);
+    warmEngine.run(MAIN, directory);
+    // Fills the on-disk cache
+    newEngine(astCacheDirectory).run(MAIN, directory);
+  }
+
+  @TearDown
+  public void tearDown () {
+    deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public Exports cold () throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    return newEngine(null).run(MAIN, directory);
+  }
+
+  @Benchmark
+  public Exports diskCached () throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    return newEngine(astCacheDirectory).run(MAIN, directory);
+  }
+
+  @Benchmark
+  public Exports warm () throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    return warmEngine.run(MAIN, directory);
+  }
+}
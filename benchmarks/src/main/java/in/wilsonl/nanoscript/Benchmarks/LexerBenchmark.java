@@ -0,0 +1,89 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Exception.UnexpectedEndOfCodeException;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Parsing.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Throughput of Code and Lexer over a large synthetic source, made by
+ *  repeating a snippet that has a bit of every kind of token: keywords,
+ *  identifiers, numbers, strings, comments and multi-character operators.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+  private static final String SNIPPET = "" +
+    "\"Compute something for row {n}\"\n" +
+    "create row_{n} as fn (a, b, optional c)\n" +
+    "    if a <= b and not (c is null) then\n" +
+    "        return a * 2.5e3 + b ^ 2 - `text with \\`escapes\\``\n" +
+    "    elseif a >= b or c ?? false then\n" +
+    "        set values[a] to {`key`: [1, 2, 0x1F]}\n" +
+    "    endif\n" +
+    "    return obj?.member.method(a <=> b, #list)\n" +
+    "endfn\n";
+
+  @Param({"100", "10000"})
+  public int repetitions;
+
+  private String source;
+
+  @Setup
+  public void setUp () {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < repetitions; i++) {
+      builder.append(SNIPPET.replace("{n}", Integer.toString(i)));
+    }
+    source = builder.toString();
+  }
+
+  @Benchmark
+  public int lexAll () {
+    Lexer lexer = new Lexer(new Code(source));
+    int count = 0;
+    try {
+      while (true) {
+        Token token = lexer.lex();
+        if (token != null) {
+          count++;
+        }
+      }
+    } catch (UnexpectedEndOfCodeException ueoce) {
+      return count;
+    }
+  }
+
+  @Benchmark
+  public int codeOnly () {
+    // Just reading the characters, as a baseline for lexAll
+    Code code = new Code(source);
+    int sum = 0;
+    try {
+      while (true) {
+        sum += code.accept();
+      }
+    } catch (UnexpectedEndOfCodeException ueoce) {
+      return sum;
+    }
+  }
+}
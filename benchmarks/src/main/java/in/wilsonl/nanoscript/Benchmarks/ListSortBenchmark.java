@@ -0,0 +1,74 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinNSListMethods;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSList;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  BuiltinNSListMethods.sort with the natural order (nsCompare) and with a
+ *  comparator written in script. Every invocation sorts a fresh copy of the
+ *  same shuffled values; copying is cheap compared to sorting.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListSortBenchmark {
+  @Param({"1000", "100000"})
+  public int size;
+
+  private NSData[] numbers;
+  private NSData[] strings;
+  private List<NSData> scriptComparator;
+
+  @Setup
+  public void setUp () {
+    Random random = new Random(42);
+    numbers = new NSData[size];
+    strings = new NSData[size];
+    for (int i = 0; i < size; i++) {
+      numbers[i] = NSNumber.from(random.nextInt());
+      strings[i] = NSString.from(Long.toString(random.nextLong(), 36));
+    }
+    NSData comparator = Scripts.run(Scripts.compile("" +
+      "export fn (a, b) return a - b endfn as result\n"));
+    scriptComparator = Collections.singletonList(comparator);
+  }
+
+  @Benchmark
+  public NSData numbersNaturalOrder () {
+    return BuiltinNSListMethods.sort(NSList.from(numbers), Collections.emptyList());
+  }
+
+  @Benchmark
+  public NSData stringsNaturalOrder () {
+    return BuiltinNSListMethods.sort(NSList.from(strings), Collections.emptyList());
+  }
+
+  @Benchmark
+  public NSData numbersScriptComparator () {
+    return BuiltinNSListMethods.sort(NSList.from(numbers), scriptComparator);
+  }
+}
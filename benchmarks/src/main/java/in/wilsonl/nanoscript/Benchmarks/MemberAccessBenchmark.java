@@ -0,0 +1,77 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Reading and writing members of NSObjects and calling their methods,
+ *  including inherited ones, from script code.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberAccessBenchmark {
+  private static final String CLASSES = "" +
+    "class Point begin\n" +
+    "    variable x as 0\n" +
+    "    variable y as 0\n" +
+    "    method length: ()\n" +
+    "        return self.x + self.y\n" +
+    "    endmethod\n" +
+    "endclass\n" +
+    "class Point3 : Point begin\n" +
+    "    variable z as 0\n" +
+    "endclass\n";
+
+  @Param({"10000"})
+  public int iterations;
+
+  private ChunkNode fields;
+  private ChunkNode methods;
+
+  @Setup
+  public void setUp () {
+    fields = Scripts.compile(CLASSES +
+      "create p as Point3()\n" +
+      "for i in range(" + iterations + ") do\n" +
+      "    set p.x to p.x + 1\n" +
+      "    set p.z to p.y + p.z + 2\n" +
+      "endfor\n" +
+      "export p.x + p.z as result\n");
+    methods = Scripts.compile(CLASSES +
+      "create points as [Point(), Point3()]\n" +
+      "create total as 0\n" +
+      "for i in range(" + iterations + ") do\n" +
+      "    set total to total + points[i % 2].length()\n" +
+      "endfor\n" +
+      "export total as result\n");
+  }
+
+  @Benchmark
+  public NSData fieldReadsAndWrites () {
+    return Scripts.run(fields);
+  }
+
+  @Benchmark
+  public NSData polymorphicMethodCalls () {
+    return Scripts.run(methods);
+  }
+}
@@ -0,0 +1,87 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ *
+ *  Lexing and parsing of sources made of deeply nested and very long
+ *  expressions, which stress the shunting yard and the token buffer rather
+ *  than statement parsing.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+  private static final String[] OPERATORS = {"+", "-", "*", "/", "%", "^", "<", "==", "and", "or"};
+
+  @Param({"16", "256"})
+  public int depth;
+
+  private String nestedSource;
+  private String chainedSource;
+  private String callsSource;
+
+  @Setup
+  public void setUp () {
+    // ((((a + 1) * 2) - 3) ...)
+    StringBuilder nested = new StringBuilder("create x as ");
+    for (int i = 0; i < depth; i++) {
+      nested.append('(');
+    }
+    nested.append('a');
+    for (int i = 0; i < depth; i++) {
+      nested.append(' ').append(OPERATORS[i % OPERATORS.length]).append(' ').append(i).append(')');
+    }
+    nestedSource = nested.append('\n').toString();
+
+    // a + 1 * 2 - 3 ... with every precedence level mixed together
+    StringBuilder chained = new StringBuilder("create x as a");
+    for (int i = 0; i < depth * 4; i++) {
+      chained.append(' ').append(OPERATORS[i % OPERATORS.length]).append(" -").append(i);
+    }
+    chainedSource = chained.append('\n').toString();
+
+    // f(g(h(...)))[0].m
+    StringBuilder calls = new StringBuilder("create x as ");
+    for (int i = 0; i < depth; i++) {
+      calls.append("f").append(i).append('(');
+    }
+    calls.append("a");
+    for (int i = 0; i < depth; i++) {
+      calls.append(", ").append(i).append(")[").append(i).append("].m");
+    }
+    callsSource = calls.append('\n').toString();
+  }
+
+  @Benchmark
+  public Chunk nestedParentheses () {
+    return Scripts.parse(nestedSource);
+  }
+
+  @Benchmark
+  public Chunk longOperatorChain () {
+    return Scripts.parse(chainedSource);
+  }
+
+  @Benchmark
+  public Chunk nestedCalls () {
+    return Scripts.parse(callsSource);
+  }
+}
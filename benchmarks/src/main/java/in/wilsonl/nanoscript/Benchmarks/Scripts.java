@@ -0,0 +1,31 @@
+package in.wilsonl.nanoscript.Benchmarks;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Interpreter;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Parsing.Parser;
+import in.wilsonl.nanoscript.Parsing.Tokens;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+
+// Helpers shared by the benchmarks; none of this is measured
+final class Scripts {
+  // This is a static class
+  private Scripts () {
+  }
+
+  static Chunk parse (String source) {
+    return Parser.parse(new Tokens(new Lexer(new Code(source))));
+  }
+
+  static ChunkNode compile (String source) {
+    return Interpreter.compile(parse(source));
+  }
+
+  // Runs a script that does not import anything, and returns what it exports
+  // as `result`
+  static NSData run (ChunkNode compiled) {
+    return Interpreter.interpret(null, compiled).get("result");
+  }
+}
@@ -0,0 +1,153 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ *
+ *  Builds the code and constant pool of one function.
+ *
+ *  Temporaries are numbered from zero while the code is emitted, as the number
+ *  of variable registers before them isn't known until every block has been
+ *  compiled; the operands that refer to them are moved past the variables
+ *  when the code is finished.
+ *
+ */
+class Assembler {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] code = new int[INITIAL_CAPACITY];
+  private Position[] positions = new Position[INITIAL_CAPACITY];
+  private int length = 0;
+  private int instructionStart = -1;
+  private Position position = null;
+
+  private final List<Object> constants = new ArrayList<>();
+  private final Map<Object, Integer> constantIndices = new HashMap<>();
+
+  private int[] temporaryOperands = new int[16];
+  private int temporaryOperandsCount = 0;
+
+  private void append (int word) {
+    if (length == code.length) {
+      code = Arrays.copyOf(code, length * 2);
+      positions = Arrays.copyOf(positions, length * 2);
+    }
+    code[length++] = word;
+  }
+
+  // Position of the syntax that instructions emitted from now on come from
+  Position setPosition (Position position) {
+    Position previous = this.position;
+    if (position != null) {
+      this.position = position;
+    }
+    return previous;
+  }
+
+  void restorePosition (Position position) {
+    this.position = position;
+  }
+
+  int getLength () {
+    return length;
+  }
+
+  void emit (int opcode) {
+    instructionStart = length;
+    append(opcode);
+    positions[instructionStart] = position;
+  }
+
+  void operand (int value) {
+    append(value);
+  }
+
+  void register (Register register) {
+    if (register.isTemporary()) {
+      if (temporaryOperandsCount == temporaryOperands.length) {
+        temporaryOperands = Arrays.copyOf(temporaryOperands, temporaryOperandsCount * 2);
+      }
+      temporaryOperands[temporaryOperandsCount++] = length;
+    }
+    append(register.getIndex());
+  }
+
+  // A register, or a constant encoded as a negative number
+  void registerOrConstant (Operand operand) {
+    if (operand.isConstant()) {
+      append(-1 - operand.getConstant());
+    } else {
+      register(operand.getRegister());
+    }
+  }
+
+  void jump (Label label) {
+    if (label.target == -1) {
+      label.references.add(new int[]{instructionStart, length});
+      append(0);
+    } else {
+      append(label.target - instructionStart);
+    }
+  }
+
+  void bind (Label label) {
+    if (label.target != -1) {
+      throw new InternalStateError("Label bound twice");
+    }
+    label.target = length;
+    for (int[] r : label.references) {
+      code[r[1]] = length - r[0];
+    }
+  }
+
+  // Constants with equal keys share an index, so <value> must not be mutable
+  int constant (Object key, Object value) {
+    Integer index = constantIndices.get(key);
+    if (index == null) {
+      index = constants.size();
+      constants.add(value);
+      constantIndices.put(key, index);
+    }
+    return index;
+  }
+
+  int constant (Object value) {
+    return constant(value, value);
+  }
+
+  // For constants that must not be shared, like inline caches
+  int uniqueConstant (Object value) {
+    constants.add(value);
+    return constants.size() - 1;
+  }
+
+  // Returns the code, with temporaries numbered from <firstTemporary>
+  int[] finishCode (int firstTemporary) {
+    for (int i = 0; i < temporaryOperandsCount; i++) {
+      code[temporaryOperands[i]] += firstTemporary;
+    }
+    temporaryOperandsCount = 0;
+    return Arrays.copyOf(code, length);
+  }
+
+  Position[] finishPositions () {
+    return Arrays.copyOf(positions, length);
+  }
+
+  Object[] finishConstants () {
+    return constants.toArray();
+  }
+
+  static class Label {
+    private int target = -1;
+    // Pairs of the start of a jump instruction and its offset operand
+    private final List<int[]> references = new ArrayList<>();
+  }
+}
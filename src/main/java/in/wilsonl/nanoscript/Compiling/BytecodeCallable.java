@@ -0,0 +1,114 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.ArgumentsValidator;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSCallable;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ *
+ *  The bytecode counterpart of NSVirtualCallable, with the same frame reuse.
+ *
+ *  The VM calls it with the arguments still in the caller's registers; if
+ *  every parameter takes exactly one argument and there are as many
+ *  arguments as parameters, they are copied straight into the frame instead
+ *  of being matched.
+ *
+ */
+// REMEMBER: A callable never loses its context
+public class BytecodeCallable extends NSCallable {
+  private final Context parentContext;
+  private final FunctionPrototype prototype;
+  private final AtomicReference<Context> spareFrame; // Null if frames can be captured
+
+  private BytecodeCallable (Context parentContext, NSObject selfValue, ArgumentsValidator parameters, FunctionPrototype prototype, AtomicReference<Context> spareFrame) {
+    super(selfValue, parameters);
+    this.parentContext = parentContext;
+    this.prototype = prototype;
+    this.spareFrame = spareFrame;
+  }
+
+  public static BytecodeCallable from (Context parentContext, FunctionPrototype prototype) {
+    // Parameters without default values don't depend on the context
+    ArgumentsValidator parameters = prototype.getContextFreeParameters();
+    if (parameters == null) {
+      parameters = new ArgumentsValidator(parentContext, prototype.getParameters());
+    }
+    // A generator's frame lives as long as the generator
+    AtomicReference<Context> spareFrame = prototype.isFrameCaptured() || prototype.isGenerator() ? null : new AtomicReference<>();
+    return new BytecodeCallable(parentContext, null, parameters, prototype, spareFrame);
+  }
+
+  private Context acquireFrame () {
+    if (spareFrame != null) {
+      Context frame = spareFrame.getAndSet(null);
+      if (frame != null) {
+        return frame;
+      }
+    }
+    return new Context(parentContext, prototype.getFrameSize());
+  }
+
+  private void releaseFrame (Context frame) {
+    if (spareFrame != null) {
+      frame.clearSymbols();
+      spareFrame.compareAndSet(null, frame);
+    }
+  }
+
+  @Override
+  protected NSData applyBody (NSObject self, List<NSArgument> arguments) {
+    Context frame = acquireFrame();
+    try {
+      // Arguments are written straight into the parameters' registers
+      parameters.match(arguments, frame, prototype.getFirstParameterSlot());
+      return applyBody(frame, self);
+    } finally {
+      releaseFrame(frame);
+    }
+  }
+
+  private NSData applyBody (Context frame, NSObject self) {
+    if (prototype.hasSelf()) {
+      frame.setSymbol(0, self);
+    }
+    if (prototype.isGenerator()) {
+      return new BytecodeGenerator(prototype, frame);
+    }
+    return JvmCompiler.run(prototype, frame);
+  }
+
+  // Calls with the <count> arguments starting at register <first> of <registers>;
+  // <optional> is null if none of them are optional
+  NSData call (NSData[] registers, int first, int count, boolean[] optional) {
+    return callAsMethod(selfValue, registers, first, count, optional);
+  }
+
+  NSData callAsMethod (NSObject self, NSData[] registers, int first, int count, boolean[] optional) {
+    if (optional != null || !prototype.hasSimpleParameters() || count != prototype.getParameters().length) {
+      return applyBody(self, VirtualMachine.arguments(registers, first, count, optional));
+    }
+    Context frame = acquireFrame();
+    try {
+      // Calls usually have few arguments, for which a loop is cheaper than System.arraycopy
+      NSData[] slots = frame.getSymbols();
+      int slot = prototype.getFirstParameterSlot();
+      for (int i = 0; i < count; i++) {
+        slots[slot + i] = registers[first + i];
+      }
+      return applyBody(frame, self);
+    } finally {
+      releaseFrame(frame);
+    }
+  }
+
+  @Override
+  protected NSCallable rebindSelf (NSObject to) {
+    return new BytecodeCallable(parentContext, to, parameters, prototype, spareFrame);
+  }
+}
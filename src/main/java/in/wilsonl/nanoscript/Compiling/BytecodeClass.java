@@ -0,0 +1,70 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Data.Shape;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+// The bytecode counterpart of NSVirtualClass; static variables are set by the
+// chunk's code after the class is created
+class BytecodeClass extends NSClass {
+  private final Context parentContext;
+  private final FunctionPrototype instanceVariablesInitialiser; // Can be null
+
+  private BytecodeClass (Context parentContext, Shape rootShape, FunctionPrototype instanceVariablesInitialiser) {
+    super(rootShape);
+    this.parentContext = parentContext;
+    this.instanceVariablesInitialiser = instanceVariablesInitialiser;
+  }
+
+  // The parents are the <parentsCount> values starting at register <firstParent>
+  static BytecodeClass from (Context parentContext, ClassPrototype prototype, NSData[] registers, int firstParent, int parentsCount) {
+    // Parent context should be the global/chunk context,
+    // as nested or variable classes are not allowed
+    BytecodeClass nsClass = new BytecodeClass(parentContext, prototype.getRootShape(), prototype.getInstanceVariablesInitialiser());
+    nsClass.setName(prototype.getName());
+
+    for (int i = 0; i < parentsCount; i++) {
+      NSData result = registers[firstParent + i];
+      if (result.getType() != Type.CLASS) {
+        throw VMError.from(BuiltinClass.TypeError, String.format("Parent `%s` is not a class", prototype.getParentNames().get(i)));
+      }
+      nsClass.addParent((NSClass) result);
+    }
+
+    FunctionPrototype constructor = prototype.getConstructor();
+    if (constructor != null) {
+      // `self` will be rebound when called
+      nsClass.setConstructor(BytecodeCallable.from(parentContext, constructor));
+    }
+
+    for (ClassPrototype.Method method : prototype.getMethods()) {
+      // `self` will be rebound when called
+      BytecodeCallable callable = BytecodeCallable.from(parentContext, method.getPrototype());
+      if (method.isStatic()) {
+        nsClass.addStaticMethod(method.getName(), callable);
+      } else {
+        nsClass.addInstanceMethod(method.getName(), callable);
+      }
+    }
+
+    return nsClass;
+  }
+
+  void addStatic (String name, NSData value) {
+    addStaticVariable(name, value);
+  }
+
+  @Override
+  protected void applyOwnInstanceVariables (NSObject target) {
+    if (instanceVariablesInitialiser != null) {
+      // Register 0 of the frame is `self`
+      Context frame = new Context(parentContext, instanceVariablesInitialiser.getFrameSize());
+      frame.setSymbol(0, target);
+      VirtualMachine.run(instanceVariablesInitialiser, frame);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinFunction;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import in.wilsonl.nanoscript.Syntax.Identifier;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+
+public class BytecodeCompiler {
+  // This is a static class
+  private BytecodeCompiler () {
+  }
+
+  public static CompiledChunk compileChunk (Chunk chunk) {
+    Scope scope = Scope.forChunk();
+    // Builtins and imports are set before the body runs
+    BitSet assigned = new BitSet();
+
+    for (BuiltinFunction f : EnumSet.allOf(BuiltinFunction.class)) {
+      assigned.set(scope.declare(f.name()));
+    }
+    for (BuiltinClass f : EnumSet.allOf(BuiltinClass.class)) {
+      assigned.set(scope.declare(f.name()));
+    }
+    for (ImportStatement st_impstmt : chunk.getImports()) {
+      for (ImportStatement.Import st_impunit : st_impstmt.getImports()) {
+        Identifier importAs = st_impunit.getAlias() == null ?
+          st_impunit.getImportable() :
+          st_impunit.getAlias();
+        // A self import without an alias is reported by the interpreter
+        if (importAs != null) {
+          assigned.set(scope.declare(importAs.getName()));
+        }
+      }
+    }
+    scope.declareCreatedIn(chunk.getCodeBlock());
+
+    FunctionPrototype body = FunctionCompiler.compileChunk(scope, assigned, chunk.getCodeBlock());
+    return new CompiledChunk(chunk.getImports(), scope.getOwnSlots(), body);
+  }
+}
@@ -0,0 +1,69 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSIterator;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+/*
+ *
+ *  The bytecode counterpart of NSGenerator. A yield saves where the code was
+ *  (the instruction after it, the current context and the error handlers),
+ *  which the next call resumes from; the frame itself already holds
+ *  everything else.
+ *
+ */
+class BytecodeGenerator extends NSIterator {
+  private final FunctionPrototype prototype;
+  private final Context frame;
+  private int pc = 0;
+  private Context context;
+  private Handlers handlers = null;
+  // If false after running, the body returned or threw
+  private boolean suspended = false;
+  private boolean running = false;
+  private boolean finished = false;
+
+  BytecodeGenerator (FunctionPrototype prototype, Context frame) {
+    this.prototype = prototype;
+    this.frame = frame;
+    this.context = frame;
+  }
+
+  // Called by the yield instruction
+  void suspend (int pc, Context context, Handlers handlers) {
+    this.pc = pc;
+    this.context = context;
+    this.handlers = handlers;
+    suspended = true;
+  }
+
+  @Override
+  public NSData nextOrNull () {
+    if (finished) {
+      return null;
+    }
+    if (running) {
+      throw VMError.from(BuiltinClass.ValueError, "Generator is already running");
+    }
+
+    NSData value;
+    running = true;
+    suspended = false;
+    try {
+      value = VirtualMachine.run(prototype, frame, context, pc, handlers, this);
+    } catch (RuntimeException | Error e) {
+      finished = true;
+      throw e;
+    } finally {
+      running = false;
+    }
+
+    if (!suspended) {
+      finished = true;
+      return null;
+    }
+    return value;
+  }
+}
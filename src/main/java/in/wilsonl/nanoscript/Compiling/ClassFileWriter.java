@@ -0,0 +1,336 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ *
+ *  Writes a class file for a public final class, with only the parts of the
+ *  format that JvmCompiler needs.
+ *
+ *  Classes are written as version 49, which the JVM verifies by inference, so
+ *  no stack map frames are needed. Branch offsets are 16 bits, so a method's
+ *  code must stay under 32 KiB.
+ *
+ */
+class ClassFileWriter {
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  static final int ACONST_NULL = 0x01;
+  static final int ICONST_0 = 0x03;
+  static final int BIPUSH = 0x10;
+  static final int SIPUSH = 0x11;
+  static final int LDC_W = 0x13;
+  static final int ILOAD = 0x15;
+  static final int ALOAD = 0x19;
+  static final int AALOAD = 0x32;
+  static final int ISTORE = 0x36;
+  static final int ASTORE = 0x3a;
+  static final int AASTORE = 0x53;
+  static final int IXOR = 0x82;
+  static final int IFEQ = 0x99;
+  static final int IFNE = 0x9a;
+  static final int GOTO = 0xa7;
+  static final int ARETURN = 0xb0;
+  static final int RETURN = 0xb1;
+  static final int INVOKESPECIAL = 0xb7;
+  static final int INVOKESTATIC = 0xb8;
+  static final int ATHROW = 0xbf;
+  static final int CHECKCAST = 0xc0;
+  static final int IFNULL = 0xc6;
+
+  static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+  private final DataOutputStream pool = new DataOutputStream(poolBytes);
+  private final Map<List<Object>, Integer> poolIndices = new HashMap<>();
+  private int poolCount = 1;
+
+  private final int thisClass;
+  private final int superClass;
+  private final int[] interfaces;
+  private final List<byte[]> methods = new ArrayList<>();
+
+  // Names are internal names, like "java/lang/Object"
+  ClassFileWriter (String name, String... interfaceNames) {
+    thisClass = classRef(name);
+    superClass = classRef("java/lang/Object");
+    interfaces = new int[interfaceNames.length];
+    for (int i = 0; i < interfaceNames.length; i++) {
+      interfaces[i] = classRef(interfaceNames[i]);
+    }
+  }
+
+  static String internalName (Class<?> c) {
+    return c.getName().replace('.', '/');
+  }
+
+  static String descriptor (Class<?> c) {
+    if (c.isArray()) {
+      return "[" + descriptor(c.getComponentType());
+    }
+    if (c == void.class) {
+      return "V";
+    }
+    if (c == boolean.class) {
+      return "Z";
+    }
+    if (c == int.class) {
+      return "I";
+    }
+    if (c.isPrimitive()) {
+      throw new InternalStateError("Unsupported primitive type");
+    }
+    return "L" + internalName(c) + ";";
+  }
+
+  static String descriptor (Method m) {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (Class<?> p : m.getParameterTypes()) {
+      descriptor.append(descriptor(p));
+    }
+    return descriptor.append(')').append(descriptor(m.getReturnType())).toString();
+  }
+
+  private int entry (List<Object> key, int tag, PoolWriter writer) {
+    Integer index = poolIndices.get(key);
+    if (index == null) {
+      try {
+        pool.writeByte(tag);
+        writer.write();
+      } catch (IOException e) {
+        // Writing to memory can't fail
+        throw new InternalStateError(e.getMessage());
+      }
+      index = poolCount++;
+      poolIndices.put(key, index);
+    }
+    return index;
+  }
+
+  int utf8 (String value) {
+    return entry(Arrays.asList(CONSTANT_UTF8, value), CONSTANT_UTF8, () -> pool.writeUTF(value));
+  }
+
+  int integer (int value) {
+    return entry(Arrays.asList(CONSTANT_INTEGER, value), CONSTANT_INTEGER, () -> pool.writeInt(value));
+  }
+
+  int classRef (String name) {
+    int nameIndex = utf8(name);
+    return entry(Arrays.asList(CONSTANT_CLASS, name), CONSTANT_CLASS, () -> pool.writeShort(nameIndex));
+  }
+
+  private int nameAndType (String name, String descriptor) {
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    return entry(Arrays.asList(CONSTANT_NAME_AND_TYPE, name, descriptor), CONSTANT_NAME_AND_TYPE, () -> {
+      pool.writeShort(nameIndex);
+      pool.writeShort(descriptorIndex);
+    });
+  }
+
+  int methodRef (String owner, String name, String descriptor) {
+    int ownerIndex = classRef(owner);
+    int nameAndTypeIndex = nameAndType(name, descriptor);
+    return entry(Arrays.asList(CONSTANT_METHODREF, owner, name, descriptor), CONSTANT_METHODREF, () -> {
+      pool.writeShort(ownerIndex);
+      pool.writeShort(nameAndTypeIndex);
+    });
+  }
+
+  void addMethod (int access, String name, String descriptor, Code code) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    byte[] instructions = code.finish();
+    try {
+      out.writeShort(access);
+      out.writeShort(utf8(name));
+      out.writeShort(utf8(descriptor));
+      // The Code attribute
+      out.writeShort(1);
+      out.writeShort(utf8("Code"));
+      out.writeInt(12 + instructions.length + 8 * code.handlers.size());
+      out.writeShort(code.maxStack);
+      out.writeShort(code.maxLocals);
+      out.writeInt(instructions.length);
+      out.write(instructions);
+      out.writeShort(code.handlers.size());
+      for (int[] handler : code.handlers) {
+        for (int value : handler) {
+          out.writeShort(value);
+        }
+      }
+      out.writeShort(0);
+    } catch (IOException e) {
+      throw new InternalStateError(e.getMessage());
+    }
+    methods.add(bytes.toByteArray());
+  }
+
+  byte[] toByteArray () {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(49);
+      out.writeShort(poolCount);
+      out.write(poolBytes.toByteArray());
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(interfaces.length);
+      for (int i : interfaces) {
+        out.writeShort(i);
+      }
+      // No fields
+      out.writeShort(0);
+      out.writeShort(methods.size());
+      for (byte[] m : methods) {
+        out.write(m);
+      }
+      // No attributes
+      out.writeShort(0);
+    } catch (IOException e) {
+      throw new InternalStateError(e.getMessage());
+    }
+    return bytes.toByteArray();
+  }
+
+  private interface PoolWriter {
+    void write () throws IOException;
+  }
+
+  static class Label {
+    private int offset = -1;
+    // Each is the offset of a branch instruction and of its 16 bit operand
+    private final List<int[]> references = new ArrayList<>();
+  }
+
+  // The code of one method
+  class Code {
+    private final List<int[]> handlers = new ArrayList<>();
+    private final List<Label> labels = new ArrayList<>();
+    private byte[] code = new byte[256];
+    private int length = 0;
+    private int maxStack = 0;
+    private int maxLocals = 0;
+
+    void setLimits (int maxStack, int maxLocals) {
+      this.maxStack = maxStack;
+      this.maxLocals = maxLocals;
+    }
+
+    int length () {
+      return length;
+    }
+
+    private void u1 (int value) {
+      if (length == code.length) {
+        code = Arrays.copyOf(code, length * 2);
+      }
+      code[length++] = (byte) value;
+    }
+
+    private void u2 (int value) {
+      u1(value >> 8);
+      u1(value);
+    }
+
+    void op (int opcode) {
+      u1(opcode);
+    }
+
+    void pushInt (int value) {
+      if (value >= -1 && value <= 5) {
+        u1(ICONST_0 + value);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        u1(BIPUSH);
+        u1(value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        u1(SIPUSH);
+        u2(value);
+      } else {
+        u1(LDC_W);
+        u2(integer(value));
+      }
+    }
+
+    // <opcode> is one of ILOAD, ALOAD, ISTORE and ASTORE
+    void local (int opcode, int index) {
+      u1(opcode);
+      u1(index);
+    }
+
+    void checkcast (Class<?> type) {
+      u1(CHECKCAST);
+      u2(classRef(internalName(type)));
+    }
+
+    void invokestatic (Method method) {
+      u1(INVOKESTATIC);
+      u2(methodRef(internalName(method.getDeclaringClass()), method.getName(), descriptor(method)));
+    }
+
+    void invokespecial (String owner, String name, String descriptor) {
+      u1(INVOKESPECIAL);
+      u2(methodRef(owner, name, descriptor));
+    }
+
+    Label newLabel () {
+      Label label = new Label();
+      labels.add(label);
+      return label;
+    }
+
+    void bind (Label label) {
+      label.offset = length;
+    }
+
+    void jump (int opcode, Label label) {
+      label.references.add(new int[]{length, length + 1});
+      u1(opcode);
+      u2(0);
+    }
+
+    // Errors of <type> thrown from [<start>, <end>) jump to <handler>
+    void addHandler (Label start, Label end, Label handler, Class<?> type) {
+      handlers.add(new int[]{start.offset, end.offset, handler.offset, classRef(internalName(type))});
+    }
+
+    private byte[] finish () {
+      if (length > MAX_CODE_LENGTH) {
+        throw new InternalStateError("Method is too large");
+      }
+      for (Label label : labels) {
+        for (int[] r : label.references) {
+          if (label.offset == -1) {
+            throw new InternalStateError("Label was never bound");
+          }
+          int offset = label.offset - r[0];
+          code[r[1]] = (byte) (offset >> 8);
+          code[r[1] + 1] = (byte) offset;
+        }
+      }
+      return Arrays.copyOf(code, length);
+    }
+  }
+}
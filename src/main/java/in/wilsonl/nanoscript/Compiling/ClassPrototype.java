@@ -0,0 +1,75 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Data.Shape;
+
+import java.util.List;
+
+// The parts of a class statement that don't depend on the context it is
+// declared in; parents and static variables are evaluated by the chunk's code
+public class ClassPrototype {
+  private final String name;
+  private final List<String> parentNames;
+  private final FunctionPrototype constructor; // Can be null
+  private final List<Method> methods;
+  // Sets every instance variable of `self`, in order; null if there are none
+  private final FunctionPrototype instanceVariablesInitialiser;
+  // Shared by every class created from this prototype, like
+  // ClassStatementNode's
+  private final Shape rootShape = Shape.createRoot();
+
+  ClassPrototype (String name, List<String> parentNames, FunctionPrototype constructor, List<Method> methods, FunctionPrototype instanceVariablesInitialiser) {
+    this.name = name;
+    this.parentNames = parentNames;
+    this.constructor = constructor;
+    this.methods = methods;
+    this.instanceVariablesInitialiser = instanceVariablesInitialiser;
+  }
+
+  public String getName () {
+    return name;
+  }
+
+  public List<String> getParentNames () {
+    return parentNames;
+  }
+
+  public FunctionPrototype getConstructor () {
+    return constructor;
+  }
+
+  public List<Method> getMethods () {
+    return methods;
+  }
+
+  public FunctionPrototype getInstanceVariablesInitialiser () {
+    return instanceVariablesInitialiser;
+  }
+
+  public Shape getRootShape () {
+    return rootShape;
+  }
+
+  public static class Method {
+    private final String name;
+    private final boolean isStatic;
+    private final FunctionPrototype prototype;
+
+    Method (String name, boolean isStatic, FunctionPrototype prototype) {
+      this.name = name;
+      this.isStatic = isStatic;
+      this.prototype = prototype;
+    }
+
+    public String getName () {
+      return name;
+    }
+
+    public boolean isStatic () {
+      return isStatic;
+    }
+
+    public FunctionPrototype getPrototype () {
+      return prototype;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+
+import java.util.List;
+import java.util.Map;
+
+// The bytecode counterpart of ChunkNode; it holds no per-evaluation state
+public class CompiledChunk {
+  private final List<ImportStatement> imports;
+  // Registers of builtins, imports and chunk level variables
+  private final Map<String, Integer> globalSlots;
+  private final FunctionPrototype body;
+
+  CompiledChunk (List<ImportStatement> imports, Map<String, Integer> globalSlots, FunctionPrototype body) {
+    this.imports = imports;
+    this.globalSlots = globalSlots;
+    this.body = body;
+  }
+
+  public List<ImportStatement> getImports () {
+    return imports;
+  }
+
+  public int getGlobalSlot (String name) {
+    Integer slot = globalSlots.get(name);
+    if (slot == null) {
+      throw new InternalStateError("Global was not declared");
+    }
+    return slot;
+  }
+
+  // The chunk's frame also holds the temporaries of its code
+  public int getGlobalsCount () {
+    return body.getFrameSize();
+  }
+
+  public FunctionPrototype getBody () {
+    return body;
+  }
+}
@@ -0,0 +1,22 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+// Lets ArgumentsValidator evaluate a compiled default value like any other
+// expression, in the context the lambda was declared in
+class DefaultValueNode extends ExpressionNode {
+  private final FunctionPrototype thunk;
+
+  DefaultValueNode (Position position, FunctionPrototype thunk) {
+    super(position);
+    this.thunk = thunk;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    return VirtualMachine.run(thunk, new Context(context, thunk.getFrameSize()));
+  }
+}
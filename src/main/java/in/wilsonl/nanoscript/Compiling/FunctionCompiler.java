@@ -0,0 +1,1516 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSParameter;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSString;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Syntax.Class.Class;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassConstructor;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassMethod;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassVariable;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Expression.AnonymousObjectExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.CallExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ConditionalBranchesExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.BinaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.UnaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.IdentifierExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ListExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralBooleanExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNullExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNumberExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralStringExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LookupExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.MapExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.SelfExpression;
+import in.wilsonl.nanoscript.Syntax.Operator;
+import in.wilsonl.nanoscript.Syntax.Parameter;
+import in.wilsonl.nanoscript.Syntax.Reference;
+import in.wilsonl.nanoscript.Syntax.Statement.BreakStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ConditionalBranchesStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExpressionStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ForStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.LoopStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.NextStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ReturnStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.SetStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+import in.wilsonl.nanoscript.Syntax.Statement.ThrowStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.TryStatement;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static in.wilsonl.nanoscript.Compiling.Opcode.*;
+
+/*
+ *
+ *  Compiles the code of one function (or the chunk, or another unit of code
+ *  that runs in a frame of its own) to a FunctionPrototype. It mirrors
+ *  CodeBlockCompiler and ExpressionCompiler, so the code it produces behaves
+ *  like the nodes they produce, including the order values are evaluated in
+ *  and the errors that are thrown.
+ *
+ *  Registers of variables that are known to have been created at a point in
+ *  the code are tracked, so that reading or setting them doesn't need to check
+ *  that they exist or to look through other candidates; they can then be used
+ *  directly as operands, as long as nothing can set them before the operand
+ *  is used.
+ *
+ */
+class FunctionCompiler {
+  private static final Map<String, NSData.Type> SPECIAL_INSTANCEOF_TARGETS = _createSpecialInstanceOfTargets();
+
+  private final Assembler asm = new Assembler();
+  private final Scope functionScope;
+  private Scope scope;
+  // Registers of variables that have definitely been created at this point
+  private BitSet assigned;
+  private int temporariesCount = 0;
+  private int maxTemporariesCount = 0;
+  // Innermost last
+  private final Deque<Target> targets = new ArrayDeque<>();
+  private int blockDepth = 0;
+  private int handlerDepth = 0;
+  private boolean generator = false;
+
+  private FunctionCompiler (Scope functionScope, BitSet assigned) {
+    this.functionScope = functionScope;
+    this.scope = functionScope;
+    this.assigned = assigned;
+  }
+
+  private static Map<String, NSData.Type> _createSpecialInstanceOfTargets () {
+    Map<String, NSData.Type> map = new HashMap<>();
+
+    map.put("Boolean", NSData.Type.BOOLEAN);
+    map.put("Callable", NSData.Type.CALLABLE);
+    map.put("Class", NSData.Type.CLASS);
+    map.put("Iterator", NSData.Type.ITERATOR);
+    map.put("List", NSData.Type.LIST);
+    map.put("Map", NSData.Type.MAP);
+    map.put("Number", NSData.Type.NUMBER);
+    map.put("Object", NSData.Type.OBJECT);
+    map.put("String", NSData.Type.STRING);
+    map.put("Task", NSData.Type.TASK);
+
+    return map;
+  }
+
+  // <scope> should have every variable the chunk can hold declared, and
+  // <assigned> should have the registers of the ones set before it runs
+  static FunctionPrototype compileChunk (Scope scope, BitSet assigned, CodeBlock codeBlock) {
+    FunctionCompiler compiler = new FunctionCompiler(scope, assigned);
+    compiler.compileCodeBlock(codeBlock);
+    compiler.asm.emit(RETURN_NULL);
+    return compiler.finish(new NSParameter[0], false, false);
+  }
+
+  // <type> should be FUNCTION or METHOD; <hasSelfValue> should be true if
+  // `self` is always set, i.e. for constructors and instance methods
+  private static FunctionPrototype compileLambda (Scope scope, LambdaExpression expression, Scope.Type type, boolean hasSelfValue) {
+    List<Parameter> st_params = expression.getParameters();
+    boolean flattened = !LambdaFinder.containsLambda(expression.getBody());
+    Scope lambdaScope = scope.createFunction(type, flattened);
+    BitSet assigned = new BitSet();
+    if (hasSelfValue) {
+      assigned.set(0);
+    }
+    int firstParameterSlot = type == Scope.Type.METHOD ? 1 : 0;
+
+    NSParameter[] parameters = new NSParameter[st_params.size()];
+    for (int i = 0; i < parameters.length; i++) {
+      Parameter st_p = st_params.get(i);
+      String name = st_p.getName().getName();
+      // Parameters occupy consecutive registers, in order
+      if (lambdaScope.declare(name) != firstParameterSlot + i) {
+        throw VMError.from(st_p.getName().getPosition(), BuiltinClass.SyntaxError, String.format("Parameter `%s` is declared more than once", name));
+      }
+      // Every parameter is set before the body runs
+      assigned.set(firstParameterSlot + i);
+      Expression st_default = st_p.getDefaultValue();
+      // Default values are evaluated in the context the lambda was declared in
+      parameters[i] = new NSParameter(
+        st_p.isOptional(),
+        st_p.isVariableLength(),
+        name,
+        null,
+        st_default == null ? null : new DefaultValueNode(st_default.getPosition(), compileDefaultValue(scope, st_default)));
+    }
+
+    lambdaScope.declareCreatedIn(expression.getBody());
+    FunctionCompiler compiler = new FunctionCompiler(lambdaScope, assigned);
+    compiler.asm.setPosition(expression.getPosition());
+    compiler.compileCodeBlock(expression.getBody());
+    compiler.asm.emit(RETURN_NULL);
+    return compiler.finish(parameters, type == Scope.Type.METHOD, !flattened);
+  }
+
+  // A default value is compiled as a function of no parameters that returns it
+  private static FunctionPrototype compileDefaultValue (Scope scope, Expression expression) {
+    // Nothing is declared in it, so it has no blocks to flatten
+    FunctionCompiler compiler = new FunctionCompiler(scope.createFunction(Scope.Type.FUNCTION, true), new BitSet());
+    compiler.asm.setPosition(expression.getPosition());
+    Register value = compiler.compileRegister(expression, false);
+    compiler.asm.emit(RETURN);
+    compiler.asm.register(value);
+    return compiler.finish(new NSParameter[0], false, false);
+  }
+
+  // Sets each instance variable of `self`, which is register 0, in order
+  private static FunctionPrototype compileInstanceVariablesInitialiser (Scope scope, List<ClassVariable> variables) {
+    FunctionCompiler compiler = new FunctionCompiler(scope.createFunction(Scope.Type.INITIALISER, true), new BitSet());
+    compiler.assigned.set(0);
+    for (ClassVariable st_var : variables) {
+      Expression st_init = st_var.getVariable().getInitialiser();
+      compiler.asm.setPosition(st_init.getPosition());
+      Register value = compiler.compileRegister(st_init, false);
+      compiler.asm.emit(INIT_MEMBER);
+      compiler.asm.register(Register.variable(0));
+      compiler.asm.operand(compiler.asm.constant(st_var.getVariable().getName().getName()));
+      compiler.asm.register(value);
+      compiler.temporariesCount = 0;
+    }
+    compiler.asm.emit(RETURN_NULL);
+    return compiler.finish(new NSParameter[0], false, false);
+  }
+
+  private FunctionPrototype finish (NSParameter[] parameters, boolean hasSelf, boolean frameCaptured) {
+    int registersCount = functionScope.getRegistersCount();
+    return new FunctionPrototype(
+      asm.finishCode(registersCount),
+      asm.finishConstants(),
+      asm.finishPositions(),
+      registersCount + maxTemporariesCount,
+      parameters,
+      hasSelf,
+      frameCaptured,
+      generator);
+  }
+
+  private Register newTemporary () {
+    Register temporary = Register.temporary(temporariesCount++);
+    if (temporariesCount > maxTemporariesCount) {
+      maxTemporariesCount = temporariesCount;
+    }
+    return temporary;
+  }
+
+  // Allocates <count> consecutive temporaries and returns the first
+  private Register newTemporaries (int count) {
+    Register first = Register.temporary(temporariesCount);
+    for (int i = 0; i < count; i++) {
+      newTemporary();
+    }
+    return first;
+  }
+
+  private static Register offset (Register first, int offset) {
+    return Register.temporary(first.getIndex() + offset);
+  }
+
+  private int constantFor (LiteralExpression<?> expression) {
+    if (expression instanceof LiteralBooleanExpression) {
+      NSBoolean value = NSBoolean.from(((LiteralBooleanExpression) expression).getValue());
+      return asm.constant(value);
+
+    } else if (expression instanceof LiteralStringExpression) {
+      String value = ((LiteralStringExpression) expression).getValue();
+      return asm.constant(Arrays.asList(NSString.class, value), NSString.from(value));
+
+    } else if (expression instanceof LiteralNullExpression) {
+      return asm.constant(NSNull.NULL);
+
+    } else if (expression instanceof LiteralNumberExpression) {
+      double value = ((LiteralNumberExpression) expression).getValue();
+      // Keyed by bits so that 0 and -0 aren't merged
+      return asm.constant(Arrays.asList(NSNumber.class, Double.doubleToRawLongBits(value)), NSNumber.from(value));
+
+    } else {
+      throw new InternalStateError("Unknown literal type");
+    }
+  }
+
+  // Nothing can run while these are evaluated
+  private static boolean isInert (Expression expression) {
+    return expression instanceof LiteralExpression ||
+           expression instanceof IdentifierExpression ||
+           expression instanceof SelfExpression ||
+           expression instanceof LambdaExpression;
+  }
+
+  /*
+   *
+   *  If true, compiling <expression> into a register writes the register once,
+   *  after everything else it does has succeeded, so a variable's register can
+   *  be the destination without it ever holding a partial result.
+   *
+   */
+  private static boolean isSingleWrite (Expression expression) {
+    if (expression instanceof ConditionalBranchesExpression) {
+      ConditionalBranchesExpression st_cond = (ConditionalBranchesExpression) expression;
+      for (ConditionalBranchesExpression.Branch b : st_cond.getConditionalBranches()) {
+        if (!isSingleWrite(b.getValue())) {
+          return false;
+        }
+      }
+      return isSingleWrite(st_cond.getFinalBranchValue());
+    }
+    if (expression instanceof BinaryExpression) {
+      BinaryExpression st_binary = (BinaryExpression) expression;
+      switch (st_binary.getOperator()) {
+      case AND:
+      case OR:
+      case NULL_COALESCING:
+        return isSingleWrite(st_binary.getRHS());
+      }
+    }
+    return true;
+  }
+
+  // Returns the register of a variable (or `self`) that can be used as an
+  // operand directly, or null
+  private Register directRegister (Expression expression, boolean followedByCode) {
+    // Only the function's own code can set its registers if nothing can
+    // capture them
+    if (followedByCode && !scope.isFlattened()) {
+      return null;
+    }
+    String name;
+    if (expression instanceof IdentifierExpression) {
+      name = ((IdentifierExpression) expression).getIdentifier().getName();
+    } else if (expression instanceof SelfExpression) {
+      name = "self";
+    } else {
+      return null;
+    }
+    VariableReference ref = scope.resolve(name);
+    if (ref.getCandidatesCount() > 0 && ref.isInFrame(0) && assigned.get(ref.getSlot(0))) {
+      return Register.variable(ref.getSlot(0));
+    }
+    return null;
+  }
+
+  // Returns a register holding the value of <expression>; <followedByCode>
+  // should be true if more code runs before the register is used
+  private Register compileRegister (Expression expression, boolean followedByCode) {
+    Register direct = directRegister(expression, followedByCode);
+    if (direct != null) {
+      return direct;
+    }
+    Register temporary = newTemporary();
+    compileInto(expression, temporary);
+    return temporary;
+  }
+
+  private Operand compileOperand (Expression expression, boolean followedByCode) {
+    if (expression instanceof LiteralExpression) {
+      return Operand.constant(constantFor((LiteralExpression<?>) expression));
+    }
+    return Operand.of(compileRegister(expression, followedByCode));
+  }
+
+  private void emitMove (Register destination, Register source) {
+    if (!destination.equals(source)) {
+      asm.emit(MOVE);
+      asm.register(destination);
+      asm.register(source);
+    }
+  }
+
+  private void emitLoadConstant (Register destination, int constant) {
+    asm.emit(LOAD_CONSTANT);
+    asm.register(destination);
+    asm.operand(constant);
+  }
+
+  // Evaluates <expressions> into consecutive temporaries and returns the first
+  private Register compileConsecutive (List<Expression> expressions) {
+    Register first = newTemporaries(expressions.size());
+    for (int i = 0; i < expressions.size(); i++) {
+      compileInto(expressions.get(i), offset(first, i));
+    }
+    return first;
+  }
+
+  private void compileCodeBlock (CodeBlock codeBlock) {
+    for (Statement statement : codeBlock.getBody()) {
+      int temporariesBase = temporariesCount;
+      Position previous = asm.setPosition(statement.getPosition());
+      compileStatement(statement);
+      asm.restorePosition(previous);
+      temporariesCount = temporariesBase;
+    }
+  }
+
+  // Compiles <codeBlock>, after which the variables it creates can't be
+  // relied on
+  private void compileNestedCodeBlock (CodeBlock codeBlock) {
+    BitSet saved = (BitSet) assigned.clone();
+    compileCodeBlock(codeBlock);
+    assigned = saved;
+  }
+
+  private void emitClear (Scope block) {
+    if (block.hasFrame()) {
+      asm.emit(CLEAR_BLOCK);
+    } else if (block.getRegistersCount() > 0) {
+      asm.emit(CLEAR_REGISTERS);
+      asm.register(Register.variable(block.getFirstRegister()));
+      asm.operand(block.getRegistersCount());
+    }
+  }
+
+  // A block's variables don't exist when it is entered
+  private void enterBlock (Scope block) {
+    if (block.hasFrame()) {
+      asm.emit(ENTER_BLOCK);
+      asm.operand(block.getFrameSize());
+      blockDepth++;
+    } else {
+      emitClear(block);
+    }
+    scope = block;
+  }
+
+  private void leaveBlock (Scope block, Scope parent) {
+    if (block.hasFrame()) {
+      asm.emit(LEAVE_BLOCKS);
+      asm.operand(1);
+      blockDepth--;
+    }
+    scope = parent;
+  }
+
+  private void emitRaise (String message) {
+    // Like the tree walker, these errors are reported where the function
+    // was called, so the instruction has no position
+    Position previous = asm.setPosition(null);
+    asm.restorePosition(null);
+    asm.emit(RAISE);
+    asm.operand(asm.constant(message));
+    asm.restorePosition(previous);
+  }
+
+  private void emitJumpTo (Target target, Assembler.Label label) {
+    if (handlerDepth > target.handlerDepth) {
+      asm.emit(END_TRY);
+      asm.operand(handlerDepth - target.handlerDepth);
+    }
+    if (blockDepth > target.blockDepth) {
+      asm.emit(LEAVE_BLOCKS);
+      asm.operand(blockDepth - target.blockDepth);
+    }
+    asm.emit(JUMP);
+    asm.jump(label);
+  }
+
+  private void compileStatement (Statement statement) {
+    if (statement instanceof BreakStatement) {
+      // A break exits the innermost case or loop
+      Target target = targets.peekLast();
+      if (target == null) {
+        emitRaise("Invalid break or next statement");
+      } else {
+        emitJumpTo(target, target.breakLabel);
+      }
+
+    } else if (statement instanceof CaseStatement) {
+      compileCaseStatement((CaseStatement) statement);
+
+    } else if (statement instanceof ClassStatement) {
+      compileClassStatement((ClassStatement) statement);
+
+    } else if (statement instanceof ConditionalBranchesStatement) {
+      compileConditionalBranchesStatement((ConditionalBranchesStatement) statement);
+
+    } else if (statement instanceof CreateStatement) {
+      compileCreateStatement((CreateStatement) statement);
+
+    } else if (statement instanceof ExportStatement) {
+      compileExportStatement((ExportStatement) statement);
+
+    } else if (statement instanceof ExpressionStatement) {
+      Expression st_expr = ((ExpressionStatement) statement).getExpression();
+      if (st_expr instanceof UnaryExpression && ((UnaryExpression) st_expr).getOperator() == Operator.YIELD) {
+        compileYieldStatement((UnaryExpression) st_expr);
+      } else {
+        compileRegister(st_expr, false);
+      }
+
+    } else if (statement instanceof ForStatement) {
+      compileForStatement((ForStatement) statement);
+
+    } else if (statement instanceof LoopStatement) {
+      compileLoopStatement((LoopStatement) statement);
+
+    } else if (statement instanceof NextStatement) {
+      // A next continues the innermost loop, through any cases
+      Target target = null;
+      for (java.util.Iterator<Target> it = targets.descendingIterator(); it.hasNext(); ) {
+        Target t = it.next();
+        if (t.nextLabel != null) {
+          target = t;
+          break;
+        }
+      }
+      if (target == null) {
+        emitRaise("Invalid break or next statement");
+      } else {
+        emitJumpTo(target, target.nextLabel);
+      }
+
+    } else if (statement instanceof ReturnStatement) {
+      compileReturnStatement((ReturnStatement) statement);
+
+    } else if (statement instanceof SetStatement) {
+      compileSetStatement((SetStatement) statement);
+
+    } else if (statement instanceof ThrowStatement) {
+      Register value = compileRegister(((ThrowStatement) statement).getValue(), false);
+      asm.emit(THROW);
+      asm.register(value);
+
+    } else if (statement instanceof TryStatement) {
+      compileTryStatement((TryStatement) statement);
+
+    } else {
+      throw new InternalStateError("Unknown statement type");
+    }
+  }
+
+  private void compileYieldStatement (UnaryExpression expression) {
+    Scope.Type type = functionScope.getType();
+    if (type != Scope.Type.FUNCTION && type != Scope.Type.METHOD) {
+      throw VMError.from(expression.getPosition(), BuiltinClass.SyntaxError, "Yield can only be used in a function or method");
+    }
+    generator = true;
+    Register value = compileRegister(expression.getOperand(), false);
+    asm.emit(YIELD);
+    asm.register(value);
+  }
+
+  private void compileReturnStatement (ReturnStatement statement) {
+    Expression st_val = statement.getValue();
+    Register value = st_val == null ? null : compileRegister(st_val, false);
+    if (functionScope.getType() == Scope.Type.CHUNK) {
+      emitRaise("Can't return from top level");
+    } else if (value == null) {
+      asm.emit(RETURN_NULL);
+    } else {
+      asm.emit(RETURN);
+      asm.register(value);
+    }
+  }
+
+  private void compileCreateStatement (CreateStatement statement) {
+    String name = statement.getIdentifier().getName();
+    int slot = scope.getOwnSlot(name);
+    Register value = compileRegister(statement.getValue(), false);
+    if (scope.hasRegisters()) {
+      asm.emit(CREATE_REGISTER);
+      asm.register(Register.variable(slot));
+      asm.register(value);
+      asm.operand(asm.constant(name));
+      assigned.set(slot);
+    } else {
+      asm.emit(CREATE_SLOT);
+      asm.operand(slot);
+      asm.operand(asm.constant(name));
+      asm.register(value);
+    }
+  }
+
+  private void compileExportStatement (ExportStatement statement) {
+    if (scope.getType() != Scope.Type.CHUNK) {
+      throw VMError.from(statement.getPosition(), BuiltinClass.SyntaxError, "Exports must be declared at the chunk level");
+    }
+    Register value = compileRegister(statement.getValue(), false);
+    asm.emit(EXPORT);
+    asm.operand(asm.constant(statement.getName().getName()));
+    asm.register(value);
+  }
+
+  private void compileSetStatement (SetStatement statement) {
+    Position position = statement.getPosition();
+    Expression st_lhs = statement.getTarget();
+    Expression st_rhs = statement.getValue();
+
+    if (st_lhs instanceof LookupExpression) {
+      LookupExpression st_source = (LookupExpression) st_lhs;
+      List<Expression> st_terms = st_source.getTerms().getTerms();
+      // The source, then the value, then the terms are evaluated
+      Register source = compileRegister(st_source.getSource(), true);
+      Register value = compileRegister(st_rhs, !st_terms.isEmpty());
+      Register terms = compileConsecutive(st_terms);
+      asm.emit(UPDATE);
+      asm.register(source);
+      asm.register(terms);
+      asm.operand(st_terms.size());
+      asm.register(value);
+
+    } else if (st_lhs instanceof BinaryExpression && ((BinaryExpression) st_lhs).getOperator() == Operator.ACCESSOR) {
+      Expression st_member = ((BinaryExpression) st_lhs).getRHS();
+      if (!(st_member instanceof IdentifierExpression)) {
+        throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid member assignment");
+      }
+      String member = ((IdentifierExpression) st_member).getIdentifier().getName();
+      Register source = compileRegister(((BinaryExpression) st_lhs).getLHS(), !isInert(st_rhs));
+      Register value = compileRegister(st_rhs, false);
+      asm.emit(SET_MEMBER);
+      asm.register(source);
+      asm.operand(asm.uniqueConstant(new MemberInlineCache(member)));
+      asm.register(value);
+
+    } else if (st_lhs instanceof IdentifierExpression) {
+      compileSetVariable(((IdentifierExpression) st_lhs).getIdentifier().getName(), st_rhs);
+
+    } else {
+      throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid assignment target");
+    }
+  }
+
+  private void compileSetVariable (String name, Expression st_rhs) {
+    VariableReference ref = scope.resolve(name);
+    int candidates = ref.getCandidatesCount();
+
+    if (candidates > 0 && ref.isInFrame(0) && assigned.get(ref.getSlot(0))) {
+      // The variable exists, so its register can be written straight away
+      Register variable = Register.variable(ref.getSlot(0));
+      if (isSingleWrite(st_rhs)) {
+        compileInto(st_rhs, variable);
+      } else {
+        emitMove(variable, compileRegister(st_rhs, false));
+      }
+      return;
+    }
+
+    Register value = compileRegister(st_rhs, false);
+    if (candidates == 1 && ref.isInFrame(0)) {
+      asm.emit(SET_REGISTER);
+      asm.register(Register.variable(ref.getSlot(0)));
+      asm.register(value);
+      asm.operand(asm.constant(name));
+      assigned.set(ref.getSlot(0));
+    } else if (candidates == 1) {
+      asm.emit(SET_SLOT);
+      asm.operand(ref.getDepth(0));
+      asm.operand(ref.getSlot(0));
+      asm.operand(asm.constant(name));
+      asm.register(value);
+    } else {
+      asm.emit(SET_VARIABLE);
+      asm.operand(asm.uniqueConstant(ref));
+      asm.register(value);
+    }
+  }
+
+  private void compileClassStatement (ClassStatement statement) {
+    if (scope.getType() != Scope.Type.CHUNK) {
+      throw VMError.from(statement.getPosition(), BuiltinClass.SyntaxError, "Classes must be declared at the chunk level");
+    }
+
+    Class st_class = statement.getNSClass();
+    String name = st_class.getName().getName();
+
+    List<Reference> st_parents = st_class.getParents();
+    List<String> parentNames = new ROList<>();
+    Register parents = newTemporaries(st_parents.size());
+    for (int i = 0; i < st_parents.size(); i++) {
+      Reference st_parent_ref = st_parents.get(i);
+      parentNames.add(st_parent_ref.toString());
+      compileInto(st_parent_ref.toExpression(), offset(parents, i));
+    }
+
+    ClassConstructor st_constructor = st_class.getConstructor();
+    FunctionPrototype constructor = null;
+    if (st_constructor != null) {
+      constructor = compileLambda(scope, st_constructor.getLambda(), Scope.Type.METHOD, true);
+      if (constructor.isGenerator()) {
+        throw VMError.from(st_constructor.getLambda().getPosition(), BuiltinClass.SyntaxError, "Constructors cannot yield");
+      }
+    }
+
+    List<ClassPrototype.Method> methods = new ROList<>();
+    for (ClassMethod st_method : st_class.getMethods()) {
+      methods.add(new ClassPrototype.Method(
+        st_method.getName().getName(),
+        st_method.isStatic(),
+        compileLambda(scope, st_method.getLambda(), Scope.Type.METHOD, !st_method.isStatic())));
+    }
+
+    // Static variables are initialised in the chunk's code, instance variables
+    // by a function with `self`
+    List<ClassVariable> instanceVariables = new ROList<>();
+    for (ClassVariable st_var : st_class.getVariables()) {
+      if (!st_var.isStatic()) {
+        instanceVariables.add(st_var);
+      }
+    }
+    FunctionPrototype initialiser = instanceVariables.isEmpty() ?
+      null :
+      compileInstanceVariablesInitialiser(scope, instanceVariables);
+
+    ClassPrototype prototype = new ClassPrototype(name, parentNames, constructor, methods, initialiser);
+    Register nsClass = newTemporary();
+    asm.emit(NEW_CLASS);
+    asm.register(nsClass);
+    asm.operand(asm.uniqueConstant(prototype));
+    asm.register(parents);
+    asm.operand(st_parents.size());
+
+    // Order matters
+    for (ClassVariable st_var : st_class.getVariables()) {
+      if (st_var.isStatic()) {
+        int temporariesBase = temporariesCount;
+        Register value = compileRegister(st_var.getVariable().getInitialiser(), false);
+        asm.emit(SET_STATIC);
+        asm.register(nsClass);
+        asm.operand(asm.constant(st_var.getVariable().getName().getName()));
+        asm.register(value);
+        temporariesCount = temporariesBase;
+      }
+    }
+
+    int slot = scope.getOwnSlot(name);
+    asm.emit(CREATE_REGISTER);
+    asm.register(Register.variable(slot));
+    asm.register(nsClass);
+    asm.operand(asm.constant(name));
+    assigned.set(slot);
+  }
+
+  private void compileConditionalBranchesStatement (ConditionalBranchesStatement statement) {
+    List<ConditionalBranchesStatement.Branch> st_branches = statement.getConditionalBranches();
+    Assembler.Label end = new Assembler.Label();
+
+    for (int i = 0; i < st_branches.size(); i++) {
+      ConditionalBranchesStatement.Branch b = st_branches.get(i);
+      Assembler.Label next = new Assembler.Label();
+      if (b.getCondition() != null) {
+        compileBranch(b.getCondition(), false, next);
+      }
+      Scope parent = scope;
+      Scope branchScope = scope.createBlock();
+      branchScope.declareCreatedIn(b.getBody());
+      enterBlock(branchScope);
+      compileNestedCodeBlock(b.getBody());
+      leaveBlock(branchScope, parent);
+      if (i < st_branches.size() - 1) {
+        asm.emit(JUMP);
+        asm.jump(end);
+      }
+      asm.bind(next);
+    }
+
+    asm.bind(end);
+  }
+
+  private void compileCaseStatement (CaseStatement statement) {
+    Register target = compileRegister(statement.getTarget(), true);
+    Target breakTarget = new Target(new Assembler.Label(), null, blockDepth, handlerDepth);
+    targets.addLast(breakTarget);
+
+    // Like the tree walker, every option is tested in turn until one breaks
+    for (CaseStatement.Option o : statement.getOptions()) {
+      Assembler.Label next = new Assembler.Label();
+      int temporariesBase = temporariesCount;
+      if (o.getCondition() != null) {
+        Position previous = asm.setPosition(o.getCondition().getPosition());
+        Operand condition = compileOperand(o.getCondition(), false);
+        asm.restorePosition(previous);
+        asm.emit(JUMP_UNLESS_EQUAL);
+        asm.register(target);
+        asm.registerOrConstant(condition);
+        asm.jump(next);
+      }
+      temporariesCount = temporariesBase;
+      compileNestedCodeBlock(o.getBody());
+      asm.bind(next);
+    }
+
+    targets.removeLast();
+    asm.bind(breakTarget.breakLabel);
+  }
+
+  private void compileLoopStatement (LoopStatement statement) {
+    boolean testBefore = statement.getTestStage() == LoopStatement.TestStage.PRE;
+    boolean negated = statement.getTestType() == LoopStatement.TestType.NEGATIVE;
+    Scope parent = scope;
+    // The condition is evaluated in the loop's scope
+    Scope loopScope = scope.createBlock();
+    loopScope.declareCreatedIn(statement.getBody());
+
+    Assembler.Label top = new Assembler.Label();
+    Assembler.Label next = new Assembler.Label();
+    Assembler.Label exit = new Assembler.Label();
+
+    enterBlock(loopScope);
+    BitSet saved = (BitSet) assigned.clone();
+    asm.bind(top);
+    // Clear before evaluating condition expression
+    emitClear(loopScope);
+    if (testBefore) {
+      compileBranch(statement.getCondition(), negated, exit);
+    }
+    targets.addLast(new Target(exit, next, blockDepth, handlerDepth));
+    compileCodeBlock(statement.getBody());
+    targets.removeLast();
+    assigned = (BitSet) saved.clone();
+    asm.bind(next);
+    if (testBefore) {
+      asm.emit(JUMP);
+      asm.jump(top);
+    } else {
+      compileBranch(statement.getCondition(), !negated, top);
+    }
+    asm.bind(exit);
+    assigned = saved;
+    leaveBlock(loopScope, parent);
+  }
+
+  private void compileForStatement (ForStatement statement) {
+    List<ForStatement.Iterable> st_iterables = statement.getIterables();
+    int iterablesCount = st_iterables.size();
+    Scope parent = scope;
+    Scope forScope = scope.createBlock();
+    int[] slots = new int[iterablesCount];
+    for (int i = 0; i < iterablesCount; i++) {
+      slots[i] = forScope.declare(st_iterables.get(i).getFormalParameterName().getName());
+    }
+    forScope.declareCreatedIn(statement.getBody());
+
+    // Like the tree walker, a frame that can be captured is cleared before
+    // getting the next values, except when looping over just a range, where
+    // it is only cleared once there is another value, so that it keeps the
+    // values of the last iteration; which one it is is only known at run time
+    boolean clearAfterNextIfRange = iterablesCount == 1 && !forScope.hasRegisters();
+
+    // Iterables are evaluated outside the loop's scope, each one iterated
+    // before the next is evaluated
+    Register source = clearAfterNextIfRange ? newTemporary() : null;
+    Register iterators = newTemporaries(iterablesCount);
+    for (int i = 0; i < iterablesCount; i++) {
+      Register iterator = offset(iterators, i);
+      Register iterable = clearAfterNextIfRange ? source : iterator;
+      Position previous = asm.setPosition(st_iterables.get(i).getExpression().getPosition());
+      compileInto(st_iterables.get(i).getExpression(), iterable);
+      asm.emit(ITERATE);
+      asm.register(iterator);
+      asm.register(iterable);
+      asm.restorePosition(previous);
+    }
+
+    Assembler.Label top = new Assembler.Label();
+    Assembler.Label exit = new Assembler.Label();
+
+    enterBlock(forScope);
+    BitSet saved = (BitSet) assigned.clone();
+    asm.bind(top);
+    if (!clearAfterNextIfRange) {
+      emitClear(forScope);
+    }
+    if (forScope.hasRegisters() && iterablesCount == 1) {
+      asm.emit(ITERATE_NEXT);
+      asm.register(Register.variable(slots[0]));
+      asm.register(iterators);
+      asm.jump(exit);
+      assigned.set(slots[0]);
+    } else {
+      Register value = newTemporary();
+      for (int i = 0; i < iterablesCount; i++) {
+        String name = st_iterables.get(i).getFormalParameterName().getName();
+        if (clearAfterNextIfRange) {
+          Assembler.Label range = new Assembler.Label();
+          Assembler.Label store = new Assembler.Label();
+          asm.emit(JUMP_IF_RANGE);
+          asm.register(source);
+          asm.jump(range);
+          emitClear(forScope);
+          asm.emit(ITERATE_NEXT);
+          asm.register(value);
+          asm.register(iterators);
+          asm.jump(exit);
+          asm.emit(JUMP);
+          asm.jump(store);
+          asm.bind(range);
+          asm.emit(ITERATE_NEXT);
+          asm.register(value);
+          asm.register(iterators);
+          asm.jump(exit);
+          emitClear(forScope);
+          asm.bind(store);
+        } else {
+          asm.emit(ITERATE_NEXT);
+          asm.register(value);
+          asm.register(offset(iterators, i));
+          asm.jump(exit);
+        }
+        if (forScope.hasRegisters()) {
+          asm.emit(CREATE_REGISTER);
+          asm.register(Register.variable(slots[i]));
+          asm.register(value);
+          asm.operand(asm.constant(name));
+          assigned.set(slots[i]);
+        } else {
+          asm.emit(CREATE_SLOT);
+          asm.operand(slots[i]);
+          asm.operand(asm.constant(name));
+          asm.register(value);
+        }
+      }
+    }
+    targets.addLast(new Target(exit, top, blockDepth, handlerDepth));
+    compileCodeBlock(statement.getBody());
+    targets.removeLast();
+    asm.emit(JUMP);
+    asm.jump(top);
+    asm.bind(exit);
+    assigned = saved;
+    leaveBlock(forScope, parent);
+  }
+
+  private void compileTryStatement (TryStatement statement) {
+    List<TryStatement.Catch> st_catches = statement.getCatchBlocks();
+    int catchCount = st_catches.size();
+
+    Scope parent = scope;
+    Scope tryScope = scope.createBlock();
+    int[] catchParameterSlots = new int[catchCount];
+    tryScope.declareCreatedIn(statement.getTryBody());
+    for (int i = 0; i < catchCount; i++) {
+      TryStatement.Catch st_catch = st_catches.get(i);
+      catchParameterSlots[i] = tryScope.declare(st_catch.getParameterName().getName());
+      tryScope.declareCreatedIn(st_catch.getBody());
+    }
+
+    Assembler.Label handler = new Assembler.Label();
+    Assembler.Label end = new Assembler.Label();
+    Register error = newTemporary();
+
+    // The try body and all catch blocks share one frame
+    enterBlock(tryScope);
+    asm.emit(TRY);
+    asm.jump(handler);
+    asm.register(error);
+    handlerDepth++;
+    compileNestedCodeBlock(statement.getTryBody());
+    handlerDepth--;
+    asm.emit(END_TRY);
+    asm.operand(1);
+    asm.emit(JUMP);
+    asm.jump(end);
+
+    asm.bind(handler);
+    emitClear(tryScope);
+    for (int i = 0; i < catchCount; i++) {
+      TryStatement.Catch st_catch = st_catches.get(i);
+      Assembler.Label body = new Assembler.Label();
+      Assembler.Label nextCatch = new Assembler.Label();
+      Set<Reference> st_types = st_catch.getTypes();
+      if (st_types != null) {
+        for (Reference st_type : st_types) {
+          int temporariesBase = temporariesCount;
+          Register matches = newTemporary();
+          compileTypeTest(error, st_type.toExpression(), false, matches);
+          asm.emit(JUMP_IF_TRUE);
+          asm.register(matches);
+          asm.jump(body);
+          temporariesCount = temporariesBase;
+        }
+        asm.emit(JUMP);
+        asm.jump(nextCatch);
+      }
+      asm.bind(body);
+
+      BitSet saved = (BitSet) assigned.clone();
+      String name = st_catch.getParameterName().getName();
+      if (tryScope.hasRegisters()) {
+        asm.emit(CREATE_REGISTER);
+        asm.register(Register.variable(catchParameterSlots[i]));
+        asm.register(error);
+        asm.operand(asm.constant(name));
+        assigned.set(catchParameterSlots[i]);
+      } else {
+        asm.emit(CREATE_SLOT);
+        asm.operand(catchParameterSlots[i]);
+        asm.operand(asm.constant(name));
+        asm.register(error);
+      }
+      compileCodeBlock(st_catch.getBody());
+      assigned = saved;
+      asm.emit(JUMP);
+      asm.jump(end);
+      asm.bind(nextCatch);
+    }
+    asm.emit(RETHROW);
+
+    asm.bind(end);
+    leaveBlock(tryScope, parent);
+  }
+
+  /*
+   *
+   *  Compiles a jump to <target> if the truthiness of <expression> is
+   *  <jumpIf>. Comparisons are fused with the jump, so they don't produce a
+   *  boolean.
+   *
+   */
+  private void compileBranch (Expression expression, boolean jumpIf, Assembler.Label target) {
+    int temporariesBase = temporariesCount;
+    Position previous = asm.setPosition(expression.getPosition());
+
+    if (expression instanceof BinaryExpression) {
+      BinaryExpression st_binary = (BinaryExpression) expression;
+      Operator operator = st_binary.getOperator();
+      int fused = -1;
+      switch (operator) {
+      case EQ:
+        fused = JUMP_UNLESS_EQUAL;
+        break;
+
+      case LT:
+        fused = JUMP_UNLESS_LESS_THAN;
+        break;
+
+      case LEQ:
+        fused = JUMP_UNLESS_LESS_THAN_OR_EQUAL;
+        break;
+
+      case GT:
+        fused = JUMP_UNLESS_GREATER_THAN;
+        break;
+
+      case GEQ:
+        fused = JUMP_UNLESS_GREATER_THAN_OR_EQUAL;
+        break;
+
+      case AND:
+        if (jumpIf) {
+          Assembler.Label skip = new Assembler.Label();
+          compileBranch(st_binary.getLHS(), false, skip);
+          compileBranch(st_binary.getRHS(), true, target);
+          asm.bind(skip);
+        } else {
+          compileBranch(st_binary.getLHS(), false, target);
+          compileBranch(st_binary.getRHS(), false, target);
+        }
+        asm.restorePosition(previous);
+        return;
+
+      case OR:
+        if (jumpIf) {
+          compileBranch(st_binary.getLHS(), true, target);
+          compileBranch(st_binary.getRHS(), true, target);
+        } else {
+          Assembler.Label skip = new Assembler.Label();
+          compileBranch(st_binary.getLHS(), true, skip);
+          compileBranch(st_binary.getRHS(), false, target);
+          asm.bind(skip);
+        }
+        asm.restorePosition(previous);
+        return;
+      }
+
+      if (fused != -1 && !jumpIf) {
+        Operand lhs = compileOperand(st_binary.getLHS(), !isInert(st_binary.getRHS()));
+        Operand rhs = compileOperand(st_binary.getRHS(), false);
+        asm.setPosition(expression.getPosition());
+        asm.emit(fused);
+        asm.registerOrConstant(lhs);
+        asm.registerOrConstant(rhs);
+        asm.jump(target);
+        asm.restorePosition(previous);
+        temporariesCount = temporariesBase;
+        return;
+      }
+
+    } else if (expression instanceof UnaryExpression && ((UnaryExpression) expression).getOperator() == Operator.NOT) {
+      compileBranch(((UnaryExpression) expression).getOperand(), !jumpIf, target);
+      asm.restorePosition(previous);
+      return;
+    }
+
+    Register value = compileRegister(expression, false);
+    asm.setPosition(expression.getPosition());
+    asm.emit(jumpIf ? JUMP_IF_TRUE : JUMP_IF_FALSE);
+    asm.register(value);
+    asm.jump(target);
+    asm.restorePosition(previous);
+    temporariesCount = temporariesBase;
+  }
+
+  // Sets <destination> to whether <value> is of the type <st_type>; the type
+  // is only evaluated if <value> is an object
+  private void compileTypeTest (Register value, Expression st_type, boolean negated, Register destination) {
+    if (st_type instanceof IdentifierExpression) {
+      NSData.Type specialType = SPECIAL_INSTANCEOF_TARGETS.get(((IdentifierExpression) st_type).getIdentifier().getName());
+      if (specialType != null) {
+        asm.emit(IS_TYPE);
+        asm.register(destination);
+        asm.register(value);
+        asm.operand(specialType.ordinal());
+        asm.operand(negated ? 1 : 0);
+        return;
+      }
+    }
+
+    Assembler.Label notObject = new Assembler.Label();
+    Assembler.Label end = new Assembler.Label();
+    asm.emit(JUMP_IF_NOT_OBJECT);
+    asm.register(value);
+    asm.jump(notObject);
+    Register type = compileRegister(st_type, false);
+    asm.emit(INSTANCE_OF);
+    asm.register(destination);
+    asm.register(value);
+    asm.register(type);
+    asm.operand(negated ? 1 : 0);
+    asm.emit(JUMP);
+    asm.jump(end);
+    asm.bind(notObject);
+    emitLoadConstant(destination, asm.constant(NSBoolean.from(negated)));
+    asm.bind(end);
+  }
+
+  // Evaluates <expression> into <destination>; any temporaries it needs are
+  // free again afterwards
+  private void compileInto (Expression expression, Register destination) {
+    int temporariesBase = temporariesCount;
+    Position previous = asm.setPosition(expression.getPosition());
+
+    if (expression instanceof LambdaExpression) {
+      FunctionPrototype prototype = compileLambda(scope, (LambdaExpression) expression, Scope.Type.FUNCTION, false);
+      asm.emit(CLOSURE);
+      asm.register(destination);
+      asm.operand(asm.uniqueConstant(prototype));
+
+    } else if (expression instanceof AnonymousObjectExpression) {
+      List<AnonymousObjectExpression.Member> st_members = ((AnonymousObjectExpression) expression).getMembers();
+      String[] keys = new String[st_members.size()];
+      List<Expression> st_values = new ROList<>();
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = st_members.get(i).getKey().getName();
+        st_values.add(st_members.get(i).getValue());
+      }
+      Register values = compileConsecutive(st_values);
+      asm.emit(NEW_OBJECT);
+      asm.register(destination);
+      asm.operand(asm.uniqueConstant(keys));
+      asm.register(values);
+
+    } else if (expression instanceof MapExpression) {
+      List<Expression> st_entries = new ROList<>();
+      for (MapExpression.Member m : ((MapExpression) expression).getMembers()) {
+        st_entries.add(m.getKey());
+        st_entries.add(m.getValue());
+      }
+      Register entries = compileConsecutive(st_entries);
+      asm.emit(NEW_MAP);
+      asm.register(destination);
+      asm.register(entries);
+      asm.operand(st_entries.size() / 2);
+
+    } else if (expression instanceof CallExpression) {
+      compileCallExpression((CallExpression) expression, destination);
+
+    } else if (expression instanceof LookupExpression) {
+      LookupExpression st_lookup = (LookupExpression) expression;
+      List<Expression> st_terms = st_lookup.getTerms().getTerms();
+      Register source = compileRegister(st_lookup.getSource(), !st_terms.isEmpty());
+      Assembler.Label isNull = new Assembler.Label();
+      Assembler.Label end = new Assembler.Label();
+      if (st_lookup.isNullSafe()) {
+        asm.emit(JUMP_IF_NULL);
+        asm.register(source);
+        asm.jump(isNull);
+      }
+      Register terms = compileConsecutive(st_terms);
+      asm.emit(LOOKUP);
+      asm.register(destination);
+      asm.register(source);
+      asm.register(terms);
+      asm.operand(st_terms.size());
+      if (st_lookup.isNullSafe()) {
+        asm.emit(JUMP);
+        asm.jump(end);
+        asm.bind(isNull);
+        emitLoadConstant(destination, asm.constant(NSNull.NULL));
+        asm.bind(end);
+      }
+
+    } else if (expression instanceof ListExpression) {
+      List<Expression> st_values = ((ListExpression) expression).getValues();
+      Register values = compileConsecutive(st_values);
+      asm.emit(NEW_LIST);
+      asm.register(destination);
+      asm.register(values);
+      asm.operand(st_values.size());
+
+    } else if (expression instanceof IdentifierExpression) {
+      compileIdentifierExpression(((IdentifierExpression) expression).getIdentifier().getName(), destination);
+
+    } else if (expression instanceof LiteralExpression) {
+      emitLoadConstant(destination, constantFor((LiteralExpression<?>) expression));
+
+    } else if (expression instanceof BinaryExpression) {
+      compileBinaryExpression((BinaryExpression) expression, destination);
+
+    } else if (expression instanceof UnaryExpression) {
+      compileUnaryExpression((UnaryExpression) expression, destination);
+
+    } else if (expression instanceof SelfExpression) {
+      Register direct = directRegister(expression, false);
+      if (direct != null) {
+        emitMove(destination, direct);
+      } else {
+        VariableReference self = scope.resolve("self");
+        asm.emit(GET_SELF);
+        asm.register(destination);
+        asm.operand(self.getCandidatesCount() == 0 ? -1 : self.getDepth(0));
+      }
+
+    } else if (expression instanceof ConditionalBranchesExpression) {
+      ConditionalBranchesExpression st_cond = (ConditionalBranchesExpression) expression;
+      Assembler.Label end = new Assembler.Label();
+      for (ConditionalBranchesExpression.Branch b : st_cond.getConditionalBranches()) {
+        Assembler.Label next = new Assembler.Label();
+        compileBranch(b.getCondition(), false, next);
+        compileInto(b.getValue(), destination);
+        asm.emit(JUMP);
+        asm.jump(end);
+        asm.bind(next);
+      }
+      compileInto(st_cond.getFinalBranchValue(), destination);
+      asm.bind(end);
+
+    } else {
+      throw new InternalStateError("Unknown expression type");
+    }
+
+    asm.restorePosition(previous);
+    temporariesCount = temporariesBase;
+  }
+
+  private void compileIdentifierExpression (String name, Register destination) {
+    VariableReference ref = scope.resolve(name);
+    int candidates = ref.getCandidatesCount();
+
+    if (candidates > 0 && ref.isInFrame(0) && assigned.get(ref.getSlot(0))) {
+      emitMove(destination, Register.variable(ref.getSlot(0)));
+    } else if (candidates == 1 && ref.isInFrame(0)) {
+      asm.emit(GET_REGISTER);
+      asm.register(destination);
+      asm.register(Register.variable(ref.getSlot(0)));
+      asm.operand(asm.constant(name));
+    } else if (candidates == 1) {
+      asm.emit(GET_SLOT);
+      asm.register(destination);
+      asm.operand(ref.getDepth(0));
+      asm.operand(ref.getSlot(0));
+      asm.operand(asm.constant(name));
+    } else {
+      asm.emit(GET_VARIABLE);
+      asm.register(destination);
+      asm.operand(asm.uniqueConstant(ref));
+    }
+  }
+
+  private int argumentsOptionalFlags (List<CallExpression.Argument> st_args) {
+    boolean[] optional = new boolean[st_args.size()];
+    boolean any = false;
+    for (int i = 0; i < optional.length; i++) {
+      optional[i] = st_args.get(i).isOptional();
+      any |= optional[i];
+    }
+    return any ? asm.uniqueConstant(optional) : -1;
+  }
+
+  private void compileCallExpression (CallExpression expression, Register destination) {
+    List<CallExpression.Argument> st_args = expression.getArguments().getArguments();
+    List<Expression> st_values = new ROList<>();
+    for (CallExpression.Argument a : st_args) {
+      st_values.add(a.getValue());
+    }
+    Expression st_callee = expression.getCallee();
+    Assembler.Label isNull = new Assembler.Label();
+    Assembler.Label end = new Assembler.Label();
+
+    if (st_callee instanceof BinaryExpression && (((BinaryExpression) st_callee).getOperator() == Operator.ACCESSOR || ((BinaryExpression) st_callee).getOperator() == Operator.NULL_ACCESSOR)) {
+      // Calling a method directly doesn't need a callable with `self` bound
+      BinaryExpression st_accessor = (BinaryExpression) st_callee;
+      if (!(st_accessor.getRHS() instanceof IdentifierExpression)) {
+        throw VMError.from(st_accessor.getPosition(), BuiltinClass.SyntaxError, "Invalid member access");
+      }
+      String member = ((IdentifierExpression) st_accessor.getRHS()).getIdentifier().getName();
+      Register source = compileRegister(st_accessor.getLHS(), false);
+      // The callee and the object to call it with
+      Register callee = newTemporaries(2);
+      Position previous = asm.setPosition(st_accessor.getPosition());
+      asm.emit(PREPARE_METHOD);
+      asm.register(callee);
+      asm.register(source);
+      asm.operand(asm.uniqueConstant(new MemberInlineCache(member)));
+      asm.operand(st_accessor.getOperator() == Operator.NULL_ACCESSOR ? 1 : 0);
+      asm.restorePosition(previous);
+      if (expression.isNullSafe()) {
+        asm.emit(JUMP_IF_NULL);
+        asm.register(callee);
+        asm.jump(isNull);
+      }
+      Register arguments = compileConsecutive(st_values);
+      asm.emit(CALL_METHOD);
+      asm.register(destination);
+      asm.register(callee);
+      asm.register(arguments);
+      asm.operand(st_values.size());
+      asm.operand(argumentsOptionalFlags(st_args));
+
+    } else {
+      Register callee = compileRegister(st_callee, !st_values.isEmpty());
+      if (expression.isNullSafe()) {
+        asm.emit(JUMP_IF_NULL);
+        asm.register(callee);
+        asm.jump(isNull);
+      }
+      Register arguments = compileConsecutive(st_values);
+      asm.emit(CALL);
+      asm.register(destination);
+      asm.register(callee);
+      asm.register(arguments);
+      asm.operand(st_values.size());
+      asm.operand(argumentsOptionalFlags(st_args));
+    }
+
+    if (expression.isNullSafe()) {
+      asm.emit(JUMP);
+      asm.jump(end);
+      asm.bind(isNull);
+      emitLoadConstant(destination, asm.constant(NSNull.NULL));
+      asm.bind(end);
+    }
+  }
+
+  private void compileUnaryExpression (UnaryExpression expression, Register destination) {
+    Register operand = compileRegister(expression.getOperand(), false);
+    int opcode;
+
+    switch (expression.getOperator()) {
+    case NOT:
+      opcode = NOT;
+      break;
+
+    case MEASURE:
+      opcode = MEASURE;
+      break;
+
+    case BIT_NOT:
+      opcode = BIT_NOT;
+      break;
+
+    case AWAIT:
+      opcode = AWAIT;
+      break;
+
+    case YIELD:
+      throw VMError.from(expression.getPosition(), BuiltinClass.SyntaxError, "Yield can only be used as a statement");
+
+    default:
+      throw new InternalStateError("Unimplemented unary operator");
+    }
+
+    asm.emit(opcode);
+    asm.register(destination);
+    asm.register(operand);
+  }
+
+  private void compileBinaryExpression (BinaryExpression expression, Register destination) {
+    Position position = expression.getPosition();
+    Expression st_lhs = expression.getLHS();
+    Expression st_rhs = expression.getRHS();
+    Operator operator = expression.getOperator();
+    Assembler.Label end = new Assembler.Label();
+
+    switch (operator) {
+    case NULL_ACCESSOR:
+    case ACCESSOR: {
+      Register source = compileRegister(st_lhs, false);
+      if (!(st_rhs instanceof IdentifierExpression)) {
+        throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid member access");
+      }
+      String member = ((IdentifierExpression) st_rhs).getIdentifier().getName();
+      Assembler.Label isNull = new Assembler.Label();
+      if (operator == Operator.NULL_ACCESSOR) {
+        asm.emit(JUMP_IF_NULL);
+        asm.register(source);
+        asm.jump(isNull);
+      }
+      asm.emit(GET_MEMBER);
+      asm.register(destination);
+      asm.register(source);
+      asm.operand(asm.uniqueConstant(new MemberInlineCache(member)));
+      if (operator == Operator.NULL_ACCESSOR) {
+        asm.emit(JUMP);
+        asm.jump(end);
+        asm.bind(isNull);
+        emitMove(destination, source);
+        asm.bind(end);
+      }
+      return;
+    }
+
+    case TYPEOF:
+    case NOT_TYPEOF: {
+      Register value = compileRegister(st_lhs, true);
+      compileTypeTest(value, st_rhs, operator == Operator.NOT_TYPEOF, destination);
+      return;
+    }
+
+    case NULL_COALESCING:
+    case AND:
+    case OR: {
+      // Only one side is evaluated after the other, so the first needn't be copied
+      Register lhs = compileRegister(st_lhs, false);
+      Assembler.Label keep = new Assembler.Label();
+      asm.emit(operator == Operator.NULL_COALESCING ? JUMP_IF_NOT_NULL : operator == Operator.AND ? JUMP_IF_FALSE : JUMP_IF_TRUE);
+      asm.register(lhs);
+      asm.jump(keep);
+      compileInto(st_rhs, destination);
+      asm.emit(JUMP);
+      asm.jump(end);
+      asm.bind(keep);
+      emitMove(destination, lhs);
+      asm.bind(end);
+      return;
+    }
+    }
+
+    Operand lhs = compileOperand(st_lhs, !isInert(st_rhs));
+    Operand rhs = compileOperand(st_rhs, false);
+    int opcode;
+
+    switch (operator) {
+    case EXPONENTIATE:
+      opcode = EXPONENTIATE;
+      break;
+
+    case MULTIPLY:
+      opcode = MULTIPLY;
+      break;
+
+    case DIVIDE:
+      opcode = DIVIDE;
+      break;
+
+    case MODULO:
+      opcode = MODULO;
+      break;
+
+    case PLUS:
+      opcode = ADD;
+      break;
+
+    case MINUS:
+      opcode = SUBTRACT;
+      break;
+
+    case BIT_LSHIFT:
+      opcode = LEFT_SHIFT;
+      break;
+
+    case BIT_RSHIFT:
+      opcode = RIGHT_SHIFT;
+      break;
+
+    case BIT_ARSHIFT:
+      opcode = ARITHMETIC_RIGHT_SHIFT;
+      break;
+
+    case BIT_AND:
+      opcode = BIT_AND;
+      break;
+
+    case BIT_XOR:
+      opcode = BIT_XOR;
+      break;
+
+    case BIT_OR:
+      opcode = BIT_OR;
+      break;
+
+    case EQ:
+      opcode = EQUAL;
+      break;
+
+    case NEQ:
+      opcode = NOT_EQUAL;
+      break;
+
+    case LT:
+      opcode = LESS_THAN;
+      break;
+
+    case LEQ:
+      opcode = LESS_THAN_OR_EQUAL;
+      break;
+
+    case GT:
+      opcode = GREATER_THAN;
+      break;
+
+    case GEQ:
+      opcode = GREATER_THAN_OR_EQUAL;
+      break;
+
+    case SPACESHIP:
+      opcode = SPACESHIP;
+      break;
+
+    default:
+      throw new InternalStateError("Unimplemented binary operator");
+    }
+
+    asm.setPosition(position);
+    asm.emit(opcode);
+    asm.register(destination);
+    asm.registerOrConstant(lhs);
+    asm.registerOrConstant(rhs);
+  }
+
+  // Where a break or next statement can jump to
+  private static class Target {
+    private final Assembler.Label breakLabel;
+    private final Assembler.Label nextLabel; // Null for a case statement
+    // Depths inside the target's statement
+    private final int blockDepth;
+    private final int handlerDepth;
+
+    private Target (Assembler.Label breakLabel, Assembler.Label nextLabel, int blockDepth, int handlerDepth) {
+      this.breakLabel = breakLabel;
+      this.nextLabel = nextLabel;
+      this.blockDepth = blockDepth;
+      this.handlerDepth = handlerDepth;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.ArgumentsValidator;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSParameter;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The compiled code of a lambda, method, the chunk or another unit of code
+// that runs in a frame of its own; it holds no per-call state
+public class FunctionPrototype {
+  private final int[] code;
+  private final Object[] constants;
+  private final Position[] positions; // Position of the instruction starting at each index
+  private final int frameSize;
+  private final NSParameter[] parameters;
+  private final boolean hasSelf;
+  private final boolean frameCaptured;
+  private final boolean generator;
+  // If true, each parameter takes exactly one argument, so a call with as many
+  // arguments as parameters can bind them without matching
+  private final boolean simpleParameters;
+  // Shared by every callable of this prototype; null if a parameter has a
+  // default value, which is evaluated in the context of the callable
+  private final ArgumentsValidator contextFreeParameters;
+  // State of JvmCompiler's tier. Tasks can call the same code at once, so
+  // the counter is atomic, and becomes COMPILING once the code is claimed
+  // for compilation, so that it is only ever compiled once at a time
+  private static final int COMPILING = -1;
+  private final AtomicInteger invocations = new AtomicInteger();
+  private volatile JvmBody jvmBody = null;
+  private volatile boolean jvmCompilable = true;
+  private volatile boolean speculative = true;
+
+  FunctionPrototype (int[] code, Object[] constants, Position[] positions, int frameSize, NSParameter[] parameters, boolean hasSelf, boolean frameCaptured, boolean generator) {
+    this.code = code;
+    this.constants = constants;
+    this.positions = positions;
+    this.frameSize = frameSize;
+    this.parameters = parameters;
+    this.hasSelf = hasSelf;
+    this.frameCaptured = frameCaptured;
+    this.generator = generator;
+    boolean simple = true;
+    boolean hasDefaultValues = false;
+    for (NSParameter p : parameters) {
+      if (p.isOptional() || p.isVariableLength()) {
+        simple = false;
+      }
+      if (p.getDefaultValue() != null) {
+        hasDefaultValues = true;
+      }
+    }
+    this.simpleParameters = simple;
+    this.contextFreeParameters = hasDefaultValues ? null : new ArgumentsValidator(null, parameters);
+  }
+
+  int[] getCode () {
+    return code;
+  }
+
+  Object[] getConstants () {
+    return constants;
+  }
+
+  Position getPosition (int instruction) {
+    return positions[instruction];
+  }
+
+  public int getFrameSize () {
+    return frameSize;
+  }
+
+  public NSParameter[] getParameters () {
+    return parameters;
+  }
+
+  // If true, register 0 holds `self` and the parameters start at register 1
+  public boolean hasSelf () {
+    return hasSelf;
+  }
+
+  // If true, a lambda declared in the body can hold on to the frame of a call
+  public boolean isFrameCaptured () {
+    return frameCaptured;
+  }
+
+  // If true, the body contains a yield, and calling it returns a generator
+  // instead of running the body
+  public boolean isGenerator () {
+    return generator;
+  }
+
+  public boolean hasSimpleParameters () {
+    return simpleParameters;
+  }
+
+  public ArgumentsValidator getContextFreeParameters () {
+    return contextFreeParameters;
+  }
+
+  public int getFirstParameterSlot () {
+    return hasSelf ? 1 : 0;
+  }
+
+  // Returns true if this invocation made the code hot, in which case the
+  // caller must compile it and call setJvmBody; until the code is
+  // discarded, no other caller gets true
+  boolean countInvocation (int threshold) {
+    while (true) {
+      int count = invocations.get();
+      if (count == COMPILING) {
+        return false;
+      }
+      int next = count + 1 >= threshold ? COMPILING : count + 1;
+      if (invocations.compareAndSet(count, next)) {
+        return next == COMPILING;
+      }
+    }
+  }
+
+  JvmBody getJvmBody () {
+    return jvmBody;
+  }
+
+  boolean isJvmCompilable () {
+    return jvmCompilable;
+  }
+
+  // If false, compiled code must not assume anything about values
+  boolean isSpeculative () {
+    return speculative;
+  }
+
+  // <body> can be null if the code can't be compiled
+  void setJvmBody (JvmBody body) {
+    if (body == null) {
+      jvmCompilable = false;
+    }
+    jvmBody = body;
+  }
+
+  // Drops compiled code whose assumptions failed; the code is counted again
+  // from zero and then compiled without them
+  void discardJvmBody () {
+    jvmBody = null;
+    speculative = false;
+    invocations.set(0);
+  }
+}
@@ -0,0 +1,48 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+
+import java.util.Arrays;
+
+// The error handlers of a running frame, innermost last
+class Handlers {
+  private int[] targets = new int[4];
+  private int[] errorRegisters = new int[4];
+  private Context[] contexts = new Context[4];
+  private int size = 0;
+
+  void push (int target, int errorRegister, Context context) {
+    if (size == targets.length) {
+      targets = Arrays.copyOf(targets, size * 2);
+      errorRegisters = Arrays.copyOf(errorRegisters, size * 2);
+      contexts = Arrays.copyOf(contexts, size * 2);
+    }
+    targets[size] = target;
+    errorRegisters[size] = errorRegister;
+    contexts[size] = context;
+    size++;
+  }
+
+  void pop (int count) {
+    for (int i = 0; i < count; i++) {
+      contexts[--size] = null;
+    }
+  }
+
+  boolean isEmpty () {
+    return size == 0;
+  }
+
+  // The following describe the innermost handler
+  int getTarget () {
+    return targets[size - 1];
+  }
+
+  int getErrorRegister () {
+    return errorRegisters[size - 1];
+  }
+
+  Context getContext () {
+    return contexts[size - 1];
+  }
+}
@@ -0,0 +1,10 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+
+// The code of a FunctionPrototype compiled to a JVM class by JvmCompiler; runs
+// in the same frames as the VM
+public interface JvmBody {
+  NSData run (FunctionPrototype prototype, Context frame, Object[] constants);
+}
@@ -0,0 +1,742 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static in.wilsonl.nanoscript.Compiling.ClassFileWriter.*;
+import static in.wilsonl.nanoscript.Compiling.Opcode.*;
+import static in.wilsonl.nanoscript.Compiling.Opcode.RETURN;
+
+/*
+ *
+ *  A second tier for the bytecode engine. Calls of each FunctionPrototype are
+ *  counted, and once there have been nanoscript.jit.threshold of them (1000 by
+ *  default), its code is translated to a JVM class that HotSpot can compile
+ *  like any other. Set the system property nanoscript.jit to false to keep
+ *  everything in the VM.
+ *
+ *  The generated method keeps the VM's registers in the frame, and runs each
+ *  instruction with straight-line code that calls JvmSupport, so that jumps
+ *  become JVM branches and nothing is dispatched at runtime.
+ *
+ *  Arithmetic and comparisons are first compiled assuming their operands are
+ *  numbers. If one isn't, the code deoptimises: the compiled class is
+ *  dropped, and the VM carries on from the same instruction with the same
+ *  frame and context. After another threshold of calls, the code is compiled
+ *  again without any assumptions.
+ *
+ *  Generators, and code with try statements or that only the chunk can have,
+ *  are left to the VM.
+ *
+ */
+public class JvmCompiler {
+  private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("nanoscript.jit", "true"));
+  private static final int THRESHOLD = Integer.getInteger("nanoscript.jit.threshold", 1000);
+
+  private static final int[] LENGTHS = new int[JUMP_IF_RANGE + 1];
+  private static final Map<String, Method> SUPPORT = new HashMap<>();
+  private static final AtomicInteger CLASSES_COUNT = new AtomicInteger();
+
+  // Locals of the generated method
+  private static final int L_PROTOTYPE = 1;
+  private static final int L_FRAME = 2;
+  private static final int L_CONSTANTS = 3;
+  private static final int L_REGISTERS = 4;
+  private static final int L_CONTEXT = 5;
+  private static final int L_PC = 6;
+  private static final int L_A = 7;
+  private static final int L_B = 8;
+  private static final int LOCALS_COUNT = 9;
+  private static final int MAX_STACK = 8;
+
+  static {
+    int[][] lengths = {
+      {1, CLEAR_BLOCK, RETURN_NULL, RETHROW},
+      {2, ENTER_BLOCK, LEAVE_BLOCKS, JUMP, THROW, END_TRY, RETURN, YIELD, RAISE},
+      {3, MOVE, LOAD_CONSTANT, GET_VARIABLE, SET_VARIABLE, CLEAR_REGISTERS, GET_SELF, NOT, MEASURE, AWAIT, JUMP_IF_TRUE, JUMP_IF_FALSE, JUMP_IF_NULL, JUMP_IF_NOT_NULL, CLOSURE, EXPORT, TRY, JUMP_IF_NOT_OBJECT, JUMP_IF_RANGE, ITERATE, BIT_NOT},
+      {4, GET_REGISTER, SET_REGISTER, CREATE_REGISTER, CREATE_SLOT, ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULO, EXPONENTIATE, EQUAL, NOT_EQUAL, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL, SPACESHIP, JUMP_UNLESS_EQUAL, JUMP_UNLESS_LESS_THAN, JUMP_UNLESS_LESS_THAN_OR_EQUAL, JUMP_UNLESS_GREATER_THAN, JUMP_UNLESS_GREATER_THAN_OR_EQUAL, NEW_LIST, NEW_MAP, NEW_OBJECT, GET_MEMBER, SET_MEMBER, SET_STATIC, ITERATE_NEXT, INIT_MEMBER, BIT_AND, BIT_OR, BIT_XOR, LEFT_SHIFT, RIGHT_SHIFT, ARITHMETIC_RIGHT_SHIFT},
+      {5, GET_SLOT, SET_SLOT, LOOKUP, UPDATE, PREPARE_METHOD, NEW_CLASS, IS_TYPE, INSTANCE_OF},
+      {6, CALL, CALL_METHOD},
+    };
+    for (int[] group : lengths) {
+      for (int i = 1; i < group.length; i++) {
+        LENGTHS[group[i]] = group[0];
+      }
+    }
+
+    for (Method m : JvmSupport.class.getDeclaredMethods()) {
+      if (Modifier.isPublic(m.getModifiers())) {
+        SUPPORT.put(m.getName(), m);
+      }
+    }
+  }
+
+  private final FunctionPrototype prototype;
+  private final int[] code;
+  private final ClassFileWriter writer;
+  private final ClassFileWriter.Code out;
+  private final ClassFileWriter.Label[] labels; // Label of the instruction starting at each index, if jumped to
+  private final List<Integer> deoptimisationPoints = new ArrayList<>();
+  private final ClassFileWriter.Label[] deoptimisationLabels;
+
+  private JvmCompiler (FunctionPrototype prototype, String className) {
+    this.prototype = prototype;
+    this.code = prototype.getCode();
+    this.writer = new ClassFileWriter(className, internalName(JvmBody.class));
+    this.out = writer.new Code();
+    this.labels = new ClassFileWriter.Label[code.length + 1];
+    this.deoptimisationLabels = new ClassFileWriter.Label[code.length];
+  }
+
+  // Runs <prototype>'s code in <frame>, compiling it first if it has become hot
+  static NSData run (FunctionPrototype prototype, Context frame) {
+    JvmBody body = prototype.getJvmBody();
+    if (body == null && ENABLED && prototype.isJvmCompilable() && prototype.countInvocation(THRESHOLD)) {
+      body = compile(prototype);
+      prototype.setJvmBody(body);
+    }
+    return body == null ?
+      VirtualMachine.run(prototype, frame) :
+      body.run(prototype, frame, prototype.getConstants());
+  }
+
+  static void deoptimise (FunctionPrototype prototype) {
+    prototype.discardJvmBody();
+  }
+
+  // Returns null if <prototype> can't be compiled
+  static JvmBody compile (FunctionPrototype prototype) {
+    if (prototype.isGenerator() || !isSupported(prototype.getCode())) {
+      return null;
+    }
+    String className = internalName(JvmCompiler.class) + "$Body" + CLASSES_COUNT.incrementAndGet();
+    JvmCompiler compiler = new JvmCompiler(prototype, className);
+    if (!compiler.writeBody()) {
+      return null;
+    }
+    compiler.writeConstructor();
+    byte[] bytes = compiler.writer.toByteArray();
+
+    Class<?> bodyClass = new BodyLoader(JvmCompiler.class.getClassLoader()).define(className.replace('/', '.'), bytes);
+    try {
+      return (JvmBody) bodyClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new InternalStateError("Failed to create compiled code: " + e);
+    }
+  }
+
+  private static boolean isSupported (int[] code) {
+    for (int pc = 0; pc < code.length; pc += LENGTHS[code[pc]]) {
+      switch (code[pc]) {
+      // Only the chunk's code has these, and it's only run once
+      case NEW_CLASS:
+      case SET_STATIC:
+      case EXPORT:
+        // These need the VM's error handlers
+      case TRY:
+      case END_TRY:
+      case RETHROW:
+      case YIELD:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void writeConstructor () {
+    ClassFileWriter.Code init = writer.new Code();
+    init.setLimits(1, 1);
+    init.local(ALOAD, 0);
+    init.invokespecial("java/lang/Object", "<init>", "()V");
+    init.op(ClassFileWriter.RETURN);
+    writer.addMethod(ACC_PUBLIC, "<init>", "()V", init);
+  }
+
+  private ClassFileWriter.Label label (int pc) {
+    if (labels[pc] == null) {
+      labels[pc] = out.newLabel();
+    }
+    return labels[pc];
+  }
+
+  private ClassFileWriter.Label deoptimisationLabel (int pc) {
+    if (deoptimisationLabels[pc] == null) {
+      deoptimisationLabels[pc] = out.newLabel();
+      deoptimisationPoints.add(pc);
+    }
+    return deoptimisationLabels[pc];
+  }
+
+  private void support (String name) {
+    Method method = SUPPORT.get(name);
+    if (method == null) {
+      throw new InternalStateError("Unknown support method " + name);
+    }
+    out.invokestatic(method);
+  }
+
+  private void register (int register) {
+    out.local(ALOAD, L_REGISTERS);
+    out.pushInt(register);
+    out.op(AALOAD);
+  }
+
+  // Register if zero or more, otherwise a constant
+  private void operand (int rk) {
+    if (rk >= 0) {
+      register(rk);
+    } else {
+      constant(-1 - rk);
+      out.checkcast(NSData.class);
+    }
+  }
+
+  private void constant (int index) {
+    out.local(ALOAD, L_CONSTANTS);
+    out.pushInt(index);
+    out.op(AALOAD);
+  }
+
+  // Constant <index>, or null if it's -1
+  private void optionalConstant (int index) {
+    if (index == -1) {
+      out.op(ACONST_NULL);
+    } else {
+      constant(index);
+    }
+  }
+
+  // Followed by the value and AASTORE
+  private void storeTo (int register) {
+    out.local(ALOAD, L_REGISTERS);
+    out.pushInt(register);
+  }
+
+  private void context () {
+    out.local(ALOAD, L_CONTEXT);
+  }
+
+  // Loads two RK operands into the scratch locals
+  private void operands (int x, int y) {
+    operand(x);
+    out.local(ASTORE, L_A);
+    operand(y);
+    out.local(ASTORE, L_B);
+  }
+
+  private void scratch () {
+    out.local(ALOAD, L_A);
+    out.local(ALOAD, L_B);
+  }
+
+  // Deoptimises at <pc> unless the scratch locals are both numbers
+  private void guardNumbers (int pc) {
+    scratch();
+    support("areNumbers");
+    out.jump(IFEQ, deoptimisationLabel(pc));
+  }
+
+  private static String arithmeticName (int opcode) {
+    switch (opcode) {
+    case ADD:
+      return "add";
+
+    case SUBTRACT:
+      return "subtract";
+
+    case MULTIPLY:
+      return "multiply";
+
+    case DIVIDE:
+      return "divide";
+
+    case MODULO:
+      return "modulo";
+
+    case EXPONENTIATE:
+      return "exponentiate";
+
+    default:
+      return "spaceship";
+    }
+  }
+
+  // Returns false if the code is too large
+  private boolean writeBody () {
+    out.setLimits(MAX_STACK, LOCALS_COUNT);
+    boolean speculative = prototype.isSpeculative();
+
+    out.local(ALOAD, L_FRAME);
+    support("getRegisters");
+    out.local(ASTORE, L_REGISTERS);
+    out.local(ALOAD, L_FRAME);
+    out.local(ASTORE, L_CONTEXT);
+    out.pushInt(0);
+    out.local(ISTORE, L_PC);
+
+    ClassFileWriter.Label start = out.newLabel();
+    ClassFileWriter.Label end = out.newLabel();
+    ClassFileWriter.Label handler = out.newLabel();
+    out.bind(start);
+
+    for (int pc = 0; pc < code.length; pc += LENGTHS[code[pc]]) {
+      out.bind(label(pc));
+      if (out.length() > MAX_CODE_LENGTH) {
+        return false;
+      }
+      // Errors get the position of the instruction they were thrown by
+      out.pushInt(pc);
+      out.local(ISTORE, L_PC);
+
+      int op = code[pc];
+      //noinspection Duplicates
+      switch (op) {
+      case MOVE:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        out.op(AASTORE);
+        break;
+
+      case LOAD_CONSTANT:
+        storeTo(code[pc + 1]);
+        constant(code[pc + 2]);
+        out.checkcast(NSData.class);
+        out.op(AASTORE);
+        break;
+
+      case GET_VARIABLE:
+        storeTo(code[pc + 1]);
+        context();
+        out.local(ALOAD, L_REGISTERS);
+        constant(code[pc + 2]);
+        support("getVariable");
+        out.op(AASTORE);
+        break;
+
+      case GET_REGISTER:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        constant(code[pc + 3]);
+        support("getRegister");
+        out.op(AASTORE);
+        break;
+
+      case GET_SLOT:
+        storeTo(code[pc + 1]);
+        context();
+        out.pushInt(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        constant(code[pc + 4]);
+        support("getSlot");
+        out.op(AASTORE);
+        break;
+
+      case SET_VARIABLE:
+        context();
+        out.local(ALOAD, L_REGISTERS);
+        constant(code[pc + 1]);
+        register(code[pc + 2]);
+        support("setVariable");
+        break;
+
+      case SET_REGISTER:
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 1]);
+        register(code[pc + 2]);
+        constant(code[pc + 3]);
+        support("setRegister");
+        break;
+
+      case SET_SLOT:
+        context();
+        out.pushInt(code[pc + 1]);
+        out.pushInt(code[pc + 2]);
+        constant(code[pc + 3]);
+        register(code[pc + 4]);
+        support("setSlot");
+        break;
+
+      case CREATE_REGISTER:
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 1]);
+        register(code[pc + 2]);
+        constant(code[pc + 3]);
+        support("createRegister");
+        break;
+
+      case CREATE_SLOT:
+        context();
+        out.pushInt(code[pc + 1]);
+        constant(code[pc + 2]);
+        register(code[pc + 3]);
+        support("createSlot");
+        break;
+
+      case CLEAR_REGISTERS:
+        for (int i = 0; i < code[pc + 2]; i++) {
+          storeTo(code[pc + 1] + i);
+          out.op(ACONST_NULL);
+          out.op(AASTORE);
+        }
+        break;
+
+      case ENTER_BLOCK:
+        context();
+        out.pushInt(code[pc + 1]);
+        support("enterBlock");
+        out.local(ASTORE, L_CONTEXT);
+        break;
+
+      case LEAVE_BLOCKS:
+        context();
+        out.pushInt(code[pc + 1]);
+        support("leaveBlocks");
+        out.local(ASTORE, L_CONTEXT);
+        break;
+
+      case CLEAR_BLOCK:
+        context();
+        support("clearBlock");
+        break;
+
+      case GET_SELF:
+        storeTo(code[pc + 1]);
+        context();
+        out.pushInt(code[pc + 2]);
+        support("getSelf");
+        out.op(AASTORE);
+        break;
+
+      case ADD:
+      case SUBTRACT:
+      case MULTIPLY:
+      case DIVIDE:
+      case MODULO:
+      case EXPONENTIATE:
+      case SPACESHIP: {
+        operands(code[pc + 2], code[pc + 3]);
+        String name = arithmeticName(op);
+        if (speculative && (op == ADD || op == SUBTRACT || op == MULTIPLY)) {
+          guardNumbers(pc);
+          name += "Numbers";
+        }
+        storeTo(code[pc + 1]);
+        scratch();
+        support(name);
+        out.op(AASTORE);
+        break;
+      }
+
+      case EQUAL:
+      case NOT_EQUAL:
+        storeTo(code[pc + 1]);
+        operand(code[pc + 2]);
+        operand(code[pc + 3]);
+        support("testEquality");
+        if (op == NOT_EQUAL) {
+          out.pushInt(1);
+          out.op(IXOR);
+        }
+        support("bool");
+        out.op(AASTORE);
+        break;
+
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+        operands(code[pc + 2], code[pc + 3]);
+        if (speculative) {
+          guardNumbers(pc);
+        }
+        storeTo(code[pc + 1]);
+        out.pushInt(op - LESS_THAN);
+        scratch();
+        support(speculative ? "compareNumbers" : "compareValues");
+        support("bool");
+        out.op(AASTORE);
+        break;
+
+      case BIT_AND:
+      case BIT_OR:
+      case BIT_XOR:
+      case LEFT_SHIFT:
+      case RIGHT_SHIFT:
+      case ARITHMETIC_RIGHT_SHIFT:
+        storeTo(code[pc + 1]);
+        out.pushInt(op);
+        operand(code[pc + 2]);
+        operand(code[pc + 3]);
+        support("bitwise");
+        out.op(AASTORE);
+        break;
+
+      case BIT_NOT:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        support("bitwiseNot");
+        out.op(AASTORE);
+        break;
+
+      case NOT:
+      case MEASURE:
+      case AWAIT:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        support(op == NOT ? "not" : op == MEASURE ? "measure" : "await");
+        out.op(AASTORE);
+        break;
+
+      case JUMP:
+        out.jump(GOTO, label(pc + code[pc + 1]));
+        break;
+
+      case JUMP_IF_TRUE:
+      case JUMP_IF_FALSE:
+        register(code[pc + 1]);
+        support("isTruthy");
+        out.jump(op == JUMP_IF_TRUE ? IFNE : IFEQ, label(pc + code[pc + 2]));
+        break;
+
+      case JUMP_IF_NULL:
+      case JUMP_IF_NOT_NULL:
+        register(code[pc + 1]);
+        support("isNull");
+        out.jump(op == JUMP_IF_NULL ? IFNE : IFEQ, label(pc + code[pc + 2]));
+        break;
+
+      case JUMP_UNLESS_EQUAL:
+        operand(code[pc + 1]);
+        operand(code[pc + 2]);
+        support("testEquality");
+        out.jump(IFEQ, label(pc + code[pc + 3]));
+        break;
+
+      case JUMP_UNLESS_LESS_THAN:
+      case JUMP_UNLESS_LESS_THAN_OR_EQUAL:
+      case JUMP_UNLESS_GREATER_THAN:
+      case JUMP_UNLESS_GREATER_THAN_OR_EQUAL:
+        operands(code[pc + 1], code[pc + 2]);
+        if (speculative) {
+          guardNumbers(pc);
+        }
+        out.pushInt(op - JUMP_UNLESS_LESS_THAN);
+        scratch();
+        support(speculative ? "compareNumbers" : "compareValues");
+        out.jump(IFEQ, label(pc + code[pc + 3]));
+        break;
+
+      case NEW_LIST:
+      case NEW_MAP:
+        storeTo(code[pc + 1]);
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        support(op == NEW_LIST ? "newList" : "newMap");
+        out.op(AASTORE);
+        break;
+
+      case NEW_OBJECT:
+        storeTo(code[pc + 1]);
+        out.local(ALOAD, L_REGISTERS);
+        constant(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        support("newObject");
+        out.op(AASTORE);
+        break;
+
+      case GET_MEMBER:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        constant(code[pc + 3]);
+        support("getMember");
+        out.op(AASTORE);
+        break;
+
+      case SET_MEMBER:
+      case INIT_MEMBER:
+        register(code[pc + 1]);
+        constant(code[pc + 2]);
+        register(code[pc + 3]);
+        support(op == SET_MEMBER ? "setMember" : "initMember");
+        break;
+
+      case LOOKUP:
+        storeTo(code[pc + 1]);
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        support("lookup");
+        out.op(AASTORE);
+        break;
+
+      case UPDATE:
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 1]);
+        out.pushInt(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        support("update");
+        break;
+
+      case CALL:
+      case CALL_METHOD:
+        storeTo(code[pc + 1]);
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        optionalConstant(code[pc + 5]);
+        support(op == CALL ? "call" : "callMethod");
+        out.op(AASTORE);
+        break;
+
+      case PREPARE_METHOD:
+        out.local(ALOAD, L_REGISTERS);
+        out.pushInt(code[pc + 1]);
+        out.pushInt(code[pc + 2]);
+        constant(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        support("prepareMethod");
+        break;
+
+      case CLOSURE:
+        storeTo(code[pc + 1]);
+        context();
+        constant(code[pc + 2]);
+        support("closure");
+        out.op(AASTORE);
+        break;
+
+      case THROW:
+        out.local(ALOAD, L_PROTOTYPE);
+        out.pushInt(pc);
+        register(code[pc + 1]);
+        support("throwValue");
+        out.op(ATHROW);
+        break;
+
+      case IS_TYPE:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        out.pushInt(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        support("isType");
+        out.op(AASTORE);
+        break;
+
+      case INSTANCE_OF:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        register(code[pc + 3]);
+        out.pushInt(code[pc + 4]);
+        support("instanceOf");
+        out.op(AASTORE);
+        break;
+
+      case JUMP_IF_NOT_OBJECT:
+        register(code[pc + 1]);
+        support("isObject");
+        out.jump(IFEQ, label(pc + code[pc + 2]));
+        break;
+
+      case JUMP_IF_RANGE:
+        register(code[pc + 1]);
+        support("isRange");
+        out.jump(IFNE, label(pc + code[pc + 2]));
+        break;
+
+      case ITERATE:
+        storeTo(code[pc + 1]);
+        register(code[pc + 2]);
+        support("iterate");
+        out.op(AASTORE);
+        break;
+
+      case ITERATE_NEXT:
+        register(code[pc + 2]);
+        support("next");
+        out.local(ASTORE, L_A);
+        out.local(ALOAD, L_A);
+        out.jump(IFNULL, label(pc + code[pc + 3]));
+        storeTo(code[pc + 1]);
+        out.local(ALOAD, L_A);
+        out.op(AASTORE);
+        break;
+
+      case RETURN:
+        register(code[pc + 1]);
+        out.op(ARETURN);
+        break;
+
+      case RETURN_NULL:
+        support("nullValue");
+        out.op(ARETURN);
+        break;
+
+      case RAISE:
+        constant(code[pc + 1]);
+        support("raise");
+        out.op(ATHROW);
+        break;
+
+      default:
+        throw new InternalStateError("Unknown opcode");
+      }
+    }
+
+    // In case a jump targets the end of the code
+    out.bind(label(code.length));
+    support("nullValue");
+    out.op(ARETURN);
+    out.bind(end);
+
+    out.bind(handler);
+    out.local(ASTORE, L_A);
+    out.local(ALOAD, L_PROTOTYPE);
+    out.local(ALOAD, L_A);
+    out.local(ILOAD, L_PC);
+    support("locate");
+    out.op(ATHROW);
+    out.addHandler(start, end, handler, VMError.class);
+
+    for (int pc : deoptimisationPoints) {
+      out.bind(deoptimisationLabels[pc]);
+      out.local(ALOAD, L_PROTOTYPE);
+      out.local(ALOAD, L_FRAME);
+      context();
+      out.pushInt(pc);
+      support("deoptimise");
+      out.op(ARETURN);
+    }
+
+    if (out.length() > MAX_CODE_LENGTH) {
+      return false;
+    }
+    writer.addMethod(ACC_PUBLIC, "run", descriptor(JvmBody.class.getMethods()[0]), out);
+    return true;
+  }
+
+  // Each compiled class gets a loader of its own, so that it can be unloaded
+  // once its prototype is no longer used
+  private static class BodyLoader extends ClassLoader {
+    private BodyLoader (ClassLoader parent) {
+      super(parent);
+    }
+
+    private Class<?> define (String name, byte[] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
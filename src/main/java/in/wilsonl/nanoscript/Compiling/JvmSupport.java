@@ -0,0 +1,296 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSIterator;
+import in.wilsonl.nanoscript.Interpreting.Data.NSList;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Data.NSRange;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import static in.wilsonl.nanoscript.Utils.Utils.compare;
+
+/*
+ *
+ *  What classes generated by JvmCompiler call to run instructions. Generated
+ *  classes are defined by class loaders of their own, so everything here must
+ *  be public; JvmCompiler finds these by name.
+ *
+ *  Each method does what the VM does for the instruction of the same name.
+ *  The methods ending in "Numbers" assume both operands are numbers, which
+ *  generated code checks with areNumbers first.
+ *
+ */
+public class JvmSupport {
+  private static final NSData.Type[] TYPES = NSData.Type.values();
+
+  // This is a static class
+  private JvmSupport () {
+  }
+
+  public static NSData[] getRegisters (Context frame) {
+    return frame.getSymbols();
+  }
+
+  public static NSData nullValue () {
+    return NSNull.NULL;
+  }
+
+  public static NSData getVariable (Context context, NSData[] r, Object ref) {
+    return VirtualMachine.getVariable(context, r, (VariableReference) ref);
+  }
+
+  public static NSData getRegister (NSData value, Object name) {
+    if (value == null) {
+      throw VirtualMachine.notExists(name);
+    }
+    return value;
+  }
+
+  public static NSData getSlot (Context context, int depth, int slot, Object name) {
+    return getRegister(context.getAncestor(depth).getSymbol(slot), name);
+  }
+
+  public static void setVariable (Context context, NSData[] r, Object ref, NSData value) {
+    VirtualMachine.setVariable(context, r, (VariableReference) ref, value);
+  }
+
+  public static void setRegister (NSData[] r, int register, NSData value, Object name) {
+    if (r[register] == null) {
+      throw VirtualMachine.notExists(name);
+    }
+    r[register] = value;
+  }
+
+  public static void setSlot (Context context, int depth, int slot, Object name, NSData value) {
+    Context ancestor = context.getAncestor(depth);
+    if (ancestor.getSymbol(slot) == null) {
+      throw VirtualMachine.notExists(name);
+    }
+    ancestor.setSymbol(slot, value);
+  }
+
+  public static void createRegister (NSData[] r, int register, NSData value, Object name) {
+    if (r[register] != null) {
+      throw VirtualMachine.alreadyExists(name);
+    }
+    r[register] = value;
+  }
+
+  public static void createSlot (Context context, int slot, Object name, NSData value) {
+    context.createSymbol(slot, (String) name, value);
+  }
+
+  public static Context enterBlock (Context context, int size) {
+    return new Context(context, size);
+  }
+
+  public static Context leaveBlocks (Context context, int count) {
+    return context.getAncestor(count);
+  }
+
+  public static void clearBlock (Context context) {
+    context.clearSymbols();
+  }
+
+  public static NSData getSelf (Context context, int depth) {
+    NSData self = depth == -1 ? null : context.getAncestor(depth).getSymbol(0);
+    if (self == null) {
+      throw VirtualMachine.noSelf();
+    }
+    return self;
+  }
+
+  public static boolean areNumbers (NSData a, NSData b) {
+    return a instanceof NSNumber && b instanceof NSNumber;
+  }
+
+  public static NSData addNumbers (NSData a, NSData b) {
+    return NSNumber.add((NSNumber) a, (NSNumber) b);
+  }
+
+  public static NSData subtractNumbers (NSData a, NSData b) {
+    return NSNumber.subtract((NSNumber) a, (NSNumber) b);
+  }
+
+  public static NSData multiplyNumbers (NSData a, NSData b) {
+    return NSNumber.multiply((NSNumber) a, (NSNumber) b);
+  }
+
+  // <kind> is as for VirtualMachine.testComparison
+  public static boolean compareNumbers (int kind, NSData a, NSData b) {
+    return VirtualMachine.testComparison(kind, compare(((NSNumber) a).getRawNumber(), ((NSNumber) b).getRawNumber()));
+  }
+
+  public static NSData add (NSData a, NSData b) {
+    return areNumbers(a, b) ? addNumbers(a, b) : a.nsAdd(b);
+  }
+
+  public static NSData subtract (NSData a, NSData b) {
+    return areNumbers(a, b) ? subtractNumbers(a, b) : a.nsSubtract(b);
+  }
+
+  public static NSData multiply (NSData a, NSData b) {
+    return areNumbers(a, b) ? multiplyNumbers(a, b) : a.nsMultiply(b);
+  }
+
+  public static NSData divide (NSData a, NSData b) {
+    return a.nsDivide(b);
+  }
+
+  public static NSData modulo (NSData a, NSData b) {
+    return a.nsModulo(b);
+  }
+
+  public static NSData exponentiate (NSData a, NSData b) {
+    return a.nsExponentiate(b);
+  }
+
+  public static NSData spaceship (NSData a, NSData b) {
+    return a.nsCompare(b);
+  }
+
+  // <opcode> is as for VirtualMachine.bitwise
+  public static NSData bitwise (int opcode, NSData a, NSData b) {
+    return VirtualMachine.bitwise(opcode, a, b);
+  }
+
+  public static NSData bitwiseNot (NSData value) {
+    return VirtualMachine.bitwiseNot(value);
+  }
+
+  public static boolean compareValues (int kind, NSData a, NSData b) {
+    return VirtualMachine.testComparison(kind, VirtualMachine.compareValues(a, b));
+  }
+
+  public static boolean testEquality (NSData a, NSData b) {
+    return VirtualMachine.testEquality(a, b);
+  }
+
+  public static NSData bool (boolean value) {
+    return NSBoolean.from(value);
+  }
+
+  public static NSData not (NSData value) {
+    return value.nsToBoolean().invert();
+  }
+
+  public static NSData measure (NSData value) {
+    return value.nsApplyHashOperator();
+  }
+
+  public static NSData await (NSData value) {
+    return value.nsAwait();
+  }
+
+  public static boolean isTruthy (NSData value) {
+    return VirtualMachine.isTruthy(value);
+  }
+
+  public static boolean isNull (NSData value) {
+    return value == NSNull.NULL;
+  }
+
+  public static NSData newList (NSData[] r, int first, int count) {
+    return NSList.from(VirtualMachine.values(r, first, count));
+  }
+
+  public static NSData newMap (NSData[] r, int first, int count) {
+    return VirtualMachine.newMap(r, first, count);
+  }
+
+  public static NSData newObject (NSData[] r, Object keys, int first) {
+    return VirtualMachine.newObject(r, (String[]) keys, first);
+  }
+
+  public static NSData getMember (NSData source, Object cache) {
+    return ((MemberInlineCache) cache).access(source);
+  }
+
+  public static void setMember (NSData target, Object cache, NSData value) {
+    ((MemberInlineCache) cache).assign(target, value);
+  }
+
+  public static void initMember (NSData target, Object name, NSData value) {
+    ((NSObject) target).createOrUpdateMemberVariable((String) name, value);
+  }
+
+  public static NSData lookup (NSData[] r, int source, int first, int count) {
+    return r[source].nsLookup(VirtualMachine.values(r, first, count));
+  }
+
+  public static void update (NSData[] r, int target, int first, int count, int value) {
+    r[target].nsUpdate(VirtualMachine.values(r, first, count), r[value]);
+  }
+
+  public static NSData call (NSData[] r, int callee, int first, int count, Object optional) {
+    return VirtualMachine.call(r[callee], r, first, count, (boolean[]) optional);
+  }
+
+  public static void prepareMethod (NSData[] r, int a, int source, Object cache, int nullable) {
+    VirtualMachine.prepareMethod(r, a, r[source], (MemberInlineCache) cache, nullable == 1);
+  }
+
+  public static NSData callMethod (NSData[] r, int callee, int first, int count, Object optional) {
+    return VirtualMachine.callMethod(r, callee, first, count, (boolean[]) optional);
+  }
+
+  public static NSData closure (Context context, Object prototype) {
+    return BytecodeCallable.from(context, (FunctionPrototype) prototype);
+  }
+
+  public static VMError throwValue (FunctionPrototype prototype, int pc, NSData value) {
+    return new VMError(value, prototype.getPosition(pc));
+  }
+
+  public static NSData isType (NSData value, int type, int negated) {
+    return NSBoolean.from((value.getType() == TYPES[type]) != (negated == 1));
+  }
+
+  public static NSData instanceOf (NSData value, NSData type, int negated) {
+    return NSBoolean.from(VirtualMachine.isInstanceOf(value, type) != (negated == 1));
+  }
+
+  public static boolean isObject (NSData value) {
+    return value.getType() == NSData.Type.OBJECT;
+  }
+
+  public static boolean isRange (NSData value) {
+    return value instanceof NSRange;
+  }
+
+  public static NSData iterate (NSData value) {
+    return value.nsIterate();
+  }
+
+  // Returns null if <iterator> has ended
+  public static NSData next (NSData iterator) {
+    return VirtualMachine.next((NSIterator) iterator);
+  }
+
+  public static VMError raise (Object message) {
+    return VirtualMachine.raise((String) message);
+  }
+
+  // Gives <error> the position of instruction <pc>, like the VM does
+  public static VMError locate (FunctionPrototype prototype, VMError error, int pc) {
+    Position position = prototype.getPosition(pc);
+    if (!error.hasPosition() && position != null) {
+      return error.withPosition(position);
+    }
+    return error;
+  }
+
+  // Called when an assumption the generated code was compiled with fails at
+  // instruction <pc>; the VM runs the rest of the call, as everything it needs
+  // is in the frame
+  public static NSData deoptimise (FunctionPrototype prototype, Context frame, Context context, int pc) {
+    JvmCompiler.deoptimise(prototype);
+    return VirtualMachine.run(prototype, frame, context, pc, null, null);
+  }
+}
@@ -0,0 +1,202 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Expression.AnonymousObjectExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.CallExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ConditionalBranchesExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.BinaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.UnaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.IdentifierExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ListExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LookupExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.MapExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.SelfExpression;
+import in.wilsonl.nanoscript.Syntax.Statement.BreakStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ConditionalBranchesStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExpressionStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ForStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.LoopStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.NextStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ReturnStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.SetStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+import in.wilsonl.nanoscript.Syntax.Statement.ThrowStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.TryStatement;
+
+import java.util.List;
+
+// Finds out whether a function declares a lambda anywhere in its body, in
+// which case its blocks can't be flattened (see Scope)
+class LambdaFinder {
+  // This is a static class
+  private LambdaFinder () {
+  }
+
+  static boolean containsLambda (CodeBlock codeBlock) {
+    for (Statement statement : codeBlock.getBody()) {
+      if (containsLambda(statement)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsLambda (Statement statement) {
+    if (statement instanceof BreakStatement || statement instanceof NextStatement) {
+      return false;
+
+    } else if (statement instanceof CaseStatement) {
+      CaseStatement st_case = (CaseStatement) statement;
+      if (containsLambda(st_case.getTarget())) {
+        return true;
+      }
+      for (CaseStatement.Option o : st_case.getOptions()) {
+        if (containsLambda(o.getCondition()) || containsLambda(o.getBody())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else if (statement instanceof ClassStatement) {
+      // Methods are lambdas
+      return true;
+
+    } else if (statement instanceof ConditionalBranchesStatement) {
+      for (ConditionalBranchesStatement.Branch b : ((ConditionalBranchesStatement) statement).getConditionalBranches()) {
+        if (containsLambda(b.getCondition()) || containsLambda(b.getBody())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else if (statement instanceof CreateStatement) {
+      return containsLambda(((CreateStatement) statement).getValue());
+
+    } else if (statement instanceof ExportStatement) {
+      return containsLambda(((ExportStatement) statement).getValue());
+
+    } else if (statement instanceof ExpressionStatement) {
+      return containsLambda(((ExpressionStatement) statement).getExpression());
+
+    } else if (statement instanceof ForStatement) {
+      ForStatement st_for = (ForStatement) statement;
+      for (ForStatement.Iterable i : st_for.getIterables()) {
+        if (containsLambda(i.getExpression())) {
+          return true;
+        }
+      }
+      return containsLambda(st_for.getBody());
+
+    } else if (statement instanceof LoopStatement) {
+      LoopStatement st_loop = (LoopStatement) statement;
+      return containsLambda(st_loop.getCondition()) || containsLambda(st_loop.getBody());
+
+    } else if (statement instanceof ReturnStatement) {
+      return containsLambda(((ReturnStatement) statement).getValue());
+
+    } else if (statement instanceof SetStatement) {
+      SetStatement st_set = (SetStatement) statement;
+      return containsLambda(st_set.getTarget()) || containsLambda(st_set.getValue());
+
+    } else if (statement instanceof ThrowStatement) {
+      return containsLambda(((ThrowStatement) statement).getValue());
+
+    } else if (statement instanceof TryStatement) {
+      TryStatement st_try = (TryStatement) statement;
+      if (containsLambda(st_try.getTryBody())) {
+        return true;
+      }
+      for (TryStatement.Catch c : st_try.getCatchBlocks()) {
+        if (containsLambda(c.getBody())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else {
+      // Reported when the statement is compiled
+      return false;
+    }
+  }
+
+  private static boolean containsLambda (List<Expression> expressions) {
+    for (Expression e : expressions) {
+      if (containsLambda(e)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // <expression> can be null
+  private static boolean containsLambda (Expression expression) {
+    if (expression == null || expression instanceof IdentifierExpression || expression instanceof LiteralExpression || expression instanceof SelfExpression) {
+      return false;
+
+    } else if (expression instanceof LambdaExpression) {
+      return true;
+
+    } else if (expression instanceof AnonymousObjectExpression) {
+      for (AnonymousObjectExpression.Member m : ((AnonymousObjectExpression) expression).getMembers()) {
+        if (containsLambda(m.getValue())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else if (expression instanceof MapExpression) {
+      for (MapExpression.Member m : ((MapExpression) expression).getMembers()) {
+        if (containsLambda(m.getKey()) || containsLambda(m.getValue())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else if (expression instanceof CallExpression) {
+      CallExpression st_call = (CallExpression) expression;
+      if (containsLambda(st_call.getCallee())) {
+        return true;
+      }
+      for (CallExpression.Argument a : st_call.getArguments().getArguments()) {
+        if (containsLambda(a.getValue())) {
+          return true;
+        }
+      }
+      return false;
+
+    } else if (expression instanceof LookupExpression) {
+      LookupExpression st_lookup = (LookupExpression) expression;
+      return containsLambda(st_lookup.getSource()) || containsLambda(st_lookup.getTerms().getTerms());
+
+    } else if (expression instanceof ListExpression) {
+      return containsLambda(((ListExpression) expression).getValues());
+
+    } else if (expression instanceof ConditionalBranchesExpression) {
+      ConditionalBranchesExpression st_cond = (ConditionalBranchesExpression) expression;
+      for (ConditionalBranchesExpression.Branch b : st_cond.getConditionalBranches()) {
+        if (containsLambda(b.getCondition()) || containsLambda(b.getValue())) {
+          return true;
+        }
+      }
+      return containsLambda(st_cond.getFinalBranchValue());
+
+    } else if (expression instanceof BinaryExpression) {
+      BinaryExpression st_binary = (BinaryExpression) expression;
+      return containsLambda(st_binary.getLHS()) || containsLambda(st_binary.getRHS());
+
+    } else if (expression instanceof UnaryExpression) {
+      return containsLambda(((UnaryExpression) expression).getOperand());
+
+    } else {
+      throw new InternalStateError("Unknown expression type");
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package in.wilsonl.nanoscript.Compiling;
+
+/*
+ *
+ *  Instructions are an opcode followed by a fixed number of int operands. In
+ *  the descriptions below:
+ *
+ *    A, B, C   registers, i.e. slots of the function's frame
+ *    RK        a register if zero or more, otherwise constant -1 - RK
+ *    K         an index into the constant pool
+ *    D, S      the depth of a frame from the current context, and a slot in it
+ *    N         a count
+ *    J         a jump offset, relative to the start of the instruction
+ *
+ *  Registers written by an instruction are only written once its operands
+ *  have been read and it can no longer fail.
+ *
+ */
+public class Opcode {
+  // A = B
+  public static final int MOVE = 0;
+  // A = K
+  public static final int LOAD_CONSTANT = 1;
+  // A = the variable described by VariableReference K
+  public static final int GET_VARIABLE = 2;
+  // A = B, which must have been created; K is its name
+  public static final int GET_REGISTER = 3;
+  // A = slot S of the frame at depth D, which must have been created; K is its name
+  public static final int GET_SLOT = 4;
+  // The variable described by VariableReference K = B
+  public static final int SET_VARIABLE = 5;
+  // A = B, if A has been created; K is its name
+  public static final int SET_REGISTER = 6;
+  // Slot S of the frame at depth D = B, if it has been created; K is its name
+  public static final int SET_SLOT = 7;
+  // A = B, if A has not been created; K is its name
+  public static final int CREATE_REGISTER = 8;
+  // Slot S of the current context = B, if it has not been created; K is its name
+  public static final int CREATE_SLOT = 9;
+  // Clears N registers starting at A
+  public static final int CLEAR_REGISTERS = 10;
+  // Enters a new block frame of size N
+  public static final int ENTER_BLOCK = 11;
+  // Leaves N block frames
+  public static final int LEAVE_BLOCKS = 12;
+  // Clears the current block frame
+  public static final int CLEAR_BLOCK = 13;
+  // A = `self` of the method frame at depth D, or D is -1 if there is none
+  public static final int GET_SELF = 14;
+
+  // A = RK op RK
+  public static final int ADD = 15;
+  public static final int SUBTRACT = 16;
+  public static final int MULTIPLY = 17;
+  public static final int DIVIDE = 18;
+  public static final int MODULO = 19;
+  public static final int EXPONENTIATE = 20;
+  public static final int EQUAL = 21;
+  public static final int NOT_EQUAL = 22;
+  public static final int LESS_THAN = 23;
+  public static final int LESS_THAN_OR_EQUAL = 24;
+  public static final int GREATER_THAN = 25;
+  public static final int GREATER_THAN_OR_EQUAL = 26;
+  public static final int SPACESHIP = 27;
+
+  // A = op B
+  public static final int NOT = 28;
+  public static final int MEASURE = 29;
+  public static final int AWAIT = 30;
+
+  // Jumps by J
+  public static final int JUMP = 31;
+  // Jumps by J if A is truthy, falsy, null or not null
+  public static final int JUMP_IF_TRUE = 32;
+  public static final int JUMP_IF_FALSE = 33;
+  public static final int JUMP_IF_NULL = 34;
+  public static final int JUMP_IF_NOT_NULL = 35;
+  // Jumps by J unless RK op RK
+  public static final int JUMP_UNLESS_EQUAL = 36;
+  public static final int JUMP_UNLESS_LESS_THAN = 37;
+  public static final int JUMP_UNLESS_LESS_THAN_OR_EQUAL = 38;
+  public static final int JUMP_UNLESS_GREATER_THAN = 39;
+  public static final int JUMP_UNLESS_GREATER_THAN_OR_EQUAL = 40;
+
+  // A = a list of the N values starting at B
+  public static final int NEW_LIST = 41;
+  // A = a map of the N key and value pairs starting at B
+  public static final int NEW_MAP = 42;
+  // A = an object with the members named by K, valued by the registers starting at B
+  public static final int NEW_OBJECT = 43;
+  // A = B.member, using MemberInlineCache K
+  public static final int GET_MEMBER = 44;
+  // A.member = B, using MemberInlineCache K
+  public static final int SET_MEMBER = 45;
+  // A = B[the N terms starting at C]
+  public static final int LOOKUP = 46;
+  // A[the N terms starting at B] = C
+  public static final int UPDATE = 47;
+  // A = B(the N arguments starting at C); K is the arguments' optional flags, or -1 if none are
+  public static final int CALL = 48;
+  // A = B.member as a callee using MemberInlineCache K, and A + 1 = the object
+  // to call it with as `self`, or null; if F is 1 and B is null, A is null
+  public static final int PREPARE_METHOD = 49;
+  // A = B(the N arguments starting at C), with `self` as B + 1 if it isn't null;
+  // K is as for CALL
+  public static final int CALL_METHOD = 50;
+  // A = a callable of FunctionPrototype K, closed over the current context
+  public static final int CLOSURE = 51;
+  // A = a class of ClassPrototype K, with the N parents starting at B
+  public static final int NEW_CLASS = 52;
+  // Static variable K of class A = B
+  public static final int SET_STATIC = 53;
+  // Exports B as K
+  public static final int EXPORT = 54;
+
+  // Throws A
+  public static final int THROW = 55;
+  // Throws the error last caught in this frame again
+  public static final int RETHROW = 56;
+  // Until the matching END_TRY, errors jump by J with the error in A
+  public static final int TRY = 57;
+  // Removes the N innermost error handlers
+  public static final int END_TRY = 58;
+
+  // A = whether B is of NSData.Type T, negated if F is 1
+  public static final int IS_TYPE = 59;
+  // A = whether B is an instance of class C, negated if F is 1
+  public static final int INSTANCE_OF = 60;
+  // Jumps by J if A is not an object
+  public static final int JUMP_IF_NOT_OBJECT = 61;
+
+  // A = an iterator over B
+  public static final int ITERATE = 62;
+  // A = the next value of iterator B, or jumps by J if there are none
+  public static final int ITERATE_NEXT = 63;
+
+  // Returns A
+  public static final int RETURN = 64;
+  // Returns null
+  public static final int RETURN_NULL = 65;
+  // Yields A from the generator running this frame
+  public static final int YIELD = 66;
+  // Throws a SyntaxError with message K
+  public static final int RAISE = 67;
+
+  // Member K of object A = B, creating it if it doesn't exist yet
+  public static final int INIT_MEMBER = 68;
+
+  // A = RK op RK
+  public static final int BIT_AND = 69;
+  public static final int BIT_OR = 70;
+  public static final int BIT_XOR = 71;
+  public static final int LEFT_SHIFT = 72;
+  public static final int RIGHT_SHIFT = 73;
+  public static final int ARITHMETIC_RIGHT_SHIFT = 74;
+  // A = ~B
+  public static final int BIT_NOT = 75;
+
+  // Jumps by J if A is a range
+  public static final int JUMP_IF_RANGE = 76;
+
+  // This is a static class
+  private Opcode () {
+  }
+}
@@ -0,0 +1,32 @@
+package in.wilsonl.nanoscript.Compiling;
+
+// An operand of an instruction that can take a register or a constant
+class Operand {
+  private final Register register; // Null if a constant
+  private final int constant;
+
+  private Operand (Register register, int constant) {
+    this.register = register;
+    this.constant = constant;
+  }
+
+  static Operand of (Register register) {
+    return new Operand(register, -1);
+  }
+
+  static Operand constant (int index) {
+    return new Operand(null, index);
+  }
+
+  boolean isConstant () {
+    return register == null;
+  }
+
+  Register getRegister () {
+    return register;
+  }
+
+  int getConstant () {
+    return constant;
+  }
+}
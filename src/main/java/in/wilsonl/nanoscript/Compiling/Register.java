@@ -0,0 +1,38 @@
+package in.wilsonl.nanoscript.Compiling;
+
+// A register of the frame of the function being compiled
+class Register {
+  private final int index;
+  private final boolean temporary; // If true, <index> is counted from the first temporary
+
+  private Register (int index, boolean temporary) {
+    this.index = index;
+    this.temporary = temporary;
+  }
+
+  static Register variable (int index) {
+    return new Register(index, false);
+  }
+
+  static Register temporary (int index) {
+    return new Register(index, true);
+  }
+
+  int getIndex () {
+    return index;
+  }
+
+  boolean isTemporary () {
+    return temporary;
+  }
+
+  @Override
+  public boolean equals (Object o) {
+    return o instanceof Register && ((Register) o).index == index && ((Register) o).temporary == temporary;
+  }
+
+  @Override
+  public int hashCode () {
+    return temporary ? ~index : index;
+  }
+}
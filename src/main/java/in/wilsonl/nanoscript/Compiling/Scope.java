@@ -0,0 +1,191 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ *
+ *  The compile time counterpart of the frames compiled code runs with. Like
+ *  LexicalScope, all variables a scope could hold are declared before any code
+ *  inside it is compiled, and an identifier resolves to every place in the
+ *  lexical chain that could hold it.
+ *
+ *  The variables of a function (or the chunk) are registers of its frame,
+ *  which also holds the temporary values of its code. A block in a function
+ *  that declares no lambdas is flattened: its variables are registers of the
+ *  function's frame as well, cleared whenever the block is entered, as nothing
+ *  can hold on to them. Otherwise, a block that declares something gets a
+ *  frame of its own chained to the current context, like in the tree walker.
+ *
+ */
+class Scope {
+  private final Scope parent; // Can be null
+  private final Type type;
+  private final Scope function; // The nearest scope that isn't a block, possibly this
+  private final boolean flattened;
+  private final Map<String, Integer> slots = new HashMap<>();
+  private int registersCount = 0; // Only used by a function's scope
+  private int firstRegister = -1; // First register of a flattened block's variables
+  private boolean sealed = false;
+
+  private Scope (Scope parent, Type type, boolean flattened) {
+    this.parent = parent;
+    this.type = type;
+    this.function = type == Type.BLOCK ? parent.function : this;
+    this.flattened = flattened;
+    if (type == Type.METHOD || type == Type.INITIALISER) {
+      // Register 0 is always `self`, which can't be used as an identifier
+      declare("self");
+    }
+  }
+
+  static Scope forChunk () {
+    return new Scope(null, Type.CHUNK, false);
+  }
+
+  // <flattened> should be true if no lambda is declared anywhere in the function
+  Scope createFunction (Type type, boolean flattened) {
+    if (type == Type.CHUNK || type == Type.BLOCK) {
+      throw new InternalStateError("Not a function scope");
+    }
+    seal();
+    return new Scope(this, type, flattened);
+  }
+
+  Scope createBlock () {
+    seal();
+    return new Scope(this, Type.BLOCK, flattened);
+  }
+
+  Type getType () {
+    return type;
+  }
+
+  boolean isFlattened () {
+    return flattened;
+  }
+
+  int declare (String name) {
+    if (sealed) {
+      throw new InternalStateError("Variable declared after scope was used");
+    }
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      if (type != Type.BLOCK) {
+        slot = registersCount++;
+      } else if (flattened) {
+        slot = function.registersCount++;
+        if (firstRegister == -1) {
+          firstRegister = slot;
+        }
+      } else {
+        slot = slots.size();
+      }
+      slots.put(name, slot);
+    }
+    return slot;
+  }
+
+  // Declares all variables created directly in <codeBlock> or its case options
+  void declareCreatedIn (CodeBlock codeBlock) {
+    for (Statement statement : codeBlock.getBody()) {
+      if (statement instanceof CreateStatement) {
+        declare(((CreateStatement) statement).getIdentifier().getName());
+
+      } else if (statement instanceof ClassStatement) {
+        declare(((ClassStatement) statement).getNSClass().getName().getName());
+
+      } else if (statement instanceof CaseStatement) {
+        for (CaseStatement.Option o : ((CaseStatement) statement).getOptions()) {
+          declareCreatedIn(o.getBody());
+        }
+      }
+    }
+  }
+
+  // Register or slot in this scope; the variable must have been declared
+  int getOwnSlot (String name) {
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      throw new InternalStateError("Variable was not declared");
+    }
+    return slot;
+  }
+
+  Map<String, Integer> getOwnSlots () {
+    seal();
+    return Collections.unmodifiableMap(new HashMap<>(slots));
+  }
+
+  // If true, this scope's variables are registers of the function's frame
+  boolean hasRegisters () {
+    return type != Type.BLOCK || flattened;
+  }
+
+  boolean hasFrame () {
+    return type != Type.BLOCK || !flattened && !slots.isEmpty();
+  }
+
+  // Size of a block's own frame, or zero if it has none
+  int getFrameSize () {
+    seal();
+    return hasFrame() ? slots.size() : 0;
+  }
+
+  // Registers of a flattened block's variables, which are consecutive
+  int getFirstRegister () {
+    return firstRegister;
+  }
+
+  int getRegistersCount () {
+    seal();
+    return type == Type.BLOCK ?
+      flattened ? slots.size() : 0 :
+      registersCount;
+  }
+
+  VariableReference resolve (String name) {
+    int count = 0;
+    for (Scope s = this; s != null; s = s.parent) {
+      if (s.slots.containsKey(name)) {
+        count++;
+      }
+    }
+    boolean[] inFrame = new boolean[count];
+    int[] depths = new int[count];
+    int[] slots = new int[count];
+
+    int i = 0;
+    int depth = 0;
+    for (Scope s = this; s != null; s = s.parent) {
+      s.seal();
+      Integer slot = s.slots.get(name);
+      if (slot != null) {
+        inFrame[i] = s.function == function && s.hasRegisters();
+        depths[i] = depth;
+        slots[i] = slot;
+        i++;
+      }
+      if (s.hasFrame()) {
+        depth++;
+      }
+    }
+    return new VariableReference(name, inFrame, depths, slots);
+  }
+
+  private void seal () {
+    sealed = true;
+  }
+
+  enum Type {
+    CHUNK, FUNCTION, METHOD, INITIALISER, BLOCK
+  }
+}
@@ -0,0 +1,39 @@
+package in.wilsonl.nanoscript.Compiling;
+
+// Every place a name could be held, innermost first; at runtime, the first
+// one that has been created is used
+public class VariableReference {
+  private final String name;
+  // Register of the function's frame if <inFrame>, otherwise the depth and
+  // slot of a frame from the current context
+  private final boolean[] inFrame;
+  private final int[] depths;
+  private final int[] slots;
+
+  VariableReference (String name, boolean[] inFrame, int[] depths, int[] slots) {
+    this.name = name;
+    this.inFrame = inFrame;
+    this.depths = depths;
+    this.slots = slots;
+  }
+
+  public String getName () {
+    return name;
+  }
+
+  public int getCandidatesCount () {
+    return slots.length;
+  }
+
+  public boolean isInFrame (int candidate) {
+    return inFrame[candidate];
+  }
+
+  public int getDepth (int candidate) {
+    return depths[candidate];
+  }
+
+  public int getSlot (int candidate) {
+    return slots[candidate];
+  }
+}
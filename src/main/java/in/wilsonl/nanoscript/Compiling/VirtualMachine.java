@@ -0,0 +1,722 @@
+package in.wilsonl.nanoscript.Compiling;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSCallable;
+import in.wilsonl.nanoscript.Interpreting.Data.NSClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSIterator;
+import in.wilsonl.nanoscript.Interpreting.Data.NSList;
+import in.wilsonl.nanoscript.Interpreting.Data.NSMap;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Data.NSRange;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.GlobalScope;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static in.wilsonl.nanoscript.Compiling.Opcode.*;
+import static in.wilsonl.nanoscript.Utils.Utils.compare;
+
+/*
+ *
+ *  Runs compiled code. A function's frame is a Context whose slots are the
+ *  function's registers; blocks that aren't flattened chain frames of their
+ *  own onto it, which become the current context.
+ *
+ *  An error thrown by an instruction is given the position of the syntax the
+ *  instruction came from, unless it already has one, in the same way the
+ *  tree walker's nodes add theirs.
+ *
+ */
+public class VirtualMachine {
+  private static final NSData.Type[] TYPES = NSData.Type.values();
+
+  // This is a static class
+  private VirtualMachine () {
+  }
+
+  public static NSData run (FunctionPrototype prototype, Context frame) {
+    return run(prototype, frame, frame, 0, null, null);
+  }
+
+  private static NSData constant (Object[] constants, int operand) {
+    return (NSData) constants[-1 - operand];
+  }
+
+  static List<NSData> values (NSData[] r, int first, int count) {
+    List<NSData> values = new ROList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(r[first + i]);
+    }
+    return values;
+  }
+
+  static NSMap newMap (NSData[] r, int first, int count) {
+    Map<NSData, NSData> map = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      map.put(r[first + 2 * i], r[first + 2 * i + 1]);
+    }
+    return NSMap.from(map);
+  }
+
+  static NSObject newObject (NSData[] r, String[] keys, int first) {
+    NSObject obj = NSObject.from(null);
+    for (int i = 0; i < keys.length; i++) {
+      obj.nsAssign(keys[i], r[first + i]);
+    }
+    return obj;
+  }
+
+  // <optional> can be null
+  static List<NSArgument> arguments (NSData[] r, int first, int count, boolean[] optional) {
+    List<NSArgument> arguments = new ROList<>(count);
+    for (int i = 0; i < count; i++) {
+      arguments.add(new NSArgument(optional != null && optional[i], r[first + i]));
+    }
+    return arguments;
+  }
+
+  // Calls <callee> with the <count> arguments starting at register <first>
+  static NSData call (NSData callee, NSData[] r, int first, int count, boolean[] optional) {
+    return callee instanceof BytecodeCallable ?
+      ((BytecodeCallable) callee).call(r, first, count, optional) :
+      callee.nsCall(arguments(r, first, count, optional));
+  }
+
+  // Sets register <a> to the callee of <source>'s member, and <a> + 1 to the
+  // `self` to call it with, or null; if <nullable>, a null source is kept
+  static void prepareMethod (NSData[] r, int a, NSData source, MemberInlineCache cache, boolean nullable) {
+    NSCallable method = null;
+    if (nullable && source == NSNull.NULL) {
+      r[a] = NSNull.NULL;
+    } else if (source instanceof NSObject && (method = cache.getMethod((NSObject) source)) != null) {
+      r[a] = method;
+    } else {
+      r[a] = cache.access(source);
+    }
+    r[a + 1] = method == null ? null : source;
+  }
+
+  // Calls the callee prepared in register <b>
+  static NSData callMethod (NSData[] r, int b, int first, int count, boolean[] optional) {
+    NSData callee = r[b];
+    NSData self = r[b + 1];
+    if (self == null) {
+      return call(callee, r, first, count, optional);
+    }
+    if (callee instanceof BytecodeCallable) {
+      return ((BytecodeCallable) callee).callAsMethod((NSObject) self, r, first, count, optional);
+    }
+    return ((NSCallable) callee).nsCallAsMethod((NSObject) self, arguments(r, first, count, optional));
+  }
+
+  static NSData getVariable (Context context, NSData[] r, VariableReference ref) {
+    for (int i = 0; i < ref.getCandidatesCount(); i++) {
+      NSData value = ref.isInFrame(i) ?
+        r[ref.getSlot(i)] :
+        context.getAncestor(ref.getDepth(i)).getSymbol(ref.getSlot(i));
+      if (value != null) {
+        return value;
+      }
+    }
+    throw notExists(ref.getName());
+  }
+
+  static void setVariable (Context context, NSData[] r, VariableReference ref, NSData value) {
+    for (int i = 0; i < ref.getCandidatesCount(); i++) {
+      if (ref.isInFrame(i)) {
+        if (r[ref.getSlot(i)] != null) {
+          r[ref.getSlot(i)] = value;
+          return;
+        }
+      } else {
+        Context ancestor = context.getAncestor(ref.getDepth(i));
+        if (ancestor.getSymbol(ref.getSlot(i)) != null) {
+          ancestor.setSymbol(ref.getSlot(i), value);
+          return;
+        }
+      }
+    }
+    throw notExists(ref.getName());
+  }
+
+  static VMError notExists (Object name) {
+    return VMError.from(BuiltinClass.ReferenceError, String.format("The variable `%s` does not exist", name));
+  }
+
+  // Returns null if <iterator> has ended
+  static NSData next (NSIterator iterator) {
+    try {
+      return iterator.nextOrNull();
+    } catch (VMError err) {
+      // Only iterators that run script code end this way
+      NSData vmerrobj = err.getValue();
+      if (vmerrobj instanceof NSObject && ((NSObject) vmerrobj)
+        .isInstanceOf(BuiltinClass.EndOfIterationError.getNSClass())
+        .isTrue()) {
+        return null;
+      }
+      throw err;
+    }
+  }
+
+  static boolean isInstanceOf (NSData value, NSData type) {
+    if (type.getType() != NSData.Type.CLASS) {
+      throw VMError.from(BuiltinClass.TypeError, "RHS of type check is not a class");
+    }
+    return value.getType() == NSData.Type.OBJECT && ((NSObject) value).isInstanceOf((NSClass) type).isTrue();
+  }
+
+  static VMError alreadyExists (Object name) {
+    return VMError.from(BuiltinClass.ReferenceError, String.format("Variable `%s` already exists", name));
+  }
+
+  static VMError noSelf () {
+    return VMError.from(BuiltinClass.ReferenceError, "`self` is not available in this context");
+  }
+
+  static VMError raise (String message) {
+    return VMError.from(BuiltinClass.SyntaxError, message);
+  }
+
+  static boolean isTruthy (NSData value) {
+    if (value instanceof NSBoolean) {
+      return ((NSBoolean) value).isTrue();
+    }
+    return value.nsToBoolean().isTrue();
+  }
+
+  // Same as nsCompare, without boxing the result when both are numbers
+  static int compareValues (NSData a, NSData b) {
+    if (a instanceof NSNumber && b instanceof NSNumber) {
+      return compare(((NSNumber) a).getRawNumber(), ((NSNumber) b).getRawNumber());
+    }
+    return (int) a.nsCompare(b).getRawNumber();
+  }
+
+  // <kind> is 0, 1, 2 or 3 for <, <=, > and >= respectively
+  static boolean testComparison (int kind, int comparison) {
+    switch (kind) {
+    case 0:
+      return comparison < 0;
+
+    case 1:
+      return comparison <= 0;
+
+    case 2:
+      return comparison > 0;
+
+    default:
+      return comparison >= 0;
+    }
+  }
+
+  // <opcode> is a binary bitwise opcode; safe integers skip nsBitwiseAnd and
+  // the like, which check that their operands are integers
+  static NSData bitwise (int opcode, NSData a, NSData b) {
+    boolean ints = a instanceof NSNumber && b instanceof NSNumber && ((NSNumber) a).isSafeInt() && ((NSNumber) b).isSafeInt();
+    switch (opcode) {
+    case BIT_AND:
+      return ints ? NSNumber.bitwiseAndInts((NSNumber) a, (NSNumber) b) : a.nsBitwiseAnd(b);
+
+    case BIT_OR:
+      return ints ? NSNumber.bitwiseOrInts((NSNumber) a, (NSNumber) b) : a.nsBitwiseOr(b);
+
+    case BIT_XOR:
+      return ints ? NSNumber.bitwiseXorInts((NSNumber) a, (NSNumber) b) : a.nsBitwiseXor(b);
+
+    case LEFT_SHIFT:
+      return ints ? NSNumber.leftShiftInts((NSNumber) a, (NSNumber) b) : a.nsLeftShift(b);
+
+    case RIGHT_SHIFT:
+      return ints ? NSNumber.rightShiftInts((NSNumber) a, (NSNumber) b) : a.nsRightShift(b);
+
+    case ARITHMETIC_RIGHT_SHIFT:
+      return ints ? NSNumber.arithmeticRightShiftInts((NSNumber) a, (NSNumber) b) : a.nsArithmeticRightShift(b);
+
+    default:
+      throw new InternalStateError("Unknown bitwise opcode");
+    }
+  }
+
+  static NSData bitwiseNot (NSData value) {
+    if (value instanceof NSNumber && ((NSNumber) value).isSafeInt()) {
+      return NSNumber.bitwiseNotInt((NSNumber) value);
+    }
+    return value.nsBitwiseNot();
+  }
+
+  static boolean testEquality (NSData a, NSData b) {
+    if (a instanceof NSNumber && b instanceof NSNumber) {
+      return ((NSNumber) a).getRawNumber() == ((NSNumber) b).getRawNumber();
+    }
+    return a.nsTestEquality(b).isTrue();
+  }
+
+  /*
+   *
+   *  Runs <prototype>'s code from <pc> with <context> as the current context;
+   *  <handlers> and <generator> are only non-null when resuming a generator or
+   *  running one, respectively.
+   *
+   */
+  static NSData run (FunctionPrototype prototype, Context frame, Context context, int pc, Handlers handlers, BytecodeGenerator generator) {
+    final int[] code = prototype.getCode();
+    final Object[] k = prototype.getConstants();
+    final NSData[] r = frame.getSymbols();
+    Context ctx = context;
+    // The error last caught in this frame, for RETHROW
+    VMError pending = null;
+
+    while (true) {
+      // If true, the error being thrown can't be caught in this frame
+      boolean unhandled = false;
+      try {
+        while (true) {
+          //noinspection Duplicates
+          switch (code[pc]) {
+          case MOVE:
+            r[code[pc + 1]] = r[code[pc + 2]];
+            pc += 3;
+            break;
+
+          case LOAD_CONSTANT:
+            r[code[pc + 1]] = (NSData) k[code[pc + 2]];
+            pc += 3;
+            break;
+
+          case GET_VARIABLE:
+            r[code[pc + 1]] = getVariable(ctx, r, (VariableReference) k[code[pc + 2]]);
+            pc += 3;
+            break;
+
+          case GET_REGISTER: {
+            NSData value = r[code[pc + 2]];
+            if (value == null) {
+              throw notExists(k[code[pc + 3]]);
+            }
+            r[code[pc + 1]] = value;
+            pc += 4;
+            break;
+          }
+
+          case GET_SLOT: {
+            NSData value = ctx.getAncestor(code[pc + 2]).getSymbol(code[pc + 3]);
+            if (value == null) {
+              throw notExists(k[code[pc + 4]]);
+            }
+            r[code[pc + 1]] = value;
+            pc += 5;
+            break;
+          }
+
+          case SET_VARIABLE:
+            setVariable(ctx, r, (VariableReference) k[code[pc + 1]], r[code[pc + 2]]);
+            pc += 3;
+            break;
+
+          case SET_REGISTER:
+            if (r[code[pc + 1]] == null) {
+              throw notExists(k[code[pc + 3]]);
+            }
+            r[code[pc + 1]] = r[code[pc + 2]];
+            pc += 4;
+            break;
+
+          case SET_SLOT: {
+            Context ancestor = ctx.getAncestor(code[pc + 1]);
+            if (ancestor.getSymbol(code[pc + 2]) == null) {
+              throw notExists(k[code[pc + 3]]);
+            }
+            ancestor.setSymbol(code[pc + 2], r[code[pc + 4]]);
+            pc += 5;
+            break;
+          }
+
+          case CREATE_REGISTER:
+            if (r[code[pc + 1]] != null) {
+              throw alreadyExists(k[code[pc + 3]]);
+            }
+            r[code[pc + 1]] = r[code[pc + 2]];
+            pc += 4;
+            break;
+
+          case CREATE_SLOT:
+            ctx.createSymbol(code[pc + 1], (String) k[code[pc + 2]], r[code[pc + 3]]);
+            pc += 4;
+            break;
+
+          case CLEAR_REGISTERS:
+            // Usually only a few registers, for which a loop is cheaper than Arrays.fill
+            for (int i = code[pc + 1], end = i + code[pc + 2]; i < end; i++) {
+              r[i] = null;
+            }
+            pc += 3;
+            break;
+
+          case ENTER_BLOCK:
+            ctx = new Context(ctx, code[pc + 1]);
+            pc += 2;
+            break;
+
+          case LEAVE_BLOCKS:
+            ctx = ctx.getAncestor(code[pc + 1]);
+            pc += 2;
+            break;
+
+          case CLEAR_BLOCK:
+            ctx.clearSymbols();
+            pc += 1;
+            break;
+
+          case GET_SELF: {
+            int depth = code[pc + 2];
+            NSData self = depth == -1 ? null : ctx.getAncestor(depth).getSymbol(0);
+            if (self == null) {
+              throw noSelf();
+            }
+            r[code[pc + 1]] = self;
+            pc += 3;
+            break;
+          }
+
+          case ADD: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a instanceof NSNumber && b instanceof NSNumber ?
+              NSNumber.add((NSNumber) a, (NSNumber) b) :
+              a.nsAdd(b);
+            pc += 4;
+            break;
+          }
+
+          case SUBTRACT: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a instanceof NSNumber && b instanceof NSNumber ?
+              NSNumber.subtract((NSNumber) a, (NSNumber) b) :
+              a.nsSubtract(b);
+            pc += 4;
+            break;
+          }
+
+          case MULTIPLY: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a instanceof NSNumber && b instanceof NSNumber ?
+              NSNumber.multiply((NSNumber) a, (NSNumber) b) :
+              a.nsMultiply(b);
+            pc += 4;
+            break;
+          }
+
+          case DIVIDE: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a.nsDivide(b);
+            pc += 4;
+            break;
+          }
+
+          case MODULO: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a.nsModulo(b);
+            pc += 4;
+            break;
+          }
+
+          case EXPONENTIATE: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a.nsExponentiate(b);
+            pc += 4;
+            break;
+          }
+
+          case EQUAL:
+          case NOT_EQUAL: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = NSBoolean.from(testEquality(a, b) != (code[pc] == NOT_EQUAL));
+            pc += 4;
+            break;
+          }
+
+          case LESS_THAN:
+          case LESS_THAN_OR_EQUAL:
+          case GREATER_THAN:
+          case GREATER_THAN_OR_EQUAL: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = NSBoolean.from(testComparison(code[pc] - LESS_THAN, compareValues(a, b)));
+            pc += 4;
+            break;
+          }
+
+          case SPACESHIP: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = a.nsCompare(b);
+            pc += 4;
+            break;
+          }
+
+          case NOT:
+            r[code[pc + 1]] = r[code[pc + 2]].nsToBoolean().invert();
+            pc += 3;
+            break;
+
+          case MEASURE:
+            r[code[pc + 1]] = r[code[pc + 2]].nsApplyHashOperator();
+            pc += 3;
+            break;
+
+          case AWAIT:
+            r[code[pc + 1]] = r[code[pc + 2]].nsAwait();
+            pc += 3;
+            break;
+
+          case BIT_AND:
+          case BIT_OR:
+          case BIT_XOR:
+          case LEFT_SHIFT:
+          case RIGHT_SHIFT:
+          case ARITHMETIC_RIGHT_SHIFT: {
+            int x = code[pc + 2], y = code[pc + 3];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            r[code[pc + 1]] = bitwise(code[pc], a, b);
+            pc += 4;
+            break;
+          }
+
+          case BIT_NOT:
+            r[code[pc + 1]] = bitwiseNot(r[code[pc + 2]]);
+            pc += 3;
+            break;
+
+          case JUMP:
+            pc += code[pc + 1];
+            break;
+
+          case JUMP_IF_TRUE:
+            pc += isTruthy(r[code[pc + 1]]) ? code[pc + 2] : 3;
+            break;
+
+          case JUMP_IF_FALSE:
+            pc += isTruthy(r[code[pc + 1]]) ? 3 : code[pc + 2];
+            break;
+
+          case JUMP_IF_NULL:
+            pc += r[code[pc + 1]] == NSNull.NULL ? code[pc + 2] : 3;
+            break;
+
+          case JUMP_IF_NOT_NULL:
+            pc += r[code[pc + 1]] != NSNull.NULL ? code[pc + 2] : 3;
+            break;
+
+          case JUMP_UNLESS_EQUAL: {
+            int x = code[pc + 1], y = code[pc + 2];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            pc += testEquality(a, b) ? 4 : code[pc + 3];
+            break;
+          }
+
+          case JUMP_UNLESS_LESS_THAN:
+          case JUMP_UNLESS_LESS_THAN_OR_EQUAL:
+          case JUMP_UNLESS_GREATER_THAN:
+          case JUMP_UNLESS_GREATER_THAN_OR_EQUAL: {
+            int x = code[pc + 1], y = code[pc + 2];
+            NSData a = x >= 0 ? r[x] : constant(k, x);
+            NSData b = y >= 0 ? r[y] : constant(k, y);
+            pc += testComparison(code[pc] - JUMP_UNLESS_LESS_THAN, compareValues(a, b)) ? 4 : code[pc + 3];
+            break;
+          }
+
+          case NEW_LIST:
+            r[code[pc + 1]] = NSList.from(values(r, code[pc + 2], code[pc + 3]));
+            pc += 4;
+            break;
+
+          case NEW_MAP:
+            r[code[pc + 1]] = newMap(r, code[pc + 2], code[pc + 3]);
+            pc += 4;
+            break;
+
+          case NEW_OBJECT:
+            r[code[pc + 1]] = newObject(r, (String[]) k[code[pc + 2]], code[pc + 3]);
+            pc += 4;
+            break;
+
+          case GET_MEMBER:
+            r[code[pc + 1]] = ((MemberInlineCache) k[code[pc + 3]]).access(r[code[pc + 2]]);
+            pc += 4;
+            break;
+
+          case SET_MEMBER:
+            ((MemberInlineCache) k[code[pc + 2]]).assign(r[code[pc + 1]], r[code[pc + 3]]);
+            pc += 4;
+            break;
+
+          case INIT_MEMBER:
+            ((NSObject) r[code[pc + 1]]).createOrUpdateMemberVariable((String) k[code[pc + 2]], r[code[pc + 3]]);
+            pc += 4;
+            break;
+
+          case LOOKUP:
+            r[code[pc + 1]] = r[code[pc + 2]].nsLookup(values(r, code[pc + 3], code[pc + 4]));
+            pc += 5;
+            break;
+
+          case UPDATE:
+            r[code[pc + 1]].nsUpdate(values(r, code[pc + 2], code[pc + 3]), r[code[pc + 4]]);
+            pc += 5;
+            break;
+
+          case CALL:
+            r[code[pc + 1]] = call(r[code[pc + 2]], r, code[pc + 3], code[pc + 4], code[pc + 5] == -1 ? null : (boolean[]) k[code[pc + 5]]);
+            pc += 6;
+            break;
+
+          case PREPARE_METHOD:
+            prepareMethod(r, code[pc + 1], r[code[pc + 2]], (MemberInlineCache) k[code[pc + 3]], code[pc + 4] == 1);
+            pc += 5;
+            break;
+
+          case CALL_METHOD:
+            r[code[pc + 1]] = callMethod(r, code[pc + 2], code[pc + 3], code[pc + 4], code[pc + 5] == -1 ? null : (boolean[]) k[code[pc + 5]]);
+            pc += 6;
+            break;
+
+          case CLOSURE:
+            r[code[pc + 1]] = BytecodeCallable.from(ctx, (FunctionPrototype) k[code[pc + 2]]);
+            pc += 3;
+            break;
+
+          case NEW_CLASS:
+            r[code[pc + 1]] = BytecodeClass.from(ctx, (ClassPrototype) k[code[pc + 2]], r, code[pc + 3], code[pc + 4]);
+            pc += 5;
+            break;
+
+          case SET_STATIC:
+            ((BytecodeClass) r[code[pc + 1]]).addStatic((String) k[code[pc + 2]], r[code[pc + 3]]);
+            pc += 4;
+            break;
+
+          case EXPORT:
+            ((GlobalScope) frame).addExport((String) k[code[pc + 1]], r[code[pc + 2]]);
+            pc += 3;
+            break;
+
+          case THROW:
+            throw new VMError(r[code[pc + 1]], prototype.getPosition(pc));
+
+          case RETHROW:
+            throw pending;
+
+          case TRY:
+            if (handlers == null) {
+              handlers = new Handlers();
+            }
+            handlers.push(pc + code[pc + 1], code[pc + 2], ctx);
+            pc += 3;
+            break;
+
+          case END_TRY:
+            handlers.pop(code[pc + 1]);
+            pc += 2;
+            break;
+
+          case IS_TYPE:
+            r[code[pc + 1]] = NSBoolean.from((r[code[pc + 2]].getType() == TYPES[code[pc + 3]]) != (code[pc + 4] == 1));
+            pc += 5;
+            break;
+
+          case INSTANCE_OF:
+            r[code[pc + 1]] = NSBoolean.from(isInstanceOf(r[code[pc + 2]], r[code[pc + 3]]) != (code[pc + 4] == 1));
+            pc += 5;
+            break;
+
+          case JUMP_IF_NOT_OBJECT:
+            pc += r[code[pc + 1]].getType() != NSData.Type.OBJECT ? code[pc + 2] : 3;
+            break;
+
+          case JUMP_IF_RANGE:
+            pc += r[code[pc + 1]] instanceof NSRange ? code[pc + 2] : 3;
+            break;
+
+          case ITERATE:
+            r[code[pc + 1]] = r[code[pc + 2]].nsIterate();
+            pc += 3;
+            break;
+
+          case ITERATE_NEXT: {
+            NSData value = next((NSIterator) r[code[pc + 2]]);
+            if (value == null) {
+              pc += code[pc + 3];
+            } else {
+              r[code[pc + 1]] = value;
+              pc += 4;
+            }
+            break;
+          }
+
+          case RETURN:
+            return r[code[pc + 1]];
+
+          case RETURN_NULL:
+            return NSNull.NULL;
+
+          case YIELD:
+            generator.suspend(pc + 2, ctx, handlers);
+            return r[code[pc + 1]];
+
+          case RAISE:
+            unhandled = true;
+            throw raise((String) k[code[pc + 1]]);
+
+          default:
+            throw new InternalStateError("Unknown opcode");
+          }
+        }
+      } catch (VMError vme) {
+        VMError error = vme;
+        Position position = prototype.getPosition(pc);
+        if (!error.hasPosition() && position != null) {
+          error = error.withPosition(position);
+        }
+        if (unhandled || handlers == null || handlers.isEmpty()) {
+          throw error;
+        }
+        pc = handlers.getTarget();
+        r[handlers.getErrorRegister()] = error.getValue();
+        ctx = handlers.getContext();
+        handlers.pop(1);
+        pending = error;
+      }
+    }
+  }
+}
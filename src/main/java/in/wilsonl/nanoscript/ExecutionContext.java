@@ -0,0 +1,89 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Exception.CyclicImportException;
+import in.wilsonl.nanoscript.Exception.ExceptionFromSource;
+import in.wilsonl.nanoscript.Exception.NoSuchModuleException;
+import in.wilsonl.nanoscript.Interpreting.DependencyPath;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Exports;
+import in.wilsonl.nanoscript.Interpreting.Interpreter;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A lightweight, single-threaded context for running scripts with a
+ * {@link ScriptEngine}, e.g. one per request.
+ * All evaluation state (globals, objects, classes declared by scripts, and
+ * imported modules unless the engine shares them) belongs to the context, so
+ * contexts created from the same engine can be used from different threads at
+ * the same time; only the compiled code is shared between them.
+ * Modules imported by several scripts run in the same context are only
+ * evaluated once, and a context keeps using the version of a module it first
+ * loaded even if the file later changes.
+ */
+public class ExecutionContext {
+  private final ScriptEngine engine;
+  // Scripts are only loaded once, so changes to globals in that script
+  // will change it for all
+  private final Map<File, Exports> loaded = new HashMap<>();
+  private final ImportGraph importGraph;
+
+  ExecutionContext (ScriptEngine engine) {
+    this.engine = engine;
+    this.importGraph = new ImportGraph(engine.getModuleCache(), engine.getParsePool());
+  }
+
+  /**
+   * Evaluates a script and everything it imports.
+   * The script itself is evaluated every time it is run, even in the same
+   * context.
+   *
+   * @param path       the path of the script, resolved like an import name.
+   * @param relativeTo the directory to resolve {@code path} against.
+   * @return the script's exports.
+   * @throws CyclicImportException if the script imports itself, directly or
+   *                               indirectly.
+   * @throws FileNotFoundException if the script or an imported module cannot be read.
+   * @throws NoSuchModuleException if {@code path} cannot be resolved.
+   */
+  public Exports run (String path, File relativeTo) throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    File filePath = ImportGraph.resolveImportName(path, relativeTo);
+    DependencyPath curr = new DependencyPath(new File[0]).concat(filePath);
+    return evaluate(curr, filePath, importGraph.take(filePath));
+  }
+
+  private Exports load (DependencyPath prev, String importName, File prevRelTo) throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    File filePath = ImportGraph.resolveImportName(importName, prevRelTo);
+
+    if (!loaded.containsKey(filePath)) {
+      DependencyPath curr = prev.concat(filePath);
+      ChunkNode compiled = importGraph.take(filePath);
+
+      Exports exports;
+      if (engine.getModulePolicy() == ScriptEngine.ModulePolicy.SHARED) {
+        exports = engine.getOrEvaluateShared(filePath, compiled, () -> evaluate(curr, filePath, compiled));
+      } else {
+        exports = evaluate(curr, filePath, compiled);
+      }
+
+      loaded.put(filePath, exports);
+    }
+
+    return loaded.get(filePath);
+  }
+
+  private Exports evaluate (DependencyPath curr, File filePath, ChunkNode compiled) {
+    File currRelTo = filePath.getParentFile();
+    return Interpreter.interpret(name -> {
+      try {
+        return load(curr, name, currRelTo);
+      } catch (CyclicImportException | FileNotFoundException | NoSuchModuleException | VMError e) {
+        throw new ExceptionFromSource(filePath.getPath(), e);
+      }
+    }, compiled);
+  }
+}
@@ -0,0 +1,183 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Exception.NoSuchModuleException;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Parsing.ChunkCache;
+import in.wilsonl.nanoscript.Parsing.Parser;
+import in.wilsonl.nanoscript.Parsing.Tokens;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ *
+ *  Parses and compiles a script and everything it transitively imports in
+ *  parallel.
+ *
+ *  Each file is loaded by its own task on the pool. A task first scans only
+ *  the import statements at the top of its file and forks tasks for those
+ *  dependencies, and only then parses and compiles its own body, so the
+ *  whole graph is discovered as early as possible. Files that are still
+ *  fresh in the ModuleCache skip both steps and just submit their imports.
+ *
+ *  Tasks never wait for each other, which means import cycles cannot
+ *  deadlock here; they are still detected by DependencyPath when the chunks
+ *  are interpreted on the calling thread, in dependency order.
+ *
+ *  Parse failures are kept with their file and only rethrown when that file is
+ *  actually taken, so errors surface at the same point as with serial loading.
+ *
+ */
+class ImportGraph {
+  private final ModuleCache moduleCache;
+  private final ForkJoinPool pool;
+  private final ConcurrentMap<File, ParseTask> tasks = new ConcurrentHashMap<>();
+
+  ImportGraph (ModuleCache moduleCache, ForkJoinPool pool) {
+    this.moduleCache = moduleCache;
+    this.pool = pool;
+  }
+
+  // <relativeToDir> should be a File instance containing a canonical
+  // path to the directory containing the script doing the importing
+  static File resolveImportName (String name, File relativeToDir) throws NoSuchModuleException {
+    List<File> tested = new ArrayList<>();
+
+    String relativeToDirPath;
+    try {
+      if (!relativeToDir.isDirectory()) {
+        throw new InternalStateError("Working directory path is not a directory");
+      }
+      relativeToDirPath = relativeToDir.getCanonicalPath();
+    } catch (SecurityException | IOException se) {
+      throw new InternalStateError("Permission denied to access possible directory " + relativeToDir.getPath());
+    }
+
+    File relFile = new File(relativeToDirPath + '/' + name);
+    tested.add(relFile);
+    try {
+      if (relFile.isFile()) {
+        return relFile.getCanonicalFile();
+      }
+    } catch (SecurityException | IOException ignored) {
+    }
+
+    File absFile = new File(name);
+    tested.add(absFile);
+    try {
+      if (absFile.isAbsolute()) {
+        return absFile.getCanonicalFile();
+      }
+    } catch (SecurityException | IOException ignored) {
+    }
+
+    throw new NoSuchModuleException(name, tested);
+  }
+
+  private static List<ImportStatement> scanImportHeaders (byte[] contents) {
+    try {
+      Tokens tokens = new Tokens(new Lexer(new Code(new ByteArrayInputStream(contents))));
+      return Parser.parseImportHeaders(tokens);
+    } catch (RuntimeException e) {
+      // Whatever is wrong will be reported by the full parse
+      return Collections.emptyList();
+    }
+  }
+
+  private void submit (File file) {
+    ParseTask task = new ParseTask(file);
+    if (tasks.putIfAbsent(file, task) == null) {
+      pool.execute(task);
+    }
+  }
+
+  private void submitImports (List<ImportStatement> imports, File relativeToDir) {
+    for (ImportStatement st_impstmt : imports) {
+      try {
+        submit(resolveImportName(st_impstmt.getFrom().getValue(), relativeToDir));
+      } catch (NoSuchModuleException | InternalStateError ignored) {
+        // Reported when the import is actually interpreted
+      }
+    }
+  }
+
+  private void awaitAll () {
+    // Tasks only finish after submitting their dependencies, so once a pass
+    // finds no new tasks the whole reachable graph has been parsed
+    int known;
+    do {
+      known = tasks.size();
+      for (ParseTask task : new ArrayList<>(tasks.values())) {
+        task.join();
+      }
+    } while (tasks.size() != known);
+  }
+
+  // Returns the compiled chunk for <file>, loading it and everything it
+  // imports first if <file> was not already part of the graph
+  ChunkNode take (File file) throws FileNotFoundException {
+    if (!tasks.containsKey(file)) {
+      submit(file);
+      awaitAll();
+    }
+    ParseTask task = tasks.get(file);
+    task.join();
+    if (task.error instanceof FileNotFoundException) {
+      throw (FileNotFoundException) task.error;
+    }
+    if (task.error instanceof RuntimeException) {
+      throw (RuntimeException) task.error;
+    }
+    if (task.error instanceof Error) {
+      throw (Error) task.error;
+    }
+    return task.compiled;
+  }
+
+  private class ParseTask extends RecursiveAction {
+    // ForkJoinTask is Serializable, but tasks are never serialised; this only
+    // keeps -Xlint:serial quiet
+    private static final long serialVersionUID = 1L;
+
+    private final File file;
+    private ChunkNode compiled;
+    private Throwable error;
+
+    private ParseTask (File file) {
+      this.file = file;
+    }
+
+    @Override
+    protected void compute () {
+      try {
+        File relativeToDir = file.getParentFile();
+        ModuleCache.Entry module = moduleCache.getIfFresh(file);
+        if (module == null) {
+          long lastModified = file.lastModified();
+          long length = file.length();
+          byte[] contents = ChunkCache.readSource(file);
+          submitImports(scanImportHeaders(contents), relativeToDir);
+          module = moduleCache.put(file, lastModified, length, contents);
+        }
+        compiled = module.getCompiled();
+        // In case the scan missed anything; already submitted files are skipped
+        submitImports(compiled.getImports(), relativeToDir);
+      } catch (FileNotFoundException | RuntimeException | Error e) {
+        error = e;
+      }
+    }
+  }
+}
@@ -5,15 +5,12 @@ import in.wilsonl.nanoscript.Interpreting.Context;
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
 import in.wilsonl.nanoscript.Interpreting.Data.NSList;
 import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
-import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionEvaluator;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
 import in.wilsonl.nanoscript.Interpreting.VMError;
-import in.wilsonl.nanoscript.Syntax.Expression.Expression;
 import in.wilsonl.nanoscript.Utils.ROList;
 
 import java.lang.reflect.MalformedParametersException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.ArgumentsError;
 import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.TypeError;
@@ -33,8 +30,10 @@ public class ArgumentsValidator {
   // if not hasOptional
   private int posOfFirstOptional = -1;
   private int posOfLastOptional = -1;
-  // This must be reset on every call to .match
-  private Map<String, NSData> matchedValues = new HashMap<>();
+  // Indexed by arity minus <minPlannedArity>; null if the parameters
+  // have a variable length or non-contiguous optional parameters
+  private final BindingPlan[] plans;
+  private int minPlannedArity = -1;
 
   public ArgumentsValidator (Context defaultValuesContext, NSParameter[] parameters) {
     this.defaultValuesContext = defaultValuesContext;
@@ -46,7 +45,7 @@ public class ArgumentsValidator {
       if (parameter == null) {
         throw new InternalStateError("Parameter is null");
       }
-      if (parameter.getRawDefaultValue() != null && defaultValuesContext == null) {
+      if (parameter.getDefaultValue() != null && defaultValuesContext == null) {
         throw new InternalStateError("A parameter exists with a default value but with no context");
       }
       if (parameter.isOptional()) {
@@ -85,6 +84,7 @@ public class ArgumentsValidator {
     if (!hasVarLen) {
       posOfVarLen = paramsCount;
     }
+    plans = buildPlans();
   }
 
   public ArgumentsValidator (Context defaultValuesContext, NSParameter parameter) {
@@ -99,6 +99,54 @@ public class ArgumentsValidator {
     this(defaultValuesContext, new NSParameter[0]);
   }
 
+  /*
+   *
+   *  For shapes without a variable length parameter, the parameter that each
+   *  argument binds to depends only on the number of arguments, so it can be
+   *  computed ahead of time for every arity that doesn't need the general
+   *  algorithm to report an error or skip extraneous optional arguments.
+   *
+   */
+  private BindingPlan[] buildPlans () {
+    int paramsCount = parameters.length;
+    if (hasVarLen) {
+      return null;
+    }
+    for (int i = 0; i < paramsCount; i++) {
+      if (parameters[i].isOptional() != (i >= posOfFirstOptional && i <= posOfLastOptional)) {
+        return null;
+      }
+    }
+
+    int leftCount = posOfFirstOptional;
+    int rightCount = hasOptional ?
+      paramsCount - 1 - posOfLastOptional :
+      0;
+    minPlannedArity = leftCount + rightCount;
+
+    BindingPlan[] plans = new BindingPlan[paramsCount - minPlannedArity + 1];
+    for (int arity = minPlannedArity; arity <= paramsCount; arity++) {
+      int[] paramIndices = new int[arity];
+      int[] argNos = new int[arity];
+      for (int i = 0; i < arity; i++) {
+        if (i < arity - rightCount) {
+          paramIndices[i] = i;
+          argNos[i] = i;
+        } else {
+          // Matched from the right, which is how the general algorithm numbers them
+          paramIndices[i] = paramsCount - (arity - i);
+          argNos[i] = i - arity;
+        }
+      }
+      int firstDefaulted = arity - rightCount;
+      int lastDefaulted = hasOptional ?
+        posOfLastOptional :
+        firstDefaulted - 1;
+      plans[arity - minPlannedArity] = new BindingPlan(paramIndices, argNos, firstDefaulted, lastDefaulted);
+    }
+    return plans;
+  }
+
   private void validateArgument (int argNo, NSParameter p, NSArgument a) {
     NSData.Type argType = a.getValue().getType();
     if (!p.canAcceptType(argType)) {
@@ -106,7 +154,7 @@ public class ArgumentsValidator {
     }
   }
 
-  private int matchArguments (int fakeFromInc, int fakeToInc, int realArgBoundary, List<NSArgument> args, boolean required) {
+  private int matchArguments (int fakeFromInc, int fakeToInc, int realArgBoundary, List<NSArgument> args, boolean required, Context frame, int firstSlot) {
     int argsCount = args.size();
 
     int direction = fakeFromInc < 0 ? -1 : 1;
@@ -142,7 +190,7 @@ public class ArgumentsValidator {
       NSArgument a = args.get(realArgIdx);
 
       validateArgument(fakeIdx, p, a);
-      matchedValues.put(p.getName(), a.getValue());
+      frame.setSymbol(firstSlot + realParamIdx, a.getValue());
 
       fakeIdx += direction;
       realParamIdx += direction;
@@ -153,8 +201,14 @@ public class ArgumentsValidator {
     return realArgIdx - direction;
   }
 
-  public NSValidatedArguments match (List<NSArgument> args) {
-    matchedValues.clear();
+  // Writes the value for parameter <i> into slot <firstSlot> + <i> of <frame>,
+  // which must be null for all parameters
+  public void match (List<NSArgument> args, Context frame, int firstSlot) {
+    int argsCount = args.size();
+    if (plans != null && argsCount >= minPlannedArity && argsCount <= parameters.length) {
+      matchWithPlan(plans[argsCount - minPlannedArity], args, frame, firstSlot);
+      return;
+    }
 
     /*
      *   If hasOptional, this will collect args before the first optional,
@@ -166,7 +220,7 @@ public class ArgumentsValidator {
     int upperBoundFromLeft = (hasOptional ?
       posOfFirstOptional :
       posOfVarLen) - 1;
-    int lastArgIdxFromLeft = matchArguments(0, upperBoundFromLeft, upperBoundFromLeft + 1, args, true);
+    int lastArgIdxFromLeft = matchArguments(0, upperBoundFromLeft, upperBoundFromLeft + 1, args, true, frame, firstSlot);
 
 
     /*
@@ -179,13 +233,13 @@ public class ArgumentsValidator {
     int lowerBoundFromRight = (hasOptional ?
       posOfLastOptional :
       posOfVarLen) - parameters.length + 1;
-    int lastArgIdxFromRight = matchArguments(-1, lowerBoundFromRight, lastArgIdxFromLeft, args, true);
+    int lastArgIdxFromRight = matchArguments(-1, lowerBoundFromRight, lastArgIdxFromLeft, args, true, frame, firstSlot);
 
     if (hasOptional) {
       int optionalUpperBoundFromLeft = hasVarLen ?
         posOfVarLen - 1 :
         posOfLastOptional;
-      lastArgIdxFromLeft = matchArguments(posOfFirstOptional, optionalUpperBoundFromLeft, lastArgIdxFromRight, args, false);
+      lastArgIdxFromLeft = matchArguments(posOfFirstOptional, optionalUpperBoundFromLeft, lastArgIdxFromRight, args, false, frame, firstSlot);
 
       if (hasVarLen) {
         // Also means there might be args to the right of the varlen
@@ -194,7 +248,9 @@ public class ArgumentsValidator {
           posOfVarLen - parameters.length + 1,
           lastArgIdxFromLeft,
           args,
-          false);
+          false,
+          frame,
+          firstSlot);
       }
     }
 
@@ -210,7 +266,7 @@ public class ArgumentsValidator {
         throw VMError.from(ArgumentsError, "At least one argument is required for the variable length parameter");
       }
       // Put value even if empty
-      matchedValues.put(p.getName(), NSList.from(collected));
+      frame.setSymbol(firstSlot + posOfVarLen, NSList.from(collected));
     } else {
       for (int j = lastArgIdxFromLeft + 1; j < lastArgIdxFromRight; j++) {
         if (!args.get(j).isOptional()) {
@@ -222,21 +278,53 @@ public class ArgumentsValidator {
     if (hasOptional) {
       for (int i = posOfFirstOptional; i <= posOfLastOptional; i++) {
         NSParameter param = parameters[i];
-        String name = param.getName();
-        if (!param.isVariableLength() && !matchedValues.containsKey(name)) {
-          Expression rawDefaultValue = param.getRawDefaultValue();
-          NSData defaultValue;
-          if (rawDefaultValue == null) {
-            defaultValue = NSNull.NULL;
-          } else {
-            defaultValue = ExpressionEvaluator.evaluateExpression(defaultValuesContext, rawDefaultValue);
-          }
-          matchedValues.put(name, defaultValue);
+        if (!param.isVariableLength() && frame.getSymbol(firstSlot + i) == null) {
+          frame.setSymbol(firstSlot + i, evaluateDefaultValue(param));
         }
       }
     }
+  }
+
+  private void matchWithPlan (BindingPlan plan, List<NSArgument> args, Context frame, int firstSlot) {
+    int[] paramIndices = plan.paramIndices;
+    for (int i = 0; i < paramIndices.length; i++) {
+      int paramIdx = paramIndices[i];
+      NSArgument a = args.get(i);
+      validateArgument(plan.argNos[i], parameters[paramIdx], a);
+      frame.setSymbol(firstSlot + paramIdx, a.getValue());
+    }
+    for (int i = plan.firstDefaulted; i <= plan.lastDefaulted; i++) {
+      frame.setSymbol(firstSlot + i, evaluateDefaultValue(parameters[i]));
+    }
+  }
 
-    return new NSValidatedArguments(matchedValues);
+  private NSData evaluateDefaultValue (NSParameter param) {
+    ExpressionNode defaultValueExpr = param.getDefaultValue();
+    if (defaultValueExpr == null) {
+      return NSNull.NULL;
+    }
+    return defaultValueExpr.evaluate(defaultValuesContext);
+  }
+
+  public NSValidatedArguments match (List<NSArgument> args) {
+    Context values = new Context(null, parameters.length);
+    match(args, values, 0);
+    return new NSValidatedArguments(parameters, values);
+  }
+
+  private static class BindingPlan {
+    private final int[] paramIndices; // Parameter for each argument
+    private final int[] argNos; // Argument numbers used in errors
+    // Parameters in this inclusive range aren't bound and take their default values
+    private final int firstDefaulted;
+    private final int lastDefaulted;
+
+    private BindingPlan (int[] paramIndices, int[] argNos, int firstDefaulted, int lastDefaulted) {
+      this.paramIndices = paramIndices;
+      this.argNos = argNos;
+      this.firstDefaulted = firstDefaulted;
+      this.lastDefaulted = lastDefaulted;
+    }
   }
 
 }
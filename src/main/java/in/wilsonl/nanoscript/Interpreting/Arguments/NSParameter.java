@@ -2,7 +2,7 @@ package in.wilsonl.nanoscript.Interpreting.Arguments;
 
 import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
-import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
 import in.wilsonl.nanoscript.Utils.ROSet;
 
 import java.util.Set;
@@ -13,10 +13,10 @@ public class NSParameter {
   private final String name; // Can't be null
   private final Set<NSData.Type> types = new ROSet<>(); // Can be empty
   private final String typesStringRep;
-  private final Expression rawDefaultValue; // Can be null
+  private final ExpressionNode defaultValue; // Can be null
 
   // <types> can be null
-  public NSParameter (boolean optional, boolean variableLength, String name, NSData.Type[] types, Expression rawDefaultValue) {
+  public NSParameter (boolean optional, boolean variableLength, String name, NSData.Type[] types, ExpressionNode defaultValue) {
     if (name == null) {
       throw new InternalStateError("Parameter name is null");
     }
@@ -24,7 +24,7 @@ public class NSParameter {
     this.optional = optional;
     this.variableLength = variableLength;
     this.name = name;
-    this.rawDefaultValue = rawDefaultValue;
+    this.defaultValue = defaultValue;
 
     if (types != null && types.length > 0) {
       StringBuilder typesStringRep = new StringBuilder();
@@ -82,8 +82,8 @@ public class NSParameter {
     return name;
   }
 
-  public Expression getRawDefaultValue () {
-    return rawDefaultValue;
+  public ExpressionNode getDefaultValue () {
+    return defaultValue;
   }
 
   public boolean canAcceptType (NSData.Type type) {
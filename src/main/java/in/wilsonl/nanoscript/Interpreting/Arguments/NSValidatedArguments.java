@@ -1,41 +1,62 @@
 package in.wilsonl.nanoscript.Interpreting.Arguments;
 
+import in.wilsonl.nanoscript.Interpreting.Context;
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
-import in.wilsonl.nanoscript.Utils.ROMap;
 
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+// Values are held in a frame, in the same order as the parameters
 public class NSValidatedArguments implements Iterable<NSValidatedArguments.NSValidatedArgument> {
-  private final Map<String, NSData> values;
+  private final NSParameter[] parameters;
+  private final Context values;
 
-  public NSValidatedArguments (Map<String, NSData> values) {
-    this.values = new ROMap<>(values);
+  public NSValidatedArguments (NSParameter[] parameters, Context values) {
+    this.parameters = parameters;
+    this.values = values;
   }
 
   public Set<String> getNames () {
-    return new HashSet<>(values.keySet());
+    Set<String> names = new HashSet<>();
+    for (NSParameter p : parameters) {
+      names.add(p.getName());
+    }
+    return names;
+  }
+
+  public NSData get (int index) {
+    return values.getSymbol(index);
   }
 
   public NSData get (String name) {
-    return values.get(name);
+    // There are only ever a few parameters, so this is faster than hashing
+    for (int i = 0; i < parameters.length; i++) {
+      if (parameters[i].getName().equals(name)) {
+        return values.getSymbol(i);
+      }
+    }
+    return null;
   }
 
   @Override
   public Iterator<NSValidatedArgument> iterator () {
-    Iterator<Map.Entry<String, NSData>> mapIter = values.entrySet().iterator();
     return new Iterator<NSValidatedArgument>() {
+      private int next = 0;
+
       @Override
       public boolean hasNext () {
-        return mapIter.hasNext();
+        return next < parameters.length;
       }
 
       @Override
       public NSValidatedArgument next () {
-        Map.Entry<String, NSData> next = mapIter.next();
-        return new NSValidatedArgument(next.getKey(), next.getValue());
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int i = next++;
+        return new NSValidatedArgument(parameters[i].getName(), values.getSymbol(i));
       }
     };
   }
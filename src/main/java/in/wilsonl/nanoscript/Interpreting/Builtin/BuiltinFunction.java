@@ -8,8 +8,9 @@ import in.wilsonl.nanoscript.Interpreting.Data.NSNativeCallable;
 import in.wilsonl.nanoscript.Interpreting.Data.NSNativeSelflessCallableBody;
 import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
 import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSRange;
+import in.wilsonl.nanoscript.Interpreting.Data.NSTask;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public enum BuiltinFunction {
@@ -46,13 +47,12 @@ public enum BuiltinFunction {
       step = 1;
     }
 
-    List<NSData> res = new ArrayList<>();
-    for (long i = min; i < max; i += step) {
-      res.add(NSNumber.from(i));
-    }
-
-    return NSList.from(res);
+    return NSRange.from(min, max, step);
   }),
+  spawn(new ArgumentsValidator(
+    null,
+    new NSParameter("function", NSData.Type.CALLABLE)),
+    (arguments) -> NSTask.spawn(arguments.get("function"))),
   str(new ArgumentsValidator(
     null,
     new NSParameter("value")),
@@ -0,0 +1,92 @@
+package in.wilsonl.nanoscript.Interpreting.Builtin;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSList;
+import in.wilsonl.nanoscript.Interpreting.Data.NSMap;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.KeyError;
+
+@BuiltinMethods(target = NSMap.class)
+public class BuiltinNSMapMethods {
+  /**
+   * Gets the value of a key, or a default value if the key does not exist.
+   *
+   * @param key      the key to look up.
+   * @param fallback the value to return if {@code key} does not exist; null if
+   *                 not provided.
+   * @return the value of {@code key}, or {@code fallback}.
+   */
+  @BuiltinMethod(name = "get")
+  public static NSData get (NSMap self, @BuiltinMethodParameter(name = "key") NSData key, @BuiltinMethodParameter(name = "fallback", optional = true) NSData fallback) {
+    NSData value = self.getRawMap().get(key);
+    if (value != null) {
+      return value;
+    }
+    // An omitted <fallback> is null
+    return fallback;
+  }
+
+  /**
+   * Checks whether a key exists in the map.
+   *
+   * @param key the key to look for.
+   * @return true if {@code key} exists.
+   */
+  @BuiltinMethod(name = "has")
+  public static NSData has (NSMap self, @BuiltinMethodParameter(name = "key") NSData key) {
+    return NSBoolean.from(self.getRawMap().containsKey(key));
+  }
+
+  /**
+   * Creates a list of every key in the map, in no particular order.
+   *
+   * @return a new NSList instance.
+   */
+  @BuiltinMethod(name = "keys")
+  public static NSData keys (NSMap self) {
+    return NSList.from(new ArrayList<>(self.getRawMap().keySet()));
+  }
+
+  /**
+   * Removes a key and its value from the map.
+   *
+   * @param key the key to remove.
+   * @return the removed value.
+   * @throws KeyError if {@code key} does not exist.
+   */
+  @BuiltinMethod(name = "remove")
+  public static NSData remove (NSMap self, @BuiltinMethodParameter(name = "key") NSData key) {
+    Map<NSData, NSData> rawMap = self.getRawMap();
+    if (!rawMap.containsKey(key)) {
+      throw VMError.from(KeyError, "Key does not exist");
+    }
+    return rawMap.remove(key);
+  }
+
+  /**
+   * Gets the amount of keys in the map.
+   *
+   * @return how many keys are in the map.
+   */
+  @BuiltinMethod(name = "size")
+  public static NSData size (NSMap self) {
+    return NSNumber.from(self.getRawMap().size());
+  }
+
+  /**
+   * Creates a list of every value in the map, in the same order as
+   * {@code keys} would return the keys.
+   *
+   * @return a new NSList instance.
+   */
+  @BuiltinMethod(name = "values")
+  public static NSData values (NSMap self) {
+    return NSList.from(new ArrayList<>(self.getRawMap().values()));
+  }
+}
@@ -0,0 +1,18 @@
+package in.wilsonl.nanoscript.Interpreting.Builtin;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSRange;
+
+@BuiltinMethods(target = NSRange.class)
+public class BuiltinNSRangeMethods {
+  /**
+   * Creates a list containing every value in the range.
+   *
+   * @return a new NSList instance.
+   * @throws OutOfBoundsError if the range has too many values to fit in a list.
+   */
+  @BuiltinMethod(name = "toList")
+  public static NSData toList (NSRange self) {
+    return self.toList();
+  }
+}
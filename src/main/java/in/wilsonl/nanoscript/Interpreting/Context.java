@@ -3,12 +3,59 @@ package in.wilsonl.nanoscript.Interpreting;
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
 
-public interface Context {
-  NSData getContextSymbol (String name);
+import java.util.Arrays;
 
-  boolean setContextSymbol (String name, NSData value);
+/*
+ *
+ *  A runtime frame. Variables are resolved to a (depth, slot) coordinate when
+ *  the code is compiled (see LexicalScope), so a frame is only an array of
+ *  values chained to the frame of the enclosing scope.
+ *
+ *  A slot is null if its variable has not been created (yet) in this frame.
+ *
+ */
+public class Context {
+  private final Context parent; // Can be null
+  private final NSData[] symbols;
 
-  default void createContextSymbol (String name, NSData initialValue) {
-    throw VMError.from(BuiltinClass.UnsupportedOperationError, "Variables can't be declared here");
+  public Context (Context parent, int size) {
+    this.parent = parent;
+    this.symbols = new NSData[size];
+  }
+
+  public Context getParent () {
+    return parent;
+  }
+
+  public Context getAncestor (int depth) {
+    Context context = this;
+    for (int i = 0; i < depth; i++) {
+      context = context.parent;
+    }
+    return context;
+  }
+
+  public NSData getSymbol (int slot) {
+    return symbols[slot];
+  }
+
+  public void setSymbol (int slot, NSData value) {
+    symbols[slot] = value;
+  }
+
+  public void createSymbol (int slot, String name, NSData initialValue) {
+    if (symbols[slot] != null) {
+      throw VMError.from(BuiltinClass.ReferenceError, String.format("Variable `%s` already exists", name));
+    }
+    symbols[slot] = initialValue;
+  }
+
+  // The frame itself, for code that reads and writes its slots as registers
+  public NSData[] getSymbols () {
+    return symbols;
+  }
+
+  public void clearSymbols () {
+    Arrays.fill(symbols, null);
   }
 }
@@ -2,7 +2,6 @@ package in.wilsonl.nanoscript.Interpreting.Data;
 
 import in.wilsonl.nanoscript.Interpreting.Arguments.ArgumentsValidator;
 import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
-import in.wilsonl.nanoscript.Interpreting.Arguments.NSValidatedArguments;
 
 import java.util.List;
 
@@ -17,14 +16,19 @@ public abstract class NSCallable extends NSData {
     this.parameters = parameters;
   }
 
-  protected abstract NSData applyBody (NSValidatedArguments arguments);
+  // Implementations should match <arguments> against <parameters>
+  protected abstract NSData applyBody (NSObject self, List<NSArgument> arguments);
 
   protected abstract NSCallable rebindSelf (NSObject to);
 
   @Override
   public final NSData nsCall (List<NSArgument> arguments) {
-    NSValidatedArguments match = parameters.match(arguments);
-    return applyBody(match);
+    return applyBody(selfValue, arguments);
+  }
+
+  // Calls this method with `self` as <self>, without creating a bound callable
+  public final NSData nsCallAsMethod (NSObject self, List<NSArgument> arguments) {
+    return applyBody(self, arguments);
   }
 
   @Override
@@ -8,6 +8,7 @@ import in.wilsonl.nanoscript.Utils.ROMap;
 import in.wilsonl.nanoscript.Utils.ROSet;
 import in.wilsonl.nanoscript.Utils.SetOnce;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,9 +23,18 @@ public abstract class NSClass extends NSData {
   private final Map<String, NSCallable> rawInstanceMethods = new ROMap<>();
   private final Map<String, NSData> staticVariables = new ROMap<>();
   private final Set<NSClass> ancestors = new ROSet<>();
+  private final Shape rootShape;
+  // Instance methods memoised by method slot (see Shape.getMethodSlot); it is
+  // replaced rather than changed, so that it can be read without locking
+  private volatile NSCallable[] slotMethods = new NSCallable[0];
 
-  protected NSClass () {
+  protected NSClass (Shape rootShape) {
     super(Type.CLASS);
+    this.rootShape = rootShape;
+  }
+
+  protected NSClass () {
+    this(Shape.createRoot());
   }
 
   protected final void addParent (NSClass parent) {
@@ -103,15 +113,42 @@ public abstract class NSClass extends NSData {
     if (!hasOwnStaticVariable(name)) {
       throw VMError.from(BuiltinClass.ReferenceError, String.format("The class static variable `%s` does not exist", name));
     }
+    if (hasImmutableStaticVariables()) {
+      throw VMError.from(BuiltinClass.UnsupportedOperationError, String.format("The class static variable `%s` cannot be changed", name));
+    }
     staticVariables.put(name, value);
   }
 
-  public final NSCallable buildInstanceMethod (String methodName, NSObject target) {
-    NSCallable m = getOwnOrAncestorRawInstanceMethod(methodName);
-    if (m == null) {
-      return null;
+  // Classes that are shared by every ExecutionContext must not hold any
+  // state that one context could change under another
+  protected boolean hasImmutableStaticVariables () {
+    return false;
+  }
+
+  public final Shape getRootShape () {
+    return rootShape;
+  }
+
+  // Returns the instance method called <methodName> without `self` bound, or null
+  public final NSCallable getRawInstanceMethod (String methodName) {
+    return getOwnOrAncestorRawInstanceMethod(methodName);
+  }
+
+  // Same as getRawInstanceMethod(<methodName>), where <slot> is the method slot
+  // of <methodName> in this class's root shape
+  public final NSCallable getRawInstanceMethod (int slot, String methodName) {
+    NSCallable[] methods = slotMethods;
+    if (slot < methods.length && methods[slot] != null) {
+      return methods[slot];
+    }
+    NSCallable method = getOwnOrAncestorRawInstanceMethod(methodName);
+    if (method != null) {
+      // Racing threads may lose each other's entries, which only costs a lookup
+      methods = Arrays.copyOf(methods, Math.max(methods.length, slot + 1));
+      methods[slot] = method;
+      slotMethods = methods;
     }
-    return m.rebindSelf(target);
+    return method;
   }
 
   protected abstract void applyOwnInstanceVariables (NSObject target);
@@ -149,7 +186,7 @@ public abstract class NSClass extends NSData {
       if (arguments == null) {
         arguments = new ROList<>();
       }
-      NSData evaluationResult = constructor.get().rebindSelf(target).nsCall(arguments);
+      NSData evaluationResult = constructor.get().nsCallAsMethod(target, arguments);
       if (evaluationResult != NSNull.NULL) {
         throw VMError.from(BuiltinClass.SyntaxError, "Can't return from a constructor");
       }
@@ -73,6 +73,34 @@ public abstract class NSData {
     throw VMError.from(UnsupportedOperationError, String.format("%s values cannot be moduloed", getFriendlyTypeName(true)));
   }
 
+  public NSData nsBitwiseAnd (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsBitwiseOr (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsBitwiseXor (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsBitwiseNot () {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsLeftShift (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsRightShift (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
+  public NSData nsArithmeticRightShift (NSData other) {
+    throw VMError.from(UnsupportedOperationError, String.format("Bitwise operators cannot be applied to %s values", getFriendlyTypeName()));
+  }
+
   public NSData nsApplyHashOperator () {
     throw VMError.from(UnsupportedOperationError, String.format("The measure operator cannot be applied to %s values", getFriendlyTypeName()));
   }
@@ -115,6 +143,10 @@ public abstract class NSData {
     throw VMError.from(UnsupportedOperationError, String.format("%s values do not have any members", getFriendlyTypeName(true)));
   }
 
+  public NSData nsAwait () {
+    throw VMError.from(UnsupportedOperationError, String.format("%s values cannot be awaited", getFriendlyTypeName(true)));
+  }
+
   public abstract NSBoolean nsToBoolean ();
 
   public NSString nsToString () {
@@ -122,6 +154,6 @@ public abstract class NSData {
   }
 
   public enum Type {
-    BOOLEAN, NULL, NUMBER, STRING, CALLABLE, OBJECT, CLASS, ITERATOR, MAP, LIST
+    BOOLEAN, NULL, NUMBER, STRING, CALLABLE, OBJECT, CLASS, ITERATOR, MAP, LIST, TASK
   }
 }
@@ -0,0 +1,77 @@
+package in.wilsonl.nanoscript.Interpreting.Data;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+/*
+ *
+ *  The iterator returned by calling a function that contains a yield.
+ *
+ *  The body runs on the caller's thread, only when a value is asked for, up
+ *  to the next yield; the statements it was in then save where they were to
+ *  a Suspension, which the next call resumes from. Returning from the body
+ *  (with or without a value) or throwing ends the generator.
+ *
+ */
+public class NSGenerator extends NSIterator {
+  private final CodeBlockNode body;
+  private final Context frame;
+  private Suspension suspension = null; // Null until the first yield
+  private boolean running = false;
+  private boolean finished = false;
+
+  NSGenerator (CodeBlockNode body, Context frame) {
+    this.body = body;
+    this.frame = frame;
+  }
+
+  @Override
+  public NSData nextOrNull () {
+    if (finished) {
+      return null;
+    }
+    if (running) {
+      throw VMError.from(BuiltinClass.ValueError, "Generator is already running");
+    }
+
+    EvaluationResult evaluationResult;
+    running = true;
+    try {
+      evaluationResult = suspension == null ?
+        body.execute(frame) :
+        body.resume(frame, suspension);
+    } catch (RuntimeException | Error e) {
+      finished = true;
+      throw e;
+    } finally {
+      running = false;
+    }
+
+    if (evaluationResult == null) {
+      finished = true;
+      return null;
+    }
+    switch (evaluationResult.getMode()) {
+    case BREAK:
+    case NEXT:
+      finished = true;
+      throw VMError.from(BuiltinClass.SyntaxError, "Invalid break or next statement");
+
+    case RETURN:
+      finished = true;
+      return null;
+
+    case YIELD:
+      suspension = evaluationResult.getSuspension();
+      return evaluationResult.getValue();
+
+    default:
+      throw new InternalStateError("Unknown evaluation result mode");
+    }
+  }
+}
@@ -1,11 +1,37 @@
 package in.wilsonl.nanoscript.Interpreting.Data;
 
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+/*
+ *
+ *  Native iterators report that they have no more values by returning null
+ *  from nextOrNull, so that reaching the end of a loop doesn't construct and
+ *  throw an EndOfIterationError. Iterators that run script code can still end
+ *  by throwing one, which loops also accept.
+ *
+ */
 public abstract class NSIterator extends NSData {
   protected NSIterator () {
     super(Type.ITERATOR);
   }
 
-  public abstract NSData next ();
+  // Returns null if there are no more values
+  public abstract NSData nextOrNull ();
+
+  public NSData next () {
+    NSData value = nextOrNull();
+    if (value == null) {
+      throw VMError.from(BuiltinClass.EndOfIterationError);
+    }
+    return value;
+  }
+
+  // Iterating an iterator continues from its current position
+  @Override
+  public NSIterator nsIterate () {
+    return this;
+  }
 
   @Override
   public NSBoolean nsToBoolean () {
@@ -129,9 +129,9 @@ public class NSList extends NSData {
 
     return new NSIterator() {
       @Override
-      public NSData next () {
+      public NSData nextOrNull () {
         if (!iter.hasNext()) {
-          throw VMError.from(BuiltinClass.EndOfIterationError);
+          return null;
         }
         return iter.next();
       }
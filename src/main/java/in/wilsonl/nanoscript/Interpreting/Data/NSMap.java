@@ -1,9 +1,20 @@
 package in.wilsonl.nanoscript.Interpreting.Data;
 
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinNSMapMethods;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.ROList;
+import in.wilsonl.nanoscript.Utils.Utils;
+
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.KeyError;
+
 public class NSMap extends NSData {
+  private static final NSDataHelperMethods helperMethods = new NSDataHelperMethods(NSMap.class, BuiltinNSMapMethods.class);
   private final Map<NSData, NSData> rawMap;
 
   private NSMap (Map<NSData, NSData> initialMap) {
@@ -21,8 +32,69 @@ public class NSMap extends NSData {
     return rawMap;
   }
 
+  private static NSData getKeyFromTerms (List<NSData> terms) {
+    if (terms.size() != 1) {
+      throw VMError.from(KeyError, "No key provided");
+    }
+    return terms.get(0);
+  }
+
+  @Override
+  public NSData nsApplyHashOperator () {
+    return NSNumber.from(rawMap.size());
+  }
+
+  @Override
+  public NSData nsAccess (String member) {
+    try {
+      return helperMethods.buildMethod(this, member);
+    } catch (NoSuchMethodException e) {
+      throw VMError.from(BuiltinClass.ReferenceError, String.format("Member `%s` does not exist", member));
+    }
+  }
+
+  @Override
+  public NSData nsLookup (List<NSData> terms) {
+    NSData key = getKeyFromTerms(terms);
+    NSData value = rawMap.get(key);
+    if (value == null) {
+      throw VMError.from(KeyError, String.format("The key `%s` does not exist", key.nsToString().getRawString()));
+    }
+    return value;
+  }
+
+  @Override
+  public void nsUpdate (List<NSData> terms, NSData value) {
+    rawMap.put(getKeyFromTerms(terms), value);
+  }
+
   @Override
   public NSBoolean nsToBoolean () {
     return NSBoolean.TRUE;
   }
+
+  @Override
+  public NSString nsToString () {
+    List<String> strvals = new ROList<>(rawMap.size());
+    for (Map.Entry<NSData, NSData> e : rawMap.entrySet()) {
+      strvals.add(e.getKey().nsToString().getRawString() + " as " + e.getValue().nsToString().getRawString());
+    }
+    return NSString.from("{" + Utils.join(", ", strvals) + "}");
+  }
+
+  // Iterates over the keys, in no particular order
+  @Override
+  public NSIterator nsIterate () {
+    Iterator<NSData> iter = rawMap.keySet().iterator();
+
+    return new NSIterator() {
+      @Override
+      public NSData nextOrNull () {
+        if (!iter.hasNext()) {
+          return null;
+        }
+        return iter.next();
+      }
+    };
+  }
 }
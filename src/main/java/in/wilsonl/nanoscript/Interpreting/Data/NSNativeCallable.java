@@ -1,7 +1,9 @@
 package in.wilsonl.nanoscript.Interpreting.Data;
 
 import in.wilsonl.nanoscript.Interpreting.Arguments.ArgumentsValidator;
-import in.wilsonl.nanoscript.Interpreting.Arguments.NSValidatedArguments;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+
+import java.util.List;
 
 // A native function takes arguments and does something using Java code
 // It's not a closure and it doesn't care about context (as everything
@@ -20,8 +22,8 @@ public class NSNativeCallable extends NSCallable {
   }
 
   @Override
-  protected NSData applyBody (NSValidatedArguments arguments) {
-    return body.function(selfValue, arguments);
+  protected NSData applyBody (NSObject self, List<NSArgument> arguments) {
+    return body.function(self, parameters.match(arguments));
   }
 
   @Override
@@ -63,6 +63,12 @@ public class NSNativeClass extends NSClass {
     return nsNativeClass;
   }
 
+  // Native classes are process-wide singletons (e.g. BuiltinClass)
+  @Override
+  protected boolean hasImmutableStaticVariables () {
+    return true;
+  }
+
   @Override
   protected void applyOwnInstanceVariables (NSObject target) {
     for (NSNativeClassInstanceVariable v : rawInstanceVariables) {
@@ -3,23 +3,47 @@ package in.wilsonl.nanoscript.Interpreting.Data;
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.VMError;
 
+import java.math.BigDecimal;
+
 import static in.wilsonl.nanoscript.Utils.Utils.compare;
-import static in.wilsonl.nanoscript.Utils.Utils.isInt;
 
 // REMEMBER: Numbers are immutable; return a new one when changing
 public class NSNumber extends NSData {
+  /*
+   *
+   *  Integers in [CACHE_LOW, CACHE_HIGH] are interned, as they are the values
+   *  of most loop counters, indices and comparison results. The range can be
+   *  changed with the system properties below.
+   *
+   */
+  private static final int CACHE_LOW = Integer.getInteger("nanoscript.numberCache.low", -128);
+  private static final int CACHE_HIGH = Math.max(Integer.getInteger("nanoscript.numberCache.high", 1023), 1);
+  private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+  // Doubles of at least this magnitude are all integers, but a long can't hold them
+  private static final double MIN_LARGE_INT = 0x1p63;
+  private static final long MAX_SAFE_INT = 1L << 53;
+  private static final NSNumber[] CACHE = buildCache();
+  public static final NSNumber MINUS_ONE = from(-1);
+  public static final NSNumber ZERO = from(0);
+  public static final NSNumber ONE = from(1);
+
   private final double rawNumber;
   private final long asInt;
   private final boolean isInt;
+  private final boolean isSafeInt;
+  private NSString stringValue; // Computed on first use
 
-  private NSNumber (double value) {
+  // <asLong> is <value> cast to a long
+  private NSNumber (double value, long asLong, boolean isInt) {
     super(Type.NUMBER);
     rawNumber = value;
-    isInt = isInt(value);
+    this.isInt = isInt;
     if (isInt) {
-      asInt = (long) value;
+      asInt = asLong;
+      isSafeInt = isSafe(asLong) && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS;
     } else {
       asInt = 0;
+      isSafeInt = false;
     }
   }
 
@@ -28,24 +52,63 @@ public class NSNumber extends NSData {
     rawNumber = value;
     asInt = value;
     isInt = true;
+    isSafeInt = isSafe(value);
+  }
+
+  private static boolean isSafe (long value) {
+    return value >= -MAX_SAFE_INT && value <= MAX_SAFE_INT;
+  }
+
+  private static NSNumber[] buildCache () {
+    // -1, 0 and 1 are always cached
+    int low = Math.min(CACHE_LOW, -1);
+    NSNumber[] cache = new NSNumber[CACHE_HIGH - low + 1];
+    for (int i = 0; i < cache.length; i++) {
+      cache[i] = new NSNumber((long) (low + i));
+    }
+    return cache;
   }
 
   public static NSNumber from (long value) {
+    long idx = value - CACHE[0].asInt;
+    if (idx >= 0 && idx < CACHE.length) {
+      return CACHE[(int) idx];
+    }
+    if (!isSafe(value)) {
+      // Round like a double, so that the integer always equals the double and
+      // prints, compares and hashes the same way
+      return from((double) value);
+    }
     return new NSNumber(value);
   }
 
   public static NSNumber from (double value) {
-    return new NSNumber(value);
+    long asLong = (long) value;
+    boolean isInt = asLong == value;
+    // -0.0 must not become 0
+    if (isInt && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+      long idx = asLong - CACHE[0].asInt;
+      if (idx >= 0 && idx < CACHE.length) {
+        return CACHE[(int) idx];
+      }
+    }
+    if (!isInt && Math.abs(value) >= MIN_LARGE_INT && !Double.isInfinite(value)) {
+      isInt = true;
+    }
+    return new NSNumber(value, asLong, isInt);
   }
 
   public static NSNumber from (Number value) {
-    return new NSNumber(value.doubleValue());
+    return from(value.doubleValue());
   }
 
   public long toInt () {
     if (!isInt) {
       throw new NumberFormatException("Number is not an integer");
     }
+    if (Math.abs(rawNumber) >= MIN_LARGE_INT) {
+      throw new NumberFormatException("Number is too large for a long");
+    }
     return asInt;
   }
 
@@ -53,6 +116,76 @@ public class NSNumber extends NSData {
     return rawNumber;
   }
 
+  /*
+   *
+   *  Safe integers are those in [-2^53, 2^53], apart from -0.0. Doubles hold
+   *  these exactly, so arithmetic on them in longs gives the same results as
+   *  in doubles whenever the result is also safe, without needing to check
+   *  whether the result is an integer.
+   *
+   */
+  public boolean isSafeInt () {
+    return isSafeInt;
+  }
+
+  // REMEMBER: <a> and <b> must be safe integers
+  public static NSNumber addSafeInts (NSNumber a, NSNumber b) {
+    long result = a.asInt + b.asInt;
+    return isSafe(result) ? from(result) : from(a.rawNumber + b.rawNumber);
+  }
+
+  // REMEMBER: <a> and <b> must be safe integers
+  public static NSNumber subtractSafeInts (NSNumber a, NSNumber b) {
+    long result = a.asInt - b.asInt;
+    return isSafe(result) ? from(result) : from(a.rawNumber - b.rawNumber);
+  }
+
+  // REMEMBER: <a> and <b> must be safe integers
+  public static NSNumber multiplySafeInts (NSNumber a, NSNumber b) {
+    long x = a.asInt;
+    long y = b.asInt;
+    // Operands under 2^31 can't overflow a long, and a zero product of a
+    // negative operand is -0.0
+    if (((Math.abs(x) | Math.abs(y)) >>> 31) == 0) {
+      long result = x * y;
+      if (isSafe(result) && (result != 0 || (x | y) >= 0)) {
+        return from(result);
+      }
+    }
+    return from(a.rawNumber * b.rawNumber);
+  }
+
+  // REMEMBER: <a> and <b> must be safe integers
+  public static NSNumber moduloSafeInts (NSNumber a, NSNumber b) {
+    long x = a.asInt;
+    long y = b.asInt;
+    // Like fmod, % takes the sign of the dividend, but a zero remainder of a
+    // negative dividend is -0.0, and a zero divisor gives NaN
+    if (y != 0) {
+      long result = x % y;
+      if (result != 0 || x >= 0) {
+        return from(result);
+      }
+    }
+    return from(a.rawNumber % b.rawNumber);
+  }
+
+  public static NSNumber add (NSNumber a, NSNumber b) {
+    return a.isSafeInt && b.isSafeInt ? addSafeInts(a, b) : from(a.rawNumber + b.rawNumber);
+  }
+
+  public static NSNumber subtract (NSNumber a, NSNumber b) {
+    return a.isSafeInt && b.isSafeInt ? subtractSafeInts(a, b) : from(a.rawNumber - b.rawNumber);
+  }
+
+  public static NSNumber multiply (NSNumber a, NSNumber b) {
+    return a.isSafeInt && b.isSafeInt ? multiplySafeInts(a, b) : from(a.rawNumber * b.rawNumber);
+  }
+
+  public static NSNumber modulo (NSNumber a, NSNumber b) {
+    return a.isSafeInt && b.isSafeInt ? moduloSafeInts(a, b) : from(a.rawNumber % b.rawNumber);
+  }
+
   @Override
   public int hashCode () {
     return Double.hashCode(rawNumber);
@@ -63,6 +196,74 @@ public class NSNumber extends NSData {
     return o instanceof NSNumber && rawNumber == ((NSNumber) o).rawNumber;
   }
 
+  /*
+   *
+   *  Bitwise operators work on integers as 64 bit two's complement longs, so
+   *  their operands must fit in a long. Their results must also be safe
+   *  integers, as a double couldn't hold the other results exactly, and would
+   *  print and compare as a different number than further bitwise operators
+   *  would see.
+   *
+   */
+  private static NSNumber integer (NSData value) {
+    if (value.getType() != Type.NUMBER) {
+      throw VMError.from(BuiltinClass.TypeError, "Attempted bitwise operation on non-number and number");
+    }
+    NSNumber number = (NSNumber) value;
+    if (!number.isInt) {
+      throw VMError.from(BuiltinClass.ValueError, "Attempted bitwise operation on non-integer");
+    }
+    if (Math.abs(number.rawNumber) >= MIN_LARGE_INT) {
+      throw VMError.from(BuiltinClass.ValueError, "Attempted bitwise operation on integer outside the 64 bit range");
+    }
+    return number;
+  }
+
+  private static long shiftAmount (NSNumber amount) {
+    if (amount.asInt < 0) {
+      throw VMError.from(BuiltinClass.ValueError, "Attempted to shift by a negative amount");
+    }
+    return amount.asInt;
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber bitwiseAndInts (NSNumber a, NSNumber b) {
+    return from(a.asInt & b.asInt);
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber bitwiseOrInts (NSNumber a, NSNumber b) {
+    return from(a.asInt | b.asInt);
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber bitwiseXorInts (NSNumber a, NSNumber b) {
+    return from(a.asInt ^ b.asInt);
+  }
+
+  // REMEMBER: <a> must be an integer
+  public static NSNumber bitwiseNotInt (NSNumber a) {
+    return from(~a.asInt);
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber leftShiftInts (NSNumber a, NSNumber b) {
+    // Java only uses the low 6 bits of the amount
+    long amount = shiftAmount(b);
+    return from(amount >= Long.SIZE ? 0 : a.asInt << amount);
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber rightShiftInts (NSNumber a, NSNumber b) {
+    long amount = shiftAmount(b);
+    return from(amount >= Long.SIZE ? 0 : a.asInt >>> amount);
+  }
+
+  // REMEMBER: <a> and <b> must be integers
+  public static NSNumber arithmeticRightShiftInts (NSNumber a, NSNumber b) {
+    return from(a.asInt >> Math.min(shiftAmount(b), Long.SIZE - 1));
+  }
+
   @Override
   public NSNumber nsCompare (NSData other) {
     if (other.getType() != Type.NUMBER) {
@@ -71,7 +272,16 @@ public class NSNumber extends NSData {
 
     double otherNumber = ((NSNumber) other).rawNumber;
 
-    return NSNumber.from(compare(rawNumber, otherNumber));
+    switch (compare(rawNumber, otherNumber)) {
+    case -1:
+      return MINUS_ONE;
+
+    case 0:
+      return ZERO;
+
+    default:
+      return ONE;
+    }
   }
 
   @Override
@@ -80,7 +290,7 @@ public class NSNumber extends NSData {
       throw VMError.from(BuiltinClass.TypeError, "Attempted to add non-number to number");
     }
 
-    return NSNumber.from(rawNumber + ((NSNumber) other).rawNumber);
+    return add(this, (NSNumber) other);
   }
 
   @Override
@@ -89,7 +299,7 @@ public class NSNumber extends NSData {
       throw VMError.from(BuiltinClass.TypeError, "Attempted to subtract non-number to number");
     }
 
-    return NSNumber.from(rawNumber - ((NSNumber) other).rawNumber);
+    return subtract(this, (NSNumber) other);
   }
 
   @Override
@@ -98,7 +308,7 @@ public class NSNumber extends NSData {
       throw VMError.from(BuiltinClass.TypeError, "Attempted to multiply non-number to number");
     }
 
-    return NSNumber.from(rawNumber * ((NSNumber) other).rawNumber);
+    return multiply(this, (NSNumber) other);
   }
 
   @Override
@@ -125,7 +335,42 @@ public class NSNumber extends NSData {
       throw VMError.from(BuiltinClass.TypeError, "Attempted to modulo non-number to number");
     }
 
-    return NSNumber.from(rawNumber % ((NSNumber) other).rawNumber);
+    return modulo(this, (NSNumber) other);
+  }
+
+  @Override
+  public NSData nsBitwiseAnd (NSData other) {
+    return bitwiseAndInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsBitwiseOr (NSData other) {
+    return bitwiseOrInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsBitwiseXor (NSData other) {
+    return bitwiseXorInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsLeftShift (NSData other) {
+    return leftShiftInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsRightShift (NSData other) {
+    return rightShiftInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsArithmeticRightShift (NSData other) {
+    return arithmeticRightShiftInts(integer(this), integer(other));
+  }
+
+  @Override
+  public NSData nsBitwiseNot () {
+    return bitwiseNotInt(integer(this));
   }
 
   @Override
@@ -141,9 +386,18 @@ public class NSNumber extends NSData {
 
   @Override
   public NSString nsToString () {
-    if (isInt) {
-      return NSString.from(Long.toString(asInt));
+    // Racing threads will at worst compute equal strings
+    NSString str = stringValue;
+    if (str == null) {
+      if (!isInt) {
+        str = NSString.from(Double.toString(rawNumber));
+      } else if (Math.abs(rawNumber) < MIN_LARGE_INT) {
+        str = NSString.from(Long.toString(asInt));
+      } else {
+        str = NSString.from(new BigDecimal(rawNumber).toPlainString());
+      }
+      stringValue = str;
     }
-    return NSString.from(Double.toString(rawNumber));
+    return str;
   }
 }
@@ -2,22 +2,54 @@ package in.wilsonl.nanoscript.Interpreting.Data;
 
 import in.wilsonl.nanoscript.Interpreting.VMError;
 
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.ReferenceError;
 import static java.lang.String.format;
 
+/*
+ *
+ *  Tasks can share objects, so every access below is safe to make from
+ *  several threads at once:
+ *
+ *    - Reading a member never fails and never sees a member that was not
+ *      assigned, but may see an older value than one just assigned by
+ *      another thread.
+ *    - Adding members is synchronised, so members added by different
+ *      threads are all kept. Assigning to an existing member is not, so an
+ *      assignment made while another thread adds a member to the same object
+ *      can be lost; objects shared between tasks should get all their
+ *      members before they are shared, as instances of classes do.
+ *    - Bound methods are created once per object and name.
+ *
+ *  Nothing makes a sequence of accesses atomic; a script that updates a
+ *  shared object from several tasks (e.g. `set o.n to o.n + 1`) must still
+ *  coordinate them itself.
+ *
+ */
 public class NSObject extends NSData {
+  private static final Shape ANONYMOUS_ROOT_SHAPE = Shape.createRoot();
   private final NSClass constructor; // Can be null
-  private final Map<String, NSData> memberVariables = new TreeMap<>();
+  // Values of member variables, at the indices given by <shape>. When a
+  // member is added, <memberValues> is grown before <shape> is replaced, and
+  // readers read <shape> first, so a reader can never see a shape with more
+  // members than the values it then reads; both are only replaced while
+  // synchronised on this object
+  private volatile Shape shape;
+  private NSData[] memberValues = new NSData[4];
   // Cached instance methods previously found via ancestors and has `self` bound
-  // are stored here; it is not initially filled
-  private final Map<String, NSCallable> memberMethods = new TreeMap<>();
+  // are stored here; it is created on first use. Tasks can share objects, so
+  // this must be safe to fill from several threads at once
+  private volatile Map<String, NSCallable> memberMethods;
 
   private NSObject (NSClass constructor) {
     super(Type.OBJECT);
     this.constructor = constructor;
+    this.shape = constructor == null ?
+      ANONYMOUS_ROOT_SHAPE :
+      constructor.getRootShape();
   }
 
   public static NSObject from (NSClass type) {
@@ -32,8 +64,71 @@ public class NSObject extends NSData {
     return NSBoolean.from(this.constructor.isOrIsDescendantOf(type));
   }
 
+  public Shape getShape () {
+    return shape;
+  }
+
+  // <idx> must be from a shape this object has had; members are never
+  // removed, so it stays valid as the object gains others
+  public NSData getMemberVariableAt (int idx) {
+    return memberValues[idx];
+  }
+
+  // <idx> must be from a shape this object has had
+  public void setMemberVariableAt (int idx, NSData value) {
+    memberValues[idx] = value;
+  }
+
   public void createOrUpdateMemberVariable (String name, NSData value) {
-    memberVariables.put(name, value);
+    int idx = shape.getIndex(name);
+    if (idx == -1) {
+      addMemberVariable(name, value);
+      return;
+    }
+    memberValues[idx] = value;
+  }
+
+  private synchronized void addMemberVariable (String name, NSData value) {
+    // Another thread may have added it since it was looked up
+    Shape current = shape;
+    int idx = current.getIndex(name);
+    if (idx != -1) {
+      memberValues[idx] = value;
+      return;
+    }
+    idx = current.getSize();
+    if (idx == memberValues.length) {
+      memberValues = Arrays.copyOf(memberValues, idx * 2);
+    }
+    // Assigned before the shape is published, so that no reader of the new
+    // shape sees the member unassigned
+    memberValues[idx] = value;
+    shape = current.withMember(name);
+  }
+
+  // Returns <rawMethod>, an instance method of this object's class called
+  // <name>, with `self` bound to this object
+  public NSCallable getBoundMethod (String name, NSCallable rawMethod) {
+    Map<String, NSCallable> methods = memberMethods;
+    if (methods == null) {
+      synchronized (this) {
+        methods = memberMethods;
+        if (methods == null) {
+          methods = new ConcurrentHashMap<>();
+          memberMethods = methods;
+        }
+      }
+    }
+    NSCallable bound = methods.get(name);
+    if (bound == null) {
+      bound = rawMethod.rebindSelf(this);
+      // Every thread must get the same bound method
+      NSCallable existing = methods.putIfAbsent(name, bound);
+      if (existing != null) {
+        bound = existing;
+      }
+    }
+    return bound;
   }
 
   private NSData getOwnOrInheritedMember (String member) {
@@ -45,22 +140,16 @@ public class NSObject extends NSData {
      */
 
     // Get member variable
-    if (memberVariables.containsKey(member)) {
-      return memberVariables.get(member);
-    }
-
-    // Get cached instance method
-    if (memberMethods.containsKey(member)) {
-      return memberMethods.get(member);
+    int idx = shape.getIndex(member);
+    if (idx != -1) {
+      return memberValues[idx];
     }
 
     if (constructor != null) {
       // Get instance method
-      NSCallable methodMember = constructor.buildInstanceMethod(member, this);
-      if (methodMember != null) {
-        // Cache
-        memberMethods.put(member, methodMember);
-        return methodMember;
+      NSCallable rawMethod = constructor.getRawInstanceMethod(member);
+      if (rawMethod != null) {
+        return getBoundMethod(member, rawMethod);
       }
     }
 
@@ -79,7 +168,7 @@ public class NSObject extends NSData {
 
   @Override
   public void nsAssign (String member, NSData value) {
-    memberVariables.put(member, value);
+    createOrUpdateMemberVariable(member, value);
   }
 
   @Override
@@ -0,0 +1,139 @@
+package in.wilsonl.nanoscript.Interpreting.Data;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinNSRangeMethods;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.KeyError;
+import static in.wilsonl.nanoscript.Interpreting.Data.NSData.Type.ITERATOR;
+import static in.wilsonl.nanoscript.Interpreting.Data.NSData.Type.NUMBER;
+
+/*
+ *
+ *  An arithmetic sequence of integers from <start> (inclusive) to <stop>
+ *  (exclusive), produced on demand. Unlike an NSIterator, it can be iterated
+ *  any number of times; it can also be measured and looked up like a list.
+ *
+ */
+// REMEMBER: Ranges are immutable
+public class NSRange extends NSData {
+  private static final NSDataHelperMethods helperMethods = new NSDataHelperMethods(NSRange.class, BuiltinNSRangeMethods.class);
+  private final long start;
+  private final long step;
+  private final long length;
+
+  private NSRange (long start, long step, long length) {
+    super(ITERATOR);
+    this.start = start;
+    this.step = step;
+    this.length = length;
+  }
+
+  public static NSRange from (long start, long stop, long step) {
+    if (step <= 0) {
+      throw VMError.from(BuiltinClass.ValueError, "Step must be positive");
+    }
+    long length = 0;
+    if (stop > start) {
+      long span = stop - start;
+      length = span / step + (span % step == 0 ? 0 : 1);
+    }
+    return new NSRange(start, step, length);
+  }
+
+  public long getStart () {
+    return start;
+  }
+
+  public long getStep () {
+    return step;
+  }
+
+  public long getLength () {
+    return length;
+  }
+
+  public long getRaw (long index) {
+    return start + index * step;
+  }
+
+  public NSList toList () {
+    if (length > Integer.MAX_VALUE) {
+      throw VMError.from(BuiltinClass.OutOfBoundsError, "Range is too long to be a list");
+    }
+    List<NSData> values = new ArrayList<>((int) length);
+    for (long i = 0; i < length; i++) {
+      values.add(NSNumber.from(getRaw(i)));
+    }
+    return NSList.from(values);
+  }
+
+  @Override
+  public NSData nsApplyHashOperator () {
+    return NSNumber.from(length);
+  }
+
+  @Override
+  public NSData nsAccess (String member) {
+    try {
+      return helperMethods.buildMethod(this, member);
+    } catch (NoSuchMethodException e) {
+      throw VMError.from(BuiltinClass.ReferenceError, String.format("Member `%s` does not exist", member));
+    }
+  }
+
+  @Override
+  public NSData nsLookup (List<NSData> terms) {
+    if (terms.size() != 1) {
+      throw VMError.from(KeyError, "No index provided");
+    }
+    NSData index = terms.get(0);
+    if (index.getType() != NUMBER) {
+      throw VMError.from(KeyError, "Index is not a number");
+    }
+    long rawIdx;
+    try {
+      rawIdx = ((NSNumber) index).toInt();
+    } catch (NumberFormatException nfe) {
+      throw VMError.from(KeyError, "Index is not an integer");
+    }
+
+    if (rawIdx < 0) {
+      rawIdx = length + rawIdx;
+    }
+
+    if (rawIdx < 0 || rawIdx >= length) {
+      throw VMError.from(BuiltinClass.OutOfBoundsError, "Index is out of bounds");
+    }
+
+    return NSNumber.from(getRaw(rawIdx));
+  }
+
+  @Override
+  public NSIterator nsIterate () {
+    return new NSIterator() {
+      private long next = 0;
+
+      @Override
+      public NSData nextOrNull () {
+        if (next >= length) {
+          return null;
+        }
+        return NSNumber.from(getRaw(next++));
+      }
+    };
+  }
+
+  @Override
+  public NSBoolean nsToBoolean () {
+    return NSBoolean.TRUE;
+  }
+
+  @Override
+  public NSString nsToString () {
+    return toList().nsToString();
+  }
+}
@@ -4,6 +4,10 @@ import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.VMError;
 import in.wilsonl.nanoscript.Utils.Utils;
 
+import java.util.List;
+
+import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.KeyError;
+
 // REMEMBER: Strings are immutable; return a new one when changing
 public class NSString extends NSData {
   public static final NSString EMPTY = NSString.from("");
@@ -56,6 +60,35 @@ public class NSString extends NSData {
     return length;
   }
 
+  // Returns the character at an index as a string of length one; like lists,
+  // negative indices count from the end
+  @Override
+  public NSData nsLookup (List<NSData> terms) {
+    if (terms.size() != 1) {
+      throw VMError.from(KeyError, "No index provided");
+    }
+    NSData index = terms.get(0);
+    if (index.getType() != Type.NUMBER) {
+      throw VMError.from(KeyError, "Index is not a number");
+    }
+    long rawIdx;
+    try {
+      rawIdx = ((NSNumber) index).toInt();
+    } catch (NumberFormatException nfe) {
+      throw VMError.from(KeyError, "Index is not an integer");
+    }
+
+    if (rawIdx < 0) {
+      rawIdx = rawString.length() + rawIdx;
+    }
+
+    if (rawIdx < 0 || rawIdx >= rawString.length()) {
+      throw VMError.from(BuiltinClass.OutOfBoundsError, "Index is out of bounds");
+    }
+
+    return NSString.from(String.valueOf(rawString.charAt((int) rawIdx)));
+  }
+
   @Override
   public NSData nsAccess (String member) {
     // TODO
@@ -0,0 +1,77 @@
+package in.wilsonl.nanoscript.Interpreting.Data;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ *
+ *  A task runs a callable concurrently with the code that spawned it; its
+ *  result (or the error it threw) is retrieved by awaiting the task, which
+ *  blocks until the callable has returned. Awaiting a finished task again
+ *  returns the same result or throws the same error.
+ *
+ *  On Java 21 and later, every task gets its own virtual thread, so tasks that
+ *  mostly wait on each other are cheap. Otherwise tasks share a dedicated
+ *  ForkJoinPool; its workers compensate for tasks blocked in an await, so
+ *  tasks awaiting other tasks cannot starve the pool.
+ *
+ *  Tasks share whatever the callable closes over with the spawning code,
+ *  without any synchronisation; it is up to scripts not to race on it.
+ *
+ */
+public class NSTask extends NSData {
+  private static final List<NSArgument> NO_ARGUMENTS = Collections.emptyList();
+  private static final Executor EXECUTOR = _createExecutor();
+
+  private final CompletableFuture<NSData> result;
+
+  private NSTask (CompletableFuture<NSData> result) {
+    super(Type.TASK);
+    this.result = result;
+  }
+
+  private static Executor _createExecutor () {
+    // REMEMBER: This is compiled for Java 8, so virtual threads can only be
+    // reached reflectively
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (Executor) factory.invoke(null);
+    } catch (ReflectiveOperationException | SecurityException e) {
+      return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+  }
+
+  public static NSTask spawn (NSData callable) {
+    return new NSTask(CompletableFuture.supplyAsync(() -> callable.nsCall(NO_ARGUMENTS), EXECUTOR));
+  }
+
+  @Override
+  public NSData nsAwait () {
+    try {
+      return result.join();
+    } catch (CompletionException ce) {
+      // Rethrow what the callable threw, so that awaiting behaves like calling
+      Throwable cause = ce.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw ce;
+    }
+  }
+
+  @Override
+  public NSBoolean nsToBoolean () {
+    return NSBoolean.TRUE;
+  }
+}
@@ -2,59 +2,90 @@ package in.wilsonl.nanoscript.Interpreting.Data;
 
 import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Interpreting.Arguments.ArgumentsValidator;
-import in.wilsonl.nanoscript.Interpreting.Arguments.NSParameter;
-import in.wilsonl.nanoscript.Interpreting.Arguments.NSValidatedArguments;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.Context;
-import in.wilsonl.nanoscript.Interpreting.ContextHelper;
-import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockEvaluator;
 import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LambdaExpressionNode;
 import in.wilsonl.nanoscript.Interpreting.VMError;
-import in.wilsonl.nanoscript.Syntax.CodeBlock;
-import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
-import in.wilsonl.nanoscript.Syntax.Parameter;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+/*
+ *
+ *  Every call gets its own activation frame, chained to the context the lambda
+ *  was declared in, so a callable can be reentered (recursively or from
+ *  another thread).
+ *
+ *  If no lambda is declared in the body, a frame can't outlive its call, so
+ *  one spare frame is kept and reused by the next call. Calls made while the
+ *  spare is taken (e.g. recursive ones) allocate a frame, which then becomes
+ *  the spare if there is none.
+ *
+ *  Calling a lambda that contains a yield only binds its arguments; the body
+ *  is run by the returned generator as values are taken from it.
+ *
+ */
 // REMEMBER: A callable never loses its context
-public class NSVirtualCallable extends NSCallable implements Context {
-  private final ContextHelper closure;
-  private final CodeBlock body;
+public class NSVirtualCallable extends NSCallable {
+  private final Context parentContext;
+  private final LambdaExpressionNode lambda;
+  private final AtomicReference<Context> spareFrame; // Null if frames can be captured
 
-  private NSVirtualCallable (ContextHelper closure, NSObject selfValue, ArgumentsValidator parameters, CodeBlock body) {
+  private NSVirtualCallable (Context parentContext, NSObject selfValue, ArgumentsValidator parameters, LambdaExpressionNode lambda, AtomicReference<Context> spareFrame) {
     super(selfValue, parameters);
-    this.closure = closure;
-    this.body = body;
+    this.parentContext = parentContext;
+    this.lambda = lambda;
+    this.spareFrame = spareFrame;
   }
 
-  private NSVirtualCallable (Context parentContext, NSObject selfValue, ArgumentsValidator parameters, CodeBlock body) {
-    this(new ContextHelper(parentContext), selfValue, parameters, body);
+  public static NSVirtualCallable from (Context parentContext, LambdaExpressionNode lambda) {
+    ArgumentsValidator parameters = new ArgumentsValidator(parentContext, lambda.getParameters());
+    // A generator's frame lives as long as the generator
+    AtomicReference<Context> spareFrame = lambda.isFrameCaptured() || lambda.isGenerator() ? null : new AtomicReference<>();
+    return new NSVirtualCallable(parentContext, null, parameters, lambda, spareFrame);
   }
 
-  public static NSVirtualCallable from (Context parentContext, LambdaExpression lambda) {
-    List<Parameter> st_params = lambda.getParameters();
-    NSParameter[] constraints = new NSParameter[st_params.size()];
-    for (int i = 0; i < st_params.size(); i++) {
-      Parameter st_p = st_params.get(i);
-      constraints[i] = new NSParameter(
-        st_p.isOptional(),
-        st_p.isVariableLength(),
-        st_p.getName().getName(),
-        null,
-        st_p.getDefaultValue());
+  private Context acquireFrame () {
+    if (spareFrame != null) {
+      Context frame = spareFrame.getAndSet(null);
+      if (frame != null) {
+        return frame;
+      }
+    }
+    return new Context(parentContext, lambda.getFrameSize());
+  }
+
+  private void releaseFrame (Context frame) {
+    if (spareFrame != null) {
+      frame.clearSymbols();
+      spareFrame.compareAndSet(null, frame);
     }
-    ArgumentsValidator parameters = new ArgumentsValidator(parentContext, constraints);
-    return new NSVirtualCallable(parentContext, null, parameters, lambda.getBody());
   }
 
   @Override
-  protected NSData applyBody (NSValidatedArguments arguments) {
-    closure.clearSymbols();
-    for (NSValidatedArguments.NSValidatedArgument a : arguments) {
-      closure.createSymbol(a.getName(), a.getValue());
+  protected NSData applyBody (NSObject self, List<NSArgument> arguments) {
+    Context frame = acquireFrame();
+    try {
+      return applyBody(frame, self, arguments);
+    } finally {
+      releaseFrame(frame);
+    }
+  }
+
+  private NSData applyBody (Context frame, NSObject self, List<NSArgument> arguments) {
+    // Arguments are written straight into the parameters' slots
+    parameters.match(arguments, frame, lambda.getFirstParameterSlot());
+    if (lambda.hasSelf()) {
+      frame.setSymbol(0, self);
     }
 
-    EvaluationResult evaluationResult = CodeBlockEvaluator.evaluateCodeBlock(this, body);
+    if (lambda.isGenerator()) {
+      return new NSGenerator(lambda.getBody(), frame);
+    }
+
+    EvaluationResult evaluationResult = lambda.getBody().execute(frame);
 
     if (evaluationResult != null) {
       switch (evaluationResult.getMode()) {
@@ -75,24 +106,6 @@ public class NSVirtualCallable extends NSCallable implements Context {
 
   @Override
   protected NSCallable rebindSelf (NSObject to) {
-    return new NSVirtualCallable(closure, to, parameters, body);
-  }
-
-  @Override
-  public NSData getContextSymbol (String name) {
-    if (name.equals("self")) {
-      return selfValue;
-    }
-    return closure.getSymbol(name);
-  }
-
-  @Override
-  public boolean setContextSymbol (String name, NSData value) {
-    return closure.setSymbol(name, value);
-  }
-
-  @Override
-  public void createContextSymbol (String name, NSData initialValue) {
-    closure.createSymbol(name, initialValue);
+    return new NSVirtualCallable(parentContext, to, parameters, lambda, spareFrame);
   }
 }
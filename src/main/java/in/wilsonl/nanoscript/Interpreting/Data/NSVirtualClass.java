@@ -2,45 +2,42 @@ package in.wilsonl.nanoscript.Interpreting.Data;
 
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.Context;
-import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionEvaluator;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LambdaExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ClassStatementNode;
 import in.wilsonl.nanoscript.Interpreting.VMError;
-import in.wilsonl.nanoscript.Syntax.Class.Class;
-import in.wilsonl.nanoscript.Syntax.Class.Member.ClassConstructor;
-import in.wilsonl.nanoscript.Syntax.Class.Member.ClassMethod;
-import in.wilsonl.nanoscript.Syntax.Class.Member.ClassVariable;
-import in.wilsonl.nanoscript.Syntax.Expression.Expression;
-import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
-import in.wilsonl.nanoscript.Syntax.Reference;
 import in.wilsonl.nanoscript.Utils.ROList;
 
 import java.util.List;
 
 public class NSVirtualClass extends NSClass {
   private final Context parentContext;
+  private final int instanceVariablesFrameSize;
   // Order matters
-  private final List<ClassVariable> rawInstanceVariables = new ROList<>();
+  private final List<ClassStatementNode.Variable> rawInstanceVariables = new ROList<>();
 
-  private NSVirtualClass (Context parentContext) {
-    super();
+  private NSVirtualClass (Context parentContext, Shape rootShape, int instanceVariablesFrameSize) {
+    super(rootShape);
     this.parentContext = parentContext;
+    this.instanceVariablesFrameSize = instanceVariablesFrameSize;
   }
 
-  public static NSClass from (Context parentContext, Class st_class) {
+  public static NSClass from (Context parentContext, ClassStatementNode st_class) {
     // Parent context should be the global/chunk context,
     // as nested or variable classes are not allowed
-    NSVirtualClass nsClass = new NSVirtualClass(parentContext);
+    // Every class created from <st_class> shares its root shape, so that sites
+    // in its (shared) compiled code see the same shapes in every context
+    NSVirtualClass nsClass = new NSVirtualClass(parentContext, st_class.getRootShape(), st_class.getInitialiserFrameSize());
 
     // Get name
-    String name = st_class.getName().getName();
+    String name = st_class.getName();
     nsClass.setName(name);
 
     // Load parents
-    for (Reference st_parent_ref : st_class.getParents()) {
-      Expression st_deref_expr = st_parent_ref.toExpression();
+    for (ClassStatementNode.Parent st_parent : st_class.getParents()) {
       // If reference is invalid, an exception will be thrown
-      NSData result = ExpressionEvaluator.evaluateExpression(parentContext, st_deref_expr);
+      NSData result = st_parent.getReference().evaluate(parentContext);
       if (result.getType() != Type.CLASS) {
-        throw VMError.from(BuiltinClass.TypeError, String.format("Parent `%s` is not a class", st_deref_expr.toString()));
+        throw VMError.from(BuiltinClass.TypeError, String.format("Parent `%s` is not a class", st_parent.getName()));
       }
       NSClass p = (NSClass) result;
       nsClass.addParent(p);
@@ -48,18 +45,17 @@ public class NSVirtualClass extends NSClass {
 
     // Don't check that no parent has a non-default constructor with more than zero parameters,
     // as the parent might be a NSNativeClass (also, because this is a scripting language)
-    ClassConstructor st_constructor = st_class.getConstructor();
+    LambdaExpressionNode st_constructor = st_class.getConstructor();
     if (st_constructor != null) {
-      LambdaExpression lambda = st_constructor.getLambda();
-      // <parentContext> will be rebound when called
-      nsClass.setConstructor(NSVirtualCallable.from(null, lambda));
+      // `self` will be rebound when called
+      nsClass.setConstructor(NSVirtualCallable.from(parentContext, st_constructor));
     }
 
     // Process methods
-    for (ClassMethod st_method : st_class.getMethods()) {
-      String methodName = st_method.getName().getName();
-      // <parentContext> will be rebound when called
-      NSVirtualCallable callable = NSVirtualCallable.from(null, st_method.getLambda());
+    for (ClassStatementNode.Method st_method : st_class.getMethods()) {
+      String methodName = st_method.getName();
+      // `self` will be rebound when called
+      NSVirtualCallable callable = NSVirtualCallable.from(parentContext, st_method.getLambda());
       if (st_method.isStatic()) {
         nsClass.addStaticMethod(methodName, callable);
       } else {
@@ -68,13 +64,11 @@ public class NSVirtualClass extends NSClass {
     }
 
     // Process variables
-    for (ClassVariable st_var : st_class.getVariables()) {
-      String varName = st_var.getVariable().getName().getName();
+    for (ClassStatementNode.Variable st_var : st_class.getVariables()) {
+      String varName = st_var.getName();
       if (st_var.isStatic()) {
         // Order matters
-        NSData value = ExpressionEvaluator.evaluateExpression(
-          parentContext,
-          st_var.getVariable().getInitialiser());
+        NSData value = st_var.getInitialiser().evaluate(parentContext);
         nsClass.addStaticVariable(varName, value);
       } else {
         nsClass.addInstanceVariable(st_var);
@@ -84,31 +78,17 @@ public class NSVirtualClass extends NSClass {
     return nsClass;
   }
 
-  private void addInstanceVariable (ClassVariable classVariable) {
+  private void addInstanceVariable (ClassStatementNode.Variable classVariable) {
     rawInstanceVariables.add(classVariable);
   }
 
   @Override
   protected void applyOwnInstanceVariables (NSObject target) {
-    Context tempEvaluationCtx = new Context() {
-      @Override
-      public NSData getContextSymbol (String name) {
-        if (name.equals("self")) {
-          return target;
-        }
-        return parentContext.getContextSymbol(name);
-      }
-
-      @Override
-      public boolean setContextSymbol (String name, NSData value) {
-        return parentContext.setContextSymbol(name, value);
-      }
-    };
-    for (ClassVariable st_var : rawInstanceVariables) {
-      String name = st_var.getVariable().getName().getName();
-      Expression st_init = st_var.getVariable().getInitialiser();
-
-      target.createOrUpdateMemberVariable(name, ExpressionEvaluator.evaluateExpression(tempEvaluationCtx, st_init));
+    // Slot 0 of the frame is `self`
+    Context tempEvaluationCtx = new Context(parentContext, instanceVariablesFrameSize);
+    tempEvaluationCtx.setSymbol(0, target);
+    for (ClassStatementNode.Variable st_var : rawInstanceVariables) {
+      target.createOrUpdateMemberVariable(st_var.getName(), st_var.getInitialiser().evaluate(tempEvaluationCtx));
     }
   }
 }
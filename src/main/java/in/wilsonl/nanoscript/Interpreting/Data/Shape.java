@@ -0,0 +1,67 @@
+package in.wilsonl.nanoscript.Interpreting.Data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ *
+ *  A hidden class: the layout of an object's member variables. Objects that
+ *  gain the same members in the same order, starting from the same class
+ *  declaration, share a shape, so a member can be found with an identity
+ *  check on the shape and an array index instead of a map lookup.
+ *
+ *  Shapes are immutable; adding a member moves an object to a child shape,
+ *  which is created once and shared by all objects making that transition.
+ *
+ *  Compiled code is shared between ExecutionContexts, each of which creates
+ *  its own NSClass from a declaration, so shapes belong to the declaration
+ *  rather than to a class, and hold no reference to any class. Instance
+ *  methods are instead found through method slots, which are numbered per
+ *  root and memoised per class (see NSClass.getRawInstanceMethod).
+ *
+ */
+public final class Shape {
+  private final Map<String, Integer> indices;
+  private final Map<String, Shape> transitions = new ConcurrentHashMap<>();
+  // Shared by a root and all its descendants
+  private final Map<String, Integer> methodSlots;
+
+  private Shape (Map<String, Integer> indices, Map<String, Integer> methodSlots) {
+    this.indices = indices;
+    this.methodSlots = methodSlots;
+  }
+
+  // Each class declaration (and each native class) has its own root
+  public static Shape createRoot () {
+    return new Shape(Collections.emptyMap(), new HashMap<>());
+  }
+
+  public int getSize () {
+    return indices.size();
+  }
+
+  // Returns -1 if there is no such member
+  public int getIndex (String member) {
+    Integer idx = indices.get(member);
+    return idx == null ? -1 : idx;
+  }
+
+  // Returns the slot that classes with this root memoise the instance method
+  // called <member> in, allocating one if needed
+  public int getMethodSlot (String member) {
+    // Only called when an inline cache misses
+    synchronized (methodSlots) {
+      return methodSlots.computeIfAbsent(member, m -> methodSlots.size());
+    }
+  }
+
+  public Shape withMember (String member) {
+    return transitions.computeIfAbsent(member, m -> {
+      Map<String, Integer> childIndices = new HashMap<>(indices);
+      childIndices.put(m, indices.size());
+      return new Shape(Collections.unmodifiableMap(childIndices), methodSlots);
+    });
+  }
+}
@@ -0,0 +1,42 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+
+import java.util.List;
+import java.util.Map;
+
+public class ChunkNode {
+  private final List<ImportStatement> imports;
+  // Slots of builtins, imports and chunk level variables
+  private final Map<String, Integer> globalSlots;
+  private final int globalsCount;
+  private final CodeBlockNode body;
+
+  public ChunkNode (List<ImportStatement> imports, Map<String, Integer> globalSlots, int globalsCount, CodeBlockNode body) {
+    this.imports = imports;
+    this.globalSlots = globalSlots;
+    this.globalsCount = globalsCount;
+    this.body = body;
+  }
+
+  public List<ImportStatement> getImports () {
+    return imports;
+  }
+
+  public int getGlobalSlot (String name) {
+    Integer slot = globalSlots.get(name);
+    if (slot == null) {
+      throw new InternalStateError("Global was not declared");
+    }
+    return slot;
+  }
+
+  public int getGlobalsCount () {
+    return globalsCount;
+  }
+
+  public CodeBlockNode getBody () {
+    return body;
+  }
+}
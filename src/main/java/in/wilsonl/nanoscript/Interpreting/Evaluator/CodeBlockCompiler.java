@@ -0,0 +1,375 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinFunction;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LambdaExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.BreakStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.CaseStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ClassStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ConditionalBranchesStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.CreateStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ExportStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ExpressionStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ForStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.LoopStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.NextStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ReturnStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.SetLookupStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.SetMemberStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.SetVariableStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.ThrowStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.TryStatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Statement.YieldStatementNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import in.wilsonl.nanoscript.Syntax.Class.Class;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassConstructor;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassMethod;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassVariable;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.BinaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.UnaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.IdentifierExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LookupExpression;
+import in.wilsonl.nanoscript.Syntax.Identifier;
+import in.wilsonl.nanoscript.Syntax.Operator;
+import in.wilsonl.nanoscript.Syntax.Reference;
+import in.wilsonl.nanoscript.Syntax.Statement.BreakStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement.Option;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ConditionalBranchesStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ConditionalBranchesStatement.Branch;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExpressionStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ForStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.LoopStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.NextStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ReturnStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.SetStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+import in.wilsonl.nanoscript.Syntax.Statement.ThrowStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.TryStatement;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionCompiler.compileExpression;
+import static in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionCompiler.compileLambdaExpression;
+import static in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionCompiler.compileListOfExpressions;
+import static in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionCompiler.compileTypeTest;
+
+public class CodeBlockCompiler {
+  // This is a static class
+  private CodeBlockCompiler () {
+  }
+
+  public static ChunkNode compileChunk (Chunk chunk) {
+    LexicalScope scope = LexicalScope.forChunk();
+
+    for (BuiltinFunction f : EnumSet.allOf(BuiltinFunction.class)) {
+      scope.declare(f.name());
+    }
+    for (BuiltinClass f : EnumSet.allOf(BuiltinClass.class)) {
+      scope.declare(f.name());
+    }
+    for (ImportStatement st_impstmt : chunk.getImports()) {
+      for (ImportStatement.Import st_impunit : st_impstmt.getImports()) {
+        Identifier importAs = st_impunit.getAlias() == null ?
+          st_impunit.getImportable() :
+          st_impunit.getAlias();
+        // A self import without an alias is reported by the interpreter
+        if (importAs != null) {
+          scope.declare(importAs.getName());
+        }
+      }
+    }
+    scope.declareCreatedIn(chunk.getCodeBlock());
+
+    CodeBlockNode body = compileCodeBlock(scope, chunk.getCodeBlock());
+    return new ChunkNode(chunk.getImports(), scope.getOwnSlots(), scope.getFrameSize(), body);
+  }
+
+  // Compiles the statements of <codeBlock> directly in <scope>; variables created
+  // in <codeBlock> should already be declared
+  public static CodeBlockNode compileCodeBlock (LexicalScope scope, CodeBlock codeBlock) {
+    List<Statement> st_body = codeBlock.getBody();
+    StatementNode[] body = new StatementNode[st_body.size()];
+
+    for (int i = 0; i < body.length; i++) {
+      body[i] = compileStatement(scope, st_body.get(i));
+    }
+
+    return new CodeBlockNode(body);
+  }
+
+  public static StatementNode compileStatement (LexicalScope scope, Statement statement) {
+    if (statement instanceof BreakStatement) {
+      return new BreakStatementNode(statement.getPosition());
+
+    } else if (statement instanceof CaseStatement) {
+      return compileCaseStatement(scope, (CaseStatement) statement);
+
+    } else if (statement instanceof ClassStatement) {
+      return compileClassStatement(scope, (ClassStatement) statement);
+
+    } else if (statement instanceof ConditionalBranchesStatement) {
+      return compileConditionalBranchesStatement(scope, (ConditionalBranchesStatement) statement);
+
+    } else if (statement instanceof CreateStatement) {
+      return compileVariableDeclarationStatement(scope, (CreateStatement) statement);
+
+    } else if (statement instanceof ExportStatement) {
+      return compileExportStatement(scope, (ExportStatement) statement);
+
+    } else if (statement instanceof ExpressionStatement) {
+      Expression st_expr = ((ExpressionStatement) statement).getExpression();
+      if (st_expr instanceof UnaryExpression && ((UnaryExpression) st_expr).getOperator() == Operator.YIELD) {
+        return compileYieldStatement(scope, (UnaryExpression) st_expr);
+      }
+      return new ExpressionStatementNode(statement.getPosition(), compileExpression(scope, st_expr));
+
+    } else if (statement instanceof ForStatement) {
+      return compileForStatement(scope, (ForStatement) statement);
+
+    } else if (statement instanceof LoopStatement) {
+      return compileLoopStatement(scope, (LoopStatement) statement);
+
+    } else if (statement instanceof NextStatement) {
+      return new NextStatementNode(statement.getPosition());
+
+    } else if (statement instanceof ReturnStatement) {
+      Expression st_val = ((ReturnStatement) statement).getValue();
+      return new ReturnStatementNode(statement.getPosition(), st_val == null ? null : compileExpression(scope, st_val));
+
+    } else if (statement instanceof SetStatement) {
+      return compileSetStatement(scope, (SetStatement) statement);
+
+    } else if (statement instanceof ThrowStatement) {
+      return new ThrowStatementNode(statement.getPosition(), compileExpression(scope, ((ThrowStatement) statement).getValue()));
+
+    } else if (statement instanceof TryStatement) {
+      return compileTryStatement(scope, (TryStatement) statement);
+
+    } else {
+      throw new InternalStateError("Unknown statement type");
+    }
+  }
+
+  private static StatementNode compileYieldStatement (LexicalScope scope, UnaryExpression expression) {
+    if (!scope.markGenerator()) {
+      throw VMError.from(expression.getPosition(), BuiltinClass.SyntaxError, "Yield can only be used in a function or method");
+    }
+    return new YieldStatementNode(expression.getPosition(), compileExpression(scope, expression.getOperand()));
+  }
+
+  private static StatementNode compileTryStatement (LexicalScope scope, TryStatement statement) {
+    List<TryStatement.Catch> st_catches = statement.getCatchBlocks();
+    int catchCount = st_catches.size();
+    TypeTest[][] catchTypes = new TypeTest[catchCount][];
+    String[] catchParameterNames = new String[catchCount];
+    CodeBlockNode[] catchBodies = new CodeBlockNode[catchCount];
+
+    LexicalScope tryScope = scope.createChild(LexicalScope.Type.BLOCK);
+    int[] catchParameterSlots = new int[catchCount];
+    tryScope.declareCreatedIn(statement.getTryBody());
+    for (int i = 0; i < catchCount; i++) {
+      TryStatement.Catch st_catch = st_catches.get(i);
+      catchParameterSlots[i] = tryScope.declare(st_catch.getParameterName().getName());
+      tryScope.declareCreatedIn(st_catch.getBody());
+    }
+
+    for (int i = 0; i < catchCount; i++) {
+      TryStatement.Catch st_catch = st_catches.get(i);
+      Set<Reference> st_types = st_catch.getTypes();
+      if (st_types != null) {
+        TypeTest[] types = new TypeTest[st_types.size()];
+        int j = 0;
+        for (Reference st_type : st_types) {
+          types[j++] = compileTypeTest(scope, st_type.toExpression());
+        }
+        catchTypes[i] = types;
+      }
+      catchParameterNames[i] = st_catch
+        .getParameterName()
+        .getName();
+      catchBodies[i] = compileCodeBlock(tryScope, st_catch.getBody());
+    }
+
+    CodeBlockNode tryBody = compileCodeBlock(tryScope, statement.getTryBody());
+    return new TryStatementNode(statement.getPosition(), tryBody, catchTypes, catchParameterNames, catchParameterSlots, catchBodies, tryScope.getFrameSize());
+  }
+
+  private static StatementNode compileSetStatement (LexicalScope scope, SetStatement setStatement) {
+    Position position = setStatement.getPosition();
+    Expression st_lhs = setStatement.getTarget();
+    Expression st_rhs = setStatement.getValue();
+
+    if (st_lhs instanceof LookupExpression) {
+      LookupExpression st_source = (LookupExpression) st_lhs;
+      return new SetLookupStatementNode(
+        position,
+        compileExpression(scope, st_source.getSource()),
+        compileListOfExpressions(scope, st_source.getTerms().getTerms()),
+        compileExpression(scope, st_rhs));
+
+    } else if (st_lhs instanceof BinaryExpression && ((BinaryExpression) st_lhs).getOperator() == Operator.ACCESSOR) {
+      Expression st_source = ((BinaryExpression) st_lhs).getLHS();
+      Expression st_member = ((BinaryExpression) st_lhs).getRHS();
+      if (!(st_member instanceof IdentifierExpression)) {
+        throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid member assignment");
+      }
+      String member = ((IdentifierExpression) st_member)
+        .getIdentifier()
+        .getName();
+      return new SetMemberStatementNode(position, compileExpression(scope, st_source), member, compileExpression(scope, st_rhs));
+
+    } else if (st_lhs instanceof IdentifierExpression) {
+      String symbol = ((IdentifierExpression) st_lhs)
+        .getIdentifier()
+        .getName();
+      return new SetVariableStatementNode(position, symbol, scope.resolve(symbol), compileExpression(scope, st_rhs));
+
+    } else {
+      throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid assignment target");
+    }
+  }
+
+  private static StatementNode compileClassStatement (LexicalScope scope, ClassStatement statement) {
+    if (scope.getType() != LexicalScope.Type.CHUNK) {
+      throw VMError.from(statement.getPosition(), BuiltinClass.SyntaxError, "Classes must be declared at the chunk level");
+    }
+
+    Class st_class = statement.getNSClass();
+    String name = st_class.getName().getName();
+
+    List<ClassStatementNode.Parent> parents = new ROList<>();
+    for (Reference st_parent_ref : st_class.getParents()) {
+      parents.add(new ClassStatementNode.Parent(st_parent_ref.toString(), compileExpression(scope, st_parent_ref.toExpression())));
+    }
+
+    ClassConstructor st_constructor = st_class.getConstructor();
+    LambdaExpressionNode constructor = st_constructor == null ?
+      null :
+      compileLambdaExpression(scope, st_constructor.getLambda(), LexicalScope.Type.METHOD);
+    if (constructor != null && constructor.isGenerator()) {
+      throw VMError.from(constructor.getPosition(), BuiltinClass.SyntaxError, "Constructors cannot yield");
+    }
+
+    List<ClassStatementNode.Method> methods = new ROList<>();
+    for (ClassMethod st_method : st_class.getMethods()) {
+      methods.add(new ClassStatementNode.Method(
+        st_method.getName().getName(),
+        st_method.isStatic(),
+        compileLambdaExpression(scope, st_method.getLambda(), LexicalScope.Type.METHOD)));
+    }
+
+    // Static variables are initialised in the chunk scope, instance variables in a scope with `self`
+    LexicalScope initialiserScope = scope.createChild(LexicalScope.Type.INITIALISER);
+    List<ClassStatementNode.Variable> variables = new ROList<>();
+    for (ClassVariable st_var : st_class.getVariables()) {
+      variables.add(new ClassStatementNode.Variable(
+        st_var.getVariable().getName().getName(),
+        st_var.isStatic(),
+        compileExpression(st_var.isStatic() ? scope : initialiserScope, st_var.getVariable().getInitialiser())));
+    }
+
+    return new ClassStatementNode(statement.getPosition(), name, scope.getOwnSlot(name), parents, constructor, methods, variables, initialiserScope.getFrameSize());
+  }
+
+  private static StatementNode compileExportStatement (LexicalScope scope, ExportStatement statement) {
+    if (scope.getType() != LexicalScope.Type.CHUNK) {
+      throw VMError.from(statement.getPosition(), BuiltinClass.SyntaxError, "Exports must be declared at the chunk level");
+    }
+
+    String name = statement
+      .getName()
+      .getName();
+    return new ExportStatementNode(statement.getPosition(), name, compileExpression(scope, statement.getValue()));
+  }
+
+  private static StatementNode compileForStatement (LexicalScope scope, ForStatement statement) {
+    List<ForStatement.Iterable> st_iterables = statement.getIterables();
+
+    int iterablesCount = st_iterables.size();
+    String[] names = new String[iterablesCount];
+    int[] slots = new int[iterablesCount];
+    ExpressionNode[] iterables = new ExpressionNode[iterablesCount];
+
+    LexicalScope forScope = scope.createChild(LexicalScope.Type.BLOCK);
+    for (int i = 0; i < iterablesCount; i++) {
+      ForStatement.Iterable st_iter = st_iterables.get(i);
+      names[i] = st_iter
+        .getFormalParameterName()
+        .getName();
+      slots[i] = forScope.declare(names[i]);
+      // Iterables are evaluated outside the loop's scope
+      iterables[i] = compileExpression(scope, st_iter.getExpression());
+    }
+    forScope.declareCreatedIn(statement.getBody());
+
+    CodeBlockNode body = compileCodeBlock(forScope, statement.getBody());
+    return new ForStatementNode(statement.getPosition(), names, slots, iterables, body, forScope.getFrameSize());
+  }
+
+  private static StatementNode compileConditionalBranchesStatement (LexicalScope scope, ConditionalBranchesStatement statement) {
+    List<Branch> st_branches = statement.getConditionalBranches();
+    ExpressionNode[] conditions = new ExpressionNode[st_branches.size()];
+    CodeBlockNode[] bodies = new CodeBlockNode[st_branches.size()];
+    int[] frameSizes = new int[st_branches.size()];
+
+    for (int i = 0; i < conditions.length; i++) {
+      Branch b = st_branches.get(i);
+      Expression st_cond = b.getCondition();
+      conditions[i] = st_cond == null ? null : compileExpression(scope, st_cond);
+      LexicalScope branchScope = scope.createChild(LexicalScope.Type.BLOCK);
+      branchScope.declareCreatedIn(b.getBody());
+      bodies[i] = compileCodeBlock(branchScope, b.getBody());
+      frameSizes[i] = branchScope.getFrameSize();
+    }
+
+    return new ConditionalBranchesStatementNode(statement.getPosition(), conditions, bodies, frameSizes);
+  }
+
+  private static StatementNode compileCaseStatement (LexicalScope scope, CaseStatement statement) {
+    List<Option> st_options = statement.getOptions();
+    ExpressionNode[] conditions = new ExpressionNode[st_options.size()];
+    CodeBlockNode[] bodies = new CodeBlockNode[st_options.size()];
+
+    for (int i = 0; i < conditions.length; i++) {
+      Option o = st_options.get(i);
+      Expression st_cond = o.getCondition();
+      conditions[i] = st_cond == null ? null : compileExpression(scope, st_cond);
+      bodies[i] = compileCodeBlock(scope, o.getBody());
+    }
+
+    return new CaseStatementNode(statement.getPosition(), compileExpression(scope, statement.getTarget()), conditions, bodies);
+  }
+
+  private static StatementNode compileVariableDeclarationStatement (LexicalScope scope, CreateStatement statement) {
+    String name = statement
+      .getIdentifier()
+      .getName();
+    return new CreateStatementNode(statement.getPosition(), name, scope.getOwnSlot(name), compileExpression(scope, statement.getValue()));
+  }
+
+  private static StatementNode compileLoopStatement (LexicalScope scope, LoopStatement statement) {
+    // The condition is evaluated in the loop's scope
+    LexicalScope loopScope = scope.createChild(LexicalScope.Type.BLOCK);
+    loopScope.declareCreatedIn(statement.getBody());
+    return new LoopStatementNode(
+      statement.getPosition(),
+      compileExpression(loopScope, statement.getCondition()),
+      compileCodeBlock(loopScope, statement.getBody()),
+      statement.getTestStage() == LoopStatement.TestStage.PRE,
+      statement.getTestType() == LoopStatement.TestType.NEGATIVE,
+      loopScope.getFrameSize());
+  }
+}
@@ -0,0 +1,54 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+public class CodeBlockNode {
+  private final StatementNode[] body;
+
+  public CodeBlockNode (StatementNode[] body) {
+    this.body = body;
+  }
+
+  public EvaluationResult execute (Context context) {
+    return run(context, 0, null);
+  }
+
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    return run(context, suspension.popIndex(), suspension);
+  }
+
+  // If <resuming> is not null, the statement at <start> is resumed instead of
+  // executed
+  private EvaluationResult run (Context context, int start, Suspension resuming) {
+    for (int i = start; i < body.length; i++) {
+      StatementNode statement = body[i];
+      EvaluationResult result;
+
+      try {
+        if (resuming != null) {
+          result = statement.resume(context, resuming);
+          resuming = null;
+        } else {
+          result = statement.execute(context);
+        }
+      } catch (VMError vme) {
+        // A descendant/nested expression or code block may have already added positioning
+        if (vme.hasPosition()) {
+          throw vme;
+        }
+        throw vme.withPosition(statement.getPosition());
+      }
+
+      // If <result> is not null, short circuit
+      if (result != null) {
+        if (result.getMode() == EvaluationResult.Mode.YIELD) {
+          result.getSuspension().pushIndex(i);
+        }
+        return result;
+      }
+    }
+
+    return null;
+  }
+}
@@ -1,14 +1,26 @@
 package in.wilsonl.nanoscript.Interpreting.Evaluator;
 
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
 
 public class EvaluationResult {
+  // These carry no value (or always the same value), so they can be shared
+  public static final EvaluationResult BREAK = new EvaluationResult(Mode.BREAK);
+  public static final EvaluationResult NEXT = new EvaluationResult(Mode.NEXT);
+  public static final EvaluationResult RETURN_NULL = new EvaluationResult(Mode.RETURN, NSNull.NULL);
+
   private final Mode mode;
   private final NSData value; // Can be null; if returning without a value, <value> should be NSNull.NULL
+  private final Suspension suspension; // Only set when yielding
 
-  public EvaluationResult (Mode mode, NSData value) {
+  private EvaluationResult (Mode mode, NSData value, Suspension suspension) {
     this.mode = mode;
     this.value = value;
+    this.suspension = suspension;
+  }
+
+  public EvaluationResult (Mode mode, NSData value) {
+    this(mode, value, null);
   }
 
   public EvaluationResult (Mode mode) {
@@ -19,11 +31,19 @@ public class EvaluationResult {
     return mode;
   }
 
+  public static EvaluationResult yield (NSData value) {
+    return new EvaluationResult(Mode.YIELD, value, new Suspension());
+  }
+
   public NSData getValue () {
     return value;
   }
 
+  public Suspension getSuspension () {
+    return suspension;
+  }
+
   public enum Mode {
-    BREAK, NEXT, RETURN
+    BREAK, NEXT, RETURN, YIELD
   }
 }
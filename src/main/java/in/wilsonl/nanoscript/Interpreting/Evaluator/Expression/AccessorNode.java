@@ -0,0 +1,47 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class AccessorNode extends ExpressionNode {
+  private final boolean nullSafe;
+  private final ExpressionNode source;
+  private final MemberInlineCache cache;
+
+  public AccessorNode (Position position, boolean nullSafe, ExpressionNode source, String member) {
+    super(position);
+    this.nullSafe = nullSafe;
+    this.source = source;
+    this.cache = new MemberInlineCache(member);
+  }
+
+  public boolean isNullSafe () {
+    return nullSafe;
+  }
+
+  public ExpressionNode getSource () {
+    return source;
+  }
+
+  public String getMember () {
+    return cache.getMember();
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData source = this.source.evaluate(context);
+    if (nullSafe && source == NSNull.NULL) {
+      return source;
+    }
+    try {
+      return cache.access(source);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class AndNode extends BinaryOperatorNode {
+  public AndNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData lhs = this.lhs.evaluate(context);
+    boolean truthy;
+    try {
+      truthy = lhs.nsToBoolean().isTrue();
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+    return truthy ? rhs.evaluate(context) : lhs;
+  }
+}
@@ -0,0 +1,33 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class AnonymousObjectExpressionNode extends ExpressionNode {
+  private final String[] keys;
+  private final ExpressionNode[] values;
+
+  public AnonymousObjectExpressionNode (Position position, String[] keys, ExpressionNode[] values) {
+    super(position);
+    this.keys = keys;
+    this.values = values;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSObject newObj = NSObject.from(null);
+    for (int i = 0; i < keys.length; i++) {
+      NSData value = values[i].evaluate(context);
+      try {
+        newObj.nsAssign(keys[i], value);
+      } catch (VMError vme) {
+        throw withPosition(vme);
+      }
+    }
+    return newObj;
+  }
+}
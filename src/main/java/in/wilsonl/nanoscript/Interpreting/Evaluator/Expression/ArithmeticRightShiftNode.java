@@ -0,0 +1,28 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ArithmeticRightShiftNode extends SpecialisingOperatorNode {
+  public ArithmeticRightShiftNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    return apply(lhs.evaluate(context), rhs.evaluate(context));
+  }
+
+  @Override
+  protected NSData evaluateSafeInts (NSNumber lhs, NSNumber rhs) {
+    return NSNumber.arithmeticRightShiftInts(lhs, rhs);
+  }
+
+  @Override
+  protected NSData evaluateOther (NSData lhs, NSData rhs) {
+    return lhs.nsArithmeticRightShift(rhs);
+  }
+}
@@ -0,0 +1,15 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public abstract class BinaryOperatorNode extends ExpressionNode {
+  protected final ExpressionNode lhs;
+  protected final ExpressionNode rhs;
+
+  protected BinaryOperatorNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position);
+    this.lhs = lhs;
+    this.rhs = rhs;
+  }
+}
@@ -0,0 +1,30 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class BitwiseNotNode extends ExpressionNode {
+  private final ExpressionNode operand;
+
+  public BitwiseNotNode (Position position, ExpressionNode operand) {
+    super(position);
+    this.operand = operand;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData operand = this.operand.evaluate(context);
+    if (operand instanceof NSNumber && ((NSNumber) operand).isSafeInt()) {
+      return NSNumber.bitwiseNotInt((NSNumber) operand);
+    }
+    try {
+      return operand.nsBitwiseNot();
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
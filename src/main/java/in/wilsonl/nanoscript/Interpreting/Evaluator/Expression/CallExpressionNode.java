@@ -0,0 +1,44 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.List;
+
+public class CallExpressionNode extends ExpressionNode {
+  private final boolean nullSafe;
+  private final ExpressionNode callee;
+  private final ExpressionNode[] arguments;
+  private final boolean[] optional;
+
+  public CallExpressionNode (Position position, boolean nullSafe, ExpressionNode callee, ExpressionNode[] arguments, boolean[] optional) {
+    super(position);
+    this.nullSafe = nullSafe;
+    this.callee = callee;
+    this.arguments = arguments;
+    this.optional = optional;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData callee = this.callee.evaluate(context);
+    if (nullSafe && callee == NSNull.NULL) {
+      return NSNull.NULL;
+    }
+    List<NSArgument> arguments = new ROList<>(this.arguments.length);
+    for (int i = 0; i < this.arguments.length; i++) {
+      arguments.add(new NSArgument(optional[i], this.arguments[i].evaluate(context)));
+    }
+    try {
+      return callee.nsCall(arguments);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
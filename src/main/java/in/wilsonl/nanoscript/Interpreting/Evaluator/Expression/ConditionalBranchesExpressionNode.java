@@ -0,0 +1,37 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ConditionalBranchesExpressionNode extends ExpressionNode {
+  private final ExpressionNode[] conditions;
+  private final ExpressionNode[] values;
+  private final ExpressionNode finalValue;
+
+  public ConditionalBranchesExpressionNode (Position position, ExpressionNode[] conditions, ExpressionNode[] values, ExpressionNode finalValue) {
+    super(position);
+    this.conditions = conditions;
+    this.values = values;
+    this.finalValue = finalValue;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    for (int i = 0; i < conditions.length; i++) {
+      NSData condition = conditions[i].evaluate(context);
+      boolean passed;
+      try {
+        passed = condition.nsToBoolean().isTrue();
+      } catch (VMError vme) {
+        throw withPosition(vme);
+      }
+      if (passed) {
+        return values[i].evaluate(context);
+      }
+    }
+    return finalValue.evaluate(context);
+  }
+}
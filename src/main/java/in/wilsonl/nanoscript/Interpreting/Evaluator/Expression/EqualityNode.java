@@ -0,0 +1,30 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class EqualityNode extends BinaryOperatorNode {
+  private final boolean negated;
+
+  public EqualityNode (Position position, ExpressionNode lhs, ExpressionNode rhs, boolean negated) {
+    super(position, lhs, rhs);
+    this.negated = negated;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData lhs = this.lhs.evaluate(context);
+    NSData rhs = this.rhs.evaluate(context);
+    NSBoolean result;
+    try {
+      result = lhs.nsTestEquality(rhs);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+    return negated ? result.invert() : result;
+  }
+}
@@ -0,0 +1,32 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class IdentifierExpressionNode extends ExpressionNode {
+  private final String name;
+  // Pairs of depth and slot of every scope that declares <name>, innermost first
+  // Usually there is only one
+  private final int[][] candidates;
+
+  public IdentifierExpressionNode (Position position, String name, int[][] candidates) {
+    super(position);
+    this.name = name;
+    this.candidates = candidates;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    for (int[] c : candidates) {
+      NSData value = context.getAncestor(c[0]).getSymbol(c[1]);
+      if (value != null) {
+        return value;
+      }
+    }
+    throw VMError.from(getPosition(), BuiltinClass.ReferenceError, String.format("The variable `%s` does not exist", name));
+  }
+}
@@ -0,0 +1,65 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSParameter;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSVirtualCallable;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class LambdaExpressionNode extends ExpressionNode {
+  private final NSParameter[] parameters;
+  private final CodeBlockNode body;
+  private final int frameSize;
+  private final boolean hasSelf;
+  private final boolean frameCaptured;
+  private final boolean generator;
+
+  public LambdaExpressionNode (Position position, NSParameter[] parameters, CodeBlockNode body, int frameSize, boolean hasSelf, boolean frameCaptured, boolean generator) {
+    super(position);
+    this.parameters = parameters;
+    this.body = body;
+    this.frameSize = frameSize;
+    this.hasSelf = hasSelf;
+    this.frameCaptured = frameCaptured;
+    this.generator = generator;
+  }
+
+  public NSParameter[] getParameters () {
+    return parameters;
+  }
+
+  public CodeBlockNode getBody () {
+    return body;
+  }
+
+  public int getFrameSize () {
+    return frameSize;
+  }
+
+  // If true, slot 0 holds `self` and the parameters start at slot 1
+  public boolean hasSelf () {
+    return hasSelf;
+  }
+
+  // If true, a lambda declared in the body can hold on to the frame of a call
+  public boolean isFrameCaptured () {
+    return frameCaptured;
+  }
+
+  // If true, the body contains a yield, and calling the lambda returns a
+  // generator instead of running the body
+  public boolean isGenerator () {
+    return generator;
+  }
+
+  public int getFirstParameterSlot () {
+    return hasSelf ? 1 : 0;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    return NSVirtualCallable.from(context, this);
+  }
+}
@@ -0,0 +1,37 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import static in.wilsonl.nanoscript.Utils.Utils.compare;
+
+public class LessThanOrEqualNode extends SpecialisingOperatorNode {
+  public LessThanOrEqualNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    return apply(lhs.evaluate(context), rhs.evaluate(context));
+  }
+
+  @Override
+  protected NSData evaluateSafeInts (NSNumber lhs, NSNumber rhs) {
+    // Safe integers are never NaN or -0.0, so compare like longs
+    return NSBoolean.from(lhs.getRawNumber() <= rhs.getRawNumber());
+  }
+
+  @Override
+  protected NSData evaluateNumbers (NSNumber lhs, NSNumber rhs) {
+    return NSBoolean.from(compare(lhs.getRawNumber(), rhs.getRawNumber()) <= 0);
+  }
+
+  @Override
+  protected NSData evaluateOther (NSData lhs, NSData rhs) {
+    return NSBoolean.from(lhs.nsCompare(rhs).getRawNumber() <= 0);
+  }
+}
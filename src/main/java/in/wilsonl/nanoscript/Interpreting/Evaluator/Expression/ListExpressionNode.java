@@ -0,0 +1,28 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSList;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.List;
+
+public class ListExpressionNode extends ExpressionNode {
+  private final ExpressionNode[] values;
+
+  public ListExpressionNode (Position position, ExpressionNode[] values) {
+    super(position);
+    this.values = values;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    List<NSData> values = new ROList<>(this.values.length);
+    for (ExpressionNode value : this.values) {
+      values.add(value.evaluate(context));
+    }
+    return NSList.from(values);
+  }
+}
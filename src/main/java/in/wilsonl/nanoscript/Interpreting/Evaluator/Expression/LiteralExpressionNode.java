@@ -0,0 +1,21 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+// REMEMBER: <value> is shared by every evaluation, so it must be immutable
+public class LiteralExpressionNode extends ExpressionNode {
+  private final NSData value;
+
+  public LiteralExpressionNode (Position position, NSData value) {
+    super(position);
+    this.value = value;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    return value;
+  }
+}
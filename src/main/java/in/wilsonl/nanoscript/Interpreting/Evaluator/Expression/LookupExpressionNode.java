@@ -0,0 +1,47 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.List;
+
+public class LookupExpressionNode extends ExpressionNode {
+  private final boolean nullSafe;
+  private final ExpressionNode source;
+  private final ExpressionNode[] terms;
+
+  public LookupExpressionNode (Position position, boolean nullSafe, ExpressionNode source, ExpressionNode[] terms) {
+    super(position);
+    this.nullSafe = nullSafe;
+    this.source = source;
+    this.terms = terms;
+  }
+
+  // Helper function
+  public static List<NSData> evaluateTerms (Context context, ExpressionNode[] terms) {
+    List<NSData> evaluated = new ROList<>(terms.length);
+    for (ExpressionNode t : terms) {
+      evaluated.add(t.evaluate(context));
+    }
+    return evaluated;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData source = this.source.evaluate(context);
+    if (nullSafe && source == NSNull.NULL) {
+      return NSNull.NULL;
+    }
+    List<NSData> terms = evaluateTerms(context, this.terms);
+    try {
+      return source.nsLookup(terms);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
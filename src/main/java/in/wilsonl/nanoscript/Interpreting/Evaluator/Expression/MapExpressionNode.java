@@ -0,0 +1,29 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSMap;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.HashMap;
+
+public class MapExpressionNode extends ExpressionNode {
+  private final ExpressionNode[] keys;
+  private final ExpressionNode[] values;
+
+  public MapExpressionNode (Position position, ExpressionNode[] keys, ExpressionNode[] values) {
+    super(position);
+    this.keys = keys;
+    this.values = values;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    HashMap<NSData, NSData> entries = new HashMap<>();
+    for (int i = 0; i < keys.length; i++) {
+      entries.put(keys[i].evaluate(context), values[i].evaluate(context));
+    }
+    return NSMap.from(entries);
+  }
+}
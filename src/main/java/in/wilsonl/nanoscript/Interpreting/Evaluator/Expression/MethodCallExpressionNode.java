@@ -0,0 +1,79 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSCallable;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROList;
+
+import java.util.List;
+
+/*
+ *
+ *  A call whose callee is a member access, e.g. `obj.method(a, b)`. If the
+ *  member is an instance method, it's called with `self` passed directly,
+ *  instead of creating (and caching on the object) a callable with `self`
+ *  bound. Otherwise, this behaves exactly like accessing then calling.
+ *
+ */
+public class MethodCallExpressionNode extends ExpressionNode {
+  private final boolean nullSafe;
+  private final boolean accessNullSafe;
+  private final Position accessPosition;
+  private final ExpressionNode source;
+  private final MemberInlineCache cache;
+  private final ExpressionNode[] arguments;
+  private final boolean[] optional;
+
+  public MethodCallExpressionNode (Position position, boolean nullSafe, AccessorNode callee, ExpressionNode[] arguments, boolean[] optional) {
+    super(position);
+    this.nullSafe = nullSafe;
+    this.accessNullSafe = callee.isNullSafe();
+    this.accessPosition = callee.getPosition();
+    this.source = callee.getSource();
+    this.cache = new MemberInlineCache(callee.getMember());
+    this.arguments = arguments;
+    this.optional = optional;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData source = this.source.evaluate(context);
+
+    NSCallable method = null;
+    NSData callee;
+    if (accessNullSafe && source == NSNull.NULL) {
+      callee = NSNull.NULL;
+    } else {
+      try {
+        if (source instanceof NSObject) {
+          method = cache.getMethod((NSObject) source);
+        }
+        callee = method == null ? cache.access(source) : null;
+      } catch (VMError vme) {
+        throw vme.hasPosition() ? vme : vme.withPosition(accessPosition);
+      }
+    }
+    if (nullSafe && callee == NSNull.NULL) {
+      return NSNull.NULL;
+    }
+
+    List<NSArgument> arguments = new ROList<>(this.arguments.length);
+    for (int i = 0; i < this.arguments.length; i++) {
+      arguments.add(new NSArgument(optional[i], this.arguments[i].evaluate(context)));
+    }
+    try {
+      return method == null ?
+        callee.nsCall(arguments) :
+        method.nsCallAsMethod((NSObject) source, arguments);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
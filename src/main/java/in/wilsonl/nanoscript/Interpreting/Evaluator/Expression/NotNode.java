@@ -0,0 +1,26 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class NotNode extends ExpressionNode {
+  private final ExpressionNode operand;
+
+  public NotNode (Position position, ExpressionNode operand) {
+    super(position);
+    this.operand = operand;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData operand = this.operand.evaluate(context);
+    try {
+      return operand.nsToBoolean().invert();
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
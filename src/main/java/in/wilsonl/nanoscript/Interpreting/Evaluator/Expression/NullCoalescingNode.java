@@ -0,0 +1,22 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class NullCoalescingNode extends BinaryOperatorNode {
+  public NullCoalescingNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData lhs = this.lhs.evaluate(context);
+    if (lhs == NSNull.NULL) {
+      return rhs.evaluate(context);
+    }
+    return lhs;
+  }
+}
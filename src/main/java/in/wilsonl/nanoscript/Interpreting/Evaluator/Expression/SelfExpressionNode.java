@@ -0,0 +1,29 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class SelfExpressionNode extends ExpressionNode {
+  private final int depth; // -1 if not inside a method
+
+  public SelfExpressionNode (Position position, int depth) {
+    super(position);
+    this.depth = depth;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    // `self` is always slot 0 of a method's frame, but is null for static methods
+    NSData value = depth == -1 ?
+      null :
+      context.getAncestor(depth).getSymbol(0);
+    if (value == null) {
+      throw VMError.from(getPosition(), BuiltinClass.ReferenceError, "`self` is not available in this context");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,24 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class SpaceshipNode extends BinaryOperatorNode {
+  public SpaceshipNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData lhs = this.lhs.evaluate(context);
+    NSData rhs = this.rhs.evaluate(context);
+    try {
+      return lhs.nsCompare(rhs);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
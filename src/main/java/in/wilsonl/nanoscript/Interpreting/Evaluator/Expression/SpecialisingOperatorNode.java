@@ -0,0 +1,82 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+/*
+ *
+ *  Arithmetic, comparison and bitwise nodes specialise themselves to the
+ *  operands seen at their call site. A node starts at UNSEEN and widens to
+ *  SAFE_INTS (see NSNumber.isSafeInt), NUMBERS (doubles, or a double and an
+ *  integer) or OTHER as operands arrive, and never narrows. At each kind, it
+ *  only checks for that kind before falling back to the generic operation and
+ *  widening, so an integer counting loop only ever pays for the integer check.
+ *
+ *  Nodes are shared between threads, which may race on the kind; this is
+ *  harmless, as every kind falls back to the generic operation.
+ *
+ *  REMEMBER: Each node evaluates its own operands and then calls apply, rather
+ *  than this class doing both, so that the JVM profiles and inlines operand
+ *  evaluation separately for each operator, and apply (once inlined into a
+ *  node) calls that node's operations directly.
+ *
+ */
+public abstract class SpecialisingOperatorNode extends BinaryOperatorNode {
+  private static final int UNSEEN = 0;
+  private static final int SAFE_INTS = 1;
+  private static final int NUMBERS = 2;
+  private static final int OTHER = 3;
+
+  private int kind = UNSEEN;
+
+  protected SpecialisingOperatorNode (Position position, ExpressionNode lhs, ExpressionNode rhs) {
+    super(position, lhs, rhs);
+  }
+
+  private static int kindOf (NSData a, NSData b) {
+    if (!(a instanceof NSNumber) || !(b instanceof NSNumber)) {
+      return OTHER;
+    }
+    return ((NSNumber) a).isSafeInt() && ((NSNumber) b).isSafeInt() ? SAFE_INTS : NUMBERS;
+  }
+
+  // Both operands are safe integers
+  protected abstract NSData evaluateSafeInts (NSNumber lhs, NSNumber rhs);
+
+  // Both operands are numbers, but not both safe integers
+  protected NSData evaluateNumbers (NSNumber lhs, NSNumber rhs) {
+    return evaluateOther(lhs, rhs);
+  }
+
+  // Operands of any type, including numbers once the node has widened to OTHER
+  protected abstract NSData evaluateOther (NSData lhs, NSData rhs);
+
+  // Applies the operator to the values of <lhs> and <rhs>, widening the node's
+  // kind if they aren't of it
+  protected final NSData apply (NSData lhs, NSData rhs) {
+    try {
+      switch (kind) {
+      case SAFE_INTS:
+        if (lhs instanceof NSNumber && rhs instanceof NSNumber && ((NSNumber) lhs).isSafeInt() && ((NSNumber) rhs).isSafeInt()) {
+          return evaluateSafeInts((NSNumber) lhs, (NSNumber) rhs);
+        }
+        break;
+
+      case NUMBERS:
+        if (lhs instanceof NSNumber && rhs instanceof NSNumber) {
+          return evaluateNumbers((NSNumber) lhs, (NSNumber) rhs);
+        }
+        break;
+      }
+      if (kind != OTHER) {
+        kind = Math.max(kind, kindOf(lhs, rhs));
+      }
+      return evaluateOther(lhs, rhs);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Expression;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.TypeTest;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class TypeOfNode extends ExpressionNode {
+  private final ExpressionNode value;
+  private final TypeTest type;
+  private final boolean negated;
+
+  public TypeOfNode (Position position, ExpressionNode value, TypeTest type, boolean negated) {
+    super(position);
+    this.value = value;
+    this.type = type;
+    this.negated = negated;
+  }
+
+  @Override
+  public NSData evaluate (Context context) {
+    NSData value = this.value.evaluate(context);
+    boolean isInstance;
+    try {
+      isInstance = type.test(context, value);
+    } catch (VMError vme) {
+      throw withPosition(vme);
+    }
+    return NSBoolean.from(isInstance != negated);
+  }
+}
@@ -0,0 +1,410 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSParameter;
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSBoolean;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNull;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSString;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.AccessorNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.AddNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.AndNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.AnonymousObjectExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.ArithmeticRightShiftNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.AwaitNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.BitwiseAndNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.BitwiseNotNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.BitwiseOrNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.BitwiseXorNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.CallExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.ConditionalBranchesExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.DivideNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.EqualityNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.ExponentiateNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.GreaterThanNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.GreaterThanOrEqualNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.IdentifierExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LambdaExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LeftShiftNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LessThanNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LessThanOrEqualNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.ListExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LiteralExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LookupExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.MapExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.MeasureNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.MethodCallExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.ModuloNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.MultiplyNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.NotNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.NullCoalescingNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.OrNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.RightShiftNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.SelfExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.SpaceshipNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.SubtractNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.TypeOfNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Syntax.Expression.AnonymousObjectExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.CallExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ConditionalBranchesExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ConditionalBranchesExpression.Branch;
+import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.BinaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.UnaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.IdentifierExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ListExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralBooleanExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNullExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNumberExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralStringExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LookupExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.MapExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.SelfExpression;
+import in.wilsonl.nanoscript.Syntax.Operator;
+import in.wilsonl.nanoscript.Syntax.Parameter;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ *
+ *  Compiles expressions into a tree of nodes once, so that dispatching on the
+ *  type of syntax happens at compile time instead of on every evaluation.
+ *
+ */
+public class ExpressionCompiler {
+  private static final Map<String, NSData.Type> SPECIAL_INSTANCEOF_TARGETS = _createSpecialInstanceOfTargets();
+
+  // This is a static class
+  private ExpressionCompiler () {
+  }
+
+  private static Map<String, NSData.Type> _createSpecialInstanceOfTargets () {
+    Map<String, NSData.Type> map = new HashMap<>();
+
+    map.put("Boolean", NSData.Type.BOOLEAN);
+    map.put("Callable", NSData.Type.CALLABLE);
+    map.put("Class", NSData.Type.CLASS);
+    map.put("Iterator", NSData.Type.ITERATOR);
+    map.put("List", NSData.Type.LIST);
+    map.put("Map", NSData.Type.MAP);
+    map.put("Number", NSData.Type.NUMBER);
+    map.put("Object", NSData.Type.OBJECT);
+    map.put("String", NSData.Type.STRING);
+    map.put("Task", NSData.Type.TASK);
+
+    return map;
+  }
+
+  // Helper function
+  public static TypeTest compileTypeTest (LexicalScope scope, Expression st_type) {
+    if (st_type instanceof IdentifierExpression) {
+      String id = ((IdentifierExpression) st_type).getIdentifier().getName();
+      NSData.Type targetType = SPECIAL_INSTANCEOF_TARGETS.get(id);
+      if (targetType != null) {
+        return TypeTest.forSpecialType(targetType);
+      }
+    }
+
+    return TypeTest.forClass(compileExpression(scope, st_type));
+  }
+
+  // Helper function
+  public static ExpressionNode[] compileListOfExpressions (LexicalScope scope, List<Expression> expressions) {
+    ExpressionNode[] compiled = new ExpressionNode[expressions.size()];
+
+    for (int i = 0; i < compiled.length; i++) {
+      compiled[i] = compileExpression(scope, expressions.get(i));
+    }
+
+    return compiled;
+  }
+
+  public static ExpressionNode compileExpression (LexicalScope scope, Expression expression) {
+    if (expression instanceof LambdaExpression) {
+      return compileLambdaExpression(scope, (LambdaExpression) expression, LexicalScope.Type.FUNCTION);
+
+    } else if (expression instanceof AnonymousObjectExpression) {
+      return compileAnonymousObjectExpression(scope, (AnonymousObjectExpression) expression);
+
+    } else if (expression instanceof MapExpression) {
+      return compileMapExpression(scope, (MapExpression) expression);
+
+    } else if (expression instanceof CallExpression) {
+      return compileCallExpression(scope, (CallExpression) expression);
+
+    } else if (expression instanceof LookupExpression) {
+      return compileLookupExpression(scope, (LookupExpression) expression);
+
+    } else if (expression instanceof ListExpression) {
+      return compileListExpression(scope, (ListExpression) expression);
+
+    } else if (expression instanceof IdentifierExpression) {
+      return compileIdentifierExpression(scope, (IdentifierExpression) expression);
+
+    } else if (expression instanceof LiteralBooleanExpression) {
+      return new LiteralExpressionNode(expression.getPosition(), NSBoolean.from(((LiteralBooleanExpression) expression).getValue()));
+
+    } else if (expression instanceof LiteralStringExpression) {
+      return new LiteralExpressionNode(expression.getPosition(), NSString.from(((LiteralStringExpression) expression).getValue()));
+
+    } else if (expression instanceof LiteralNullExpression) {
+      return new LiteralExpressionNode(expression.getPosition(), NSNull.NULL);
+
+    } else if (expression instanceof LiteralNumberExpression) {
+      return new LiteralExpressionNode(expression.getPosition(), NSNumber.from(((LiteralNumberExpression) expression).getValue()));
+
+    } else if (expression instanceof BinaryExpression) {
+      return compileBinaryExpression(scope, (BinaryExpression) expression);
+
+    } else if (expression instanceof UnaryExpression) {
+      return compileUnaryExpression(scope, (UnaryExpression) expression);
+
+    } else if (expression instanceof SelfExpression) {
+      int[][] self = scope.resolve("self");
+      return new SelfExpressionNode(expression.getPosition(), self.length == 0 ? -1 : self[0][0]);
+
+    } else if (expression instanceof ConditionalBranchesExpression) {
+      return compileConditionalBranchesExpression(scope, (ConditionalBranchesExpression) expression);
+
+    } else {
+      throw new InternalStateError("Unknown expression type");
+    }
+  }
+
+  // <type> should be FUNCTION or METHOD
+  public static LambdaExpressionNode compileLambdaExpression (LexicalScope scope, LambdaExpression expression, LexicalScope.Type type) {
+    List<Parameter> st_params = expression.getParameters();
+    scope.markCaptured();
+    LexicalScope lambdaScope = scope.createChild(type);
+    int firstParameterSlot = type == LexicalScope.Type.METHOD ? 1 : 0;
+
+    NSParameter[] parameters = new NSParameter[st_params.size()];
+    for (int i = 0; i < parameters.length; i++) {
+      Parameter st_p = st_params.get(i);
+      String name = st_p.getName().getName();
+      // Parameters occupy consecutive slots, in order
+      if (lambdaScope.declare(name) != firstParameterSlot + i) {
+        throw VMError.from(st_p.getName().getPosition(), BuiltinClass.SyntaxError, String.format("Parameter `%s` is declared more than once", name));
+      }
+      Expression st_default = st_p.getDefaultValue();
+      // Default values are evaluated in the context the lambda was declared in
+      parameters[i] = new NSParameter(
+        st_p.isOptional(),
+        st_p.isVariableLength(),
+        name,
+        null,
+        st_default == null ? null : compileExpression(scope, st_default));
+    }
+
+    lambdaScope.declareCreatedIn(expression.getBody());
+    CodeBlockNode body = CodeBlockCompiler.compileCodeBlock(lambdaScope, expression.getBody());
+    return new LambdaExpressionNode(expression.getPosition(), parameters, body, lambdaScope.getFrameSize(), type == LexicalScope.Type.METHOD, lambdaScope.isCaptured(), lambdaScope.isGenerator());
+  }
+
+  private static ExpressionNode compileMapExpression (LexicalScope scope, MapExpression expression) {
+    List<MapExpression.Member> st_members = expression.getMembers();
+    ExpressionNode[] keys = new ExpressionNode[st_members.size()];
+    ExpressionNode[] values = new ExpressionNode[st_members.size()];
+    for (int i = 0; i < keys.length; i++) {
+      MapExpression.Member m = st_members.get(i);
+      keys[i] = compileExpression(scope, m.getKey());
+      values[i] = compileExpression(scope, m.getValue());
+    }
+    return new MapExpressionNode(expression.getPosition(), keys, values);
+  }
+
+  private static ExpressionNode compileListExpression (LexicalScope scope, ListExpression expression) {
+    return new ListExpressionNode(expression.getPosition(), compileListOfExpressions(scope, expression.getValues()));
+  }
+
+  private static ExpressionNode compileConditionalBranchesExpression (LexicalScope scope, ConditionalBranchesExpression expression) {
+    List<Branch> st_branches = expression.getConditionalBranches();
+    ExpressionNode[] conditions = new ExpressionNode[st_branches.size()];
+    ExpressionNode[] values = new ExpressionNode[st_branches.size()];
+    for (int i = 0; i < conditions.length; i++) {
+      Branch b = st_branches.get(i);
+      conditions[i] = compileExpression(scope, b.getCondition());
+      values[i] = compileExpression(scope, b.getValue());
+    }
+    return new ConditionalBranchesExpressionNode(expression.getPosition(), conditions, values, compileExpression(scope, expression.getFinalBranchValue()));
+  }
+
+  private static ExpressionNode compileUnaryExpression (LexicalScope scope, UnaryExpression expression) {
+    Position position = expression.getPosition();
+    ExpressionNode operand = compileExpression(scope, expression.getOperand());
+
+    switch (expression.getOperator()) {
+    case NOT:
+      return new NotNode(position, operand);
+
+    case MEASURE:
+      return new MeasureNode(position, operand);
+
+    case BIT_NOT:
+      return new BitwiseNotNode(position, operand);
+
+    case AWAIT:
+      return new AwaitNode(position, operand);
+
+    case YIELD:
+      throw VMError.from(position, BuiltinClass.SyntaxError, "Yield can only be used as a statement");
+
+    default:
+      throw new InternalStateError("Unimplemented unary operator");
+    }
+  }
+
+  private static ExpressionNode compileBinaryExpression (LexicalScope scope, BinaryExpression expression) {
+    Position position = expression.getPosition();
+    Expression st_rhs = expression.getRHS();
+    Operator operator = expression.getOperator();
+
+    ExpressionNode lhs = compileExpression(scope, expression.getLHS());
+
+    switch (operator) {
+    case NULL_ACCESSOR:
+    case ACCESSOR:
+      if (!(st_rhs instanceof IdentifierExpression)) {
+        throw VMError.from(position, BuiltinClass.SyntaxError, "Invalid member access");
+      }
+      String member = ((IdentifierExpression) st_rhs).getIdentifier().getName();
+      return new AccessorNode(position, operator == Operator.NULL_ACCESSOR, lhs, member);
+
+    case TYPEOF:
+    case NOT_TYPEOF:
+      return new TypeOfNode(position, lhs, compileTypeTest(scope, st_rhs), operator == Operator.NOT_TYPEOF);
+    }
+
+    ExpressionNode rhs = compileExpression(scope, st_rhs);
+
+    switch (operator) {
+    case NULL_COALESCING:
+      return new NullCoalescingNode(position, lhs, rhs);
+
+    case AND:
+      return new AndNode(position, lhs, rhs);
+
+    case OR:
+      return new OrNode(position, lhs, rhs);
+
+    case EXPONENTIATE:
+      return new ExponentiateNode(position, lhs, rhs);
+
+    case MULTIPLY:
+      return new MultiplyNode(position, lhs, rhs);
+
+    case DIVIDE:
+      return new DivideNode(position, lhs, rhs);
+
+    case MODULO:
+      return new ModuloNode(position, lhs, rhs);
+
+    case PLUS:
+      return new AddNode(position, lhs, rhs);
+
+    case MINUS:
+      return new SubtractNode(position, lhs, rhs);
+
+    case BIT_LSHIFT:
+      return new LeftShiftNode(position, lhs, rhs);
+
+    case BIT_RSHIFT:
+      return new RightShiftNode(position, lhs, rhs);
+
+    case BIT_ARSHIFT:
+      return new ArithmeticRightShiftNode(position, lhs, rhs);
+
+    case BIT_AND:
+      return new BitwiseAndNode(position, lhs, rhs);
+
+    case BIT_XOR:
+      return new BitwiseXorNode(position, lhs, rhs);
+
+    case BIT_OR:
+      return new BitwiseOrNode(position, lhs, rhs);
+
+    case EQ:
+      return new EqualityNode(position, lhs, rhs, false);
+
+    case NEQ:
+      return new EqualityNode(position, lhs, rhs, true);
+
+    case LT:
+      return new LessThanNode(position, lhs, rhs);
+
+    case LEQ:
+      return new LessThanOrEqualNode(position, lhs, rhs);
+
+    case GT:
+      return new GreaterThanNode(position, lhs, rhs);
+
+    case GEQ:
+      return new GreaterThanOrEqualNode(position, lhs, rhs);
+
+    case SPACESHIP:
+      return new SpaceshipNode(position, lhs, rhs);
+
+    default:
+      throw new InternalStateError("Unimplemented binary operator");
+    }
+  }
+
+  private static ExpressionNode compileIdentifierExpression (LexicalScope scope, IdentifierExpression expression) {
+    String name = expression.getIdentifier().getName();
+    return new IdentifierExpressionNode(expression.getPosition(), name, scope.resolve(name));
+  }
+
+  private static ExpressionNode compileLookupExpression (LexicalScope scope, LookupExpression expression) {
+    return new LookupExpressionNode(
+      expression.getPosition(),
+      expression.isNullSafe(),
+      compileExpression(scope, expression.getSource()),
+      compileListOfExpressions(scope, expression.getTerms().getTerms()));
+  }
+
+  private static ExpressionNode compileCallExpression (LexicalScope scope, CallExpression expression) {
+    List<CallExpression.Argument> st_args = expression.getArguments().getArguments();
+    ExpressionNode[] arguments = new ExpressionNode[st_args.size()];
+    boolean[] optional = new boolean[st_args.size()];
+    for (int i = 0; i < arguments.length; i++) {
+      CallExpression.Argument st_arg = st_args.get(i);
+      arguments[i] = compileExpression(scope, st_arg.getValue());
+      optional[i] = st_arg.isOptional();
+    }
+    ExpressionNode callee = compileExpression(scope, expression.getCallee());
+    if (callee instanceof AccessorNode) {
+      // Calling a method directly doesn't need a callable with `self` bound
+      return new MethodCallExpressionNode(
+        expression.getPosition(),
+        expression.isNullSafe(),
+        (AccessorNode) callee,
+        arguments,
+        optional);
+    }
+    return new CallExpressionNode(
+      expression.getPosition(),
+      expression.isNullSafe(),
+      callee,
+      arguments,
+      optional);
+  }
+
+  private static ExpressionNode compileAnonymousObjectExpression (LexicalScope scope, AnonymousObjectExpression expression) {
+    List<AnonymousObjectExpression.Member> st_members = expression.getMembers();
+    String[] keys = new String[st_members.size()];
+    ExpressionNode[] values = new ExpressionNode[st_members.size()];
+    for (int i = 0; i < keys.length; i++) {
+      AnonymousObjectExpression.Member m = st_members.get(i);
+      keys[i] = m.getKey().getName();
+      values[i] = compileExpression(scope, m.getValue());
+    }
+    return new AnonymousObjectExpressionNode(expression.getPosition(), keys, values);
+  }
+}
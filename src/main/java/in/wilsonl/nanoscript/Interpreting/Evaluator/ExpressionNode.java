@@ -0,0 +1,14 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Utils.Position;
+
+// REMEMBER: Any VMError thrown out of evaluate must have a position
+public abstract class ExpressionNode extends Node {
+  protected ExpressionNode (Position position) {
+    super(position);
+  }
+
+  public abstract NSData evaluate (Context context);
+}
@@ -0,0 +1,175 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ *
+ *  The compile time counterpart of a runtime Context frame.
+ *
+ *  All variables a scope could ever hold are declared before any code inside
+ *  it is compiled, so that an identifier can be resolved to every slot in the
+ *  lexical chain that could hold it. At runtime, the first of those slots that
+ *  is not null is used, which mirrors looking up a name through each scope.
+ *
+ *  A block scope that declares nothing has no runtime frame and so does not
+ *  count towards depth.
+ *
+ */
+public class LexicalScope {
+  private final LexicalScope parent; // Can be null
+  private final Type type;
+  private final Map<String, Integer> slots = new HashMap<>();
+  private boolean sealed = false;
+  private boolean captured = false;
+  private boolean generator = false;
+
+  private LexicalScope (LexicalScope parent, Type type) {
+    this.parent = parent;
+    this.type = type;
+    if (type == Type.METHOD || type == Type.INITIALISER) {
+      // Slot 0 is always `self`, which can't be used as an identifier
+      slots.put("self", 0);
+    }
+  }
+
+  public static LexicalScope forChunk () {
+    return new LexicalScope(null, Type.CHUNK);
+  }
+
+  public LexicalScope createChild (Type type) {
+    if (type == Type.CHUNK) {
+      throw new InternalStateError("A chunk scope can't be nested");
+    }
+    seal();
+    return new LexicalScope(this, type);
+  }
+
+  public Type getType () {
+    return type;
+  }
+
+  // Called when a lambda is declared in this scope; the frame of the enclosing
+  // function can then outlive its call, so it must not be reused
+  public void markCaptured () {
+    for (LexicalScope s = this; s != null; s = s.parent) {
+      if (s.type == Type.FUNCTION || s.type == Type.METHOD) {
+        s.captured = true;
+        return;
+      }
+    }
+  }
+
+  public boolean isCaptured () {
+    return captured;
+  }
+
+  // Called when a yield statement is compiled in this scope; returns false if
+  // it is not inside a function or method
+  public boolean markGenerator () {
+    for (LexicalScope s = this; s != null; s = s.parent) {
+      if (s.type == Type.FUNCTION || s.type == Type.METHOD) {
+        s.generator = true;
+        return true;
+      }
+      if (s.type != Type.BLOCK) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  // If true, calling the function returns a generator over its body
+  public boolean isGenerator () {
+    return generator;
+  }
+
+  public int declare (String name) {
+    if (sealed) {
+      throw new InternalStateError("Variable declared after scope was used");
+    }
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      slot = slots.size();
+      slots.put(name, slot);
+    }
+    return slot;
+  }
+
+  // Declares all variables created directly in <codeBlock> or its case options
+  public void declareCreatedIn (CodeBlock codeBlock) {
+    for (Statement statement : codeBlock.getBody()) {
+      if (statement instanceof CreateStatement) {
+        declare(((CreateStatement) statement).getIdentifier().getName());
+
+      } else if (statement instanceof ClassStatement) {
+        declare(((ClassStatement) statement).getNSClass().getName().getName());
+
+      } else if (statement instanceof CaseStatement) {
+        for (CaseStatement.Option o : ((CaseStatement) statement).getOptions()) {
+          declareCreatedIn(o.getBody());
+        }
+      }
+    }
+  }
+
+  // Slot in this scope; the variable must have been declared
+  public int getOwnSlot (String name) {
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      throw new InternalStateError("Variable was not declared");
+    }
+    return slot;
+  }
+
+  public Map<String, Integer> getOwnSlots () {
+    seal();
+    return Collections.unmodifiableMap(new HashMap<>(slots));
+  }
+
+  public boolean hasFrame () {
+    return type != Type.BLOCK || !slots.isEmpty();
+  }
+
+  // Size of runtime frame, or zero if this scope has no runtime frame
+  public int getFrameSize () {
+    seal();
+    return slots.size();
+  }
+
+  // Returns candidates as pairs of depth and slot, innermost first
+  public int[][] resolve (String name) {
+    int[][] found = new int[0][];
+    int depth = 0;
+    for (LexicalScope s = this; s != null; s = s.parent) {
+      s.seal();
+      Integer slot = s.slots.get(name);
+      if (slot != null) {
+        int[][] grown = new int[found.length + 1][];
+        System.arraycopy(found, 0, grown, 0, found.length);
+        grown[found.length] = new int[]{depth, slot};
+        found = grown;
+      }
+      if (s.hasFrame()) {
+        depth++;
+      }
+    }
+    return found;
+  }
+
+  private void seal () {
+    sealed = true;
+  }
+
+  public enum Type {
+    CHUNK, FUNCTION, METHOD, INITIALISER, BLOCK
+  }
+}
@@ -0,0 +1,150 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSCallable;
+import in.wilsonl.nanoscript.Interpreting.Data.NSClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Data.Shape;
+
+/*
+ *
+ *  A polymorphic inline cache for one member access site. For each object
+ *  shape seen at the site (up to MAX_ENTRIES), it remembers either the index
+ *  of the member variable or the method slot (see Shape.getMethodSlot) of the
+ *  instance method the member resolves to. Sites that see more shapes than
+ *  that stop caching and always do a full lookup.
+ *
+ *  Shapes belong to class declarations, and entries hold nothing else, so a
+ *  site in compiled code shared by many ExecutionContexts sees the same
+ *  shapes in each of them, and keeps none of their classes alive.
+ *
+ *  Entries are immutable and prepended atomically enough for the cache to be
+ *  shared between threads; a racing update can only lose an entry.
+ *
+ */
+public class MemberInlineCache {
+  private static final int MAX_ENTRIES = 4;
+  private static final Entry MEGAMORPHIC = new Entry(null, -1, -1, null, MAX_ENTRIES);
+
+  private final String member;
+  private volatile Entry entries; // Can be null
+
+  public MemberInlineCache (String member) {
+    this.member = member;
+  }
+
+  public String getMember () {
+    return member;
+  }
+
+  private Entry find (Shape shape) {
+    for (Entry e = entries; e != null; e = e.next) {
+      if (e.shape == shape) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  // Returns the number of shapes cached at this site, or -1 if it has seen
+  // too many and stopped caching
+  public int getShapeCount () {
+    Entry head = entries;
+    return head == MEGAMORPHIC ? -1 : head == null ? 0 : head.depth;
+  }
+
+  // Returns null if <obj>'s shape has been seen at this site but isn't cached,
+  // or if the member isn't a member variable or instance method of <obj>
+  private Entry lookup (NSObject obj) {
+    Shape shape = obj.getShape();
+    Entry e = find(shape);
+    if (e != null) {
+      return e;
+    }
+
+    Entry head = entries;
+    if (head == MEGAMORPHIC) {
+      return null;
+    }
+    int depth = head == null ? 0 : head.depth;
+    if (depth >= MAX_ENTRIES) {
+      entries = MEGAMORPHIC;
+      return null;
+    }
+
+    int idx = shape.getIndex(member);
+    int slot = -1;
+    if (idx == -1) {
+      NSClass type = obj.getConstructor();
+      if (type == null || type.getRawInstanceMethod(member) == null) {
+        // Doesn't exist; let the full lookup report it
+        return null;
+      }
+      slot = shape.getMethodSlot(member);
+    }
+    e = new Entry(shape, idx, slot, head, depth + 1);
+    entries = e;
+    return e;
+  }
+
+  // Returns the instance method of <e> on <obj>, without `self` bound; this
+  // is null if the class of <obj> doesn't have it, as a class created from the
+  // same declaration in another context might not
+  private NSCallable getMethod (NSObject obj, Entry e) {
+    return obj.getConstructor().getRawInstanceMethod(e.slot, member);
+  }
+
+  // Returns the instance method the member resolves to on <obj>, without `self`
+  // bound, or null if it isn't a (cacheable) method
+  public NSCallable getMethod (NSObject obj) {
+    Entry e = lookup(obj);
+    return e == null || e.slot == -1 ? null : getMethod(obj, e);
+  }
+
+  // Resolves any member, like NSData.nsAccess
+  public NSData access (NSData source) {
+    if (source instanceof NSObject) {
+      NSObject obj = (NSObject) source;
+      Entry e = lookup(obj);
+      if (e != null) {
+        if (e.slot == -1) {
+          return obj.getMemberVariableAt(e.index);
+        }
+        NSCallable method = getMethod(obj, e);
+        if (method != null) {
+          return obj.getBoundMethod(member, method);
+        }
+      }
+    }
+    return source.nsAccess(member);
+  }
+
+  // Assigns to any member, like NSData.nsAssign
+  public void assign (NSData source, NSData value) {
+    if (source instanceof NSObject) {
+      NSObject obj = (NSObject) source;
+      Entry e = lookup(obj);
+      if (e != null && e.slot == -1) {
+        obj.setMemberVariableAt(e.index, value);
+        return;
+      }
+    }
+    source.nsAssign(member, value);
+  }
+
+  private static class Entry {
+    private final Shape shape;
+    private final int index; // -1 if a method
+    private final int slot; // -1 if a member variable
+    private final Entry next;
+    private final int depth;
+
+    private Entry (Shape shape, int index, int slot, Entry next, int depth) {
+      this.shape = shape;
+      this.index = index;
+      this.slot = slot;
+      this.next = next;
+      this.depth = depth;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public abstract class Node {
+  private final Position position;
+
+  protected Node (Position position) {
+    this.position = position;
+  }
+
+  public Position getPosition () {
+    return position;
+  }
+
+  // A descendant/nested expression or code block may have already added positioning
+  protected VMError withPosition (VMError vme) {
+    if (vme.hasPosition()) {
+      return vme;
+    }
+    return vme.withPosition(position);
+  }
+}
@@ -0,0 +1,81 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class CaseStatementNode extends StatementNode {
+  private final ExpressionNode target;
+  private final ExpressionNode[] conditions; // A catch-all option's condition is null
+  private final CodeBlockNode[] bodies;
+
+  public CaseStatementNode (Position position, ExpressionNode target, ExpressionNode[] conditions, CodeBlockNode[] bodies) {
+    super(position);
+    this.target = target;
+    this.conditions = conditions;
+    this.bodies = bodies;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    return run(context, this.target.evaluate(context), 0, null);
+  }
+
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    int option = suspension.popIndex();
+    NSData target = (NSData) suspension.pop();
+    return run(context, target, option, suspension);
+  }
+
+  // If <resuming> is not null, the option at <start> is resumed instead of
+  // tested
+  private EvaluationResult run (Context context, NSData target, int start, Suspension resuming) {
+    for (int i = start; i < conditions.length; i++) {
+      EvaluationResult evaluationResult;
+
+      if (resuming != null) {
+        evaluationResult = bodies[i].resume(context, resuming);
+        resuming = null;
+      } else {
+        ExpressionNode condition = conditions[i];
+
+        boolean passed = condition == null || target
+          .nsTestEquality(condition.evaluate(context))
+          .isTrue();
+
+        if (!passed) {
+          continue;
+        }
+        evaluationResult = bodies[i].execute(context);
+      }
+
+      if (evaluationResult != null) {
+        switch (evaluationResult.getMode()) {
+        case BREAK:
+          return null;
+
+        case NEXT:
+        case RETURN:
+          return evaluationResult;
+
+        case YIELD:
+          evaluationResult.getSuspension().push(target);
+          evaluationResult.getSuspension().pushIndex(i);
+          return evaluationResult;
+
+        default:
+          throw new InternalStateError("Unknown evaluation result mode");
+        }
+      }
+    }
+
+    return null;
+  }
+}
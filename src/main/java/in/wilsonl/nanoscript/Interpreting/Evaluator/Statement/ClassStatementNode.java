@@ -0,0 +1,140 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSVirtualClass;
+import in.wilsonl.nanoscript.Interpreting.Data.Shape;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LambdaExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.List;
+
+public class ClassStatementNode extends StatementNode {
+  private final String name;
+  private final int slot;
+  private final List<Parent> parents;
+  private final LambdaExpressionNode constructor; // Can be null
+  private final List<Method> methods;
+  // Order matters
+  private final List<Variable> variables;
+  // Instance variable initialisers are evaluated in a frame holding only `self`
+  private final int initialiserFrameSize;
+  private final Shape rootShape = Shape.createRoot();
+
+  public ClassStatementNode (Position position, String name, int slot, List<Parent> parents, LambdaExpressionNode constructor, List<Method> methods, List<Variable> variables, int initialiserFrameSize) {
+    super(position);
+    this.name = name;
+    this.slot = slot;
+    this.initialiserFrameSize = initialiserFrameSize;
+    this.parents = parents;
+    this.constructor = constructor;
+    this.methods = methods;
+    this.variables = variables;
+  }
+
+  public String getName () {
+    return name;
+  }
+
+  public List<Parent> getParents () {
+    return parents;
+  }
+
+  public LambdaExpressionNode getConstructor () {
+    return constructor;
+  }
+
+  public List<Method> getMethods () {
+    return methods;
+  }
+
+  public List<Variable> getVariables () {
+    return variables;
+  }
+
+  public int getInitialiserFrameSize () {
+    return initialiserFrameSize;
+  }
+
+  public Shape getRootShape () {
+    return rootShape;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    // Classes can only be declared at the chunk level, so <context> is the global scope
+    NSClass nsClass = NSVirtualClass.from(context, this);
+    context.createSymbol(slot, name, nsClass);
+
+    return null;
+  }
+
+  public static class Parent {
+    private final String name;
+    private final ExpressionNode reference;
+
+    public Parent (String name, ExpressionNode reference) {
+      this.name = name;
+      this.reference = reference;
+    }
+
+    public String getName () {
+      return name;
+    }
+
+    public ExpressionNode getReference () {
+      return reference;
+    }
+  }
+
+  public static class Method {
+    private final String name;
+    private final boolean isStatic;
+    private final LambdaExpressionNode lambda;
+
+    public Method (String name, boolean isStatic, LambdaExpressionNode lambda) {
+      this.name = name;
+      this.isStatic = isStatic;
+      this.lambda = lambda;
+    }
+
+    public String getName () {
+      return name;
+    }
+
+    public boolean isStatic () {
+      return isStatic;
+    }
+
+    public LambdaExpressionNode getLambda () {
+      return lambda;
+    }
+  }
+
+  public static class Variable {
+    private final String name;
+    private final boolean isStatic;
+    private final ExpressionNode initialiser;
+
+    public Variable (String name, boolean isStatic, ExpressionNode initialiser) {
+      this.name = name;
+      this.isStatic = isStatic;
+      this.initialiser = initialiser;
+    }
+
+    public String getName () {
+      return name;
+    }
+
+    public boolean isStatic () {
+      return isStatic;
+    }
+
+    public ExpressionNode getInitialiser () {
+      return initialiser;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ConditionalBranchesStatementNode extends StatementNode {
+  private final ExpressionNode[] conditions; // The final branch's condition is null
+  private final CodeBlockNode[] bodies;
+  private final int[] frameSizes; // Zero if the branch has no frame of its own
+
+  public ConditionalBranchesStatementNode (Position position, ExpressionNode[] conditions, CodeBlockNode[] bodies, int[] frameSizes) {
+    super(position);
+    this.conditions = conditions;
+    this.bodies = bodies;
+    this.frameSizes = frameSizes;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    for (int i = 0; i < conditions.length; i++) {
+      ExpressionNode condition = conditions[i];
+      boolean passed = condition == null || condition
+        .evaluate(context)
+        .nsToBoolean()
+        .isTrue();
+      if (passed) {
+        Context scope = frameSizes[i] == 0 ?
+          context :
+          new Context(context, frameSizes[i]);
+        return suspendIfYielded(bodies[i].execute(scope), i, scope);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    int branch = suspension.popIndex();
+    Context scope = (Context) suspension.pop();
+    return suspendIfYielded(bodies[branch].resume(scope, suspension), branch, scope);
+  }
+
+  private static EvaluationResult suspendIfYielded (EvaluationResult result, int branch, Context scope) {
+    if (result != null && result.getMode() == EvaluationResult.Mode.YIELD) {
+      result.getSuspension().push(scope);
+      result.getSuspension().pushIndex(branch);
+    }
+    return result;
+  }
+}
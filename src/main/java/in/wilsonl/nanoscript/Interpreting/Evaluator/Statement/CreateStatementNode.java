@@ -0,0 +1,26 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class CreateStatementNode extends StatementNode {
+  private final String name;
+  private final int slot;
+  private final ExpressionNode value;
+
+  public CreateStatementNode (Position position, String name, int slot, ExpressionNode value) {
+    super(position);
+    this.name = name;
+    this.slot = slot;
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    context.createSymbol(slot, name, value.evaluate(context));
+    return null;
+  }
+}
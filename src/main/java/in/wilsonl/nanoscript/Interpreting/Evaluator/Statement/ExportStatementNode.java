@@ -0,0 +1,29 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.GlobalScope;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ExportStatementNode extends StatementNode {
+  private final String name;
+  private final ExpressionNode value;
+
+  public ExportStatementNode (Position position, String name, ExpressionNode value) {
+    super(position);
+    this.name = name;
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    // Exports can only be declared at the chunk level, so <context> is the global scope
+    NSData value = this.value.evaluate(context);
+    ((GlobalScope) context).addExport(name, value);
+
+    return null;
+  }
+}
@@ -0,0 +1,22 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ExpressionStatementNode extends StatementNode {
+  private final ExpressionNode expression;
+
+  public ExpressionStatementNode (Position position, ExpressionNode expression) {
+    super(position);
+    this.expression = expression;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    expression.evaluate(context);
+    return null;
+  }
+}
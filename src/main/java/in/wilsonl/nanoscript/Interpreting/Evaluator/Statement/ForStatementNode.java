@@ -0,0 +1,166 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSIterator;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Data.NSRange;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.EndOfIterationError;
+
+public class ForStatementNode extends StatementNode {
+  private final String[] names;
+  private final int[] slots;
+  private final ExpressionNode[] iterables;
+  private final CodeBlockNode body;
+  private final int frameSize;
+
+  public ForStatementNode (Position position, String[] names, int[] slots, ExpressionNode[] iterables, CodeBlockNode body, int frameSize) {
+    super(position);
+    this.names = names;
+    this.slots = slots;
+    this.iterables = iterables;
+    this.body = body;
+    this.frameSize = frameSize;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    int iterablesCount = iterables.length;
+    NSIterator[] iters = new NSIterator[iterablesCount];
+
+    for (int i = 0; i < iterablesCount; i++) {
+      NSData iterable = iterables[i].evaluate(context);
+      if (iterablesCount == 1 && iterable instanceof NSRange) {
+        return executeOverRange(new Context(context, frameSize), (NSRange) iterable, 0, null);
+      }
+      iters[i] = iterable.nsIterate();
+    }
+
+    return executeOverIterators(new Context(context, frameSize), iters, null);
+  }
+
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    Context scope = (Context) suspension.pop();
+    Object source = suspension.pop();
+    if (source instanceof NSRange) {
+      return executeOverRange(scope, (NSRange) source, (Long) suspension.pop(), suspension);
+    }
+    return executeOverIterators(scope, (NSIterator[]) source, suspension);
+  }
+
+  // Values are computed straight from the range, without an iterator
+  // If <resuming> is not null, the iteration at <start> is resumed
+  private EvaluationResult executeOverRange (Context scope, NSRange range, long start, Suspension resuming) {
+    long length = range.getLength();
+
+    for (long i = start; i < length; i++) {
+      EvaluationResult evaluationResult;
+
+      if (resuming != null) {
+        evaluationResult = body.resume(scope, resuming);
+        resuming = null;
+      } else {
+        scope.clearSymbols();
+        scope.setSymbol(slots[0], NSNumber.from(range.getRaw(i)));
+
+        evaluationResult = body.execute(scope);
+      }
+      //noinspection Duplicates
+      if (evaluationResult != null) {
+        switch (evaluationResult.getMode()) {
+        case BREAK:
+          return null;
+
+        case NEXT:
+          break;
+
+        case RETURN:
+          return evaluationResult;
+
+        case YIELD:
+          evaluationResult.getSuspension().push(i);
+          evaluationResult.getSuspension().push(range);
+          evaluationResult.getSuspension().push(scope);
+          return evaluationResult;
+
+        default:
+          throw new InternalStateError("Unknown evaluation result mode");
+        }
+      }
+    }
+
+    return null;
+  }
+
+  // If <resuming> is not null, the first iteration resumes the body instead
+  // of fetching new values
+  private EvaluationResult executeOverIterators (Context scope, NSIterator[] iters, Suspension resuming) {
+    int iterablesCount = iters.length;
+
+    while (true) {
+      EvaluationResult evaluationResult;
+
+      if (resuming != null) {
+        evaluationResult = body.resume(scope, resuming);
+        resuming = null;
+      } else {
+        scope.clearSymbols();
+
+        for (int i = 0; i < iterablesCount; i++) {
+          NSData value;
+          try {
+            value = iters[i].nextOrNull();
+          } catch (VMError err) {
+            // Only iterators that run script code end this way
+            NSData vmerrobj = err.getValue();
+            if (vmerrobj instanceof NSObject && ((NSObject) vmerrobj)
+              .isInstanceOf(EndOfIterationError.getNSClass())
+              .isTrue()) {
+              return null;
+            } else {
+              throw err;
+            }
+          }
+          if (value == null) {
+            return null;
+          }
+          scope.createSymbol(slots[i], names[i], value);
+        }
+
+        evaluationResult = body.execute(scope);
+      }
+      //noinspection Duplicates
+      if (evaluationResult != null) {
+        switch (evaluationResult.getMode()) {
+        case BREAK:
+          return null;
+
+        case NEXT:
+          break;
+
+        case RETURN:
+          return evaluationResult;
+
+        case YIELD:
+          evaluationResult.getSuspension().push(iters);
+          evaluationResult.getSuspension().push(scope);
+          return evaluationResult;
+
+        default:
+          throw new InternalStateError("Unknown evaluation result mode");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class LoopStatementNode extends StatementNode {
+  private final ExpressionNode condition;
+  private final CodeBlockNode body;
+  private final boolean testBefore;
+  private final boolean invertResult;
+  private final int frameSize; // Zero if the loop has no frame of its own
+
+  public LoopStatementNode (Position position, ExpressionNode condition, CodeBlockNode body, boolean testBefore, boolean invertResult, int frameSize) {
+    super(position);
+    this.frameSize = frameSize;
+    this.condition = condition;
+    this.body = body;
+    this.testBefore = testBefore;
+    this.invertResult = invertResult;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    Context loopScope = frameSize == 0 ?
+      context :
+      new Context(context, frameSize);
+    return run(loopScope, null);
+  }
+
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    return run((Context) suspension.pop(), suspension);
+  }
+
+  // If <resuming> is not null, the first iteration resumes the body instead
+  // of starting a new iteration
+  private EvaluationResult run (Context loopScope, Suspension resuming) {
+    while (true) {
+      EvaluationResult evaluationResult;
+
+      if (resuming != null) {
+        evaluationResult = body.resume(loopScope, resuming);
+        resuming = null;
+      } else {
+        // Clear before evaluating condition expression
+        if (frameSize != 0) {
+          loopScope.clearSymbols();
+        }
+
+        if (testBefore) {
+          boolean shouldStart = condition
+            .evaluate(loopScope)
+            .nsToBoolean()
+            .isTrue();
+          if (invertResult) {
+            shouldStart = !shouldStart;
+          }
+          if (!shouldStart) {
+            break;
+          }
+        }
+
+        evaluationResult = body.execute(loopScope);
+      }
+      //noinspection Duplicates
+      if (evaluationResult != null) {
+        switch (evaluationResult.getMode()) {
+        case BREAK:
+          return null;
+
+        case NEXT:
+          break;
+
+        case RETURN:
+          return evaluationResult;
+
+        case YIELD:
+          evaluationResult.getSuspension().push(loopScope);
+          return evaluationResult;
+
+        default:
+          throw new InternalStateError("Unknown evaluation result mode");
+        }
+      }
+
+      if (!testBefore) {
+        boolean shouldEnd = !condition
+          .evaluate(loopScope)
+          .nsToBoolean()
+          .isTrue();
+        if (invertResult) {
+          shouldEnd = !shouldEnd;
+        }
+        if (shouldEnd) {
+          break;
+        }
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,17 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class NextStatementNode extends StatementNode {
+  public NextStatementNode (Position position) {
+    super(position);
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    return EvaluationResult.NEXT;
+  }
+}
@@ -0,0 +1,24 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ReturnStatementNode extends StatementNode {
+  private final ExpressionNode value; // Can be null
+
+  public ReturnStatementNode (Position position, ExpressionNode value) {
+    super(position);
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    if (value == null) {
+      return EvaluationResult.RETURN_NULL;
+    }
+    return new EvaluationResult(EvaluationResult.Mode.RETURN, value.evaluate(context));
+  }
+}
@@ -0,0 +1,33 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Expression.LookupExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+import java.util.List;
+
+public class SetLookupStatementNode extends StatementNode {
+  private final ExpressionNode source;
+  private final ExpressionNode[] terms;
+  private final ExpressionNode value;
+
+  public SetLookupStatementNode (Position position, ExpressionNode source, ExpressionNode[] terms, ExpressionNode value) {
+    super(position);
+    this.source = source;
+    this.terms = terms;
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    NSData source = this.source.evaluate(context);
+    NSData value = this.value.evaluate(context);
+    List<NSData> terms = LookupExpressionNode.evaluateTerms(context, this.terms);
+    source.nsUpdate(terms, value);
+    return null;
+  }
+}
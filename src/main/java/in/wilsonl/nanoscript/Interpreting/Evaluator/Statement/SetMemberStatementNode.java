@@ -0,0 +1,30 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class SetMemberStatementNode extends StatementNode {
+  private final ExpressionNode source;
+  private final MemberInlineCache cache;
+  private final ExpressionNode value;
+
+  public SetMemberStatementNode (Position position, ExpressionNode source, String member, ExpressionNode value) {
+    super(position);
+    this.source = source;
+    this.cache = new MemberInlineCache(member);
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    NSData source = this.source.evaluate(context);
+    NSData value = this.value.evaluate(context);
+    cache.assign(source, value);
+    return null;
+  }
+}
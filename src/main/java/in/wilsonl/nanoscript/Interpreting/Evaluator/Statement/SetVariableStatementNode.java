@@ -0,0 +1,37 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class SetVariableStatementNode extends StatementNode {
+  private final String name;
+  // Pairs of depth and slot of every scope that declares <name>, innermost first
+  private final int[][] candidates;
+  private final ExpressionNode value;
+
+  public SetVariableStatementNode (Position position, String name, int[][] candidates, ExpressionNode value) {
+    super(position);
+    this.name = name;
+    this.candidates = candidates;
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    NSData value = this.value.evaluate(context);
+    for (int[] c : candidates) {
+      Context target = context.getAncestor(c[0]);
+      if (target.getSymbol(c[1]) != null) {
+        target.setSymbol(c[1], value);
+        return null;
+      }
+    }
+    throw VMError.from(BuiltinClass.ReferenceError, String.format("The variable `%s` does not exist", name));
+  }
+}
@@ -0,0 +1,24 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class ThrowStatementNode extends StatementNode {
+  private final ExpressionNode value;
+
+  public ThrowStatementNode (Position position, ExpressionNode value) {
+    super(position);
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    NSData value = this.value.evaluate(context);
+    throw new VMError(value, getPosition());
+  }
+}
@@ -0,0 +1,100 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.TypeTest;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class TryStatementNode extends StatementNode {
+  // Saved in place of a catch block's index when the try body is suspended
+  private static final int TRY_BLOCK = -1;
+
+  private final CodeBlockNode tryBody;
+  private final TypeTest[][] catchTypes; // A catch-all block's types are null
+  private final String[] catchParameterNames;
+  private final int[] catchParameterSlots;
+  private final CodeBlockNode[] catchBodies;
+  // The try body and all catch blocks share one frame
+  private final int frameSize; // Zero if there is no frame
+
+  public TryStatementNode (Position position, CodeBlockNode tryBody, TypeTest[][] catchTypes, String[] catchParameterNames, int[] catchParameterSlots, CodeBlockNode[] catchBodies, int frameSize) {
+    super(position);
+    this.catchParameterSlots = catchParameterSlots;
+    this.frameSize = frameSize;
+    this.tryBody = tryBody;
+    this.catchTypes = catchTypes;
+    this.catchParameterNames = catchParameterNames;
+    this.catchBodies = catchBodies;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    Context scope = frameSize == 0 ?
+      context :
+      new Context(context, frameSize);
+    return run(context, scope, null);
+  }
+
+  // A yield in the try body is resumed inside the same try, so errors thrown
+  // after resuming are still caught
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    int block = suspension.popIndex();
+    Context scope = (Context) suspension.pop();
+    if (block == TRY_BLOCK) {
+      return run(context, scope, suspension);
+    }
+    return suspendIfYielded(catchBodies[block].resume(scope, suspension), block, scope);
+  }
+
+  private static EvaluationResult suspendIfYielded (EvaluationResult result, int block, Context scope) {
+    if (result != null && result.getMode() == EvaluationResult.Mode.YIELD) {
+      result.getSuspension().push(scope);
+      result.getSuspension().pushIndex(block);
+    }
+    return result;
+  }
+
+  // If <resuming> is not null, the try body is resumed instead of executed
+  private EvaluationResult run (Context context, Context scope, Suspension resuming) {
+    try {
+      EvaluationResult result = resuming != null ?
+        tryBody.resume(scope, resuming) :
+        tryBody.execute(scope);
+      return suspendIfYielded(result, TRY_BLOCK, scope);
+    } catch (VMError vme) {
+      NSData error = vme.getValue();
+      if (frameSize != 0) {
+        scope.clearSymbols();
+      }
+      for (int i = 0; i < catchBodies.length; i++) {
+        TypeTest[] types = catchTypes[i];
+
+        boolean thisBlockMatches = false;
+
+        if (types != null) {
+          for (TypeTest type : types) {
+            if (type.test(context, error)) {
+              thisBlockMatches = true;
+              break;
+            }
+          }
+        } else {
+          thisBlockMatches = true;
+        }
+
+        if (thisBlockMatches) {
+          scope.createSymbol(catchParameterSlots[i], catchParameterNames[i], error);
+          return suspendIfYielded(catchBodies[i].execute(scope), i, scope);
+        }
+      }
+
+      throw vme;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator.Statement;
+
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ExpressionNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.StatementNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.Suspension;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public class YieldStatementNode extends StatementNode {
+  private final ExpressionNode value;
+
+  public YieldStatementNode (Position position, ExpressionNode value) {
+    super(position);
+    this.value = value;
+  }
+
+  @Override
+  public EvaluationResult execute (Context context) {
+    return EvaluationResult.yield(value.evaluate(context));
+  }
+
+  // Nothing is left to do once the generator is resumed after this yield
+  @Override
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    return null;
+  }
+}
@@ -0,0 +1,20 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Utils.Position;
+
+public abstract class StatementNode extends Node {
+  protected StatementNode (Position position) {
+    super(position);
+  }
+
+  // If the result is not null, the enclosing code block short circuits
+  public abstract EvaluationResult execute (Context context);
+
+  // Carries on from where a yield inside this statement suspended it; only
+  // statements that can contain a yield are ever resumed
+  public EvaluationResult resume (Context context, Suspension suspension) {
+    throw new InternalStateError("Statement cannot be resumed");
+  }
+}
@@ -0,0 +1,53 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+
+/*
+ *
+ *  The saved state of a generator body that has yielded.
+ *
+ *  A yield statement returns a YIELD result up through every statement
+ *  enclosing it in the body. Each of those pushes whatever it needs to carry
+ *  on from where it was (which statement of a block was running, a loop's
+ *  frame, a for loop's iterators, etc.) onto the result's suspension, so the
+ *  innermost state is pushed first. Resuming pops the same states in reverse,
+ *  outermost first, as each statement resumes the one it had been running.
+ *
+ *  This makes a generator a state machine over its own statement tree; it
+ *  never needs a thread or stack of its own.
+ *
+ */
+public class Suspension {
+  private Object[] stack = new Object[8];
+  private int size = 0;
+
+  public void push (Object state) {
+    if (size == stack.length) {
+      Object[] grown = new Object[size * 2];
+      System.arraycopy(stack, 0, grown, 0, size);
+      stack = grown;
+    }
+    stack[size++] = state;
+  }
+
+  public Object pop () {
+    if (size == 0) {
+      throw new InternalStateError("Resumed statement has no saved state");
+    }
+    Object state = stack[--size];
+    stack[size] = null;
+    return state;
+  }
+
+  public void pushIndex (int index) {
+    push(index);
+  }
+
+  public int popIndex () {
+    return (Integer) pop();
+  }
+
+  public boolean isEmpty () {
+    return size == 0;
+  }
+}
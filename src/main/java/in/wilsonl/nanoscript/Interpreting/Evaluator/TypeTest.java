@@ -0,0 +1,43 @@
+package in.wilsonl.nanoscript.Interpreting.Evaluator;
+
+import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
+import in.wilsonl.nanoscript.Interpreting.Context;
+import in.wilsonl.nanoscript.Interpreting.Data.NSClass;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+
+// RHS of a `typeof` expression or a type of a catch block
+public class TypeTest {
+  private final NSData.Type specialType; // Can be null
+  private final ExpressionNode target; // Can be null
+
+  private TypeTest (NSData.Type specialType, ExpressionNode target) {
+    this.specialType = specialType;
+    this.target = target;
+  }
+
+  public static TypeTest forSpecialType (NSData.Type type) {
+    return new TypeTest(type, null);
+  }
+
+  public static TypeTest forClass (ExpressionNode target) {
+    return new TypeTest(null, target);
+  }
+
+  public boolean test (Context context, NSData value) {
+    if (specialType != null) {
+      return value.getType() == specialType;
+    }
+
+    if (value.getType() != NSData.Type.OBJECT) {
+      return false;
+    }
+
+    NSData targetValue = target.evaluate(context);
+    if (targetValue.getType() != NSData.Type.CLASS) {
+      throw VMError.from(BuiltinClass.TypeError, "RHS of type check is not a class");
+    }
+    return ((NSObject) value).isInstanceOf((NSClass) targetValue).isTrue();
+  }
+}
@@ -7,11 +7,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
-public class GlobalScope extends BlockScope {
+public class GlobalScope extends Context {
   private final Map<String, NSData> exports = new TreeMap<>();
 
-  public GlobalScope () {
-    super(null, Type.GLOBAL);
+  public GlobalScope (int size) {
+    super(null, size);
   }
 
   public void addExport (String name, NSData value) {
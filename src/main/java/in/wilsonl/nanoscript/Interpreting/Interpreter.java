@@ -1,10 +1,15 @@
 package in.wilsonl.nanoscript.Interpreting;
 
+import in.wilsonl.nanoscript.Compiling.BytecodeCompiler;
+import in.wilsonl.nanoscript.Compiling.CompiledChunk;
+import in.wilsonl.nanoscript.Compiling.VirtualMachine;
+import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass;
 import in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinFunction;
 import in.wilsonl.nanoscript.Interpreting.Data.NSData;
 import in.wilsonl.nanoscript.Interpreting.Data.NSMap;
-import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockEvaluator;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.CodeBlockCompiler;
 import in.wilsonl.nanoscript.Interpreting.Evaluator.EvaluationResult;
 import in.wilsonl.nanoscript.Syntax.Chunk;
 import in.wilsonl.nanoscript.Syntax.Identifier;
@@ -12,7 +17,9 @@ import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
 
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.ToIntFunction;
 
 import static java.lang.String.format;
 
@@ -21,8 +28,66 @@ public class Interpreter {
   private Interpreter () {
   }
 
+  // The result holds no per-evaluation state, so it can be cached and
+  // interpreted any number of times, including from several threads at once
+  public static ChunkNode compile (Chunk chunk) {
+    return CodeBlockCompiler.compileChunk(chunk);
+  }
+
+  // Compiles to bytecode for the VM instead of a tree of nodes; the result can
+  // be shared in the same way
+  public static CompiledChunk compileBytecode (Chunk chunk) {
+    return BytecodeCompiler.compileChunk(chunk);
+  }
+
   public static Exports interpret (SourceYielder yielder, Chunk chunk) {
-    GlobalScope globalScope = new GlobalScope();
+    return interpret(yielder, chunk, Engine.TREE_WALKING);
+  }
+
+  public static Exports interpret (SourceYielder yielder, Chunk chunk, Engine engine) {
+    switch (engine) {
+    case TREE_WALKING:
+      return interpret(yielder, compile(chunk));
+
+    case BYTECODE:
+      return interpret(yielder, compileBytecode(chunk));
+
+    default:
+      throw new InternalStateError("Unknown engine");
+    }
+  }
+
+  public static Exports interpret (SourceYielder yielder, ChunkNode compiled) {
+    GlobalScope globalScope = createGlobalScope(yielder, compiled.getImports(), compiled::getGlobalSlot, compiled.getGlobalsCount());
+
+    EvaluationResult evaluationResult = compiled.getBody().execute(globalScope);
+    if (evaluationResult != null) {
+      switch (evaluationResult.getMode()) {
+      case BREAK:
+      case NEXT:
+        throw VMError.from(BuiltinClass.SyntaxError, "Invalid break or next statement");
+
+      case RETURN:
+        throw VMError.from(BuiltinClass.SyntaxError, "Can't return from top level");
+      }
+    }
+
+    return globalScope.consumeExports();
+  }
+
+  public static Exports interpret (SourceYielder yielder, CompiledChunk compiled) {
+    GlobalScope globalScope = createGlobalScope(yielder, compiled.getImports(), compiled::getGlobalSlot, compiled.getGlobalsCount());
+
+    // Invalid break, next and return statements are raised by the code itself
+    VirtualMachine.run(compiled.getBody(), globalScope);
+
+    return globalScope.consumeExports();
+  }
+
+  // Sets the builtins and imports of a chunk's global scope; <globalSlots> gives
+  // the slot of each name declared by the chunk
+  private static GlobalScope createGlobalScope (SourceYielder yielder, List<ImportStatement> imports, ToIntFunction<String> globalSlots, int globalsCount) {
+    GlobalScope globalScope = new GlobalScope(globalsCount);
 
     /*
      *
@@ -35,13 +100,13 @@ public class Interpreter {
      */
 
     for (BuiltinFunction f : EnumSet.allOf(BuiltinFunction.class)) {
-      globalScope.createContextSymbol(f.name(), f.getFunction());
+      globalScope.setSymbol(globalSlots.applyAsInt(f.name()), f.getFunction());
     }
     for (BuiltinClass f : EnumSet.allOf(BuiltinClass.class)) {
-      globalScope.createContextSymbol(f.name(), f.getNSClass());
+      globalScope.setSymbol(globalSlots.applyAsInt(f.name()), f.getNSClass());
     }
 
-    for (ImportStatement st_impstmt : chunk.getImports()) {
+    for (ImportStatement st_impstmt : imports) {
       String from = st_impstmt.getFrom().getValue();
       Exports importables = yielder.yieldImport(from);
       Set<String> importableNames = new HashSet<>(importables.names());
@@ -71,25 +136,21 @@ public class Interpreter {
           value = importables.get(importableName);
         }
 
-        if (globalScope.hasContextSymbol(importAs)) {
+        int slot = globalSlots.applyAsInt(importAs);
+        if (globalScope.getSymbol(slot) != null) {
           throw VMError.from(st_impstmt.getPosition(), BuiltinClass.ReferenceError, format("Something called `%s` already exists", importAs));
         }
-        globalScope.createContextSymbol(importAs, value);
+        globalScope.setSymbol(slot, value);
       }
     }
 
-    EvaluationResult evaluationResult = CodeBlockEvaluator.evaluateCodeBlock(globalScope, chunk.getCodeBlock());
-    if (evaluationResult != null) {
-      switch (evaluationResult.getMode()) {
-      case BREAK:
-      case NEXT:
-        throw VMError.from(BuiltinClass.SyntaxError, "Invalid break or next statement");
-
-      case RETURN:
-        throw VMError.from(BuiltinClass.SyntaxError, "Can't return from top level");
-      }
-    }
+    return globalScope;
+  }
 
-    return globalScope.consumeExports();
+  public enum Engine {
+    // Evaluates a tree of nodes compiled from the syntax (see CodeBlockCompiler)
+    TREE_WALKING,
+    // Runs register based bytecode compiled from the syntax (see BytecodeCompiler)
+    BYTECODE
   }
 }
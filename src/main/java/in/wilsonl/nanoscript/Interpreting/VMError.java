@@ -16,16 +16,26 @@ import java.util.List;
 
 import static in.wilsonl.nanoscript.Interpreting.Builtin.BuiltinClass.RuntimeError;
 
+/*
+ *
+ *  Scripts commonly throw and catch errors as part of normal control flow, so
+ *  a VMError doesn't capture a Java stack trace, and its message is only built
+ *  when something asks for it. Set the system property "nanoscript.debug" to
+ *  true to capture stack traces when debugging the interpreter.
+ *
+ */
 public class VMError extends RuntimeException {
+  private static final boolean DEBUG = Boolean.getBoolean("nanoscript.debug");
   private final NSData value;
   private final Position position;
+  private String message; // Built on first use
 
   public VMError (NSData value) {
     this(value, null);
   }
 
   public VMError (NSData value, Position position) {
-    super(buildMessage(value, position));
+    super(null, null, false, DEBUG);
     this.value = value;
     this.position = position;
   }
@@ -84,6 +94,26 @@ public class VMError extends RuntimeException {
     return message;
   }
 
+  // Returns a copy of this error at <position>
+  public VMError withPosition (Position position) {
+    VMError positioned = new VMError(value, position);
+    if (DEBUG) {
+      positioned.setStackTrace(getStackTrace());
+    }
+    return positioned;
+  }
+
+  @Override
+  public String getMessage () {
+    // Racing threads will at worst build equal messages
+    String message = this.message;
+    if (message == null) {
+      message = buildMessage(value, position);
+      this.message = message;
+    }
+    return message;
+  }
+
   public boolean hasPosition () {
     return position != null;
   }
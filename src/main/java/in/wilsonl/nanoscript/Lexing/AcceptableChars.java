@@ -1,22 +1,54 @@
 package in.wilsonl.nanoscript.Lexing;
 
-import in.wilsonl.nanoscript.Utils.Acceptable;
+import java.util.Arrays;
+
+public class AcceptableChars {
+  /*
+   *
+   *  ASCII membership is a 128-bit bitmap split across two longs, so the
+   *  common case is a shift and a mask with no boxing. Anything outside ASCII
+   *  falls back to a binary search over a sorted array; none of the lexer's
+   *  own sets use it, but callers may still pass arbitrary characters.
+   *
+   *     low: chars 0-63    high: chars 64-127
+   *
+   */
+  private final long low;
+  private final long high;
+  private final char[] nonAscii;
 
-public class AcceptableChars extends Acceptable<Character> {
   public AcceptableChars (String chars) {
-    super(toCharacterArray(chars));
+    this(chars.toCharArray());
   }
 
-  public AcceptableChars (Character... chars) {
-    super(chars);
+  public AcceptableChars (char... chars) {
+    long low = 0;
+    long high = 0;
+    char[] nonAscii = new char[chars.length];
+    int nonAsciiCount = 0;
+    for (char c : chars) {
+      if (c < 64) {
+        low |= 1L << c;
+      } else if (c < 128) {
+        high |= 1L << (c - 64);
+      } else {
+        nonAscii[nonAsciiCount++] = c;
+      }
+    }
+    nonAscii = Arrays.copyOf(nonAscii, nonAsciiCount);
+    Arrays.sort(nonAscii);
+    this.low = low;
+    this.high = high;
+    this.nonAscii = nonAscii;
   }
 
-  private static Character[] toCharacterArray (String chars) {
-    char[] charArray = chars.toCharArray();
-    Character[] characterArray = new Character[charArray.length];
-    for (int i = 0; i < charArray.length; i++) {
-      characterArray[i] = charArray[i];
+  public boolean has (char c) {
+    if (c < 64) {
+      return (low & (1L << c)) != 0;
+    }
+    if (c < 128) {
+      return (high & (1L << (c - 64))) != 0;
     }
-    return characterArray;
+    return nonAscii.length != 0 && Arrays.binarySearch(nonAscii, c) >= 0;
   }
 }
@@ -1,160 +1,166 @@
 package in.wilsonl.nanoscript.Lexing;
 
+import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Exception.MalformedSyntaxException;
 import in.wilsonl.nanoscript.Exception.UnexpectedEndOfCodeException;
 import in.wilsonl.nanoscript.Utils.Matchable;
 import in.wilsonl.nanoscript.Utils.Position;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.NoSuchElementException;
+import java.io.Reader;
+import java.util.Arrays;
 
 public class Code implements Matchable<Character> {
-
-  private static final int MAX_HISTORICAL_BUFFER_SIZE = 1024;
-
-  private final BufferedReader inputStream;
   /*
+   *
+   *  The whole source is decoded once into <chars>; <cursor> is the index of
+   *  the next character, so peeking and backing up are just index arithmetic.
+   *  Unlike the tokens (see Tokens), the source is therefore held in full for
+   *  as long as the code is being lexed.
    *
    *          CONSUMED | UPCOMING
-   *   <lastReadChars> | <returnBuffer> <inputStream>
+   *   chars[0, cursor) | chars[cursor, length)
    *
    */
-  private final Deque<Character> returnBuffer = new ArrayDeque<>();
-  // Keep a maximum of MAX_HISTORICAL_BUFFER_SIZE last characters
-  // (i.e. can only call `backUp` sequentially at most 10 times)
-  private final Deque<Character> lastReadChars = new ArrayDeque<>(MAX_HISTORICAL_BUFFER_SIZE);
-  private int currentLineNo = 1;
-  private int currentColNo = 0;
+  private final char[] chars;
+  private final int length;
+  private int cursor = 0;
+  // Index of the first character of each line; built on first use
+  private int[] lineStarts;
+  private int lineCount;
 
   public Code (InputStream inputStream) {
-    this.inputStream = new BufferedReader(new InputStreamReader(inputStream));
+    this(new InputStreamReader(inputStream));
   }
 
-  private char readChar () {
-    while (lastReadChars.size() > MAX_HISTORICAL_BUFFER_SIZE) {
-      lastReadChars.removeFirst();
-    }
-    char nextChar;
+  public Code (Reader reader) {
+    char[] buffer = new char[8192];
+    int length = 0;
     try {
-      nextChar = returnBuffer.removeFirst();
-    } catch (NoSuchElementException nsee) {
-      int nextCharAsInt;
-      try {
-        nextCharAsInt = inputStream.read();
-      } catch (IOException e) {
-        throw new UnexpectedEndOfCodeException();
-      }
-      if (nextCharAsInt == -1) {
-        throw new UnexpectedEndOfCodeException();
+      while (true) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, length, buffer.length - length);
+        if (read == -1) {
+          break;
+        }
+        length += read;
       }
-      nextChar = (char) nextCharAsInt;
+    } catch (IOException e) {
+      throw new UnexpectedEndOfCodeException();
     }
-    lastReadChars.addLast(nextChar);
-    switch (nextChar) {
-    case '\n':
-      if (lastReadChars.peekLast() == '\r') {
-        break;
-      }
-    case '\r':
-      currentLineNo++;
-      currentColNo = 0;
-      break;
+    this.chars = buffer;
+    this.length = length;
+  }
+
+  public Code (String source) {
+    this.chars = source.toCharArray();
+    this.length = chars.length;
+  }
 
-    default:
-      currentColNo++;
+  private char readChar () {
+    if (cursor >= length) {
+      throw new UnexpectedEndOfCodeException();
     }
-    return nextChar;
+    return chars[cursor++];
+  }
+
+  private void buildLineStarts () {
+    int[] starts = new int[64];
+    int count = 1; // starts[0] is 0
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+      if (c == '\n' || c == '\r') {
+        // "\r\n" is one line break
+        if (c == '\r' && i + 1 < length && chars[i + 1] == '\n') {
+          i++;
+        }
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i + 1;
+      }
+    }
+    lineStarts = starts;
+    lineCount = count;
   }
 
   public Position getCurrentPosition () {
-    return new Position(currentLineNo, currentColNo);
+    if (lineStarts == null) {
+      buildLineStarts();
+    }
+    // Find the last line that starts at or before <cursor>
+    int lo = 0;
+    int hi = lineCount - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (lineStarts[mid] <= cursor) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return new Position(lo + 1, cursor - lineStarts[lo]);
   }
 
   public void backUp () {
-    char ret = lastReadChars.removeLast();
-    switch (ret) {
-    case '\r':
-      if (returnBuffer.peekFirst() == '\n') {
-        break;
-      }
-    case '\n':
-      currentLineNo--;
-      currentColNo = -1;
-      break;
-
-    default:
-      currentColNo--;
+    if (cursor == 0) {
+      throw new InternalStateError("Backed up past the start of the code");
     }
-    returnBuffer.addFirst(ret);
+    cursor--;
   }
 
   public String acceptOptional (char c) {
-    char next = accept();
+    char next = readChar();
     if (c != next) {
-      backUp();
+      cursor--;
       return "";
     }
-    return "" + next;
+    return String.valueOf(next);
   }
 
   public String acceptOptional (AcceptableChars chars) {
-    char next = accept();
+    char next = readChar();
     if (!chars.has(next)) {
-      backUp();
+      cursor--;
       return "";
     }
-    return "" + next;
+    return String.valueOf(next);
   }
 
   public String acceptGreedy (AcceptableChars chars) {
-    StringBuilder res = new StringBuilder();
-    while (true) {
-      char next = accept();
-      if (!chars.has(next)) {
-        backUp();
-        break;
-      }
-      res.append(next);
+    int start = cursor;
+    while (chars.has(readChar())) {
+      // Keep consuming
     }
-    return res.toString();
+    cursor--;
+    return new String(this.chars, start, cursor - start);
   }
 
   public String acceptUntil (AcceptableChars chars) {
-    StringBuilder res = new StringBuilder();
-    while (true) {
-      char next = accept();
-      if (chars.has(next)) {
-        backUp();
-        break;
-      }
-      res.append(next);
+    int start = cursor;
+    while (!chars.has(readChar())) {
+      // Keep consuming
     }
-    return res.toString();
+    cursor--;
+    return new String(this.chars, start, cursor - start);
   }
 
   public void skipGreedyBeforeEnd (AcceptableChars chars) {
-    while (true) {
-      char next = accept();
-      if (!chars.has(next)) {
-        backUp();
-        break;
-      }
+    while (chars.has(readChar())) {
+      // Keep consuming
     }
+    cursor--;
   }
 
   public void skipUntil (char c) {
-    while (true) {
-      char next = accept();
-      if (c == next) {
-        backUp();
-        break;
-      }
+    while (readChar() != c) {
+      // Keep consuming
     }
+    cursor--;
   }
 
   public char accept () {
@@ -166,35 +172,29 @@ public class Code implements Matchable<Character> {
   }
 
   public boolean skipIfNext (char c) {
-    char nextChar = readChar();
-    if (nextChar == c) {
+    if (readChar() == c) {
       return true;
-    } else {
-      backUp();
-      return false;
     }
+    cursor--;
+    return false;
   }
 
   public char peek () {
-    char nextChar = readChar();
-    backUp();
-    return nextChar;
+    if (cursor >= length) {
+      throw new UnexpectedEndOfCodeException();
+    }
+    return chars[cursor];
   }
 
   public char peek (int offset) {
     if (offset < 1) {
       throw new IllegalArgumentException("Invalid offset");
     }
-
-    char nextChar = 0;
-    for (int i = 0; i < offset; i++) {
-      nextChar = readChar();
-    }
-    for (int i = 0; i < offset; i++) {
-      backUp();
+    int idx = cursor + offset - 1;
+    if (idx >= length) {
+      throw new UnexpectedEndOfCodeException();
     }
-
-    return nextChar;
+    return chars[idx];
   }
 
   public MalformedSyntaxException constructMalformedSyntaxException (String message) {
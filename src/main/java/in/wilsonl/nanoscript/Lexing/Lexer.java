@@ -31,6 +31,14 @@ public class Lexer {
   private static final Map<String, TokenType> SPECIAL_IDENTIFIER = _createSpecialIdentifierMap();
   private static final OperatorTreeNode OPERATOR_TREE_ROOT_NODE = _createOperatorTreeRootNode();
 
+  // What kind of token an ASCII character can start; lex() dispatches on this
+  // table directly and only falls back to the ordered checks for the rest
+  private static final byte CHAR_CLASS_OTHER = 0;
+  private static final byte CHAR_CLASS_WHITESPACE = 1;
+  private static final byte CHAR_CLASS_DIGIT = 2;
+  private static final byte CHAR_CLASS_IDENTIFIER_STARTER = 3;
+  private static final byte[] CHAR_CLASSES = _createCharClassTable();
+
   private final Code code;
 
   private final Deque<Token> preemptivelyLexedTokens = new ArrayDeque<>();
@@ -102,6 +110,25 @@ public class Lexer {
     return rootNode;
   }
 
+  private static byte[] _createCharClassTable () {
+    byte[] table = new byte[128];
+    for (char c = 0; c < table.length; c++) {
+      if (WHITESPACE.has(c)) {
+        table[c] = CHAR_CLASS_WHITESPACE;
+      } else if (LITERAL_NUMBER_DECIMAL.has(c)) {
+        table[c] = CHAR_CLASS_DIGIT;
+      } else if (IDENTIFIER_STARTER.has(c)) {
+        table[c] = CHAR_CLASS_IDENTIFIER_STARTER;
+      }
+      // REMEMBER: None of these may also start an operator or a comment, as
+      // the table takes priority over the ordered checks in lex()
+      if (table[c] != CHAR_CLASS_OTHER && (c == COMMENT_DELIMITER || OPERATOR_TREE_ROOT_NODE.hasChild(c))) {
+        throw new InternalStateError("Character class overlaps with another token");
+      }
+    }
+    return table;
+  }
+
   private static Map<String, TokenType> _createSpecialIdentifierMap () {
     Map<String, TokenType> map = new HashMap<>();
 
@@ -147,6 +174,7 @@ public class Lexer {
     map.put("is", T_KEYWORD_IS);
     map.put("ascends", T_KEYWORD_ASCENDS);
     map.put("descends", T_KEYWORD_DESCENDS);
+    map.put("await", T_KEYWORD_AWAIT);
 
     map.put("if", T_KEYWORD_IF);
     map.put("then", T_KEYWORD_THEN);
@@ -175,6 +203,7 @@ public class Lexer {
     map.put("return", T_KEYWORD_RETURN);
     map.put("break", T_KEYWORD_BREAK);
     map.put("next", T_KEYWORD_NEXT);
+    map.put("yield", T_KEYWORD_YIELD);
 
     map.put("try", T_KEYWORD_TRY);
     map.put("catch", T_KEYWORD_CATCH);
@@ -210,10 +239,21 @@ public class Lexer {
 
     Token t;
 
-    if (nextChar == COMMENT_DELIMITER) {
+    byte charClass = nextChar < CHAR_CLASSES.length ?
+      CHAR_CLASSES[nextChar] :
+      CHAR_CLASS_OTHER;
+
+    if (charClass == CHAR_CLASS_IDENTIFIER_STARTER) {
+      t = lexIdentifier();
+    } else if (charClass == CHAR_CLASS_WHITESPACE) {
+      code.skipGreedyBeforeEnd(WHITESPACE);
+      t = null;
+    } else if (charClass == CHAR_CLASS_DIGIT) {
+      t = lexLiteralNumber();
+    } else if (nextChar == COMMENT_DELIMITER) {
       lexComment();
       t = null;
-    } else if (LITERAL_NUMBER_DECIMAL.has(nextChar) || nextChar == '-' && LITERAL_NUMBER_DECIMAL.has(code.peek(2))) {
+    } else if (nextChar == '-' && LITERAL_NUMBER_DECIMAL.has(code.peek(2))) {
       t = lexLiteralNumber();
     } else if (OPERATOR_TREE_ROOT_NODE.hasChild(nextChar)) {
       TokenType tokenType = OPERATOR_TREE_ROOT_NODE.match(code);
@@ -223,11 +263,6 @@ public class Lexer {
       t = constructToken(tokenType);
     } else if (nextChar == '`') {
       t = lexLiteralString();
-    } else if (IDENTIFIER_STARTER.has(nextChar)) {
-      t = lexIdentifier();
-    } else if (WHITESPACE.has(nextChar)) {
-      code.skipGreedyBeforeEnd(WHITESPACE);
-      t = null;
     } else {
       throw code.constructMalformedSyntaxException("Unknown syntax");
     }
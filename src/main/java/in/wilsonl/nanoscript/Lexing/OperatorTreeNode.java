@@ -1,15 +1,54 @@
 package in.wilsonl.nanoscript.Lexing;
 
-
+import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Parsing.TokenType;
-import in.wilsonl.nanoscript.Utils.MatcherTreeNode;
 
-public class OperatorTreeNode extends MatcherTreeNode<Character, TokenType> {
-  public void addSequence (char[] raw_sequence, int start, TokenType result) {
-    Character[] sequence = new Character[raw_sequence.length];
-    for (int i = 0; i < sequence.length; i++) {
-      sequence[i] = raw_sequence[i];
+// A character trie specialised for the lexer; children are indexed directly by
+// ASCII code instead of going through a boxed map lookup for every character
+public class OperatorTreeNode {
+  private final OperatorTreeNode[] children = new OperatorTreeNode[128];
+  private TokenType tail = null;
+
+  public boolean hasTail () {
+    return tail != null;
+  }
+
+  public void addSequence (char[] sequence, int start, TokenType result) {
+    char c = sequence[start];
+    if (c >= children.length) {
+      throw new InternalStateError("Operator sequences must be ASCII");
     }
-    super.addSequence(sequence, start, result);
+    OperatorTreeNode child = children[c];
+
+    if (child == null) {
+      child = new OperatorTreeNode();
+      children[c] = child;
+    }
+
+    if (start == sequence.length - 1) {
+      if (child.hasTail()) {
+        throw new InternalStateError("Duplicate matcher sequence");
+      }
+      child.tail = result;
+    } else {
+      child.addSequence(sequence, start + 1, result);
+    }
+  }
+
+  public TokenType match (Code code) {
+    OperatorTreeNode node = this;
+    while (true) {
+      char c = code.accept();
+      OperatorTreeNode child = c < node.children.length ? node.children[c] : null;
+      if (child == null) {
+        code.backUp();
+        return node.tail;
+      }
+      node = child;
+    }
+  }
+
+  public boolean hasChild (char c) {
+    return c < children.length && children[c] != null;
   }
 }
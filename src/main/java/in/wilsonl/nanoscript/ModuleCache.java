@@ -0,0 +1,164 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Interpreter;
+import in.wilsonl.nanoscript.Parsing.ChunkCache;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe, in-memory cache of parsed and compiled modules, meant to be
+ * shared by every {@link ScriptEngine} run in a process.
+ * Compiled code holds no evaluation state, so one cached module can be
+ * evaluated by any number of {@link ExecutionContext}s at once.
+ * Entries are keyed by canonical file and are dropped when the file's
+ * modification time or size changes, or when the cache is over capacity, in
+ * which case the least recently used entry is evicted.
+ * Misses are parsed (or loaded from the on-disk {@link ChunkCache}) outside of
+ * the cache's lock, so a slow parse never blocks other threads' hits.
+ * A module is only compiled when its compiled form is first asked for, and
+ * then only once per cached version.
+ */
+public class ModuleCache {
+  public static final int DEFAULT_CAPACITY = 512;
+
+  private final ChunkCache chunkCache;
+  // Access-ordered, so iteration order is least to most recently used
+  private final LinkedHashMap<File, Entry> entries;
+
+  public ModuleCache (int capacity, ChunkCache chunkCache) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.chunkCache = chunkCache;
+    this.entries = new LinkedHashMap<File, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry (Map.Entry<File, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  public ModuleCache () {
+    this(DEFAULT_CAPACITY, ChunkCache.fromSystemProperties());
+  }
+
+  /**
+   * Gets the parsed module for a file, parsing it if it is not cached or has
+   * changed since it was cached.
+   *
+   * @param file the canonical file of the module.
+   * @return the parsed module; it must not be modified.
+   * @throws FileNotFoundException if the file cannot be read.
+   */
+  public Chunk get (File file) throws FileNotFoundException {
+    return getModule(file).chunk;
+  }
+
+  /**
+   * Gets the compiled module for a file, parsing and compiling it if it is not
+   * cached or has changed since it was cached.
+   *
+   * @param file the canonical file of the module.
+   * @return the compiled module.
+   * @throws FileNotFoundException if the file cannot be read.
+   */
+  public ChunkNode getCompiled (File file) throws FileNotFoundException {
+    return getModule(file).getCompiled();
+  }
+
+  private Entry getModule (File file) throws FileNotFoundException {
+    Entry cached = getIfFresh(file);
+    if (cached != null) {
+      return cached;
+    }
+    // Stat before reading, so that a change made during the read is picked
+    // up as stale next time rather than being missed
+    long lastModified = file.lastModified();
+    long length = file.length();
+    return put(file, lastModified, length, ChunkCache.readSource(file));
+  }
+
+  // Returns null if <file> is not cached or has changed
+  Entry getIfFresh (File file) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(file);
+    }
+    if (entry == null) {
+      return null;
+    }
+    if (entry.lastModified != file.lastModified() || entry.length != file.length()) {
+      invalidate(file);
+      return null;
+    }
+    return entry;
+  }
+
+  // <lastModified> and <length> must be read before <contents>
+  Entry put (File file, long lastModified, long length, byte[] contents) {
+    Entry entry = new Entry(chunkCache.load(file, contents), lastModified, length);
+    synchronized (entries) {
+      Entry existing = entries.get(file);
+      if (existing != null && existing.lastModified == lastModified && existing.length == length) {
+        // Another thread parsed the same version first; every context must
+        // get the same compiled module, or shared modules are evaluated again
+        return existing;
+      }
+      entries.put(file, entry);
+    }
+    return entry;
+  }
+
+  public void invalidate (File file) {
+    synchronized (entries) {
+      entries.remove(file);
+    }
+  }
+
+  public void clear () {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public int size () {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  static class Entry {
+    private final Chunk chunk;
+    private final long lastModified;
+    private final long length;
+    // Compiled on first use
+    private volatile ChunkNode compiled;
+
+    private Entry (Chunk chunk, long lastModified, long length) {
+      this.chunk = chunk;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    ChunkNode getCompiled () {
+      ChunkNode node = compiled;
+      if (node == null) {
+        // REMEMBER: Every context must get the same compiled module, as shared
+        // modules are keyed on it
+        synchronized (this) {
+          node = compiled;
+          if (node == null) {
+            node = Interpreter.compile(chunk);
+            compiled = node;
+          }
+        }
+      }
+      return node;
+    }
+  }
+}
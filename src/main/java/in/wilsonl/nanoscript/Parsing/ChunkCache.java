@@ -0,0 +1,244 @@
+package in.wilsonl.nanoscript.Parsing;
+
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ChunkCache {
+  /*
+   *
+   *  Parsed chunks are written to <directory>, one file per source file,
+   *  named after the SHA-256 of the source's canonical path:
+   *
+   *    int     FORMAT_VERSION
+   *    UTF     canonical source path
+   *    long    source last-modified time
+   *    byte[]  SHA-256 of the source contents
+   *    ...     deflated ChunkEncoding of the Chunk
+   *
+   *  An entry is only used if the path, mtime and content hash all match;
+   *  anything else (including an unreadable or incompatible entry) is treated
+   *  as a miss, and the source is parsed and the entry rewritten.
+   *
+   *  Caching is off unless the nanoscript.astCache property is "true".
+   *
+   *  Anyone who can read a source can compute its entry's header, and entries
+   *  are run as code, so the directory must only be writable by the current
+   *  user. It is created owner-only if it doesn't exist, and caching is
+   *  disabled if another user owns it or can write to it. By default, it is
+   *  the per-user ~/.cache/nanoscript.
+   *
+   */
+  // REMEMBER: Bump this whenever the parser changes what it produces for the
+  // same source, or ChunkEncoding changes what it writes
+  private static final int FORMAT_VERSION = 4;
+
+  private final File directory; // Can be null to disable caching
+  private volatile Boolean directoryUsable; // Checked on first use
+
+  public ChunkCache (File directory) {
+    this.directory = directory;
+  }
+
+  public File getDirectory () {
+    return directory;
+  }
+
+  public static ChunkCache fromSystemProperties () {
+    if (!Boolean.parseBoolean(System.getProperty("nanoscript.astCache", "false"))) {
+      return new ChunkCache(null);
+    }
+    String dir = System.getProperty("nanoscript.astCache.dir");
+    if (dir == null) {
+      dir = System.getProperty("user.home") + File.separator + ".cache" + File.separator + "nanoscript";
+    }
+    return new ChunkCache(new File(dir));
+  }
+
+  private static Chunk parse (byte[] source) {
+    Code code = new Code(new ByteArrayInputStream(source));
+    Lexer lexer = new Lexer(code);
+    Tokens tokens = new Tokens(lexer);
+    return Parser.parse(tokens);
+  }
+
+  private static byte[] sha256 (byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex (byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  // Creates <directory> if needed, and returns whether only the current user
+  // can write to it
+  private static boolean prepareDirectory (Path directory) {
+    LinkOption noFollow = LinkOption.NOFOLLOW_LINKS;
+    boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    try {
+      if (!Files.exists(directory, noFollow)) {
+        Path parent = directory.toAbsolutePath().getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        try {
+          if (posix) {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+          } else {
+            Files.createDirectory(directory);
+          }
+        } catch (FileAlreadyExistsException ignored) {
+          // Created by a concurrent run; it is checked below like any other
+        }
+      }
+      if (!Files.isDirectory(directory, noFollow)) {
+        return false;
+      }
+      UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+      if (!Files.getOwner(directory, noFollow).equals(user)) {
+        return false;
+      }
+      if (posix) {
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, noFollow);
+        return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+      }
+      return true;
+    } catch (IOException | SecurityException | UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  private boolean isDirectoryUsable () {
+    // Racing threads will at worst check twice
+    Boolean usable = directoryUsable;
+    if (usable == null) {
+      usable = prepareDirectory(directory.toPath());
+      directoryUsable = usable;
+    }
+    return usable;
+  }
+
+  public static byte[] readSource (File source) throws FileNotFoundException {
+    try {
+      return Files.readAllBytes(source.toPath());
+    } catch (IOException e) {
+      throw new FileNotFoundException(source.getPath());
+    }
+  }
+
+  public Chunk load (File source) throws FileNotFoundException {
+    return load(source, readSource(source));
+  }
+
+  // <contents> must be what was read from <source>
+  public Chunk load (File source, byte[] contents) {
+    if (directory == null || !isDirectoryUsable()) {
+      return parse(contents);
+    }
+
+    String path;
+    try {
+      path = source.getCanonicalPath();
+    } catch (IOException | SecurityException e) {
+      return parse(contents);
+    }
+    long mtime = source.lastModified();
+    byte[] hash = sha256(contents);
+    File entry = new File(directory, toHex(sha256(path.getBytes(StandardCharsets.UTF_8))) + ".ast");
+
+    Chunk cached = read(entry, path, mtime, hash);
+    if (cached != null) {
+      return cached;
+    }
+
+    Chunk parsed = parse(contents);
+    write(entry, path, mtime, hash, parsed);
+    return parsed;
+  }
+
+  private Chunk read (File entry, String path, long mtime, byte[] hash) {
+    if (!entry.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+      if (in.readInt() != FORMAT_VERSION ||
+          !in.readUTF().equals(path) ||
+          in.readLong() != mtime) {
+        return null;
+      }
+      byte[] entryHash = new byte[hash.length];
+      in.readFully(entryHash);
+      if (!Arrays.equals(entryHash, hash)) {
+        return null;
+      }
+      return ChunkEncoding.read(new BufferedInputStream(new InflaterInputStream(in)));
+    } catch (IOException | RuntimeException e) {
+      // Stale, corrupt or written by an incompatible build; just parse again
+      return null;
+    }
+  }
+
+  private void write (File entry, String path, long mtime, byte[] hash, Chunk chunk) {
+    // The cache is only an optimisation, so failing to write it is not an error
+    try {
+      // Write to a temporary file first so that concurrent runs never see a
+      // partially written entry
+      File temp = Files.createTempFile(directory.toPath(), "entry", ".tmp").toFile();
+      try {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+          out.writeInt(FORMAT_VERSION);
+          out.writeUTF(path);
+          out.writeLong(mtime);
+          out.write(hash);
+          DeflaterOutputStream deflated = new DeflaterOutputStream(out);
+          ChunkEncoding.write(chunk, deflated);
+          deflated.finish();
+        }
+        try {
+          Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp.toPath());
+      }
+    } catch (IOException | SecurityException ignored) {
+    }
+  }
+}
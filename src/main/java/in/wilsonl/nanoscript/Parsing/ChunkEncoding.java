@@ -0,0 +1,938 @@
+package in.wilsonl.nanoscript.Parsing;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import in.wilsonl.nanoscript.Syntax.Class.Class;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassConstructor;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassMethod;
+import in.wilsonl.nanoscript.Syntax.Class.Member.ClassVariable;
+import in.wilsonl.nanoscript.Syntax.CodeBlock;
+import in.wilsonl.nanoscript.Syntax.Expression.AnonymousObjectExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.CallExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ConditionalBranchesExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Expression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.BinaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.General.UnaryExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.IdentifierExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LambdaExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.ListExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralBooleanExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNullExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralNumberExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.Literal.LiteralStringExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.LookupExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.MapExpression;
+import in.wilsonl.nanoscript.Syntax.Expression.SelfExpression;
+import in.wilsonl.nanoscript.Syntax.Identifier;
+import in.wilsonl.nanoscript.Syntax.Operator;
+import in.wilsonl.nanoscript.Syntax.Parameter;
+import in.wilsonl.nanoscript.Syntax.Reference;
+import in.wilsonl.nanoscript.Syntax.Statement.BreakStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CaseStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ClassStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ConditionalBranchesStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.CreateStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ExpressionStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ForStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.LoopStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.NextStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ReturnStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.SetStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.Statement;
+import in.wilsonl.nanoscript.Syntax.Statement.SuperStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.ThrowStatement;
+import in.wilsonl.nanoscript.Syntax.Statement.TryStatement;
+import in.wilsonl.nanoscript.Syntax.Variable;
+import in.wilsonl.nanoscript.Utils.Position;
+import in.wilsonl.nanoscript.Utils.ROSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ *
+ *  A compact binary encoding of a parsed Chunk, used by ChunkCache. Nodes are
+ *  written depth first, each as a one byte tag (0 for a missing optional
+ *  node) followed by its fields in declaration order:
+ *
+ *    count     unsigned LEB128 varint
+ *    string    count index into the strings seen so far; if it is the next
+ *              index, the string follows as a count of bytes and its UTF-8
+ *    position  count line (0 for none) and, if there is a line, count column
+ *    enum      count ordinal
+ *    number    8 byte IEEE 754 double
+ *    boolean   one byte, 0 or 1
+ *
+ *  Only Syntax nodes are ever constructed when reading, through the same
+ *  constructors and setters the parser uses, so a damaged or crafted entry can
+ *  at worst produce an unusual AST or fail to read; it is then treated as a
+ *  cache miss.
+ *
+ *  REMEMBER: Bump ChunkCache.FORMAT_VERSION when anything written here
+ *  changes, including the order of Operator's constants.
+ *
+ */
+final class ChunkEncoding {
+  private static final int NONE = 0;
+
+  private static final int S_BREAK = 1;
+  private static final int S_CASE = 2;
+  private static final int S_CLASS = 3;
+  private static final int S_CONDITIONAL_BRANCHES = 4;
+  private static final int S_CREATE = 5;
+  private static final int S_EXPORT = 6;
+  private static final int S_EXPRESSION = 7;
+  private static final int S_FOR = 8;
+  private static final int S_LOOP = 9;
+  private static final int S_NEXT = 10;
+  private static final int S_RETURN = 11;
+  private static final int S_SET = 12;
+  private static final int S_SUPER = 13;
+  private static final int S_THROW = 14;
+  private static final int S_TRY = 15;
+
+  private static final int E_ANONYMOUS_OBJECT = 1;
+  private static final int E_CALL = 2;
+  private static final int E_CONDITIONAL_BRANCHES = 3;
+  private static final int E_IDENTIFIER = 4;
+  private static final int E_LAMBDA = 5;
+  private static final int E_LIST = 6;
+  private static final int E_LOOKUP = 7;
+  private static final int E_MAP = 8;
+  private static final int E_SELF = 9;
+  private static final int E_BINARY = 10;
+  private static final int E_UNARY = 11;
+  private static final int E_BOOLEAN = 12;
+  private static final int E_NULL = 13;
+  private static final int E_NUMBER = 14;
+  private static final int E_STRING = 15;
+
+  private static final Operator[] OPERATORS = Operator.values();
+  private static final LoopStatement.TestStage[] TEST_STAGES = LoopStatement.TestStage.values();
+  private static final LoopStatement.TestType[] TEST_TYPES = LoopStatement.TestType.values();
+
+  // This is a static class
+  private ChunkEncoding () {
+  }
+
+  // Doesn't close <out>
+  static void write (Chunk chunk, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    new Writer(data).writeChunk(chunk);
+    data.flush();
+  }
+
+  static Chunk read (InputStream in) throws IOException {
+    return new Reader(new DataInputStream(in)).readChunk();
+  }
+
+  private static class Writer {
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private Writer (DataOutputStream out) {
+      this.out = out;
+    }
+
+    private void writeCount (int count) throws IOException {
+      if (count < 0) {
+        throw new InternalStateError("Negative count");
+      }
+      while ((count & ~0x7f) != 0) {
+        out.writeByte((count & 0x7f) | 0x80);
+        count >>>= 7;
+      }
+      out.writeByte(count);
+    }
+
+    private void writeBoolean (boolean value) throws IOException {
+      out.writeByte(value ? 1 : 0);
+    }
+
+    private void writeString (String value) throws IOException {
+      Integer index = strings.get(value);
+      if (index != null) {
+        writeCount(index);
+        return;
+      }
+      writeCount(strings.size());
+      strings.put(value, strings.size());
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeCount(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writePosition (Position position) throws IOException {
+      if (position == null) {
+        writeCount(0);
+        return;
+      }
+      writeCount(position.getLine());
+      writeCount(position.getColumn());
+    }
+
+    private void writeIdentifier (Identifier identifier) throws IOException {
+      writePosition(identifier.getPosition());
+      writeString(identifier.getName());
+    }
+
+    private void writeOptionalIdentifier (Identifier identifier) throws IOException {
+      writeBoolean(identifier != null);
+      if (identifier != null) {
+        writeIdentifier(identifier);
+      }
+    }
+
+    private void writeReference (Reference reference) throws IOException {
+      writePosition(reference.getPosition());
+      writeBoolean(reference.startsWithSelf());
+      writeCount(reference.getParts().size());
+      for (Identifier part : reference.getParts()) {
+        writeIdentifier(part);
+      }
+    }
+
+    private void writeChunk (Chunk chunk) throws IOException {
+      writeCount(chunk.getImports().size());
+      for (ImportStatement st_import : chunk.getImports()) {
+        writeImport(st_import);
+      }
+      writeCodeBlock(chunk.getCodeBlock());
+    }
+
+    private void writeImport (ImportStatement st_import) throws IOException {
+      writePosition(st_import.getPosition());
+      writePosition(st_import.getFrom().getPosition());
+      writeString(st_import.getFrom().getValue());
+      writeCount(st_import.getImports().size());
+      for (ImportStatement.Import imp : st_import.getImports()) {
+        writeOptionalIdentifier(imp.getImportable());
+        writeOptionalIdentifier(imp.getAlias());
+      }
+    }
+
+    private void writeCodeBlock (CodeBlock codeBlock) throws IOException {
+      writeCount(codeBlock.getBody().size());
+      for (Statement statement : codeBlock.getBody()) {
+        writeStatement(statement);
+      }
+    }
+
+    private void writeParameters (List<Parameter> parameters) throws IOException {
+      writeCount(parameters.size());
+      for (Parameter parameter : parameters) {
+        writeIdentifier(parameter.getName());
+        writeBoolean(parameter.isOptional());
+        writeBoolean(parameter.isVariableLength());
+        writeExpression(parameter.getDefaultValue());
+      }
+    }
+
+    private void writeLambda (LambdaExpression lambda) throws IOException {
+      writePosition(lambda.getPosition());
+      writeParameters(lambda.getParameters());
+      writeCodeBlock(lambda.getBody());
+    }
+
+    private void writeArguments (CallExpression.Arguments arguments) throws IOException {
+      writeCount(arguments.getArguments().size());
+      for (CallExpression.Argument argument : arguments.getArguments()) {
+        writeBoolean(argument.isOptional());
+        writeExpression(argument.getValue());
+      }
+    }
+
+    private void writeClass (Class nsClass) throws IOException {
+      writePosition(nsClass.getPosition());
+      writeIdentifier(nsClass.getName());
+      writeCount(nsClass.getParents().size());
+      for (Reference parent : nsClass.getParents()) {
+        writeReference(parent);
+      }
+      writeCount(nsClass.getVariables().size());
+      for (ClassVariable variable : nsClass.getVariables()) {
+        writeBoolean(variable.isStatic());
+        writeIdentifier(variable.getVariable().getName());
+        writeExpression(variable.getVariable().getInitialiser());
+      }
+      writeCount(nsClass.getMethods().size());
+      for (ClassMethod method : nsClass.getMethods()) {
+        writeBoolean(method.isStatic());
+        writeIdentifier(method.getName());
+        writeLambda(method.getLambda());
+      }
+      ClassConstructor constructor = nsClass.getConstructor();
+      writeBoolean(constructor != null);
+      if (constructor != null) {
+        writeLambda(constructor.getLambda());
+      }
+    }
+
+    private void writeStatement (Statement statement) throws IOException {
+      if (statement instanceof BreakStatement) {
+        out.writeByte(S_BREAK);
+        writePosition(statement.getPosition());
+
+      } else if (statement instanceof CaseStatement) {
+        CaseStatement st_case = (CaseStatement) statement;
+        out.writeByte(S_CASE);
+        writePosition(st_case.getPosition());
+        writeExpression(st_case.getTarget());
+        writeCount(st_case.getOptions().size());
+        for (CaseStatement.Option option : st_case.getOptions()) {
+          writeExpression(option.getCondition());
+          writeCodeBlock(option.getBody());
+        }
+
+      } else if (statement instanceof ClassStatement) {
+        out.writeByte(S_CLASS);
+        writeClass(((ClassStatement) statement).getNSClass());
+
+      } else if (statement instanceof ConditionalBranchesStatement) {
+        ConditionalBranchesStatement st_if = (ConditionalBranchesStatement) statement;
+        out.writeByte(S_CONDITIONAL_BRANCHES);
+        writePosition(st_if.getPosition());
+        writeCount(st_if.getConditionalBranches().size());
+        for (ConditionalBranchesStatement.Branch branch : st_if.getConditionalBranches()) {
+          // Only the final branch has no condition
+          writeExpression(branch.getCondition());
+          writeCodeBlock(branch.getBody());
+        }
+
+      } else if (statement instanceof CreateStatement) {
+        CreateStatement st_create = (CreateStatement) statement;
+        out.writeByte(S_CREATE);
+        writePosition(st_create.getPosition());
+        writeIdentifier(st_create.getIdentifier());
+        writeExpression(st_create.getValue());
+
+      } else if (statement instanceof ExportStatement) {
+        ExportStatement st_export = (ExportStatement) statement;
+        out.writeByte(S_EXPORT);
+        writePosition(st_export.getPosition());
+        writeExpression(st_export.getValue());
+        writeOptionalIdentifier(st_export.getName());
+
+      } else if (statement instanceof ExpressionStatement) {
+        out.writeByte(S_EXPRESSION);
+        writeExpression(((ExpressionStatement) statement).getExpression());
+
+      } else if (statement instanceof ForStatement) {
+        ForStatement st_for = (ForStatement) statement;
+        out.writeByte(S_FOR);
+        writePosition(st_for.getPosition());
+        writeCount(st_for.getIterables().size());
+        for (ForStatement.Iterable iterable : st_for.getIterables()) {
+          writeIdentifier(iterable.getFormalParameterName());
+          writeExpression(iterable.getExpression());
+        }
+        writeCodeBlock(st_for.getBody());
+
+      } else if (statement instanceof LoopStatement) {
+        LoopStatement st_loop = (LoopStatement) statement;
+        out.writeByte(S_LOOP);
+        writePosition(st_loop.getPosition());
+        writeExpression(st_loop.getCondition());
+        writeCodeBlock(st_loop.getBody());
+        writeCount(st_loop.getTestStage().ordinal());
+        writeCount(st_loop.getTestType().ordinal());
+
+      } else if (statement instanceof NextStatement) {
+        out.writeByte(S_NEXT);
+        writePosition(statement.getPosition());
+
+      } else if (statement instanceof ReturnStatement) {
+        out.writeByte(S_RETURN);
+        writePosition(statement.getPosition());
+        writeExpression(((ReturnStatement) statement).getValue());
+
+      } else if (statement instanceof SetStatement) {
+        SetStatement st_set = (SetStatement) statement;
+        out.writeByte(S_SET);
+        writePosition(st_set.getPosition());
+        writeExpression(st_set.getTarget());
+        writeExpression(st_set.getValue());
+
+      } else if (statement instanceof SuperStatement) {
+        SuperStatement st_super = (SuperStatement) statement;
+        out.writeByte(S_SUPER);
+        writePosition(st_super.getPosition());
+        writeBoolean(st_super.getParent() != null);
+        if (st_super.getParent() != null) {
+          writeReference(st_super.getParent());
+        }
+        writeArguments(st_super.getArguments());
+
+      } else if (statement instanceof ThrowStatement) {
+        out.writeByte(S_THROW);
+        writePosition(statement.getPosition());
+        writeExpression(((ThrowStatement) statement).getValue());
+
+      } else if (statement instanceof TryStatement) {
+        TryStatement st_try = (TryStatement) statement;
+        out.writeByte(S_TRY);
+        writePosition(st_try.getPosition());
+        writeCodeBlock(st_try.getTryBody());
+        writeCount(st_try.getCatchBlocks().size());
+        for (TryStatement.Catch st_catch : st_try.getCatchBlocks()) {
+          Set<Reference> types = st_catch.getTypes();
+          writeBoolean(types != null);
+          if (types != null) {
+            writeCount(types.size());
+            for (Reference type : types) {
+              writeReference(type);
+            }
+          }
+          writeIdentifier(st_catch.getParameterName());
+          writeCodeBlock(st_catch.getBody());
+        }
+
+      } else {
+        throw new InternalStateError("Unknown statement type: " + statement.getClass());
+      }
+    }
+
+    private void writeExpression (Expression expression) throws IOException {
+      if (expression == null) {
+        out.writeByte(NONE);
+
+      } else if (expression instanceof AnonymousObjectExpression) {
+        AnonymousObjectExpression e_object = (AnonymousObjectExpression) expression;
+        out.writeByte(E_ANONYMOUS_OBJECT);
+        writePosition(e_object.getPosition());
+        writeCount(e_object.getMembers().size());
+        for (AnonymousObjectExpression.Member member : e_object.getMembers()) {
+          writeIdentifier(member.getKey());
+          writeExpression(member.getValue());
+        }
+
+      } else if (expression instanceof CallExpression) {
+        CallExpression e_call = (CallExpression) expression;
+        out.writeByte(E_CALL);
+        writePosition(e_call.getPosition());
+        writeBoolean(e_call.isNullSafe());
+        writeExpression(e_call.getCallee());
+        writeArguments(e_call.getArguments());
+
+      } else if (expression instanceof ConditionalBranchesExpression) {
+        ConditionalBranchesExpression e_if = (ConditionalBranchesExpression) expression;
+        out.writeByte(E_CONDITIONAL_BRANCHES);
+        writePosition(e_if.getPosition());
+        writeCount(e_if.getConditionalBranches().size());
+        for (ConditionalBranchesExpression.Branch branch : e_if.getConditionalBranches()) {
+          writeExpression(branch.getCondition());
+          writeExpression(branch.getValue());
+        }
+        writeExpression(e_if.getFinalBranchValue());
+
+      } else if (expression instanceof IdentifierExpression) {
+        out.writeByte(E_IDENTIFIER);
+        writeIdentifier(((IdentifierExpression) expression).getIdentifier());
+
+      } else if (expression instanceof LambdaExpression) {
+        out.writeByte(E_LAMBDA);
+        writeLambda((LambdaExpression) expression);
+
+      } else if (expression instanceof ListExpression) {
+        ListExpression e_list = (ListExpression) expression;
+        out.writeByte(E_LIST);
+        writePosition(e_list.getPosition());
+        writeCount(e_list.getValues().size());
+        for (Expression value : e_list.getValues()) {
+          writeExpression(value);
+        }
+
+      } else if (expression instanceof LookupExpression) {
+        LookupExpression e_lookup = (LookupExpression) expression;
+        out.writeByte(E_LOOKUP);
+        writePosition(e_lookup.getPosition());
+        writeBoolean(e_lookup.isNullSafe());
+        writeExpression(e_lookup.getSource());
+        writeCount(e_lookup.getTerms().getTerms().size());
+        for (Expression term : e_lookup.getTerms().getTerms()) {
+          writeExpression(term);
+        }
+
+      } else if (expression instanceof MapExpression) {
+        MapExpression e_map = (MapExpression) expression;
+        out.writeByte(E_MAP);
+        writePosition(e_map.getPosition());
+        writeCount(e_map.getMembers().size());
+        for (MapExpression.Member member : e_map.getMembers()) {
+          writeExpression(member.getKey());
+          writeExpression(member.getValue());
+        }
+
+      } else if (expression instanceof SelfExpression) {
+        out.writeByte(E_SELF);
+        writePosition(expression.getPosition());
+
+      } else if (expression instanceof BinaryExpression) {
+        BinaryExpression e_binary = (BinaryExpression) expression;
+        out.writeByte(E_BINARY);
+        writePosition(e_binary.getPosition());
+        writeExpression(e_binary.getLHS());
+        writeCount(e_binary.getOperator().ordinal());
+        writeExpression(e_binary.getRHS());
+
+      } else if (expression instanceof UnaryExpression) {
+        UnaryExpression e_unary = (UnaryExpression) expression;
+        out.writeByte(E_UNARY);
+        writePosition(e_unary.getPosition());
+        writeCount(e_unary.getOperator().ordinal());
+        writeExpression(e_unary.getOperand());
+
+      } else if (expression instanceof LiteralBooleanExpression) {
+        out.writeByte(E_BOOLEAN);
+        writePosition(expression.getPosition());
+        writeBoolean(((LiteralBooleanExpression) expression).getValue());
+
+      } else if (expression instanceof LiteralNullExpression) {
+        out.writeByte(E_NULL);
+        writePosition(expression.getPosition());
+
+      } else if (expression instanceof LiteralNumberExpression) {
+        out.writeByte(E_NUMBER);
+        writePosition(expression.getPosition());
+        out.writeDouble(((LiteralNumberExpression) expression).getValue());
+
+      } else if (expression instanceof LiteralStringExpression) {
+        out.writeByte(E_STRING);
+        writePosition(expression.getPosition());
+        writeString(((LiteralStringExpression) expression).getValue());
+
+      } else {
+        throw new InternalStateError("Unknown expression type: " + expression.getClass());
+      }
+    }
+  }
+
+  private static class Reader {
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    private Reader (DataInputStream in) {
+      this.in = in;
+    }
+
+    private static IOException malformed (String message) {
+      return new IOException("Malformed chunk encoding: " + message);
+    }
+
+    private int readCount () throws IOException {
+      int count = 0;
+      for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+        int b = in.readUnsignedByte();
+        count |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          if (count < 0) {
+            throw malformed("count out of range");
+          }
+          return count;
+        }
+      }
+      throw malformed("count too long");
+    }
+
+    private boolean readBoolean () throws IOException {
+      int value = in.readUnsignedByte();
+      if (value > 1) {
+        throw malformed("invalid boolean");
+      }
+      return value == 1;
+    }
+
+    private String readString () throws IOException {
+      int index = readCount();
+      if (index < strings.size()) {
+        return strings.get(index);
+      }
+      if (index != strings.size()) {
+        throw malformed("string index out of range");
+      }
+      int length = readCount();
+      // Read in pieces, so that a corrupt length can't allocate more than
+      // the entry actually holds
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, 8192));
+      byte[] buffer = new byte[8192];
+      while (length > 0) {
+        int read = Math.min(length, buffer.length);
+        in.readFully(buffer, 0, read);
+        bytes.write(buffer, 0, read);
+        length -= read;
+      }
+      String value = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+      strings.add(value);
+      return value;
+    }
+
+    private Position readPosition () throws IOException {
+      int line = readCount();
+      if (line == 0) {
+        return null;
+      }
+      return new Position(line, readCount());
+    }
+
+    private <T> T readEnum (T[] values) throws IOException {
+      int ordinal = readCount();
+      if (ordinal >= values.length) {
+        throw malformed("unknown constant");
+      }
+      return values[ordinal];
+    }
+
+    private Identifier readIdentifier () throws IOException {
+      Position position = readPosition();
+      return new Identifier(position, readString());
+    }
+
+    private Identifier readOptionalIdentifier () throws IOException {
+      return readBoolean() ? readIdentifier() : null;
+    }
+
+    private Reference readReference () throws IOException {
+      Reference reference = new Reference(readPosition());
+      reference.startsWithSelf(readBoolean());
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        reference.pushPart(readIdentifier());
+      }
+      return reference;
+    }
+
+    private Expression readRequiredExpression () throws IOException {
+      Expression expression = readExpression();
+      if (expression == null) {
+        throw malformed("missing expression");
+      }
+      return expression;
+    }
+
+    private Chunk readChunk () throws IOException {
+      Chunk chunk = new Chunk();
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        chunk.addImport(readImport());
+      }
+      chunk.setCodeBlock(readCodeBlock());
+      if (in.read() != -1) {
+        throw malformed("trailing data");
+      }
+      return chunk;
+    }
+
+    private ImportStatement readImport () throws IOException {
+      ImportStatement st_import = new ImportStatement(readPosition());
+      Position fromPosition = readPosition();
+      st_import.setFrom(new LiteralStringExpression(fromPosition, readString()));
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        Identifier importable = readOptionalIdentifier();
+        st_import.addImport(new ImportStatement.Import(importable, readOptionalIdentifier()));
+      }
+      return st_import;
+    }
+
+    private CodeBlock readCodeBlock () throws IOException {
+      CodeBlock codeBlock = new CodeBlock();
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        codeBlock.pushStatement(readStatement());
+      }
+      return codeBlock;
+    }
+
+    private List<Parameter> readParameters () throws IOException {
+      List<Parameter> parameters = new ArrayList<>();
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        Identifier name = readIdentifier();
+        boolean optional = readBoolean();
+        boolean variableLength = readBoolean();
+        Expression defaultValue = readExpression();
+        if (defaultValue != null && !optional) {
+          throw malformed("default value of required parameter");
+        }
+        parameters.add(new Parameter(name, optional, variableLength, defaultValue));
+      }
+      return parameters;
+    }
+
+    private LambdaExpression readLambda () throws IOException {
+      LambdaExpression lambda = new LambdaExpression(readPosition());
+      lambda.addAllParameters(readParameters());
+      lambda.setBody(readCodeBlock());
+      return lambda;
+    }
+
+    private CallExpression.Arguments readArguments () throws IOException {
+      CallExpression.Arguments arguments = new CallExpression.Arguments();
+      int count = readCount();
+      for (int i = 0; i < count; i++) {
+        boolean optional = readBoolean();
+        arguments.pushArgument(new CallExpression.Argument(optional, readRequiredExpression()));
+      }
+      return arguments;
+    }
+
+    private Class readClass () throws IOException {
+      Class nsClass = new Class(readPosition());
+      nsClass.setName(readIdentifier());
+      int parentsCount = readCount();
+      for (int i = 0; i < parentsCount; i++) {
+        nsClass.addParent(readReference());
+      }
+      int variablesCount = readCount();
+      for (int i = 0; i < variablesCount; i++) {
+        ClassVariable st_variable = new ClassVariable();
+        st_variable.isStatic(readBoolean());
+        Variable variable = new Variable();
+        variable.setName(readIdentifier());
+        variable.setInitialiser(readRequiredExpression());
+        st_variable.setVariable(variable);
+        nsClass.addMemberVariable(st_variable);
+      }
+      int methodsCount = readCount();
+      for (int i = 0; i < methodsCount; i++) {
+        ClassMethod st_method = new ClassMethod();
+        st_method.isStatic(readBoolean());
+        st_method.setName(readIdentifier());
+        st_method.setLambda(readLambda());
+        nsClass.addMemberMethod(st_method);
+      }
+      ClassConstructor constructor = null;
+      if (readBoolean()) {
+        constructor = new ClassConstructor();
+        constructor.setLambda(readLambda());
+      }
+      nsClass.setConstructor(constructor);
+      return nsClass;
+    }
+
+    private Statement readStatement () throws IOException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+      case S_BREAK:
+        return new BreakStatement(readPosition());
+
+      case S_CASE:
+        CaseStatement st_case = new CaseStatement(readPosition());
+        st_case.setTarget(readRequiredExpression());
+        int optionsCount = readCount();
+        for (int i = 0; i < optionsCount; i++) {
+          Expression condition = readExpression();
+          try {
+            st_case.pushOption(new CaseStatement.Option(condition, readCodeBlock()));
+          } catch (IllegalStateException ise) {
+            throw malformed(ise.getMessage());
+          }
+        }
+        return st_case;
+
+      case S_CLASS:
+        return new ClassStatement(readClass());
+
+      case S_CONDITIONAL_BRANCHES:
+        ConditionalBranchesStatement st_if = new ConditionalBranchesStatement(readPosition());
+        int branchesCount = readCount();
+        for (int i = 0; i < branchesCount; i++) {
+          Expression condition = readExpression();
+          CodeBlock body = readCodeBlock();
+          if (condition != null) {
+            st_if.addBranch(condition, body);
+          } else if (i == branchesCount - 1) {
+            st_if.setFinalBranch(body);
+          } else {
+            throw malformed("final branch is not last");
+          }
+        }
+        return st_if;
+
+      case S_CREATE:
+        Position createPosition = readPosition();
+        Identifier createIdentifier = readIdentifier();
+        return new CreateStatement(createPosition, createIdentifier, readRequiredExpression());
+
+      case S_EXPORT:
+        Position exportPosition = readPosition();
+        Expression exportValue = readRequiredExpression();
+        return new ExportStatement(exportPosition, exportValue, readOptionalIdentifier());
+
+      case S_EXPRESSION:
+        return new ExpressionStatement(readRequiredExpression());
+
+      case S_FOR:
+        ForStatement st_for = new ForStatement(readPosition());
+        int iterablesCount = readCount();
+        for (int i = 0; i < iterablesCount; i++) {
+          Identifier name = readIdentifier();
+          st_for.addIterable(new ForStatement.Iterable(name, readRequiredExpression()));
+        }
+        st_for.setBody(readCodeBlock());
+        return st_for;
+
+      case S_LOOP:
+        Position loopPosition = readPosition();
+        Expression loopCondition = readRequiredExpression();
+        CodeBlock loopBody = readCodeBlock();
+        LoopStatement.TestStage testStage = readEnum(TEST_STAGES);
+        return new LoopStatement(loopPosition, loopCondition, loopBody, testStage, readEnum(TEST_TYPES));
+
+      case S_NEXT:
+        return new NextStatement(readPosition());
+
+      case S_RETURN:
+        Position returnPosition = readPosition();
+        return new ReturnStatement(returnPosition, readExpression());
+
+      case S_SET:
+        Position setPosition = readPosition();
+        Expression setTarget = readRequiredExpression();
+        return new SetStatement(setPosition, setTarget, readRequiredExpression());
+
+      case S_SUPER:
+        Position superPosition = readPosition();
+        Reference parent = readBoolean() ? readReference() : null;
+        return new SuperStatement(superPosition, parent, readArguments());
+
+      case S_THROW:
+        ThrowStatement st_throw = new ThrowStatement(readPosition());
+        st_throw.setValue(readRequiredExpression());
+        return st_throw;
+
+      case S_TRY:
+        TryStatement st_try = new TryStatement(readPosition());
+        st_try.setTryBody(readCodeBlock());
+        int catchesCount = readCount();
+        for (int i = 0; i < catchesCount; i++) {
+          Set<Reference> types = null;
+          if (readBoolean()) {
+            types = new ROSet<>();
+            int typesCount = readCount();
+            for (int j = 0; j < typesCount; j++) {
+              types.add(readReference());
+            }
+          }
+          Identifier parameterName = readIdentifier();
+          st_try.addCatchBlock(new TryStatement.Catch(types, parameterName, readCodeBlock()));
+        }
+        return st_try;
+
+      default:
+        throw malformed("unknown statement tag " + tag);
+      }
+    }
+
+    private Expression readExpression () throws IOException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+      case NONE:
+        return null;
+
+      case E_ANONYMOUS_OBJECT:
+        AnonymousObjectExpression e_object = new AnonymousObjectExpression(readPosition());
+        int membersCount = readCount();
+        for (int i = 0; i < membersCount; i++) {
+          Identifier key = readIdentifier();
+          e_object.addMember(new AnonymousObjectExpression.Member(key, readRequiredExpression()));
+        }
+        return e_object;
+
+      case E_CALL:
+        Position callPosition = readPosition();
+        boolean callNullSafe = readBoolean();
+        Expression callee = readRequiredExpression();
+        return new CallExpression(callPosition, callNullSafe, callee, readArguments());
+
+      case E_CONDITIONAL_BRANCHES:
+        ConditionalBranchesExpression e_if = new ConditionalBranchesExpression(readPosition());
+        int branchesCount = readCount();
+        for (int i = 0; i < branchesCount; i++) {
+          Expression condition = readRequiredExpression();
+          e_if.addBranch(condition, readRequiredExpression());
+        }
+        e_if.setFinalBranch(readRequiredExpression());
+        return e_if;
+
+      case E_IDENTIFIER:
+        return new IdentifierExpression(readIdentifier());
+
+      case E_LAMBDA:
+        return readLambda();
+
+      case E_LIST:
+        ListExpression e_list = new ListExpression(readPosition());
+        int valuesCount = readCount();
+        for (int i = 0; i < valuesCount; i++) {
+          e_list.addValue(readRequiredExpression());
+        }
+        return e_list;
+
+      case E_LOOKUP:
+        Position lookupPosition = readPosition();
+        boolean lookupNullSafe = readBoolean();
+        Expression source = readRequiredExpression();
+        LookupExpression.Terms terms = new LookupExpression.Terms();
+        int termsCount = readCount();
+        for (int i = 0; i < termsCount; i++) {
+          terms.addTerm(readExpression());
+        }
+        return new LookupExpression(lookupPosition, lookupNullSafe, source, terms);
+
+      case E_MAP:
+        MapExpression e_map = new MapExpression(readPosition());
+        int entriesCount = readCount();
+        for (int i = 0; i < entriesCount; i++) {
+          Expression key = readRequiredExpression();
+          e_map.addMember(new MapExpression.Member(key, readRequiredExpression()));
+        }
+        return e_map;
+
+      case E_SELF:
+        return new SelfExpression(readPosition());
+
+      case E_BINARY:
+        Position binaryPosition = readPosition();
+        Expression lhs = readRequiredExpression();
+        Operator binaryOperator = readEnum(OPERATORS);
+        return new BinaryExpression(binaryPosition, lhs, binaryOperator, readRequiredExpression());
+
+      case E_UNARY:
+        Position unaryPosition = readPosition();
+        Operator unaryOperator = readEnum(OPERATORS);
+        return new UnaryExpression(unaryPosition, unaryOperator, readRequiredExpression());
+
+      case E_BOOLEAN:
+        Position booleanPosition = readPosition();
+        return new LiteralBooleanExpression(booleanPosition, readBoolean());
+
+      case E_NULL:
+        return new LiteralNullExpression(readPosition());
+
+      case E_NUMBER:
+        Position numberPosition = readPosition();
+        return new LiteralNumberExpression(numberPosition, in.readDouble());
+
+      case E_STRING:
+        Position stringPosition = readPosition();
+        return new LiteralStringExpression(stringPosition, readString());
+
+      default:
+        throw malformed("unknown expression tag " + tag);
+      }
+    }
+  }
+}
@@ -1,9 +1,16 @@
 package in.wilsonl.nanoscript.Parsing;
 
 import in.wilsonl.nanoscript.Syntax.Chunk;
+import in.wilsonl.nanoscript.Syntax.Statement.ImportStatement;
+
+import java.util.List;
 
 public class Parser {
   public static Chunk parse (Tokens tokens) {
     return Chunk.parseChunk(tokens);
   }
+
+  public static List<ImportStatement> parseImportHeaders (Tokens tokens) {
+    return Chunk.parseImportHeaders(tokens);
+  }
 }
@@ -20,6 +20,7 @@ public enum TokenType {
   T_KEYWORD_AND,
   T_KEYWORD_AS,
   T_KEYWORD_ASCENDS,
+  T_KEYWORD_AWAIT,
   T_KEYWORD_BEFORE,
   T_KEYWORD_BEGIN,
   T_KEYWORD_BREAK,
@@ -77,6 +78,7 @@ public enum TokenType {
   T_KEYWORD_WHEN,
   T_KEYWORD_WHILE,
   T_KEYWORD_WHILE_END,
+  T_KEYWORD_YIELD,
   T_LEFT_ARROW,
   T_LEFT_BRACE,
   T_LEFT_CHEVRON,
@@ -1,59 +1,130 @@
 package in.wilsonl.nanoscript.Parsing;
 
+import in.wilsonl.nanoscript.Exception.InternalStateError;
 import in.wilsonl.nanoscript.Exception.MalformedSyntaxException;
 import in.wilsonl.nanoscript.Exception.RequiredSyntaxNotFoundException;
 import in.wilsonl.nanoscript.Lexing.Lexer;
 import in.wilsonl.nanoscript.Utils.Matchable;
 import in.wilsonl.nanoscript.Utils.Position;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Set;
 
-public class Tokens implements Matchable<TokenType>, Iterable<Token> {
+public class Tokens implements Matchable<TokenType> {
+  /*
+   *
+   *  Tokens are kept in a ring buffer instead of being retained forever. Only
+   *  the tokens that can still be revisited are live: a small fixed window
+   *  behind the cursor for backUp() and peeking, plus everything since the
+   *  oldest outstanding mark. The buffer only grows when lookahead or a mark
+   *  needs more than it currently holds, so token memory is bounded by the
+   *  deepest backtrack rather than by the size of the source.
+   *
+   *  REMEMBER: This only bounds tokens. Code still holds the whole source as
+   *  chars (two bytes per character), and callers such as ImportGraph and
+   *  ChunkCache hold its bytes too, so parsing a file still needs memory in
+   *  proportion to its size, plus the AST that is built from it.
+   *
+   *  Positions are absolute token indices; a position p lives in
+   *  window[p & (window.length - 1)] while p >= lexedCount - window.length.
+   *
+   */
+  // How many already-accepted tokens backUp() is guaranteed to reach
+  private static final int BACKTRACK_WINDOW = 16;
 
   private final Lexer lexer;
-  private final List<Token> tokens = new ArrayList<>();
-  private int lastAcceptedPos = -1;
+  private Token[] window = new Token[32];
+  private long lexedCount = 0;
+  private long lastAcceptedPos = -1;
+  // Outstanding marks, oldest first; they must be released in reverse order
+  private long[] marks = new long[8];
+  private int markCount = 0;
 
   public Tokens (Lexer lexer) {
     this.lexer = lexer;
   }
 
+  private boolean isBuffered (long pos) {
+    return pos >= 0 && pos < lexedCount && pos >= lexedCount - window.length;
+  }
+
+  private Token tokenAt (long pos) {
+    if (!isBuffered(pos)) {
+      throw new InternalStateError("Token is no longer buffered");
+    }
+    return window[(int) (pos & (window.length - 1))];
+  }
+
+  private void ensureRoomForNextToken () {
+    long oldestNeeded = lastAcceptedPos - BACKTRACK_WINDOW;
+    if (markCount > 0 && marks[0] < oldestNeeded) {
+      oldestNeeded = marks[0];
+    }
+    // The next token overwrites the slot of (lexedCount - window.length)
+    if (lexedCount - window.length < oldestNeeded) {
+      return;
+    }
+    Token[] grown = new Token[window.length * 2];
+    for (long pos = Math.max(0, lexedCount - window.length); pos < lexedCount; pos++) {
+      grown[(int) (pos & (grown.length - 1))] = tokenAt(pos);
+    }
+    window = grown;
+  }
+
   private Token yieldNextToken () {
-    if (lastAcceptedPos < tokens.size() - 1) {
+    if (lastAcceptedPos < lexedCount - 1) {
       lastAcceptedPos++;
-      return tokens.get(lastAcceptedPos);
+      return tokenAt(lastAcceptedPos);
     }
     Token token;
     // noinspection StatementWithEmptyBody
     while ((token = lexer.lex()) == null) {}
-    tokens.add(token);
+    ensureRoomForNextToken();
+    window[(int) (lexedCount & (window.length - 1))] = token;
+    lexedCount++;
     lastAcceptedPos++;
     return token;
   }
 
-  public int getState () {
+  // Declares a point that the parser may later return to with reset(); the
+  // returned mark must be passed to reset() and release(). Every token from
+  // this point onwards stays buffered until the mark is released, so marks
+  // should be held for as short a time as possible
+  public long mark () {
+    if (markCount == marks.length) {
+      marks = Arrays.copyOf(marks, markCount * 2);
+    }
+    marks[markCount++] = lastAcceptedPos;
     return lastAcceptedPos;
   }
 
-  public void setState (int lastAcceptedPos) {
-    if (lastAcceptedPos < 0 || lastAcceptedPos >= tokens.size()) {
-      throw new IllegalArgumentException("Invalid state");
+  public void reset (long mark) {
+    if (markCount == 0 || mark < marks[0] || mark >= lexedCount) {
+      throw new InternalStateError("Reset to a mark that is not outstanding");
     }
-    this.lastAcceptedPos = lastAcceptedPos;
+    lastAcceptedPos = mark;
+  }
+
+  public void release (long mark) {
+    if (markCount == 0 || marks[markCount - 1] != mark) {
+      throw new InternalStateError("Marks must be released in reverse order");
+    }
+    markCount--;
   }
 
   public void backUp () {
-    lastAcceptedPos--;
+    long pos = lastAcceptedPos - 1;
+    if (pos != -1 && !isBuffered(pos)) {
+      throw new InternalStateError("Backed up past the token window");
+    }
+    lastAcceptedPos = pos;
   }
 
   private Position getPosition () {
     if (lastAcceptedPos < 0) {
       return new Position(1, 1);
     } else {
-      return tokens.get(lastAcceptedPos).getPosition();
+      return tokenAt(lastAcceptedPos).getPosition();
     }
   }
 
@@ -107,14 +178,17 @@ public class Tokens implements Matchable<TokenType>, Iterable<Token> {
       throw new IllegalArgumentException("Invalid offset");
     }
 
-    Token t = null;
-    for (int i = 0; i < offset; i++) {
-      t = yieldNextToken();
-    }
-    for (int i = 0; i < offset; i++) {
-      backUp();
+    long mark = mark();
+    try {
+      Token t = null;
+      for (int i = 0; i < offset; i++) {
+        t = yieldNextToken();
+      }
+      return t;
+    } finally {
+      reset(mark);
+      release(mark);
     }
-    return t;
   }
 
   public Token peekIfNext (TokenType type) {
@@ -172,9 +246,4 @@ public class Tokens implements Matchable<TokenType>, Iterable<Token> {
   public void matcherReverse () {
     backUp();
   }
-
-  @Override
-  public Iterator<Token> iterator () {
-    return tokens.iterator();
-  }
 }
@@ -0,0 +1,179 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Exception.CyclicImportException;
+import in.wilsonl.nanoscript.Exception.NoSuchModuleException;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Exports;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Runs scripts, reusing compiled modules between runs through a
+ * {@link ModuleCache}.
+ * An engine is thread-safe, and can be shared by any number of threads, each
+ * running scripts in their own {@link ExecutionContext}.
+ * The script being run is always evaluated afresh; whether the modules it
+ * imports are too is decided by the engine's {@link ModulePolicy}.
+ */
+public class ScriptEngine {
+  private final ModuleCache moduleCache;
+  private final ModulePolicy modulePolicy;
+  private final ForkJoinPool parsePool;
+  // Only used with ModulePolicy.SHARED
+  private final Map<File, SharedModule> sharedModules = new ConcurrentHashMap<>();
+  // The shared module each thread is blocked on, if any; guarded by itself
+  private final Map<Thread, SharedModule> awaiting = new HashMap<>();
+
+  public ScriptEngine (ModuleCache moduleCache, ModulePolicy modulePolicy, ForkJoinPool parsePool) {
+    this.moduleCache = moduleCache;
+    this.modulePolicy = modulePolicy;
+    this.parsePool = parsePool;
+  }
+
+  public ScriptEngine (ModuleCache moduleCache, ModulePolicy modulePolicy) {
+    this(moduleCache, modulePolicy, ForkJoinPool.commonPool());
+  }
+
+  public ScriptEngine () {
+    this(new ModuleCache(), ModulePolicy.PER_RUN);
+  }
+
+  public ModuleCache getModuleCache () {
+    return moduleCache;
+  }
+
+  public ModulePolicy getModulePolicy () {
+    return modulePolicy;
+  }
+
+  /**
+   * Evaluates a script and everything it imports.
+   *
+   * @param path       the path of the script, resolved like an import name.
+   * @param relativeTo the directory to resolve {@code path} against.
+   * @return the script's exports.
+   * @throws CyclicImportException if the script imports itself, directly or
+   *                               indirectly.
+   * @throws FileNotFoundException if the script or an imported module cannot be read.
+   * @throws NoSuchModuleException if {@code path} cannot be resolved.
+   */
+  public Exports run (String path, File relativeTo) throws CyclicImportException, FileNotFoundException, NoSuchModuleException {
+    return newContext().run(path, relativeTo);
+  }
+
+  /**
+   * Creates a context for running scripts with this engine.
+   * Contexts are cheap, and should not be shared between threads.
+   *
+   * @return a new, empty context.
+   */
+  public ExecutionContext newContext () {
+    return new ExecutionContext(this);
+  }
+
+  ForkJoinPool getParsePool () {
+    return parsePool;
+  }
+
+  // Returns the shared exports of the module at <filePath>, evaluating it with
+  // <evaluator> if it hasn't been yet or if <compiled> is a newer version
+  //
+  // Each module is evaluated by the first context to need it, and any other
+  // context needing it meanwhile waits for that evaluation only, so unrelated
+  // modules are evaluated in parallel. If the evaluation fails, nothing is
+  // shared and each waiting context tries again itself, as if it had been
+  // first.
+  //
+  // REMEMBER: Only the evaluating context can detect an import cycle through
+  // its own modules, so before waiting, a context checks that the evaluating
+  // one isn't (transitively) waiting for it; otherwise two contexts that
+  // started at different ends of a cycle would wait for each other forever
+  Exports getOrEvaluateShared (File filePath, ChunkNode compiled, Supplier<Exports> evaluator) throws CyclicImportException {
+    while (true) {
+      SharedModule created = new SharedModule(filePath, compiled, Thread.currentThread());
+      SharedModule shared = sharedModules.compute(filePath, (file, existing) -> existing != null && existing.compiled == compiled ? existing : created);
+
+      if (shared == created) {
+        Exports exports;
+        try {
+          exports = evaluator.get();
+        } catch (RuntimeException | Error e) {
+          sharedModules.remove(filePath, created);
+          created.exports.completeExceptionally(e);
+          throw e;
+        }
+        created.exports.complete(exports);
+        return exports;
+      }
+
+      Exports exports = await(shared);
+      if (exports != null) {
+        return exports;
+      }
+    }
+  }
+
+  // Returns null if <shared> failed to evaluate
+  private Exports await (SharedModule shared) throws CyclicImportException {
+    if (shared.exports.isDone()) {
+      return shared.exports.isCompletedExceptionally() ? null : shared.exports.join();
+    }
+
+    Thread current = Thread.currentThread();
+    synchronized (awaiting) {
+      List<File> cycle = new ArrayList<>();
+      for (SharedModule next = shared; next != null; next = awaiting.get(next.evaluator)) {
+        cycle.add(next.file);
+        if (next.evaluator == current) {
+          // <next> is being evaluated by this context, and imports <shared>
+          cycle.add(0, next.file);
+          throw new CyclicImportException(cycle.toArray(new File[0]));
+        }
+      }
+      awaiting.put(current, shared);
+    }
+    try {
+      return shared.exports.join();
+    } catch (CompletionException e) {
+      return null;
+    } finally {
+      synchronized (awaiting) {
+        awaiting.remove(current);
+      }
+    }
+  }
+
+  public enum ModulePolicy {
+    // Imported modules are evaluated once and their exports (including any
+    // state they hold) are reused by every context, until the module's
+    // source changes or it is evicted from the ModuleCache
+    SHARED,
+    // Imported modules are evaluated again in every context; only their
+    // compiled form is reused
+    PER_RUN
+  }
+
+  private static class SharedModule {
+    private final File file;
+    private final ChunkNode compiled;
+    // The thread of the context evaluating the module
+    private final Thread evaluator;
+    private final CompletableFuture<Exports> exports = new CompletableFuture<>();
+
+    private SharedModule (File file, ChunkNode compiled, Thread evaluator) {
+      this.file = file;
+      this.compiled = compiled;
+      this.evaluator = evaluator;
+    }
+  }
+}
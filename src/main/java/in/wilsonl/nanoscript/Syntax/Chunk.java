@@ -17,8 +17,8 @@ public class Chunk {
   public static Chunk parseChunk (Tokens tokens) {
     Chunk chunk = new Chunk();
 
-    while (tokens.peekType() == T_KEYWORD_FROM) {
-      chunk.addImport(ImportStatement.parseImportStatement(tokens));
+    for (ImportStatement importStatement : parseImportHeaders(tokens)) {
+      chunk.addImport(importStatement);
     }
 
     chunk.setCodeBlock(CodeBlock.parseCodeBlock(tokens, new AcceptableTokenTypes()));
@@ -26,6 +26,16 @@ public class Chunk {
     return chunk;
   }
 
+  // Only parses the leading import statements, leaving <tokens> at the start of
+  // the body; used to discover dependencies without parsing the whole chunk
+  public static List<ImportStatement> parseImportHeaders (Tokens tokens) {
+    List<ImportStatement> imports = new ROList<>();
+    while (tokens.peekType() == T_KEYWORD_FROM) {
+      imports.add(ImportStatement.parseImportStatement(tokens));
+    }
+    return imports;
+  }
+
   public List<ImportStatement> getImports () {
     return imports;
   }
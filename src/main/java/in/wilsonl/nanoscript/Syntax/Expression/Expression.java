@@ -40,7 +40,10 @@ public abstract class Expression {
         break;
       }
       TokenType nextTokenType = nextToken.getType();
-      Operator nextTokenAsOperator = Operator.isOperatorToken(nextTokenType) ?
+      boolean isOperatorToken = Operator.isOperatorToken(nextTokenType);
+      // The operator is given back if it turns out to start the next statement
+      long operatorMark = isOperatorToken ? tokens.mark() : -1;
+      Operator nextTokenAsOperator = isOperatorToken ?
         Operator.parseOperator(tokens) :
         null;
       // Last pushed unit type could also be null
@@ -61,11 +64,18 @@ public abstract class Expression {
           (lastPushedUnitType == EXPRESSION ||
            (lastPushedAsOperator != null && lastPushedAsOperator.getArity() == UNARY &&
             lastPushedAsOperator.getAssociativity() == LEFT))) {
+        if (isOperatorToken) {
+          tokens.reset(operatorMark);
+          tokens.release(operatorMark);
+        }
         if (breakOn != null && !breakOn.has(nextTokenType)) {
           throw tokens.constructMalformedSyntaxException("Unexpected " + nextTokenType);
         }
         done = true;
       } else {
+        if (isOperatorToken) {
+          tokens.release(operatorMark);
+        }
         if (nextTokenAsOperator != null) {
           Object additionalData;
 
@@ -98,6 +98,8 @@ public enum Operator {
     root.addSequence(CALL, T_CALL);
     root.addSequence(NULL_CALL, T_QUESTION_AND_LEFT_PARENTHESIS);
 
+    root.addSequence(AWAIT, T_KEYWORD_AWAIT);
+
     root.addSequence(BIT_NOT, T_TILDE);
 
     root.addSequence(MEASURE, T_HASH);
@@ -142,6 +144,8 @@ public enum Operator {
 
     root.addSequence(NULL_COALESCING, T_QUESTION_AND_QUESTION);
 
+    root.addSequence(YIELD, T_KEYWORD_YIELD);
+
     return root;
   }
 
@@ -68,6 +68,10 @@ public class Reference {
     return parts;
   }
 
+  public Position getPosition () {
+    return position;
+  }
+
   public void pushPart (Identifier part) {
     parts.add(part);
   }
@@ -8,7 +8,14 @@ import in.wilsonl.nanoscript.Utils.Position;
 import static in.wilsonl.nanoscript.Parsing.TokenType.*;
 
 public class ReturnStatement extends Statement {
-  private static final AcceptableTokenTypes DELIMITER = new AcceptableTokenTypes(T_KEYWORD_ENDIF, T_KEYWORD_CASE_END, T_KEYWORD_FOR_END, T_KEYWORD_FUNCTION_END, T_KEYWORD_METHOD_END);
+  // A return statement is always the last statement in its code block, so it
+  // is followed by whatever can end or split a code block
+  private static final AcceptableTokenTypes DELIMITER = new AcceptableTokenTypes(
+    T_KEYWORD_ENDIF, T_KEYWORD_ELSEIF, T_KEYWORD_OTHERWISE,
+    T_KEYWORD_CASE_END, T_KEYWORD_WHEN,
+    T_KEYWORD_FOR_END, T_KEYWORD_WHILE_END, T_KEYWORD_UNTIL_END,
+    T_KEYWORD_CATCH, T_KEYWORD_TRY_END,
+    T_KEYWORD_FUNCTION_END, T_KEYWORD_METHOD_END, T_KEYWORD_CONSTRUCTOR_END);
   private final Expression value; // Can be null
 
   public ReturnStatement (Position position, Expression value) {
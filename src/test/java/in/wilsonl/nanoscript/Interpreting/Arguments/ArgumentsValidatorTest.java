@@ -13,7 +13,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static in.wilsonl.nanoscript.Interpreting.Data.NSBoolean.FALSE;
 import static in.wilsonl.nanoscript.Interpreting.Data.NSBoolean.TRUE;
+import static in.wilsonl.nanoscript.Interpreting.Data.NSNull.NULL;
 import static org.junit.Assert.assertTrue;
 
 public class ArgumentsValidatorTest {
@@ -77,6 +79,26 @@ public class ArgumentsValidatorTest {
     );
   }
 
+  @Test
+  public void testOptionalParameters () {
+    // fn (a, opt b, opt c, d)
+    test(new Builder()
+      .addParameter(false, false, "a")
+      .addParameter(true, false, "b")
+      .addParameter(true, false, "c")
+      .addParameter(false, false, "d")
+
+      .addArgument(false, TRUE)
+      .addArgument(false, FALSE)
+      .addArgument(false, TRUE)
+
+      .addExpected("a", TRUE)
+      .addExpected("b", FALSE)
+      .addExpected("c", NULL)
+      .addExpected("d", TRUE)
+    );
+  }
+
   @Test
   public void testFullFat () {
     // fn (a, b, c, opt d, opt e, opt f, opt ...g, opt h, opt i, opt j, k, l, m)
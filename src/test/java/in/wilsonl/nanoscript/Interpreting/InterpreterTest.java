@@ -1,5 +1,8 @@
 package in.wilsonl.nanoscript.Interpreting;
 
+import in.wilsonl.nanoscript.Compiling.CompiledChunk;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
 import in.wilsonl.nanoscript.Lexing.Code;
 import in.wilsonl.nanoscript.Lexing.Lexer;
 import in.wilsonl.nanoscript.Parsing.Parser;
@@ -7,7 +10,13 @@ import in.wilsonl.nanoscript.Parsing.Tokens;
 import in.wilsonl.nanoscript.Syntax.Chunk;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class InterpreterTest {
   private InputStream getUTF8TextResource (String path) {
@@ -16,16 +25,141 @@ public class InterpreterTest {
   }
 
   private void testInterpreter (InputStream testCode) {
+    testInterpreter(testCode, Interpreter.Engine.TREE_WALKING);
+  }
+
+  private void testInterpreter (InputStream testCode, Interpreter.Engine engine) {
     Code code = new Code(testCode);
 
     Lexer lexer = new Lexer(code);
     Tokens tokens = new Tokens(lexer);
     Chunk parsed = Parser.parse(tokens);
-    Interpreter.interpret(null, parsed);
+    Interpreter.interpret(null, parsed, engine);
+  }
+
+  // Runs one compiled chunk many times, as ScriptEngine does with modules
+  private void testClassesShareShapesAcrossRuns (Interpreter.Engine engine) {
+    String source = "class Point begin\n" +
+                    "  variable x as 1\n" +
+                    "  variable y as 2\n" +
+                    "endclass\n" +
+                    "export Point() as value\n";
+    Chunk parsed = Parser.parse(new Tokens(new Lexer(new Code(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))))));
+    Supplier<Exports> run;
+    if (engine == Interpreter.Engine.BYTECODE) {
+      CompiledChunk compiled = Interpreter.compileBytecode(parsed);
+      run = () -> Interpreter.interpret(null, compiled);
+    } else {
+      ChunkNode compiled = Interpreter.compile(parsed);
+      run = () -> Interpreter.interpret(null, compiled);
+    }
+
+    NSObject first = (NSObject) run.get().get("value");
+    for (int i = 0; i < 10; i++) {
+      NSObject point = (NSObject) run.get().get("value");
+      assertNotSame(first.getConstructor(), point.getConstructor());
+      // Otherwise, every member site would see a new shape on each run
+      assertSame(first.getShape(), point.getShape());
+    }
   }
 
   @Test
   public void testSyntaxInterpreting () {
     testInterpreter(getUTF8TextResource("code/syntax.nanoscript"));
   }
+
+  @Test
+  public void testRecursionInterpreting () {
+    testInterpreter(getUTF8TextResource("code/recursion.nanoscript"));
+  }
+
+  @Test
+  public void testTasksInterpreting () {
+    testInterpreter(getUTF8TextResource("code/tasks.nanoscript"));
+  }
+
+  @Test
+  public void testGeneratorsInterpreting () {
+    testInterpreter(getUTF8TextResource("code/generators.nanoscript"));
+  }
+
+  @Test
+  public void testCollectionsInterpreting () {
+    testInterpreter(getUTF8TextResource("code/collections.nanoscript"));
+  }
+
+  @Test
+  public void testHotFunctionsInterpreting () {
+    testInterpreter(getUTF8TextResource("code/hot.nanoscript"));
+  }
+
+  @Test
+  public void testArithmeticInterpreting () {
+    testInterpreter(getUTF8TextResource("code/arithmetic.nanoscript"));
+  }
+
+  @Test
+  public void testBitwiseInterpreting () {
+    testInterpreter(getUTF8TextResource("code/bitwise.nanoscript"));
+  }
+
+  @Test
+  public void testLoopsInterpreting () {
+    testInterpreter(getUTF8TextResource("code/loops.nanoscript"));
+  }
+
+  @Test
+  public void testSyntaxBytecode () {
+    testInterpreter(getUTF8TextResource("code/syntax.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testRecursionBytecode () {
+    testInterpreter(getUTF8TextResource("code/recursion.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testTasksBytecode () {
+    testInterpreter(getUTF8TextResource("code/tasks.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testGeneratorsBytecode () {
+    testInterpreter(getUTF8TextResource("code/generators.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testCollectionsBytecode () {
+    testInterpreter(getUTF8TextResource("code/collections.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testHotFunctionsBytecode () {
+    testInterpreter(getUTF8TextResource("code/hot.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testArithmeticBytecode () {
+    testInterpreter(getUTF8TextResource("code/arithmetic.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testBitwiseBytecode () {
+    testInterpreter(getUTF8TextResource("code/bitwise.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testLoopsBytecode () {
+    testInterpreter(getUTF8TextResource("code/loops.nanoscript"), Interpreter.Engine.BYTECODE);
+  }
+
+  @Test
+  public void testClassesShareShapesAcrossRunsInterpreting () {
+    testClassesShareShapesAcrossRuns(Interpreter.Engine.TREE_WALKING);
+  }
+
+  @Test
+  public void testClassesShareShapesAcrossRunsBytecode () {
+    testClassesShareShapesAcrossRuns(Interpreter.Engine.BYTECODE);
+  }
 }
@@ -0,0 +1,169 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Compiling.CompiledChunk;
+import in.wilsonl.nanoscript.Interpreting.Arguments.NSArgument;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.ChunkNode;
+import in.wilsonl.nanoscript.Interpreting.Exports;
+import in.wilsonl.nanoscript.Interpreting.Interpreter;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Parsing.Parser;
+import in.wilsonl.nanoscript.Parsing.Tokens;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/*
+ *
+ *  Runs the whole-program benchmarks in src/test/resources/benchmarks.
+ *
+ *  Every program exports:
+ *    benchmark: fn (size), which does the work and returns a result;
+ *    verify: fn (result, size), which returns whether the result is correct;
+ *    size: the size to run the benchmark at.
+ *
+ *  An iteration interprets the compiled program afresh (so classes and
+ *  globals are created again, like a real script run) and then calls its
+ *  `benchmark` and `verify` exports. Each iteration's time is printed, which
+ *  shows the warmup curve; the second half of the iterations is treated as
+ *  the steady state, and its median and mean time and allocation rate are
+ *  reported at the end.
+ *
+ *  Programs are run by the tree walker, unless an engine is given (see
+ *  Interpreter.Engine, e.g. `bytecode`).
+ *
+ *  Build with `mvn test-compile`, then run:
+ *    java -cp target/classes:target/test-classes in.wilsonl.nanoscript.MacroBenchmarkRunner [iterations] [engine] [program...]
+ *
+ */
+public class MacroBenchmarkRunner {
+  static final String[] PROGRAMS = {"richards", "deltablue", "nbody", "havlak", "json", "strings", "sort", "classes"};
+  private static final int DEFAULT_ITERATIONS = 40;
+
+  // This is a static class
+  private MacroBenchmarkRunner () {
+  }
+
+  // Returns something that interprets the compiled program each time it is called
+  static Supplier<Exports> compile (String program, Interpreter.Engine engine) {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    InputStream source = classLoader.getResourceAsStream("benchmarks/" + program + ".nanoscript");
+    if (source == null) {
+      throw new IllegalArgumentException("No such benchmark program: " + program);
+    }
+    Chunk chunk = Parser.parse(new Tokens(new Lexer(new Code(source))));
+
+    switch (engine) {
+    case TREE_WALKING:
+      ChunkNode compiled = Interpreter.compile(chunk);
+      return () -> Interpreter.interpret(null, compiled);
+
+    case BYTECODE:
+      CompiledChunk bytecode = Interpreter.compileBytecode(chunk);
+      return () -> Interpreter.interpret(null, bytecode);
+
+    default:
+      throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+  }
+
+  // Runs one iteration of a program at <size>, or at the size it exports if
+  // <size> is null, and returns whether its result was verified
+  static boolean runIteration (Supplier<Exports> compiled, NSNumber size) {
+    Exports exports = compiled.get();
+    if (size == null) {
+      size = (NSNumber) exports.get("size");
+    }
+    NSData result = exports.get("benchmark").nsCall(NSArgument.buildArguments(size));
+    return exports.get("verify").nsCall(NSArgument.buildArguments(result, size)).nsToBoolean().isTrue();
+  }
+
+  // Returns how many bytes the current thread has allocated so far, or -1 if
+  // the JVM can't tell
+  private static long allocatedBytes (ThreadMXBean threads) {
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static void runProgram (String program, Interpreter.Engine engine, int iterations) {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Supplier<Exports> compiled = compile(program, engine);
+    long[] times = new long[iterations];
+    long[] allocations = new long[iterations];
+
+    System.out.printf("%s%n  warmup (ms):", program);
+    for (int i = 0; i < iterations; i++) {
+      long allocatedBefore = allocatedBytes(threads);
+      long start = System.nanoTime();
+      boolean verified = runIteration(compiled, null);
+      times[i] = System.nanoTime() - start;
+      allocations[i] = allocatedBytes(threads) - allocatedBefore;
+      if (!verified) {
+        throw new AssertionError(program + " produced an incorrect result in iteration " + i);
+      }
+      System.out.printf(" %.1f", times[i] / 1e6);
+    }
+    System.out.println();
+
+    int steadyStart = iterations / 2;
+    long[] steady = Arrays.copyOfRange(times, steadyStart, iterations);
+    long steadyTotal = 0;
+    long steadyAllocated = 0;
+    for (int i = steadyStart; i < iterations; i++) {
+      steadyTotal += times[i];
+      steadyAllocated += allocations[i];
+    }
+    Arrays.sort(steady);
+    System.out.printf("  steady state: median %.2f ms, mean %.2f ms%n", steady[steady.length / 2] / 1e6, steadyTotal / 1e6 / steady.length);
+    if (allocatedBytes(threads) >= 0) {
+      System.out.printf("  allocation: %.1f MB per iteration, %.0f MB/s%n", steadyAllocated / 1048576.0 / steady.length, steadyAllocated / 1048576.0 / (steadyTotal / 1e9));
+    } else {
+      System.out.println("  allocation: not supported by this JVM");
+    }
+  }
+
+  private static boolean isEngine (String arg) {
+    for (Interpreter.Engine e : Interpreter.Engine.values()) {
+      if (e.name().equalsIgnoreCase(arg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static void main (String[] args) {
+    int iterations = DEFAULT_ITERATIONS;
+    Interpreter.Engine engine = Interpreter.Engine.TREE_WALKING;
+    List<String> programs = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.matches("\\d+")) {
+        iterations = Integer.parseInt(arg);
+      } else if (isEngine(arg)) {
+        engine = Interpreter.Engine.valueOf(arg.toUpperCase(Locale.ROOT));
+      } else {
+        programs.add(arg);
+      }
+    }
+    if (programs.isEmpty()) {
+      programs.addAll(Arrays.asList(PROGRAMS));
+    }
+    if (iterations < 2) {
+      throw new IllegalArgumentException("At least two iterations are needed");
+    }
+
+    for (String program : programs) {
+      runProgram(program, engine, iterations);
+    }
+  }
+}
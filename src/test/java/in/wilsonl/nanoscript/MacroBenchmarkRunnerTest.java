@@ -0,0 +1,27 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Interpreter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class MacroBenchmarkRunnerTest {
+  // Runs every benchmark program once at a small size, so that a change that
+  // breaks one is caught without having to run the benchmarks
+  private void testPrograms (Interpreter.Engine engine) {
+    for (String program : MacroBenchmarkRunner.PROGRAMS) {
+      assertTrue(program, MacroBenchmarkRunner.runIteration(MacroBenchmarkRunner.compile(program, engine), NSNumber.from(2)));
+    }
+  }
+
+  @Test
+  public void testProgramsProduceVerifiedResults () {
+    testPrograms(Interpreter.Engine.TREE_WALKING);
+  }
+
+  @Test
+  public void testProgramsProduceVerifiedResultsWithBytecode () {
+    testPrograms(Interpreter.Engine.BYTECODE);
+  }
+}
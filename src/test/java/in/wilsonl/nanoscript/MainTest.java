@@ -1,5 +1,6 @@
 package in.wilsonl.nanoscript;
 
+import in.wilsonl.nanoscript.Exception.ExceptionFromSource;
 import org.junit.Test;
 
 public class MainTest {
@@ -7,4 +8,14 @@ public class MainTest {
   public void test () {
     Main.main(new String[]{"src/test/resources/code/syntax.nanoscript"});
   }
+
+  @Test
+  public void testImportGraph () {
+    Main.main(new String[]{"src/test/resources/code/imports/main.nanoscript"});
+  }
+
+  @Test(expected = ExceptionFromSource.class)
+  public void testCyclicImport () {
+    Main.main(new String[]{"src/test/resources/code/imports/cycle_a.nanoscript"});
+  }
 }
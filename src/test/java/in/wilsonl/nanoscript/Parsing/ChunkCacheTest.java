@@ -0,0 +1,164 @@
+package in.wilsonl.nanoscript.Parsing;
+
+import in.wilsonl.nanoscript.Exception.SyntaxException;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ChunkCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private void writeSource (File file, String source) throws Exception {
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEntryIsWrittenAndReused () throws Exception {
+    File cacheDir = temp.newFolder("cache");
+    File source = temp.newFile("a.nanoscript");
+    writeSource(source, "create a as 1\ncreate b as a + 2\n");
+
+    Chunk parsed = new ChunkCache(cacheDir).load(source);
+    assertNotNull(parsed);
+    assertEquals(1, cacheDir.list().length);
+
+    // A fresh cache over the same directory must decode the entry
+    Chunk cached = new ChunkCache(cacheDir).load(source);
+    assertNotNull(cached);
+    assertEquals(parsed.getCodeBlock().getBody().size(), cached.getCodeBlock().getBody().size());
+  }
+
+  @Test(expected = SyntaxException.class)
+  public void testChangedSourceIsParsedAgain () throws Exception {
+    File cacheDir = temp.newFolder("cache");
+    File source = temp.newFile("a.nanoscript");
+    writeSource(source, "create a as 1\n");
+    long mtime = source.lastModified();
+    new ChunkCache(cacheDir).load(source);
+
+    // Same mtime but different contents must still miss
+    writeSource(source, "create = as 1\n");
+    source.setLastModified(mtime);
+    new ChunkCache(cacheDir).load(source);
+  }
+
+  @Test
+  public void testMissingDirectoryIsCreatedOwnerOnly () throws Exception {
+    boolean posix = temp.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+    Assume.assumeTrue(posix);
+    File cacheDir = new File(temp.getRoot(), "missing" + File.separator + "cache");
+    File source = temp.newFile("a.nanoscript");
+    writeSource(source, "create a as 1\n");
+
+    new ChunkCache(cacheDir).load(source);
+    assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDir.toPath())));
+    assertEquals(1, cacheDir.list().length);
+  }
+
+  @Test
+  public void testDirectoryWritableByOthersIsNotUsed () throws Exception {
+    boolean posix = temp.getRoot().toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+    Assume.assumeTrue(posix);
+    File source = temp.newFile("a.nanoscript");
+    writeSource(source, "create a as 1\n");
+
+    for (PosixFilePermission permission : new PosixFilePermission[]{PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE}) {
+      File cacheDir = temp.newFolder(permission.name());
+      Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwx------");
+      permissions.add(permission);
+      Files.setPosixFilePermissions(cacheDir.toPath(), permissions);
+
+      assertNotNull(new ChunkCache(cacheDir).load(source));
+      assertEquals(0, cacheDir.list().length);
+    }
+  }
+
+  @Test
+  public void testEncodingRoundTrips () throws Exception {
+    String[] scripts = {
+      "code/syntax.nanoscript",
+      "code/collections.nanoscript",
+      "code/imports/main.nanoscript",
+      "benchmarks/richards.nanoscript",
+      "benchmarks/deltablue.nanoscript",
+      "benchmarks/json.nanoscript",
+    };
+    for (String script : scripts) {
+      Chunk parsed = Parser.parse(new Tokens(new Lexer(new Code(getClass().getClassLoader().getResourceAsStream(script)))));
+
+      ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+      ChunkEncoding.write(parsed, encoded);
+      Chunk decoded = ChunkEncoding.read(new ByteArrayInputStream(encoded.toByteArray()));
+
+      // Every field is written, so decoding and encoding again must be lossless
+      ByteArrayOutputStream reencoded = new ByteArrayOutputStream();
+      ChunkEncoding.write(decoded, reencoded);
+      assertArrayEquals(script, encoded.toByteArray(), reencoded.toByteArray());
+      assertEquals(script, parsed.getImports().size(), decoded.getImports().size());
+      assertEquals(script, parsed.getCodeBlock().getBody().size(), decoded.getCodeBlock().getBody().size());
+    }
+  }
+
+  @Test
+  public void testCorruptEntryIsParsedAgain () throws Exception {
+    File cacheDir = temp.newFolder("cache");
+    File source = temp.newFile("a.nanoscript");
+    writeSource(source, "create a as 1\n");
+    new ChunkCache(cacheDir).load(source);
+
+    File entry = cacheDir.listFiles()[0];
+    byte[] bytes = Files.readAllBytes(entry.toPath());
+    // Keep the header valid, but damage the encoded chunk
+    Arrays.fill(bytes, bytes.length - 8, bytes.length, (byte) 0xff);
+    Files.write(entry.toPath(), bytes);
+
+    assertNotNull(new ChunkCache(cacheDir).load(source));
+  }
+
+  @Test
+  public void testCachingIsOptIn () {
+    String previousEnabled = System.getProperty("nanoscript.astCache");
+    String previousDir = System.getProperty("nanoscript.astCache.dir");
+    System.clearProperty("nanoscript.astCache.dir");
+    try {
+      System.clearProperty("nanoscript.astCache");
+      assertNull(ChunkCache.fromSystemProperties().getDirectory());
+
+      // Only check the location, so that nothing is written to the real home directory
+      System.setProperty("nanoscript.astCache", "true");
+      String home = System.getProperty("user.home");
+      assertEquals(new File(home, ".cache" + File.separator + "nanoscript"), ChunkCache.fromSystemProperties().getDirectory());
+    } finally {
+      restoreProperty("nanoscript.astCache", previousEnabled);
+      restoreProperty("nanoscript.astCache.dir", previousDir);
+    }
+  }
+
+  private void restoreProperty (String name, String value) {
+    if (value == null) {
+      System.clearProperty(name);
+    } else {
+      System.setProperty(name, value);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package in.wilsonl.nanoscript.Parsing;
+
+import in.wilsonl.nanoscript.Exception.InternalStateError;
+import in.wilsonl.nanoscript.Lexing.Code;
+import in.wilsonl.nanoscript.Lexing.Lexer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokensTest {
+  private Tokens tokensOf (int identifierCount) {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < identifierCount; i++) {
+      source.append("id").append(i).append(' ');
+    }
+    return new Tokens(new Lexer(new Code(source.toString())));
+  }
+
+  @Test
+  public void testResetToMarkBeyondBacktrackWindow () {
+    Tokens tokens = tokensOf(1000);
+    tokens.require(TokenType.T_IDENTIFIER);
+
+    long mark = tokens.mark();
+    for (int i = 1; i < 500; i++) {
+      assertEquals("id" + i, tokens.accept().getValue());
+    }
+    tokens.reset(mark);
+    assertEquals("id1", tokens.accept().getValue());
+    tokens.release(mark);
+
+    assertEquals("id2", tokens.peek(1).getValue());
+    assertEquals("id400", tokens.peek(399).getValue());
+    assertEquals("id2", tokens.accept().getValue());
+  }
+
+  @Test(expected = InternalStateError.class)
+  public void testBackUpPastWindowWithoutMark () {
+    Tokens tokens = tokensOf(1000);
+    for (int i = 0; i < 500; i++) {
+      tokens.skip();
+    }
+    for (int i = 0; i < 500; i++) {
+      tokens.backUp();
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package in.wilsonl.nanoscript;
+
+import in.wilsonl.nanoscript.Exception.CyclicImportException;
+import in.wilsonl.nanoscript.Exception.ExceptionFromSource;
+import in.wilsonl.nanoscript.Interpreting.Data.NSData;
+import in.wilsonl.nanoscript.Interpreting.Data.NSNumber;
+import in.wilsonl.nanoscript.Interpreting.Data.NSObject;
+import in.wilsonl.nanoscript.Interpreting.Evaluator.MemberInlineCache;
+import in.wilsonl.nanoscript.Interpreting.VMError;
+import in.wilsonl.nanoscript.Parsing.ChunkCache;
+import in.wilsonl.nanoscript.Syntax.Chunk;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptEngineTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File writeSource (String name, String source) throws Exception {
+    File file = new File(temp.getRoot(), name);
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    return file.getCanonicalFile();
+  }
+
+  private long runCounter (ScriptEngine engine) throws Exception {
+    NSData value = engine.run("main.nanoscript", temp.getRoot()).get("value");
+    return ((NSNumber) value).toInt();
+  }
+
+  private void writeCounterScripts () throws Exception {
+    writeSource("counter.nanoscript", "create count as 0\n" +
+                                      "export fn () set count to count + 1 return count endfn as increment\n");
+    writeSource("main.nanoscript", "from `counter.nanoscript` import increment\n" +
+                                   "export increment() as value\n");
+  }
+
+  @Test
+  public void testSharedModulesKeepStateBetweenRuns () throws Exception {
+    writeCounterScripts();
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.SHARED);
+    assertEquals(1, runCounter(engine));
+    assertEquals(2, runCounter(engine));
+  }
+
+  @Test
+  public void testPerRunModulesAreEvaluatedEachRun () throws Exception {
+    writeCounterScripts();
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.PER_RUN);
+    assertEquals(1, runCounter(engine));
+    assertEquals(1, runCounter(engine));
+  }
+
+  @Test
+  public void testModuleCacheEvictionAndInvalidation () throws Exception {
+    ModuleCache cache = new ModuleCache(2, new ChunkCache(null));
+    File a = writeSource("a.nanoscript", "create a as 1\n");
+    File b = writeSource("b.nanoscript", "create b as 1\n");
+    File c = writeSource("c.nanoscript", "create c as 1\n");
+
+    Chunk parsedA = cache.get(a);
+    assertSame(parsedA, cache.get(a));
+    // Compiled on first use, and then reused
+    assertSame(cache.getCompiled(a), cache.getCompiled(a));
+    cache.get(b);
+    // <a> was used more recently than <b>, so <b> is evicted
+    cache.get(a);
+    cache.get(c);
+    assertEquals(2, cache.size());
+    assertSame(parsedA, cache.get(a));
+
+    writeSource("a.nanoscript", "create a as 1000\n");
+    assertNotSame(parsedA, cache.get(a));
+  }
+
+  @Test
+  public void testContextsRunConcurrently () throws Exception {
+    writeCounterScripts();
+    writeSource("tally.nanoscript", "from `counter.nanoscript` import increment\n" +
+                                    "class Tally begin\n" +
+                                    "  variable total as 0\n" +
+                                    "  method add: (n) set self.total to self.total + n endmethod\n" +
+                                    "endclass\n" +
+                                    "create t as Tally()\n" +
+                                    "for i in range(100) do t.add(increment()) endfor\n" +
+                                    "export t.total as value\n");
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.PER_RUN);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        results.add(executor.submit(() -> {
+          ExecutionContext context = engine.newContext();
+          NSData value = context.run("tally.nanoscript", temp.getRoot()).get("value");
+          return ((NSNumber) value).toInt();
+        }));
+      }
+      for (Future<Long> result : results) {
+        // Each context has its own counter, so it always sums 1 to 100
+        assertEquals(5050L, (long) result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, engine.getModuleCache().size());
+  }
+
+  @Test
+  public void testMemberSitesStayMonomorphicAcrossContexts () throws Exception {
+    writeSource("tally.nanoscript", "class Tally begin\n" +
+                                    "  variable total as 0\n" +
+                                    "  method add: (n) set self.total to self.total + n endmethod\n" +
+                                    "endclass\n" +
+                                    "create t as Tally()\n" +
+                                    "for i in range(10) do t.add(i) endfor\n" +
+                                    "export t as value\n");
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.PER_RUN);
+    MemberInlineCache total = new MemberInlineCache("total");
+    MemberInlineCache add = new MemberInlineCache("add");
+
+    NSObject first = null;
+    for (int i = 0; i < 20; i++) {
+      // Each context creates its own class from the same compiled declaration
+      NSObject tally = (NSObject) engine.newContext().run("tally.nanoscript", temp.getRoot()).get("value");
+      if (first == null) {
+        first = tally;
+      } else {
+        assertNotSame(first.getConstructor(), tally.getConstructor());
+        assertSame(first.getShape(), tally.getShape());
+      }
+
+      assertEquals(45, ((NSNumber) total.access(tally)).toInt());
+      // The method must still be this context's
+      assertSame(tally.getConstructor().getRawInstanceMethod("add"), add.getMethod(tally));
+    }
+    assertEquals(1, total.getShapeCount());
+    assertEquals(1, add.getShapeCount());
+  }
+
+  @Test
+  public void testSharedObjectsBindMethodsOnceAcrossThreads () throws Exception {
+    StringBuilder methods = new StringBuilder();
+    for (int i = 0; i < 32; i++) {
+      methods.append("  method m").append(i).append(": () return ").append(i).append(" endmethod\n");
+    }
+    writeSource("shared.nanoscript", "class Shared begin\n" + methods + "endclass\n" +
+                                     "export Shared() as instance\n");
+    writeSource("main.nanoscript", "from `shared.nanoscript` import instance\n" +
+                                   "export instance as value\n");
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.SHARED);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<NSData>>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int offset = t;
+        results.add(executor.submit(() -> {
+          NSData instance = engine.newContext().run("main.nanoscript", temp.getRoot()).get("value");
+          List<NSData> bound = new ArrayList<>();
+          for (int i = 0; i < 32; i++) {
+            bound.add(instance.nsAccess("m" + (i + offset) % 32));
+          }
+          // Line up by method name
+          List<NSData> ordered = new ArrayList<>(bound.subList(32 - offset, 32));
+          ordered.addAll(bound.subList(0, 32 - offset));
+          return ordered;
+        }));
+      }
+      List<NSData> expected = results.get(0).get();
+      for (Future<List<NSData>> result : results) {
+        List<NSData> bound = result.get();
+        for (int i = 0; i < 32; i++) {
+          assertSame(expected.get(i), bound.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSharedObjectsGainMembersAcrossThreads () throws Exception {
+    NSObject obj = NSObject.from(null);
+    int threads = 4;
+    int members = 500;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        String prefix = "t" + t + "_";
+        writers.add(executor.submit(() -> {
+          for (int i = 0; i < members; i++) {
+            obj.nsAssign(prefix + i, NSNumber.from(i));
+          }
+        }));
+      }
+      // Reads through a cached shape must never outrun the object's values
+      Future<?> reader = executor.submit(() -> {
+        MemberInlineCache last = new MemberInlineCache("t0_" + (members - 1));
+        boolean done = false;
+        while (!done) {
+          done = writers.stream().allMatch(Future::isDone);
+          for (int i = 0; i < members; i++) {
+            try {
+              obj.nsAccess("t" + (i % threads) + "_" + i);
+            } catch (VMError e) {
+              // Not added yet
+            }
+          }
+          try {
+            last.access(obj);
+          } catch (VMError e) {
+            // Not added yet
+          }
+        }
+      });
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+      reader.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(threads * members, obj.getShape().getSize());
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < members; i++) {
+        assertEquals(i, ((NSNumber) obj.nsAccess("t" + t + "_" + i)).toInt());
+      }
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testContextsEnteringACycleFromBothEndsDoNotDeadlock () throws Exception {
+    // The slow imports make each context likely to be evaluating its end of
+    // the cycle when it reaches the other
+    String slow = "create n as 0\n" +
+                  "for i in range(100000) do set n to n + 1 endfor\n" +
+                  "export n as n\n";
+    writeSource("slow_a.nanoscript", slow);
+    writeSource("slow_b.nanoscript", slow);
+    writeSource("a.nanoscript", "from `slow_a.nanoscript` import n\n" +
+                                "from `b.nanoscript` import b\n" +
+                                "export 1 as a\n");
+    writeSource("b.nanoscript", "from `slow_b.nanoscript` import n\n" +
+                                "from `a.nanoscript` import a\n" +
+                                "export 1 as b\n");
+    writeSource("main_a.nanoscript", "from `a.nanoscript` import a\n" +
+                                     "export a as value\n");
+    writeSource("main_b.nanoscript", "from `b.nanoscript` import b\n" +
+                                     "export b as value\n");
+    ScriptEngine engine = new ScriptEngine(new ModuleCache(), ScriptEngine.ModulePolicy.SHARED);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (String main : new String[]{"main_a.nanoscript", "main_b.nanoscript"}) {
+        results.add(executor.submit(() -> {
+          try {
+            engine.newContext().run(main, temp.getRoot());
+            return false;
+          } catch (CyclicImportException | ExceptionFromSource e) {
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}